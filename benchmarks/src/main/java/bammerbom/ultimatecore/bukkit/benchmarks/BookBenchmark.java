@@ -0,0 +1,77 @@
+/*
+ * This file is part of UltimateCore, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Bammerbom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package bammerbom.ultimatecore.bukkit.benchmarks;
+
+import bammerbom.ultimatecore.bukkit.UltimateFileLoader;
+import bammerbom.ultimatecore.bukkit.resources.databases.BookDatabase;
+import bammerbom.ultimatecore.bukkit.resources.utils.BookUtil;
+import bammerbom.ultimatecore.bukkit.resources.utils.FileUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Book lookups as done for /book, with {@link #BOOKS} books of three pages in books.txt.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BookBenchmark {
+
+    public static final int BOOKS = 2000;
+
+    @Setup
+    public void setup() throws IOException {
+        Fixture.start();
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < BOOKS; i++) {
+            lines.add("#book" + i);
+            for (int page = 0; page < 3; page++) {
+                if (page > 0) {
+                    lines.add("[NEXTPAGE]");
+                }
+                lines.add("&6Page " + page + " of book " + i);
+                lines.add("&7Some text on the page, with && an escaped ampersand.");
+            }
+        }
+        FileUtil.writeFile(UltimateFileLoader.Dbooks, lines);
+        BookDatabase.enable();
+    }
+
+    @Benchmark
+    public List<String> read() {
+        return BookUtil.readBook("book" + (BOOKS - 1));
+    }
+
+    @Benchmark
+    public boolean exists() {
+        return BookUtil.bookExists("Book" + (BOOKS / 2));
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * This file is part of UltimateCore, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Bammerbom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package bammerbom.ultimatecore.bukkit.benchmarks;
+
+import bammerbom.ultimatecore.bukkit.benchmarks.stub.Stub;
+import bammerbom.ultimatecore.bukkit.resources.utils.MessageUtil;
+import org.bukkit.ChatColor;
+import org.bukkit.entity.Player;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A JSON message broadcast to {@link #RECIPIENTS} players.
+ * <p>
+ * The chat packets are real server packets from the CraftBukkit jar, the players hand them to a connection that only
+ * counts them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BroadcastBenchmark {
+
+    public static final int RECIPIENTS = 500;
+    private final List<Player> recipients = new ArrayList<>();
+    private final Connection connection = new Connection();
+
+    @Setup
+    public void setup() throws Exception {
+        Fixture.start();
+        //The stub server is not in a versioned CraftBukkit package
+        Field version = Class.forName("bammerbom.ultimatecore.bukkit.resources.utils.Reflection").getDeclaredField("_versionString");
+        version.setAccessible(true);
+        version.set(null, findVersion() + ".");
+        Handle handle = new Handle(connection);
+        for (int i = 0; i < RECIPIENTS; i++) {
+            recipients.add(new Stub("Recipient" + i).returns("getHandle", handle).create(Player.class, Handled.class));
+        }
+    }
+
+    private static String findVersion() throws IOException {
+        File jar = new File(Class.forName("org.bukkit.craftbukkit.Main", false, BroadcastBenchmark.class.getClassLoader()).getProtectionDomain().getCodeSource()
+                .getLocation().getPath());
+        Pattern pattern = Pattern.compile("net/minecraft/server/([^/]+)/PacketPlayOutChat\\.class");
+        try (JarFile file = new JarFile(jar)) {
+            Enumeration<JarEntry> entries = file.entries();
+            while (entries.hasMoreElements()) {
+                Matcher matcher = pattern.matcher(entries.nextElement().getName());
+                if (matcher.matches()) {
+                    return matcher.group(1);
+                }
+            }
+        }
+        throw new IOException("No server classes in " + jar);
+    }
+
+    @Benchmark
+    public int broadcast() {
+        int before = connection.sent;
+        new MessageUtil("Server restart in ").color(ChatColor.GOLD).then("5 minutes").color(ChatColor.RED).tooltip("Click for the reason").command("/restartinfo")
+                .send(recipients);
+        return connection.sent - before;
+    }
+
+    public interface Handled {
+
+        Handle getHandle();
+    }
+
+    public static class Handle {
+
+        public final Connection playerConnection;
+
+        Handle(Connection connection) {
+            this.playerConnection = connection;
+        }
+    }
+
+    public static class Connection {
+
+        int sent = 0;
+
+        public void sendPacket(Object packet) {
+            sent++;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * This file is part of UltimateCore, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Bammerbom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package bammerbom.ultimatecore.bukkit.benchmarks;
+
+import bammerbom.ultimatecore.bukkit.listeners.PluginStealListener;
+import bammerbom.ultimatecore.bukkit.listeners.UnknownCommandListener;
+import bammerbom.ultimatecore.bukkit.resources.cache.CommandCache;
+import org.bukkit.Bukkit;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+import org.bukkit.command.SimpleCommandMap;
+import org.bukkit.entity.Player;
+import org.bukkit.event.player.PlayerCommandPreprocessEvent;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Commands typed by players going through the preprocess listeners, in commands per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommandBenchmark {
+
+    private final UnknownCommandListener unknown = new UnknownCommandListener();
+    private final PluginStealListener steal = new PluginStealListener();
+    private Player player;
+
+    @Setup
+    public void setup() throws ReflectiveOperationException {
+        Fixture.start();
+        player = Fixture.getPlayer(0);
+        //The stub plugin manager has no command map, hand one with a few hundred commands to the cache
+        SimpleCommandMap map = new SimpleCommandMap(Bukkit.getServer());
+        for (int i = 0; i < 300; i++) {
+            map.register("plugin" + (i % 20), new Command("command" + i, "", "/command" + i, new ArrayList<String>()) {
+                @Override
+                public boolean execute(CommandSender cs, String label, String[] args) {
+                    return true;
+                }
+            });
+        }
+        Field known = SimpleCommandMap.class.getDeclaredField("knownCommands");
+        known.setAccessible(true);
+        set("commandMap", map);
+        set("knownCommands", known.get(map));
+        set("resolved", true);
+    }
+
+    private static void set(String name, Object value) throws ReflectiveOperationException {
+        Field f = CommandCache.class.getDeclaredField(name);
+        f.setAccessible(true);
+        f.set(null, value);
+    }
+
+    private boolean run(String message) {
+        PlayerCommandPreprocessEvent e = new PlayerCommandPreprocessEvent(player, message);
+        steal.onCommandPreprocess(e);
+        unknown.onPlayerCommandPreprocess(e);
+        return e.isCancelled();
+    }
+
+    @Benchmark
+    public boolean known() {
+        return run("/command150 some arguments here");
+    }
+
+    @Benchmark
+    public boolean prefixed() {
+        return run("/plugin3:command123");
+    }
+
+    @Benchmark
+    public boolean unknown() {
+        return run("/doesnotexist with arguments");
+    }
+}
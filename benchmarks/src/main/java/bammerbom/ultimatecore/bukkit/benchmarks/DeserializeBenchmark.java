@@ -0,0 +1,94 @@
+/*
+ * This file is part of UltimateCore, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Bammerbom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package bammerbom.ultimatecore.bukkit.benchmarks;
+
+import bammerbom.ultimatecore.bukkit.configuration.Config;
+import bammerbom.ultimatecore.bukkit.configuration.ConfigurationSerialization;
+import bammerbom.ultimatecore.bukkit.resources.utils.FileUtil;
+import org.bukkit.configuration.serialization.ConfigurationSerializable;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deserializing {@link #OBJECTS} serialized vectors, directly and by loading them from a yaml file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DeserializeBenchmark {
+
+    public static final int OBJECTS = 10000;
+    private Map<String, ?>[] maps;
+    private File file;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setup() throws IOException {
+        Fixture.start();
+        maps = new Map[OBJECTS];
+        List<String> lines = new ArrayList<>();
+        lines.add("objects:");
+        for (int i = 0; i < OBJECTS; i++) {
+            Map<String, Object> map = new HashMap<>();
+            map.put(ConfigurationSerialization.SERIALIZED_TYPE_KEY, "Vector");
+            map.put("x", i * 1.0D);
+            map.put("y", 64.0D);
+            map.put("z", -i * 1.0D);
+            maps[i] = map;
+            lines.add("- ==: Vector");
+            lines.add("  x: " + (i * 1.0D));
+            lines.add("  y: 64.0");
+            lines.add("  z: " + (-i * 1.0D));
+        }
+        file = new File(Fixture.getFolder(), "vectors.yml");
+        FileUtil.writeFile(file, lines);
+    }
+
+    @Benchmark
+    public void deserialize(Blackhole bh) {
+        for (Map<String, ?> map : maps) {
+            bh.consume(ConfigurationSerialization.deserializeObject(map));
+        }
+    }
+
+    @Benchmark
+    public List<?> load() {
+        List<?> objects = new Config(file).getList("objects");
+        if (objects.size() != OBJECTS || !(objects.get(0) instanceof ConfigurationSerializable)) {
+            throw new IllegalStateException("Objects were not deserialized");
+        }
+        return objects;
+    }
+}
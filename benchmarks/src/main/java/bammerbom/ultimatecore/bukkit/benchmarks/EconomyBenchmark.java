@@ -0,0 +1,95 @@
+/*
+ * This file is part of UltimateCore, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Bammerbom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package bammerbom.ultimatecore.bukkit.benchmarks;
+
+import bammerbom.ultimatecore.bukkit.api.UC;
+import bammerbom.ultimatecore.bukkit.api.UEconomy;
+import net.milkbowl.vault.economy.EconomyResponse;
+import org.bukkit.entity.Player;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Balance operations through the Vault interface, with the balances written on every change or only by the autosave
+ * flush.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EconomyBenchmark {
+
+    @Param({"true", "false"})
+    public boolean deferred;
+    private UEconomy economy;
+    private int i = 0;
+
+    @Setup
+    public void setup() {
+        Fixture.start();
+        economy = UC.ueconomy;
+        UEconomy.setDeferredSaving(deferred);
+        for (Player pl : Fixture.getPlayers()) {
+            economy.depositPlayer(pl, 1000000);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        UEconomy.stop();
+    }
+
+    private Player next() {
+        i = (i + 1) % Fixture.PLAYERS;
+        return Fixture.getPlayer(i);
+    }
+
+    @Benchmark
+    public double getBalance() {
+        return economy.getBalance(next());
+    }
+
+    @Benchmark
+    public boolean has() {
+        return economy.has(next(), 10);
+    }
+
+    @Benchmark
+    public EconomyResponse deposit() {
+        return economy.depositPlayer(next(), 1);
+    }
+
+    @Benchmark
+    public EconomyResponse withdraw() {
+        return economy.withdrawPlayer(next(), 1);
+    }
+
+    @Benchmark
+    public String format() {
+        return economy.format(1234.5);
+    }
+}
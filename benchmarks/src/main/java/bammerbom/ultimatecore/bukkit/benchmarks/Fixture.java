@@ -0,0 +1,145 @@
+/*
+ * This file is part of UltimateCore, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Bammerbom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package bammerbom.ultimatecore.bukkit.benchmarks;
+
+import bammerbom.ultimatecore.bukkit.UltimateCore;
+import bammerbom.ultimatecore.bukkit.UltimateFileLoader;
+import bammerbom.ultimatecore.bukkit.api.UC;
+import bammerbom.ultimatecore.bukkit.api.UEconomy;
+import bammerbom.ultimatecore.bukkit.benchmarks.stub.StubServer;
+import bammerbom.ultimatecore.bukkit.benchmarks.stub.StubWorld;
+import bammerbom.ultimatecore.bukkit.r;
+import bammerbom.ultimatecore.bukkit.resources.cache.ChatMetaCache;
+import bammerbom.ultimatecore.bukkit.resources.databases.ItemDatabase;
+import bammerbom.ultimatecore.bukkit.resources.utils.ItemUtil;
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.PluginDescriptionFile;
+import org.bukkit.plugin.java.JavaPluginLoader;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Starts the parts of UltimateCore the benchmarks need on a {@link StubServer}, once per forked JVM.
+ * <p>
+ * The data folder is a temporary directory, filled from the resources in the plugin jar like on a fresh server.
+ */
+public class Fixture {
+
+    public static final int PLAYERS = 50;
+    private static StubServer server = null;
+    private static StubWorld world = null;
+    private static File folder = null;
+
+    public static synchronized void start() {
+        if (server != null) {
+            return;
+        }
+        try {
+            folder = Files.createTempDirectory("ultimatecore-bench").toFile();
+            server = new StubServer();
+            Bukkit.setServer(server.getServer());
+            world = server.addWorld("world");
+            for (int i = 0; i < PLAYERS; i++) {
+                server.addPlayer("Player" + i, world);
+            }
+            new BenchmarkPlugin(server, folder);
+            //Resources that are not in the plugin jar
+            new File(folder, "kits.yml").createNewFile();
+            new File(folder, "books.txt").createNewFile();
+            new File(folder, "custommessages.yml").createNewFile();
+            UltimateFileLoader.Enable();
+            r.enableMES();
+            r.start();
+            loadItemIds();
+            ItemDatabase.enable();
+            UEconomy.start();
+            UC.ueconomy = new UEconomy();
+            ChatMetaCache.start();
+            for (Player pl : getPlayers()) {
+                UC.getPlayer(pl);
+            }
+        } catch (IOException ex) {
+            throw new IllegalStateException("Failed to start benchmark fixture", ex);
+        }
+    }
+
+    public static List<Player> getPlayers() {
+        return server.getOnlinePlayers();
+    }
+
+    public static Player getPlayer(int i) {
+        return server.getOnlinePlayers().get(i % PLAYERS);
+    }
+
+    public static StubServer getServer() {
+        return server;
+    }
+
+    public static StubWorld getWorld() {
+        return world;
+    }
+
+    public static File getFolder() {
+        return folder;
+    }
+
+    /**
+     * ItemUtil reads the item ids from the server internals, which the stub server doesn't have.
+     */
+    @SuppressWarnings("unchecked")
+    private static void loadItemIds() {
+        try {
+            Field idsField = ItemUtil.class.getDeclaredField("ids");
+            Field materialsField = ItemUtil.class.getDeclaredField("materials");
+            idsField.setAccessible(true);
+            materialsField.setAccessible(true);
+            Map<Material, String> ids = (Map<Material, String>) idsField.get(null);
+            Map<String, Material> materials = (Map<String, Material>) materialsField.get(null);
+            for (Material mat : Material.values()) {
+                String id = "minecraft:" + mat.name().toLowerCase(Locale.ENGLISH);
+                ids.put(mat, id);
+                materials.put(id, mat);
+            }
+        } catch (ReflectiveOperationException ex) {
+            throw new IllegalStateException("Failed to load item ids", ex);
+        }
+    }
+
+    private static class BenchmarkPlugin extends UltimateCore {
+
+        @SuppressWarnings("deprecation")
+        BenchmarkPlugin(StubServer server, File folder) {
+            super(new JavaPluginLoader(server.getServer()), new PluginDescriptionFile("UltimateCore", "benchmark", UltimateCore.class.getName()), folder, new File(folder,
+                    "UltimateCore.jar"));
+        }
+    }
+}
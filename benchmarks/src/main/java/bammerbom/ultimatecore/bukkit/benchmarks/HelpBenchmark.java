@@ -0,0 +1,193 @@
+/*
+ * This file is part of UltimateCore, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Bammerbom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package bammerbom.ultimatecore.bukkit.benchmarks;
+
+import bammerbom.ultimatecore.bukkit.benchmarks.stub.Stub;
+import bammerbom.ultimatecore.bukkit.commands.CmdHelp;
+import bammerbom.ultimatecore.bukkit.resources.cache.PermissionCache;
+import net.milkbowl.vault.permission.Permission;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.InvalidDescriptionException;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.PluginDescriptionFile;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.StringReader;
+import java.lang.reflect.Field;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rendering /help for a player who isn't op, with {@link #PLUGINS} plugins of {@link #COMMANDS} commands that each have
+ * their own permission, with and without the permission cache.
+ * <p>
+ * The Vault provider answers from a set, real providers are slower, so the difference here is the smallest it gets.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HelpBenchmark {
+
+    public static final int PLUGINS = 20;
+    public static final int COMMANDS = 15;
+    @Param({"true", "false"})
+    public boolean cache;
+    private final CmdHelp help = new CmdHelp();
+    private Player player;
+
+    @Setup
+    public void setup() throws ReflectiveOperationException, InvalidDescriptionException {
+        Fixture.start();
+        player = Fixture.getPlayer(0);
+        Set<String> granted = new HashSet<>();
+        granted.add("uc.help");
+        for (int i = 0; i < PLUGINS; i++) {
+            StringBuilder yaml = new StringBuilder("name: Plugin" + i + "\nversion: 1\nmain: plugin" + i + ".Main\ncommands:\n");
+            for (int j = 0; j < COMMANDS; j++) {
+                yaml.append("  command").append(i).append('_').append(j).append(":\n    description: Command ").append(j).append(" of plugin ").append(i).append
+                        ("\n    permission: plugin").append(i).append(".command").append(j).append('\n');
+                //The player may use half of the commands
+                if (j % 2 == 0) {
+                    granted.add("plugin" + i + ".command" + j);
+                }
+            }
+            PluginDescriptionFile desc = new PluginDescriptionFile(new StringReader(yaml.toString()));
+            Fixture.getServer().addPlugin(new Stub("StubPlugin{" + i + "}").returns("getDescription", desc).returns("getName", desc.getName()).returns("isEnabled", true)
+                    .create(Plugin.class));
+        }
+        set("provider", new SetPermission(granted));
+        set("resolved", true);
+        set("enabled", cache);
+    }
+
+    private static void set(String name, Object value) throws ReflectiveOperationException {
+        Field f = PermissionCache.class.getDeclaredField(name);
+        f.setAccessible(true);
+        f.set(null, value);
+    }
+
+    @Benchmark
+    public void help() {
+        help.run(player, "help", new String[0]);
+    }
+
+    @SuppressWarnings("deprecation")
+    private static class SetPermission extends Permission {
+
+        private final Set<String> granted;
+
+        SetPermission(Set<String> granted) {
+            this.granted = granted;
+        }
+
+        @Override
+        public boolean has(Player player, String permission) {
+            return granted.contains(permission);
+        }
+
+        @Override
+        public String getName() {
+            return "Benchmark";
+        }
+
+        @Override
+        public boolean isEnabled() {
+            return true;
+        }
+
+        @Override
+        public boolean hasSuperPermsCompat() {
+            return false;
+        }
+
+        @Override
+        public boolean playerHas(String world, String player, String permission) {
+            return granted.contains(permission);
+        }
+
+        @Override
+        public boolean playerAdd(String world, String player, String permission) {
+            return false;
+        }
+
+        @Override
+        public boolean playerRemove(String world, String player, String permission) {
+            return false;
+        }
+
+        @Override
+        public boolean groupHas(String world, String group, String permission) {
+            return false;
+        }
+
+        @Override
+        public boolean groupAdd(String world, String group, String permission) {
+            return false;
+        }
+
+        @Override
+        public boolean groupRemove(String world, String group, String permission) {
+            return false;
+        }
+
+        @Override
+        public boolean playerInGroup(String world, String player, String group) {
+            return false;
+        }
+
+        @Override
+        public boolean playerAddGroup(String world, String player, String group) {
+            return false;
+        }
+
+        @Override
+        public boolean playerRemoveGroup(String world, String player, String group) {
+            return false;
+        }
+
+        @Override
+        public String[] getPlayerGroups(String world, String player) {
+            return new String[0];
+        }
+
+        @Override
+        public String getPrimaryGroup(String world, String player) {
+            return null;
+        }
+
+        @Override
+        public String[] getGroups() {
+            return new String[0];
+        }
+
+        @Override
+        public boolean hasGroupSupport() {
+            return false;
+        }
+    }
+}
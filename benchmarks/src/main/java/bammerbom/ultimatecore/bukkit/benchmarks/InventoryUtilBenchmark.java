@@ -0,0 +1,76 @@
+/*
+ * This file is part of UltimateCore, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Bammerbom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package bammerbom.ultimatecore.bukkit.benchmarks;
+
+import bammerbom.ultimatecore.bukkit.resources.utils.InventoryUtil;
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Item stacks without meta only, the stub server has no item meta implementation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InventoryUtilBenchmark {
+
+    @Param({"9", "54"})
+    public int filled;
+    private Inventory inventory;
+    private String serialized;
+
+    @Setup
+    @SuppressWarnings("deprecation")
+    public void setup() {
+        Fixture.start();
+        inventory = Bukkit.createInventory(null, 54, "Benchmark");
+        Material[] materials = {Material.STONE, Material.DIAMOND_SWORD, Material.WOOL, Material.GOLDEN_APPLE, Material.TORCH};
+        for (int i = 0; i < filled; i++) {
+            ItemStack stack = new ItemStack(materials[i % materials.length], 1 + i % 64);
+            if (stack.getType() == Material.WOOL) {
+                stack.setDurability((short) (i % 16));
+            }
+            inventory.setItem(i, stack);
+        }
+        serialized = InventoryUtil.convertInventoryToString(inventory);
+    }
+
+    @Benchmark
+    public String serialize() {
+        return InventoryUtil.convertInventoryToString(inventory);
+    }
+
+    @Benchmark
+    public Inventory deserialize() {
+        return InventoryUtil.convertStringToInventory(serialized, "Benchmark");
+    }
+}
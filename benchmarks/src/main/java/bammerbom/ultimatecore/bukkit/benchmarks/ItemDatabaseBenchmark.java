@@ -0,0 +1,67 @@
+/*
+ * This file is part of UltimateCore, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Bammerbom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package bammerbom.ultimatecore.bukkit.benchmarks;
+
+import bammerbom.ultimatecore.bukkit.resources.databases.ItemDatabase;
+import org.bukkit.inventory.ItemStack;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ItemDatabaseBenchmark {
+
+    //Material name, alias, alias with data, numeric id, namespaced id, an unknown name and two misspelled names
+    @Param({"stone", "dsword", "wool:14", "276", "minecraft:golden_apple", "notanitem", "dimond_swrod", "glod"})
+    public String name;
+
+    @Setup
+    public void setup() {
+        Fixture.start();
+        //The suggestion index is built on first use
+        ItemDatabase.getSuggestions("stone");
+    }
+
+    @Benchmark
+    public ItemStack getItem() {
+        return ItemDatabase.getItem(name);
+    }
+
+    @Benchmark
+    public ItemStack getItemUncached() {
+        ItemDatabase.clearCache();
+        return ItemDatabase.getItem(name);
+    }
+
+    @Benchmark
+    public List<String> getSuggestions() {
+        return ItemDatabase.getSuggestions(name);
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * This file is part of UltimateCore, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Bammerbom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package bammerbom.ultimatecore.bukkit.benchmarks;
+
+import bammerbom.ultimatecore.bukkit.JsonConfig;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonConfigBenchmark {
+
+    @Param({"100", "10000"})
+    public int keys;
+    private JsonConfig config;
+    private String[] names;
+    private int i = 0;
+
+    @Setup
+    public void setup() throws IOException {
+        Fixture.start();
+        File file = new File(Fixture.getFolder(), "config-" + keys + ".json");
+        file.delete();
+        file.createNewFile();
+        config = new JsonConfig(file);
+        names = new String[keys];
+        for (int j = 0; j < keys; j++) {
+            names[j] = "section" + (j % 10) + ".key" + j;
+            config.set(names[j], j * 1.5D);
+        }
+    }
+
+    private String next() {
+        i = (i + 1) % names.length;
+        return names[i];
+    }
+
+    @Benchmark
+    public Object get() {
+        return config.get(next());
+    }
+
+    @Benchmark
+    public Double getDouble() {
+        return config.getDouble(next());
+    }
+
+    @Benchmark
+    public void set() {
+        config.set(next(), i);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void save() {
+        config.save();
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * This file is part of UltimateCore, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Bammerbom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package bammerbom.ultimatecore.bukkit.benchmarks;
+
+import bammerbom.ultimatecore.bukkit.benchmarks.stub.StubWorld;
+import bammerbom.ultimatecore.bukkit.resources.utils.LocationUtil;
+import org.bukkit.Location;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LocationUtilBenchmark {
+
+    //Standing on grass, standing in lava, falling from the sky and stuck inside stone
+    @Param({"safe", "lava", "air", "buried"})
+    public String spot;
+    private Location location;
+
+    @Setup
+    public void setup() {
+        Fixture.start();
+        switch (spot) {
+            case "safe":
+                location = new Location(Fixture.getWorld().getWorld(), 1.5, StubWorld.GROUND + 1, 0.5);
+                break;
+            case "lava":
+                location = new Location(Fixture.getWorld().getWorld(), 0.5, StubWorld.GROUND + 1, 0.5);
+                break;
+            case "air":
+                location = new Location(Fixture.getWorld().getWorld(), 1.5, StubWorld.GROUND + 40, 0.5);
+                break;
+            default:
+                location = new Location(Fixture.getWorld().getWorld(), 1.5, StubWorld.GROUND - 20, 0.5);
+                break;
+        }
+    }
+
+    @Benchmark
+    public Location searchSafeLocation() {
+        return LocationUtil.searchSafeLocation(location);
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * This file is part of UltimateCore, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Bammerbom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package bammerbom.ultimatecore.bukkit.benchmarks;
+
+import bammerbom.ultimatecore.bukkit.r;
+import bammerbom.ultimatecore.bukkit.resources.databases.NameDatabase;
+import org.bukkit.OfflinePlayer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Name lookups of offline players, with {@link #NAMES} players in the directory. Unknown names go to a local resolver instead
+ * of Mojang.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NameBenchmark {
+
+    public static final int NAMES = 100000;
+
+    @Setup
+    public void setup() {
+        Fixture.start();
+        for (int i = 0; i < NAMES; i++) {
+            NameDatabase.setName(new UUID(0, i), "Offline" + i);
+        }
+        NameDatabase.setResolver(new NameDatabase.Resolver() {
+            @Override
+            public Map.Entry<String, UUID> resolve(String name) {
+                //Nobody has this name, so it is resolved again on every lookup
+                return null;
+            }
+        });
+    }
+
+    @Benchmark
+    public OfflinePlayer known() {
+        return r.searchOfflinePlayer("offline" + (NAMES / 2));
+    }
+
+    @Benchmark
+    public OfflinePlayer unknown() {
+        return r.searchOfflinePlayer("Nobody");
+    }
+
+    @Benchmark
+    public UUID directory() {
+        return NameDatabase.getUUID("OFFLINE" + (NAMES - 1));
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * This file is part of UltimateCore, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Bammerbom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package bammerbom.ultimatecore.bukkit.benchmarks;
+
+import bammerbom.ultimatecore.bukkit.UltimateFileLoader;
+import bammerbom.ultimatecore.bukkit.UltimateStartup;
+import bammerbom.ultimatecore.bukkit.UltimateWorldLoader;
+import bammerbom.ultimatecore.bukkit.api.UServer;
+import bammerbom.ultimatecore.bukkit.commands.CmdRules;
+import bammerbom.ultimatecore.bukkit.r;
+import bammerbom.ultimatecore.bukkit.resources.databases.BookDatabase;
+import bammerbom.ultimatecore.bukkit.resources.databases.ItemDatabase;
+import bammerbom.ultimatecore.bukkit.resources.databases.NameDatabase;
+import bammerbom.ultimatecore.bukkit.resources.utils.UuidUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The file loading part of startup on the stub server, one step after the other and as the startup graph of
+ * UltimateCore.onEnable. The steps that register commands and listeners need a real server and are left out.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StartupBenchmark {
+
+    @Setup
+    public void setup() {
+        Fixture.start();
+    }
+
+    @Benchmark
+    public void sequential() {
+        UltimateFileLoader.Enable();
+        r.enableMES();
+        ItemDatabase.enable();
+        UServer.loadMotd();
+        CmdRules.start();
+        BookDatabase.enable();
+        UltimateWorldLoader.prepare();
+        UuidUtil.PlayerScan scan = UuidUtil.listPlayers();
+        NameDatabase.enable();
+        UuidUtil.readPlayers(scan);
+        UuidUtil.finishPlayers(scan);
+    }
+
+    @Benchmark
+    public void graph() {
+        final UuidUtil.PlayerScan[] players = new UuidUtil.PlayerScan[1];
+        new UltimateStartup().main("files", new Runnable() {
+            @Override
+            public void run() {
+                UltimateFileLoader.Enable();
+            }
+        }).async("messages", new Runnable() {
+            @Override
+            public void run() {
+                r.enableMES();
+            }
+        }, "files").async("items", new Runnable() {
+            @Override
+            public void run() {
+                ItemDatabase.enable();
+            }
+        }, "files").async("motd", new Runnable() {
+            @Override
+            public void run() {
+                UServer.loadMotd();
+            }
+        }, "files").async("texts", new Runnable() {
+            @Override
+            public void run() {
+                CmdRules.start();
+                BookDatabase.enable();
+            }
+        }, "files").async("worldlist", new Runnable() {
+            @Override
+            public void run() {
+                UltimateWorldLoader.prepare();
+            }
+        }, "files").main("playerlist", new Runnable() {
+            @Override
+            public void run() {
+                players[0] = UuidUtil.listPlayers();
+            }
+        }, "files").async("players", new Runnable() {
+            @Override
+            public void run() {
+                NameDatabase.enable();
+                UuidUtil.readPlayers(players[0]);
+            }
+        }, "playerlist").main("playernames", new Runnable() {
+            @Override
+            public void run() {
+                UuidUtil.finishPlayers(players[0]);
+            }
+        }, "players", "messages").run();
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * This file is part of UltimateCore, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Bammerbom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package bammerbom.ultimatecore.bukkit.benchmarks;
+
+import bammerbom.ultimatecore.bukkit.resources.storage.JsonBackend;
+import bammerbom.ultimatecore.bukkit.resources.storage.SqlBackend;
+import bammerbom.ultimatecore.bukkit.resources.storage.StorageBackend;
+import bammerbom.ultimatecore.bukkit.resources.storage.Store;
+import org.json.simple.JSONArray;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading and writing player documents through each storage backend.
+ * <p>
+ * Before measuring, the backend has to pass the {@link StorageConformance} checks.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StorageBenchmark {
+
+    @Param({"json", "sqlite"})
+    public String backend;
+    private StorageBackend storage;
+    private String id;
+    private long counter = 0;
+
+    @Setup
+    public void setup() throws IOException {
+        Fixture.start();
+        StorageConformance.of(backend).run();
+        storage = open();
+        id = UUID.randomUUID().toString();
+        fill();
+    }
+
+    @TearDown
+    public void tearDown() {
+        storage.close();
+    }
+
+    private StorageBackend open() throws IOException {
+        StorageBackend storage = backend.equals("json") ? new JsonBackend() : new SqlBackend(new File(Fixture.getFolder(), "storage-bench.db"));
+        storage.open();
+        return storage;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void fill() {
+        JSONArray homes = new JSONArray();
+        homes.add("base");
+        homes.add("mine");
+        Map<String, Object> values = new HashMap<>();
+        values.put("name", "Player0");
+        values.put("kills", 42L);
+        values.put("balance", 12.5D);
+        values.put("flying", true);
+        values.put("homes", homes);
+        storage.write(Store.PLAYERS, id, values);
+    }
+
+    @Benchmark
+    public void write() {
+        storage.write(Store.PLAYERS, id, Collections.<String, Object>singletonMap("kills", counter++));
+    }
+
+    @Benchmark
+    public Map<String, Object> read() {
+        return storage.read(Store.PLAYERS, id);
+    }
+
+    @Benchmark
+    public List<String> list() {
+        return storage.list(Store.PLAYERS);
+    }
+}
@@ -0,0 +1,311 @@
+/*
+ * This file is part of UltimateCore, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Bammerbom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package bammerbom.ultimatecore.bukkit.benchmarks;
+
+import bammerbom.ultimatecore.bukkit.resources.storage.JsonBackend;
+import bammerbom.ultimatecore.bukkit.resources.storage.SqlBackend;
+import bammerbom.ultimatecore.bukkit.resources.storage.StorageBackend;
+import bammerbom.ultimatecore.bukkit.resources.storage.Store;
+import org.json.simple.JSONArray;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * The behaviour every {@link StorageBackend} must have, checked the same way for each backend and each {@link Store}.
+ * {@link StorageBenchmark} runs it before measuring, {@link #main} runs it for all backends.
+ * <p>
+ * The player store gets new documents for every check. The other stores have a single document that is shared with the
+ * rest of the plugin, so only entries under {@link #prefix} are written there, and they are removed again at the end.
+ */
+public abstract class StorageConformance {
+
+    private static final int THREADS = 8;
+    private static final int WRITES = 25;
+    private final String prefix = "conformance." + Long.toHexString(System.nanoTime()) + ".";
+    //The document and entries of the value types check of each store, read again after reopening
+    private final Map<Store, String> ids = new EnumMap<>(Store.class);
+    private final Map<Store, Map<String, Object>> expected = new EnumMap<>(Store.class);
+    //Every entry that was written, so it can be removed at the end
+    private final Map<Store, Map<String, Set<String>>> written = new EnumMap<>(Store.class);
+    private final Set<String> removed = new HashSet<>();
+    private StorageBackend storage;
+
+    public static StorageConformance of(String backend) {
+        return backend.equals("json") ? new Json() : new Sqlite();
+    }
+
+    public static void main(String[] args) throws IOException {
+        Fixture.start();
+        for (String backend : new String[]{"json", "sqlite"}) {
+            of(backend).run();
+            System.out.println(backend + ": passed");
+        }
+    }
+
+    protected abstract StorageBackend create();
+
+    public void run() throws IOException {
+        storage = open();
+        try {
+            for (Store store : Store.values()) {
+                written.put(store, new HashMap<String, Set<String>>());
+                checkValueTypes(store);
+                checkRemovedEntries(store);
+                checkQueuedReads(store);
+                checkConcurrentWrites(store);
+                checkListAfterRemovingAll(store);
+            }
+            checkUnknownDocument();
+            checkReopen();
+        } finally {
+            cleanUp();
+            storage.close();
+        }
+    }
+
+    /**
+     * Strings, longs, doubles, booleans and arrays are read back as they were written.
+     */
+    @SuppressWarnings("unchecked")
+    private void checkValueTypes(Store store) {
+        String id = id(store);
+        JSONArray homes = new JSONArray();
+        homes.add("base");
+        homes.add("mine");
+        Map<String, Object> values = new HashMap<>();
+        values.put(key("name"), "Player0");
+        values.put(key("kills"), 42L);
+        values.put(key("balance"), 12.5D);
+        values.put(key("flying"), true);
+        values.put(key("homes"), homes);
+        write(store, id, values);
+        checkEntries(store, id, values, "value types");
+        ids.put(store, id);
+        expected.put(store, values);
+    }
+
+    /**
+     * Entries with a null value are removed, entries that are not in the changes are kept.
+     */
+    private void checkRemovedEntries(Store store) {
+        String id = id(store);
+        Map<String, Object> values = new HashMap<>();
+        values.put(key("a"), "a");
+        values.put(key("b"), "b");
+        values.put(key("c"), "c");
+        write(store, id, values);
+        Map<String, Object> changes = new HashMap<>();
+        changes.put(key("a"), null);
+        changes.put(key("b"), "b2");
+        write(store, id, changes);
+        Map<String, Object> data = storage.read(store, id);
+        check(!data.containsKey(key("a")), store + ": removed entry is still there");
+        check("b2".equals(data.get(key("b"))), store + ": changed entry is " + data.get(key("b")));
+        check("c".equals(data.get(key("c"))), store + ": untouched entry is " + data.get(key("c")));
+    }
+
+    /**
+     * A read right after a write sees the write, also while it is still waiting to be written.
+     */
+    private void checkQueuedReads(Store store) {
+        for (int i = 0; i < WRITES; i++) {
+            String id = id(store);
+            write(store, id, Collections.<String, Object>singletonMap(key("queued." + i), (long) i));
+            Object value = storage.read(store, id).get(key("queued." + i));
+            check(Long.valueOf(i).equals(value), store + ": queued write " + i + " was read as " + value);
+            write(store, id, Collections.<String, Object>singletonMap(key("queued." + i), null));
+            check(!storage.read(store, id).containsKey(key("queued." + i)), store + ": queued removal " + i + " was not seen");
+        }
+    }
+
+    /**
+     * Threads that write different entries of the same document at the same time don't lose each other's writes.
+     */
+    private void checkConcurrentWrites(final Store store) {
+        final String id = id(store);
+        final CountDownLatch start = new CountDownLatch(1);
+        final Queue<Throwable> errors = new ConcurrentLinkedQueue<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            final int thread = t;
+            threads.add(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        for (int i = 0; i < WRITES; i++) {
+                            write(store, id, Collections.<String, Object>singletonMap(key("thread" + thread + "." + i), (long) i));
+                            storage.read(store, id);
+                        }
+                    } catch (Throwable ex) {
+                        errors.add(ex);
+                    }
+                }
+            }, "Storage conformance " + t));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(ex);
+            }
+        }
+        check(errors.isEmpty(), store + ": concurrent write failed: " + errors.peek());
+        Map<String, Object> values = new HashMap<>();
+        for (int t = 0; t < THREADS; t++) {
+            for (int i = 0; i < WRITES; i++) {
+                values.put(key("thread" + t + "." + i), (long) i);
+            }
+        }
+        checkEntries(store, id, values, "concurrent writes");
+    }
+
+    /**
+     * A document is listed exactly when it has entries, also right after its last entry is removed.
+     */
+    private void checkListAfterRemovingAll(Store store) {
+        String id = id(store);
+        Map<String, Object> values = new HashMap<>();
+        values.put(key("x"), "x");
+        values.put(key("y"), 1L);
+        write(store, id, values);
+        check(storage.list(store).contains(id), store + ": document with entries is not listed");
+        Map<String, Object> changes = new HashMap<>();
+        changes.put(key("x"), null);
+        changes.put(key("y"), null);
+        write(store, id, changes);
+        boolean empty = storage.read(store, id).isEmpty();
+        check(storage.list(store).contains(id) != empty, store + ": listed is " + !empty + " for a document that is " + (empty ? "empty" : "not empty"));
+        if (store == Store.PLAYERS) {
+            check(empty, store + ": document is not empty after removing all entries");
+            removed.add(id);
+        }
+    }
+
+    private void checkUnknownDocument() {
+        String id = UUID.randomUUID().toString();
+        check(storage.read(Store.PLAYERS, id).isEmpty(), "unknown document is not empty");
+        check(!storage.list(Store.PLAYERS).contains(id), "unknown document is listed");
+    }
+
+    /**
+     * Everything is still there after the backend is closed and opened again.
+     */
+    private void checkReopen() throws IOException {
+        storage.close();
+        storage = open();
+        for (Store store : Store.values()) {
+            checkEntries(store, ids.get(store), expected.get(store), "reopen");
+        }
+        List<String> players = storage.list(Store.PLAYERS);
+        check(players.contains(ids.get(Store.PLAYERS)), "document is not listed after reopening");
+        for (String id : removed) {
+            check(!players.contains(id), "emptied document is listed after reopening");
+        }
+    }
+
+    private void cleanUp() {
+        for (Map.Entry<Store, Map<String, Set<String>>> store : written.entrySet()) {
+            for (Map.Entry<String, Set<String>> document : store.getValue().entrySet()) {
+                Map<String, Object> changes = new HashMap<>();
+                for (String key : document.getValue()) {
+                    changes.put(key, null);
+                }
+                storage.write(store.getKey(), document.getKey(), changes);
+            }
+        }
+    }
+
+    private StorageBackend open() throws IOException {
+        StorageBackend storage = create();
+        storage.open();
+        return storage;
+    }
+
+    private void write(Store store, String id, Map<String, Object> changes) {
+        synchronized (written) {
+            Set<String> keys = written.get(store).get(id);
+            if (keys == null) {
+                keys = new HashSet<>();
+                written.get(store).put(id, keys);
+            }
+            keys.addAll(changes.keySet());
+        }
+        storage.write(store, id, changes);
+    }
+    private void checkEntries(Store store, String id, Map<String, Object> values, String check) {
+        Map<String, Object> data = storage.read(store, id);
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            check(entry.getValue().equals(data.get(entry.getKey())), store + ": " + check + ": " + entry.getKey() + " is " + data.get(entry.getKey()) + " instead of " +
+                    entry.getValue());
+        }
+    }
+
+    private void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException(storage.getName() + " failed: " + message);
+        }
+    }
+
+    private String key(String name) {
+        return prefix + name;
+    }
+
+    private static String id(Store store) {
+        return store == Store.PLAYERS ? UUID.randomUUID().toString() : "";
+    }
+
+    private static class Json extends StorageConformance {
+
+        @Override
+        protected StorageBackend create() {
+            return new JsonBackend();
+        }
+    }
+
+    private static class Sqlite extends StorageConformance {
+
+        private final File file = new File(Fixture.getFolder(), "storage-conformance.db");
+
+        Sqlite() {
+            for (String suffix : new String[]{"", "-wal", "-shm"}) {
+                new File(file.getPath() + suffix).delete();
+            }
+        }
+
+        @Override
+        protected StorageBackend create() {
+            return new SqlBackend(file);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * This file is part of UltimateCore, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Bammerbom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package bammerbom.ultimatecore.bukkit.benchmarks;
+
+import bammerbom.ultimatecore.bukkit.api.UC;
+import bammerbom.ultimatecore.bukkit.api.UEconomy;
+import net.milkbowl.vault.economy.EconomyResponse;
+import org.bukkit.entity.Player;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stress test of {@link UEconomy#transfer(String, String, double)} with {@link #PAYERS} threads paying random players.
+ * <p>
+ * Every transfer moves a whole amount, so the sum of all balances is exact and has to be the same after every
+ * iteration. The iteration fails when money was created or lost.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(TransferBenchmark.PAYERS)
+@Fork(1)
+public class TransferBenchmark {
+
+    public static final int PAYERS = 32;
+    private UEconomy economy;
+    private String[] accounts;
+    private double total;
+
+    @Setup
+    public void setup() {
+        Fixture.start();
+        economy = UC.ueconomy;
+        UEconomy.setDeferredSaving(true);
+        accounts = new String[Fixture.PLAYERS];
+        for (int i = 0; i < Fixture.PLAYERS; i++) {
+            Player pl = Fixture.getPlayer(i);
+            accounts[i] = pl.getUniqueId().toString();
+            economy.depositPlayer(pl, 1000);
+        }
+        total = sum();
+    }
+
+    private double sum() {
+        double rtrn = 0;
+        for (String account : accounts) {
+            rtrn += economy.getBalance(account);
+        }
+        return rtrn;
+    }
+
+    @TearDown(Level.Iteration)
+    public void check() {
+        double now = sum();
+        if (now != total) {
+            throw new IllegalStateException("Money is not conserved: " + total + " before, " + now + " after");
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        UEconomy.stop();
+    }
+
+    @Benchmark
+    public EconomyResponse transfer() {
+        Random random = ThreadLocalRandom.current();
+        String from = accounts[random.nextInt(accounts.length)];
+        String to = accounts[random.nextInt(accounts.length)];
+        return economy.transfer(from, to, 1 + random.nextInt(50));
+    }
+}
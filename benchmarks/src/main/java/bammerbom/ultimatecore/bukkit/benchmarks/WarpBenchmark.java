@@ -0,0 +1,96 @@
+/*
+ * This file is part of UltimateCore, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Bammerbom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package bammerbom.ultimatecore.bukkit.benchmarks;
+
+import bammerbom.ultimatecore.bukkit.resources.databases.WarpDatabase;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Warp lookups with {@link #WARPS} warps spread over a 20000 by 20000 block area.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WarpBenchmark {
+
+    public static final int WARPS = 10000;
+    private Location center;
+    private Location far;
+
+    @Setup
+    public void setup() {
+        Fixture.start();
+        World world = Fixture.getWorld().getWorld();
+        Random random = new Random(0);
+        Map<String, Location> warps = new HashMap<>();
+        for (int i = 0; i < WARPS; i++) {
+            warps.put("warp" + i, new Location(world, random.nextInt(20000) - 10000, 64, random.nextInt(20000) - 10000));
+        }
+        WarpDatabase.setWarps(warps);
+        center = new Location(world, 0, 64, 0);
+        //Far outside the area, the nearest warp is thousands of cells away
+        far = new Location(world, 500000, 64, 500000);
+    }
+
+    @TearDown
+    public void tearDown() {
+        WarpDatabase.setWarps(new HashMap<String, Location>());
+    }
+
+    @Benchmark
+    public Location get() {
+        return WarpDatabase.getWarp("warp" + (WARPS / 2));
+    }
+
+    @Benchmark
+    public String nearest() {
+        return WarpDatabase.getNearestWarp(center);
+    }
+
+    @Benchmark
+    public String nearestFar() {
+        return WarpDatabase.getNearestWarp(far);
+    }
+
+    @Benchmark
+    public List<String> within() {
+        return WarpDatabase.getWarpsNear(center, 500);
+    }
+
+    @Benchmark
+    public List<String> withinHuge() {
+        return WarpDatabase.getWarpsNear(center, 60000000);
+    }
+}
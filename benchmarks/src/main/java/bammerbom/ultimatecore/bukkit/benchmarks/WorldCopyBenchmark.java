@@ -0,0 +1,123 @@
+/*
+ * This file is part of UltimateCore, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Bammerbom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package bammerbom.ultimatecore.bukkit.benchmarks;
+
+import bammerbom.ultimatecore.bukkit.resources.utils.StreamUtil;
+import bammerbom.ultimatecore.bukkit.resources.utils.WorldCopyUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Copying a synthetic world folder of {@link #megabytes} MB, made of 4 MB region files in three dimensions.
+ * <p>
+ * Every invocation copies the whole world, so each one is timed on its own. Divide the size by the time for the
+ * throughput.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class WorldCopyBenchmark {
+
+    private static final int REGION_SIZE = 4 * 1024 * 1024;
+    @Param({"5120"})
+    public int megabytes;
+    private File folder;
+    private File world;
+    private File backup;
+    private File target;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        folder = Files.createTempDirectory("ultimatecore-worldcopy").toFile();
+        world = new File(folder, "world");
+        backup = new File(folder, "backup");
+        String[] dimensions = {"region", "DIM-1" + File.separator + "region", "DIM1" + File.separator + "region"};
+        Random random = new Random(0);
+        byte[] chunk = new byte[1024 * 1024];
+        int regions = megabytes * 1024 * 1024 / REGION_SIZE;
+        for (int i = 0; i < regions; i++) {
+            File region = new File(world, dimensions[i % dimensions.length] + File.separator + "r." + (i / 32) + "." + (i % 32) + ".mca");
+            try (FileOutputStream out = StreamUtil.createOutputStream(region)) {
+                for (int written = 0; written < REGION_SIZE; written += chunk.length) {
+                    random.nextBytes(chunk);
+                    out.write(chunk);
+                }
+            }
+        }
+        new File(world, "level.dat").createNewFile();
+        //The first backup copies everything, the benchmarked one only finds unchanged files
+        await(WorldCopyUtil.backupWorld(world, backup));
+    }
+
+    @Setup(Level.Invocation)
+    public void target() {
+        target = new File(folder, "copy");
+        StreamUtil.deleteFile(target);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        StreamUtil.deleteFile(folder);
+    }
+
+    private static long await(WorldCopyUtil.Progress progress) {
+        while (!progress.isDone()) {
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        if (progress.getError() != null) {
+            throw new IllegalStateException(progress.getError());
+        }
+        return progress.getCopiedBytes();
+    }
+
+    @Benchmark
+    public long cloneWorld() {
+        return await(WorldCopyUtil.cloneWorld(world, target));
+    }
+
+    @Benchmark
+    public long backupUnchanged() {
+        return await(WorldCopyUtil.backupWorld(world, backup));
+    }
+
+    @Benchmark
+    public void sequentialTransfer() throws IOException {
+        //One file after the other on the calling thread
+        StreamUtil.copyFile(world, target);
+    }
+}
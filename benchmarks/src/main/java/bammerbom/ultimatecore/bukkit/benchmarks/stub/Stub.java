@@ -0,0 +1,122 @@
+/*
+ * This file is part of UltimateCore, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Bammerbom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package bammerbom.ultimatecore.bukkit.benchmarks.stub;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Proxy based stub for Bukkit interfaces.
+ * <p>
+ * Methods without an answer return null, zero or false, so a stub only has to implement the methods the benchmarked
+ * code actually calls.
+ */
+public class Stub implements InvocationHandler {
+
+    private final String name;
+    private final Map<String, Answer> answers = new HashMap<>();
+
+    public Stub(String name) {
+        this.name = name;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T create(Class<T> type, Class<?>... extra) {
+        Class<?>[] types = new Class<?>[extra.length + 1];
+        types[0] = type;
+        System.arraycopy(extra, 0, types, 1, extra.length);
+        return (T) Proxy.newProxyInstance(Stub.class.getClassLoader(), types, this);
+    }
+
+    /**
+     * Answers every overload of the method with the given name.
+     */
+    public Stub on(String method, Answer answer) {
+        answers.put(method, answer);
+        return this;
+    }
+
+    public Stub returns(String method, final Object value) {
+        return on(method, new Answer() {
+            @Override
+            public Object answer(Object[] args) {
+                return value;
+            }
+        });
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        Answer answer = answers.get(method.getName());
+        if (answer != null) {
+            return answer.answer(args == null ? new Object[0] : args);
+        }
+        //Identity semantics, like the real server objects
+        switch (method.getName()) {
+            case "equals":
+                return args != null && args.length == 1 && proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return name;
+        }
+        return defaultValue(method.getReturnType());
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (!type.isPrimitive() || type == void.class) {
+            return null;
+        }
+        if (type == boolean.class) {
+            return false;
+        }
+        if (type == char.class) {
+            return (char) 0;
+        }
+        if (type == long.class) {
+            return 0L;
+        }
+        if (type == float.class) {
+            return 0F;
+        }
+        if (type == double.class) {
+            return 0D;
+        }
+        if (type == byte.class) {
+            return (byte) 0;
+        }
+        if (type == short.class) {
+            return (short) 0;
+        }
+        return 0;
+    }
+
+    public interface Answer {
+
+        Object answer(Object[] args);
+    }
+}
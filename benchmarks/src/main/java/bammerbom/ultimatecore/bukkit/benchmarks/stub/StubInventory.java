@@ -0,0 +1,112 @@
+/*
+ * This file is part of UltimateCore, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Bammerbom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package bammerbom.ultimatecore.bukkit.benchmarks.stub;
+
+import org.bukkit.entity.HumanEntity;
+import org.bukkit.event.inventory.InventoryType;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.InventoryHolder;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.PlayerInventory;
+
+import java.util.Arrays;
+
+/**
+ * Inventory backed by a plain array of item stacks.
+ */
+public class StubInventory {
+
+    private final ItemStack[] contents;
+    private final String title;
+    private final InventoryHolder holder;
+    private final InventoryType type;
+
+    private StubInventory(int size, String title, InventoryHolder holder, InventoryType type) {
+        this.contents = new ItemStack[size];
+        this.title = title;
+        this.holder = holder;
+        this.type = type;
+    }
+
+    public static Inventory create(InventoryHolder holder, int size, String title) {
+        return new StubInventory(size, title, holder, InventoryType.CHEST).stub().create(Inventory.class);
+    }
+
+    public static PlayerInventory create(HumanEntity holder) {
+        return new StubInventory(36, "Player", holder, InventoryType.PLAYER).stub().create(PlayerInventory.class);
+    }
+
+    private Stub stub() {
+        return new Stub("StubInventory{" + title + "}").on("getSize", new Stub.Answer() {
+            @Override
+            public Object answer(Object[] args) {
+                return contents.length;
+            }
+        }).on("getItem", new Stub.Answer() {
+            @Override
+            public Object answer(Object[] args) {
+                return contents[(Integer) args[0]];
+            }
+        }).on("setItem", new Stub.Answer() {
+            @Override
+            public Object answer(Object[] args) {
+                contents[(Integer) args[0]] = (ItemStack) args[1];
+                return null;
+            }
+        }).on("getContents", new Stub.Answer() {
+            @Override
+            public Object answer(Object[] args) {
+                return contents.clone();
+            }
+        }).on("setContents", new Stub.Answer() {
+            @Override
+            public Object answer(Object[] args) {
+                ItemStack[] items = (ItemStack[]) args[0];
+                Arrays.fill(contents, null);
+                System.arraycopy(items, 0, contents, 0, Math.min(items.length, contents.length));
+                return null;
+            }
+        }).on("clear", new Stub.Answer() {
+            @Override
+            public Object answer(Object[] args) {
+                if (args.length == 0) {
+                    Arrays.fill(contents, null);
+                } else {
+                    contents[(Integer) args[0]] = null;
+                }
+                return null;
+            }
+        }).on("firstEmpty", new Stub.Answer() {
+            @Override
+            public Object answer(Object[] args) {
+                for (int i = 0; i < contents.length; i++) {
+                    if (contents[i] == null) {
+                        return i;
+                    }
+                }
+                return -1;
+            }
+        }).returns("getName", title).returns("getTitle", title).returns("getHolder", holder).returns("getType", type).returns("getMaxStackSize", 64);
+    }
+}
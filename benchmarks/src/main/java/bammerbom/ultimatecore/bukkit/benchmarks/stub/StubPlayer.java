@@ -0,0 +1,113 @@
+/*
+ * This file is part of UltimateCore, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Bammerbom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package bammerbom.ultimatecore.bukkit.benchmarks.stub;
+
+import org.bukkit.GameMode;
+import org.bukkit.Location;
+import org.bukkit.Server;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.PlayerInventory;
+
+import java.util.UUID;
+
+/**
+ * Online player standing in a {@link StubWorld}, without any permissions.
+ */
+public class StubPlayer {
+
+    private final String name;
+    private final UUID uuid;
+    private final Player player;
+    private final PlayerInventory inventory;
+    private String displayname;
+    private Location location;
+
+    StubPlayer(final Server server, String name, StubWorld world) {
+        this.name = name;
+        this.uuid = UUID.nameUUIDFromBytes(("OfflinePlayer:" + name).getBytes());
+        this.displayname = name;
+        this.location = world.getWorld().getSpawnLocation();
+        this.player = stub(server).create(Player.class);
+        this.inventory = StubInventory.create(player);
+        world.getPlayers().add(player);
+    }
+
+    public Player getPlayer() {
+        return player;
+    }
+
+    public UUID getUniqueId() {
+        return uuid;
+    }
+
+    private Stub stub(Server server) {
+        return new Stub("StubPlayer{" + name + "}").returns("getName", name).returns("getUniqueId", uuid).returns("getServer", server).returns("isOnline", true).returns
+                ("hasPlayedBefore", true).returns("getGameMode", GameMode.SURVIVAL).on("getPlayer", new Stub.Answer() {
+            @Override
+            public Object answer(Object[] args) {
+                return player;
+            }
+        }).on("getInventory", new Stub.Answer() {
+            @Override
+            public Object answer(Object[] args) {
+                return inventory;
+            }
+        }).on("getWorld", new Stub.Answer() {
+            @Override
+            public Object answer(Object[] args) {
+                return location.getWorld();
+            }
+        }).on("getLocation", new Stub.Answer() {
+            @Override
+            public Object answer(Object[] args) {
+                return location.clone();
+            }
+        }).on("teleport", new Stub.Answer() {
+            @Override
+            public Object answer(Object[] args) {
+                if (args[0] instanceof Location) {
+                    location = ((Location) args[0]).clone();
+                    return true;
+                }
+                return false;
+            }
+        }).on("getDisplayName", new Stub.Answer() {
+            @Override
+            public Object answer(Object[] args) {
+                return displayname;
+            }
+        }).on("getPlayerListName", new Stub.Answer() {
+            @Override
+            public Object answer(Object[] args) {
+                return displayname;
+            }
+        }).on("setDisplayName", new Stub.Answer() {
+            @Override
+            public Object answer(Object[] args) {
+                displayname = args[0] == null ? name : (String) args[0];
+                return null;
+            }
+        });
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * This file is part of UltimateCore, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Bammerbom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package bammerbom.ultimatecore.bukkit.benchmarks.stub;
+
+import org.bukkit.OfflinePlayer;
+import org.bukkit.Server;
+import org.bukkit.World;
+import org.bukkit.command.ConsoleCommandSender;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.InventoryHolder;
+import org.bukkit.inventory.ItemFactory;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.PluginManager;
+import org.bukkit.plugin.ServicesManager;
+import org.bukkit.scheduler.BukkitScheduler;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Server with stub worlds and players.
+ * <p>
+ * The scheduler runs tasks without a delay directly on the calling thread and never runs delayed or repeating tasks,
+ * so a benchmark measures the work it triggers and nothing that happens to be scheduled at the same time.
+ */
+public class StubServer {
+
+    private final Server server;
+    private final Logger logger = Logger.getLogger("StubServer");
+    private final List<Player> online = new ArrayList<>();
+    private final Map<UUID, Player> uuids = new HashMap<>();
+    private final Map<String, Player> names = new HashMap<>();
+    private final Map<String, StubWorld> worlds = new LinkedHashMap<>();
+    private final List<Plugin> plugins = new ArrayList<>();
+    private final AtomicInteger taskIds = new AtomicInteger();
+
+    public StubServer() {
+        logger.setLevel(Level.WARNING);
+        server = stub().create(Server.class);
+    }
+
+    public Server getServer() {
+        return server;
+    }
+
+    public StubWorld addWorld(String name) {
+        StubWorld world = new StubWorld(name);
+        worlds.put(name.toLowerCase(Locale.ENGLISH), world);
+        return world;
+    }
+
+    public Player addPlayer(String name, StubWorld world) {
+        StubPlayer player = new StubPlayer(server, name, world);
+        online.add(player.getPlayer());
+        uuids.put(player.getUniqueId(), player.getPlayer());
+        names.put(name.toLowerCase(Locale.ENGLISH), player.getPlayer());
+        return player.getPlayer();
+    }
+
+    /**
+     * Adds a plugin to the plugin list, it is not loaded or enabled.
+     */
+    public void addPlugin(Plugin plugin) {
+        plugins.add(plugin);
+    }
+
+    public List<Player> getOnlinePlayers() {
+        return online;
+    }
+
+    private OfflinePlayer getOfflinePlayer(Object key) {
+        Player pl = key instanceof UUID ? uuids.get(key) : names.get(((String) key).toLowerCase(Locale.ENGLISH));
+        if (pl != null) {
+            return pl;
+        }
+        String name = key instanceof UUID ? null : (String) key;
+        UUID uuid = key instanceof UUID ? (UUID) key : UUID.nameUUIDFromBytes(("OfflinePlayer:" + key).getBytes());
+        return new Stub("StubOfflinePlayer{" + key + "}").returns("getName", name).returns("getUniqueId", uuid).create(OfflinePlayer.class);
+    }
+
+    private Stub stub() {
+        return new Stub("StubServer").returns("getName", "StubServer").returns("getVersion", "stub").returns("getBukkitVersion", "stub").returns("getLogger", logger).returns
+                ("getMaxPlayers", 100).returns("isPrimaryThread", true).returns("getOnlineMode", true).returns("getMotd", "").returns("getScheduler", scheduler()).returns("getConsoleSender", console()).returns
+                ("getPluginManager", new Stub("StubPluginManager").on("getPlugins", new Stub.Answer() {
+            @Override
+            public Object answer(Object[] args) {
+                return plugins.toArray(new Plugin[plugins.size()]);
+            }
+        }).create(PluginManager.class)).returns("getServicesManager", new Stub
+                ("StubServicesManager").create(ServicesManager.class)).returns("getItemFactory", itemFactory()).on("getOnlinePlayers", new Stub.Answer() {
+            @Override
+            public Object answer(Object[] args) {
+                return new ArrayList<>(online);
+            }
+        }).on("getOfflinePlayers", new Stub.Answer() {
+            @Override
+            public Object answer(Object[] args) {
+                return online.toArray(new OfflinePlayer[online.size()]);
+            }
+        }).on("getPlayer", new Stub.Answer() {
+            @Override
+            public Object answer(Object[] args) {
+                return args[0] instanceof UUID ? uuids.get(args[0]) : names.get(((String) args[0]).toLowerCase(Locale.ENGLISH));
+            }
+        }).on("getPlayerExact", new Stub.Answer() {
+            @Override
+            public Object answer(Object[] args) {
+                return names.get(((String) args[0]).toLowerCase(Locale.ENGLISH));
+            }
+        }).on("getOfflinePlayer", new Stub.Answer() {
+            @Override
+            public Object answer(Object[] args) {
+                return getOfflinePlayer(args[0]);
+            }
+        }).on("getWorld", new Stub.Answer() {
+            @Override
+            public Object answer(Object[] args) {
+                for (StubWorld world : worlds.values()) {
+                    if (world.getWorld().getName().equalsIgnoreCase(String.valueOf(args[0])) || world.getWorld().getUID().equals(args[0])) {
+                        return world.getWorld();
+                    }
+                }
+                return null;
+            }
+        }).on("getWorlds", new Stub.Answer() {
+            @Override
+            public Object answer(Object[] args) {
+                List<World> list = new ArrayList<>();
+                for (StubWorld world : worlds.values()) {
+                    list.add(world.getWorld());
+                }
+                return list;
+            }
+        }).on("createInventory", new Stub.Answer() {
+            @Override
+            public Object answer(Object[] args) {
+                int size = args[1] instanceof Integer ? (Integer) args[1] : 27;
+                String title = args.length > 2 ? (String) args[2] : "Chest";
+                return StubInventory.create((InventoryHolder) args[0], size, title);
+            }
+        });
+    }
+
+    private BukkitScheduler scheduler() {
+        Stub.Answer now = new Stub.Answer() {
+            @Override
+            public Object answer(Object[] args) {
+                ((Runnable) args[1]).run();
+                return task();
+            }
+        };
+        Stub.Answer never = new Stub.Answer() {
+            @Override
+            public Object answer(Object[] args) {
+                return task();
+            }
+        };
+        Stub.Answer scheduled = new Stub.Answer() {
+            @Override
+            public Object answer(Object[] args) {
+                //Only the overload without a delay runs
+                if (args.length == 2) {
+                    ((Runnable) args[1]).run();
+                }
+                return taskIds.incrementAndGet();
+            }
+        };
+        Stub.Answer repeating = new Stub.Answer() {
+            @Override
+            public Object answer(Object[] args) {
+                return taskIds.incrementAndGet();
+            }
+        };
+        return new Stub("StubScheduler").on("runTask", now).on("runTaskAsynchronously", now).on("runTaskLater", never).on("runTaskLaterAsynchronously", never).on
+                ("runTaskTimer", never).on("runTaskTimerAsynchronously", never).on("scheduleSyncDelayedTask", scheduled).on("scheduleAsyncDelayedTask", scheduled).on
+                ("scheduleSyncRepeatingTask", repeating).on("scheduleAsyncRepeatingTask", repeating).create(BukkitScheduler.class);
+    }
+
+    private BukkitTask task() {
+        return new Stub("StubTask").returns("getTaskId", taskIds.incrementAndGet()).create(BukkitTask.class);
+    }
+
+    private ConsoleCommandSender console() {
+        //Messages sent to the console are dropped
+        return new Stub("StubConsole").returns("getName", "CONSOLE").returns("isOp", true).returns("hasPermission", true).create(ConsoleCommandSender.class);
+    }
+
+    private ItemFactory itemFactory() {
+        //Item stacks in the benchmarks never have meta
+        return new Stub("StubItemFactory").returns("isApplicable", true).on("equals", new Stub.Answer() {
+            @Override
+            public Object answer(Object[] args) {
+                return args.length == 2 ? args[0] == args[1] : Boolean.FALSE;
+            }
+        }).create(ItemFactory.class);
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * This file is part of UltimateCore, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Bammerbom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package bammerbom.ultimatecore.bukkit.benchmarks.stub;
+
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Flat stone world with lava pools, so safe location searches have to look around.
+ * <p>
+ * Every block up to {@link #GROUND} is stone, one in every {@link #LAVA_SPACING} columns has lava on top.
+ */
+public class StubWorld {
+
+    public static final int GROUND = 64;
+    public static final int LAVA_SPACING = 3;
+
+    private final String name;
+    private final UUID uuid;
+    private final List<Player> players = new ArrayList<>();
+    private final World world;
+
+    public StubWorld(String name) {
+        this.name = name;
+        this.uuid = UUID.nameUUIDFromBytes(("World:" + name).getBytes());
+        this.world = stub().create(World.class);
+    }
+
+    public World getWorld() {
+        return world;
+    }
+
+    List<Player> getPlayers() {
+        return players;
+    }
+
+    public Material getType(int x, int y, int z) {
+        if (y < 0 || y > GROUND) {
+            return Material.AIR;
+        }
+        if (y == GROUND && Math.abs(x * 31 + z * 17) % LAVA_SPACING == 0) {
+            return Material.STATIONARY_LAVA;
+        }
+        return y == GROUND ? Material.GRASS : Material.STONE;
+    }
+
+    @SuppressWarnings("deprecation")
+    private Block createBlock(final int x, final int y, final int z) {
+        final Material type = getType(x, y, z);
+        return new Stub("StubBlock{" + x + "," + y + "," + z + "}").returns("getType", type).returns("getTypeId", type.getId()).returns("getX", x).returns("getY", y).returns
+                ("getZ", z).returns("getWorld", world).returns("isEmpty", type == Material.AIR).returns("isLiquid", type == Material.STATIONARY_LAVA).on("getLocation", new Stub
+                .Answer() {
+            @Override
+            public Object answer(Object[] args) {
+                return new Location(world, x, y, z);
+            }
+        }).create(Block.class);
+    }
+
+    private Stub stub() {
+        return new Stub("StubWorld{" + name + "}").returns("getName", name).returns("getUID", uuid).returns("getMaxHeight", 256).returns("getSeaLevel", GROUND - 1).returns
+                ("getEnvironment", World.Environment.NORMAL).on("getBlockAt", new Stub.Answer() {
+            @Override
+            public Object answer(Object[] args) {
+                if (args.length == 1) {
+                    Location loc = (Location) args[0];
+                    return createBlock(loc.getBlockX(), loc.getBlockY(), loc.getBlockZ());
+                }
+                return createBlock((Integer) args[0], (Integer) args[1], (Integer) args[2]);
+            }
+        }).on("getHighestBlockYAt", new Stub.Answer() {
+            @Override
+            public Object answer(Object[] args) {
+                return GROUND + 1;
+            }
+        }).on("getSpawnLocation", new Stub.Answer() {
+            @Override
+            public Object answer(Object[] args) {
+                return new Location(world, 0.5, GROUND + 1, 0.5);
+            }
+        }).on("getPlayers", new Stub.Answer() {
+            @Override
+            public Object answer(Object[] args) {
+                return new ArrayList<>(players);
+            }
+        });
+    }
+}
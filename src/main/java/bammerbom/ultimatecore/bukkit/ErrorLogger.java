@@ -28,32 +28,173 @@ import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import java.io.*;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Error sink of UltimateCore.
+ * <p>
+ * Errors are grouped by the signature of their stack trace. Only the first error of each group is printed to the
+ * console, repeats are counted and summarized once a minute. Every group has its own report file in Errors/, which is
+ * written on a background thread so a listener that throws on every event cannot stall the server.
+ */
 public class ErrorLogger {
-    static StringWriter writer = null;
-    static Long countdown = null;
+    //Stack frames per cause used for the fingerprint
+    private static final int FRAMES = 12;
+    private static final int RECENT_SIZE = 64;
+    private static final long SUMMARY_INTERVAL = 60L;
+    private static final ConcurrentHashMap<String, Fingerprint> fingerprints = new ConcurrentHashMap<>();
+    private static final Occurrence[] recent = new Occurrence[RECENT_SIZE];
+    private static int recentIndex = 0;
+    private static ScheduledExecutorService executor = null;
 
     public static void log(final Throwable t, final String s) {
-        String error = ExceptionUtils.getFullStackTrace(t);
-        if (error.contains("java.lang.UnsupportedOperationException: SuperPerms no group permissions.")) {
+        if (isSuperPermsGroupError(t)) {
             r.log("ERROR: Your permissions plugin '" + r.getVault().getPermission().getName() + "' does not support group permissions.");
             return;
         }
-        final String time = new SimpleDateFormat("yyyy-MM-dd_HH-mm-ss-SSS").format(Calendar.getInstance().getTime());
-        //CONSOLE
+        final String id = fingerprint(t);
+        Fingerprint print = fingerprints.get(id);
+        boolean first = false;
+        if (print == null) {
+            Fingerprint created = new Fingerprint(id);
+            print = fingerprints.putIfAbsent(id, created);
+            if (print == null) {
+                print = created;
+                first = true;
+            }
+        }
+        final Occurrence occurrence = new Occurrence(id, t, s);
+        print.record(occurrence);
+        synchronized (recent) {
+            recent[recentIndex] = occurrence;
+            recentIndex = (recentIndex + 1) % RECENT_SIZE;
+        }
+        //Repeats are only counted here, the summary task reports them
+        if (!first) {
+            return;
+        }
+        final Fingerprint fprint = print;
+        submit(new Runnable() {
+            @Override
+            public void run() {
+                printConsole(fprint, occurrence);
+                writeReport(fprint);
+            }
+        });
+    }
+
+    /**
+     * @return The last errors that were logged, newest first
+     */
+    public static List<Occurrence> getRecent() {
+        List<Occurrence> list = new ArrayList<>();
+        synchronized (recent) {
+            for (int i = 1; i <= RECENT_SIZE; i++) {
+                Occurrence occurrence = recent[(recentIndex - i + RECENT_SIZE) % RECENT_SIZE];
+                if (occurrence == null) {
+                    break;
+                }
+                list.add(occurrence);
+            }
+        }
+        return list;
+    }
+
+    public static List<Fingerprint> getFingerprints() {
+        return new ArrayList<>(fingerprints.values());
+    }
+
+    /**
+     * Prints the last summary and writes all pending reports.
+     */
+    public static void stop() {
+        ScheduledExecutorService service;
+        synchronized (ErrorLogger.class) {
+            service = executor;
+            executor = null;
+        }
+        if (service == null) {
+            return;
+        }
+        service.shutdown();
+        try {
+            service.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        summarize();
+    }
+
+    private static void submit(Runnable task) {
+        synchronized (ErrorLogger.class) {
+            if (executor == null) {
+                executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable runnable) {
+                        Thread thread = new Thread(runnable, "UltimateCore ErrorLogger");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+                executor.scheduleAtFixedRate(new Runnable() {
+                    @Override
+                    public void run() {
+                        summarize();
+                    }
+                }, SUMMARY_INTERVAL, SUMMARY_INTERVAL, TimeUnit.SECONDS);
+            }
+            try {
+                executor.execute(task);
+            } catch (RejectedExecutionException ex) {
+                task.run();
+            }
+        }
+    }
+
+    private static boolean isSuperPermsGroupError(Throwable t) {
+        for (Throwable cause = t; cause != null; cause = cause.getCause()) {
+            if (cause instanceof UnsupportedOperationException && "SuperPerms no group permissions.".equals(cause.getMessage())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    //Hash of the exception classes and top frames of the whole cause chain, messages are left out
+    private static String fingerprint(Throwable t) {
+        int hash = 17;
+        int depth = 0;
+        for (Throwable cause = t; cause != null && depth < 8; cause = cause.getCause(), depth++) {
+            hash = 31 * hash + cause.getClass().getName().hashCode();
+            StackTraceElement[] trace = cause.getStackTrace();
+            for (int i = 0; i < trace.length && i < FRAMES; i++) {
+                hash = 31 * hash + trace[i].getClassName().hashCode();
+                hash = 31 * hash + trace[i].getMethodName().hashCode();
+                hash = 31 * hash + trace[i].getLineNumber();
+            }
+        }
+        return String.format("%08x", hash);
+    }
+
+    private static void printConsole(Fingerprint print, Occurrence occurrence) {
+        Throwable t = occurrence.getThrowable();
         r.log(" ");
         r.log(ChatColor.DARK_RED + "=========================================================");
         r.log(ChatColor.RED + "ServerCommands has run into an error, Include the file");
-        r.log(ChatColor.YELLOW + "plugins/ServerCommands/Errors/" + time + ".txt ");
+        r.log(ChatColor.YELLOW + "plugins/ServerCommands/Errors/" + print.getId() + ".txt ");
         r.log(ChatColor.RED + "Please add the the file in the issue page on github");
         r.log(ChatColor.RED + "Bukkit version: " + Bukkit.getServer().getVersion());
-         r.log(ChatColor.RED + "ServerCommands version: " + Bukkit.getPluginManager().getPlugin("ServerCommands").getDescription().getVersion());
-         r.log(ChatColor.RED + "Plugins loaded (" + Bukkit.getPluginManager().getPlugins().length + "): " + Arrays.asList(Bukkit.getPluginManager().getPlugins()));
-         r.log(ChatColor.RED + "Java version: " + System.getProperty("java.version"));
-         r.log(ChatColor.RED + "Error message: " + t.getMessage());
-         r.log(ChatColor.RED + "ServerCommands message: " + s);
+        r.log(ChatColor.RED + "ServerCommands version: " + Bukkit.getPluginManager().getPlugin("ServerCommands").getDescription().getVersion());
+        r.log(ChatColor.RED + "Plugins loaded (" + Bukkit.getPluginManager().getPlugins().length + "): " + Arrays.asList(Bukkit.getPluginManager().getPlugins()));
+        r.log(ChatColor.RED + "Java version: " + System.getProperty("java.version"));
+        r.log(ChatColor.RED + "Error message: " + t.getMessage());
+        r.log(ChatColor.RED + "ServerCommands message: " + occurrence.getMessage());
+        r.log(ChatColor.RED + "Repeats of this error are summarized once a minute.");
         r.log(ChatColor.DARK_RED + "=========================================================");
         if (t instanceof Exception) {
             r.log(ChatColor.RED + "Stacktrace: ");
@@ -62,4 +203,131 @@ public class ErrorLogger {
             r.log(" ");
         }
     }
-}
\ No newline at end of file
+
+    private static void summarize() {
+        for (Fingerprint print : fingerprints.values()) {
+            long repeats = print.takeRepeats();
+            if (repeats > 0) {
+                r.log(ChatColor.RED + "Error " + print.getId() + " (" + print.getLast().getMessage() + ") occurred " + repeats + " more time(s), " + print
+                        .getCount() + " in total. See plugins/ServerCommands/Errors/" + print.getId() + ".txt");
+            }
+            writeReport(print);
+        }
+    }
+
+    private static void writeReport(Fingerprint print) {
+        if (r.getUC() == null) {
+            return;
+        }
+        //Only rewrite the report if something happened since the last write
+        long count = print.getCount();
+        if (count == print.written) {
+            return;
+        }
+        print.written = count;
+        File directory = new File(r.getUC().getDataFolder(), "Errors");
+        if (!directory.exists() && !directory.mkdirs()) {
+            return;
+        }
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
+        Occurrence last = print.getLast();
+        File file = new File(directory, print.getId() + ".txt");
+        try (PrintWriter writer = new PrintWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"))) {
+            writer.println("Error " + print.getId());
+            writer.println("Occurrences: " + count);
+            writer.println("First seen: " + format.format(new Date(print.getFirstSeen())));
+            writer.println("Last seen: " + format.format(new Date(last.getTime())));
+            writer.println();
+            writer.println("Bukkit version: " + Bukkit.getServer().getVersion());
+            writer.println("ServerCommands version: " + r.getUC().getDescription().getVersion());
+            writer.println("Plugins loaded (" + Bukkit.getPluginManager().getPlugins().length + "): " + Arrays.asList(Bukkit.getPluginManager().getPlugins()));
+            writer.println("Java version: " + System.getProperty("java.version"));
+            writer.println();
+            writer.println("Recent occurrences:");
+            for (Occurrence occurrence : getRecent()) {
+                if (occurrence.getFingerprint().equals(print.getId())) {
+                    writer.println("  " + format.format(new Date(occurrence.getTime())) + " - " + occurrence.getMessage() + ": " + occurrence.getThrowable()
+                            .getMessage());
+                }
+            }
+            writer.println();
+            writer.println("Stacktrace of the last occurrence:");
+            writer.println(ExceptionUtils.getFullStackTrace(last.getThrowable()));
+        } catch (IOException ex) {
+            r.log(ChatColor.RED + "Failed to write error report " + file.getName() + ": " + ex.getMessage());
+        }
+    }
+
+    /**
+     * All errors with the same stack signature.
+     */
+    public static class Fingerprint {
+        private final String id;
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong repeats = new AtomicLong();
+        private final long firstSeen = System.currentTimeMillis();
+        private volatile Occurrence last;
+        //Only used on the writer thread
+        private long written = 0;
+
+        Fingerprint(String id) {
+            this.id = id;
+        }
+
+        void record(Occurrence occurrence) {
+            last = occurrence;
+            if (count.incrementAndGet() > 1) {
+                repeats.incrementAndGet();
+            }
+        }
+
+        long takeRepeats() {
+            return repeats.getAndSet(0);
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public long getCount() {
+            return count.get();
+        }
+
+        public long getFirstSeen() {
+            return firstSeen;
+        }
+
+        public Occurrence getLast() {
+            return last;
+        }
+    }
+
+    public static class Occurrence {
+        private final String fingerprint;
+        private final Throwable throwable;
+        private final String message;
+        private final long time = System.currentTimeMillis();
+
+        Occurrence(String fingerprint, Throwable throwable, String message) {
+            this.fingerprint = fingerprint;
+            this.throwable = throwable;
+            this.message = message;
+        }
+
+        public String getFingerprint() {
+            return fingerprint;
+        }
+
+        public Throwable getThrowable() {
+            return throwable;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        public long getTime() {
+            return time;
+        }
+    }
+}
@@ -23,8 +23,11 @@
  */
 package bammerbom.ultimatecore.bukkit;
 
+import bammerbom.ultimatecore.bukkit.resources.storage.Storage;
+import bammerbom.ultimatecore.bukkit.resources.storage.Store;
 import bammerbom.ultimatecore.bukkit.resources.utils.FileUtil;
 import bammerbom.ultimatecore.bukkit.resources.utils.StringUtil;
+import org.bukkit.Bukkit;
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
 import org.json.simple.JSONValue;
@@ -35,23 +38,59 @@ import java.util.*;
 public class JsonConfig implements Cloneable {
 
     private final File file;
+    private final Store store;
+    private final String id;
     private final Map<String, Object> map;
+    //Keys set or removed since the last save, only tracked for documents in a storage backend
+    private final Set<String> changed = new HashSet<>();
+    private long sequence = 0;
+    private long written = 0;
+
+    /**
+     * Document of a store that has one document, like the economy or the warps.
+     */
+    public JsonConfig(Store store) {
+        this(store, "");
+    }
+
+    /**
+     * Document of a store, read from the backend set in the config. With the json backend this is the same as
+     * reading the json file of the document.
+     */
+    public JsonConfig(Store store, String id) {
+        if (Storage.isJson()) {
+            file = store.getFile(id);
+            this.store = null;
+            this.id = null;
+            map = parse(file);
+        } else {
+            file = null;
+            this.store = store;
+            this.id = id;
+            map = Storage.getBackend().read(store, id);
+        }
+    }
 
-    @SuppressWarnings("unchecked")
 	public JsonConfig(File file2) {
         file = file2;
+        store = null;
+        id = null;
+        map = parse(file2);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> parse(File file2) {
         List<String> list = FileUtil.getLines(file2);
         String list2 = StringUtil.joinList(list);
         Object ob = JSONValue.parse(list2);
         if (ob instanceof JSONObject) {
-            map = (JSONObject) ob;
-        } else {
-            if (ob != null) {
-                r.log("Warning: Config was invalid json format. (List)");
-                r.log(file2.getName() + " - " + ob);
-            }
-            map = new HashMap<>();
+            return (JSONObject) ob;
         }
+        if (ob != null) {
+            r.log("Warning: Config was invalid json format. (List)");
+            r.log(file2.getName() + " - " + ob);
+        }
+        return new HashMap<>();
     }
 
     public void set(String s, Object o) {
@@ -64,10 +103,15 @@ public class JsonConfig implements Cloneable {
                 }
             }
             for (String st : remv) {
-                map.remove(st);
+                if (map.remove(st) != null && store != null) {
+                    changed.add(st);
+                }
             }
         } else {
             map.put(s, o);
+            if (store != null) {
+                changed.add(s);
+            }
         }
     }
 
@@ -166,7 +210,52 @@ public class JsonConfig implements Cloneable {
     }
 
     public void save() {
-        save(file);
+        if (store != null) {
+            writeChanges();
+            return;
+        }
+        write(++sequence, JSONValue.toJSONString(map));
+    }
+
+    /**
+     * Serializes the config on the calling thread and writes it on a background thread.
+     */
+    public void saveAsync() {
+        if (store != null) {
+            //The storage backend already writes on its own thread
+            writeChanges();
+            return;
+        }
+        final long seq = ++sequence;
+        final String json = JSONValue.toJSONString(map);
+        Bukkit.getScheduler().runTaskAsynchronously(r.getUC(), new Runnable() {
+            @Override
+            public void run() {
+                write(seq, json);
+            }
+        });
+    }
+
+    //Older snapshots that finish writing late never overwrite newer ones
+    private synchronized void write(long seq, String json) {
+        if (seq < written) {
+            return;
+        }
+        written = seq;
+        try {
+            FileUtil.writeFile(file, Arrays.asList(json.split("\n", -1)));
+        } catch (Exception ex) {
+            ErrorLogger.log(ex, "Failed to write file.");
+        }
+    }
+
+    private void writeChanges() {
+        Map<String, Object> changes = new HashMap<>();
+        for (String key : changed) {
+            changes.put(key, map.get(key));
+        }
+        changed.clear();
+        Storage.getBackend().write(store, id, changes);
     }
 
     public void save(File fi) {
@@ -199,6 +288,13 @@ public class JsonConfig implements Cloneable {
         }
     }
 
+    /**
+     * @return A copy of all keys and values
+     */
+    public Map<String, Object> getValues() {
+        return new HashMap<>(map);
+    }
+
     public List<String> listKeys(Boolean deep) {
         if (deep) {
             return new ArrayList<>(map.keySet());
@@ -92,6 +92,7 @@ public class UltimateCommands implements TabCompleter {
         cmds.add(new CmdTeleporttoggle());
         cmds.add(new CmdTime());
         cmds.add(new CmdTop());
+        cmds.add(new CmdUltimatecore());
         cmds.add(new CmdUptime());
         cmds.add(new CmdVanish());
         cmds.add(new CmdWarp());
@@ -27,8 +27,19 @@ import bammerbom.ultimatecore.bukkit.api.UEconomy;
 import bammerbom.ultimatecore.bukkit.api.UServer;
 import bammerbom.ultimatecore.bukkit.commands.CmdHeal;
 import bammerbom.ultimatecore.bukkit.commands.CmdRules;
+import bammerbom.ultimatecore.bukkit.commands.CmdWorld;
 import bammerbom.ultimatecore.bukkit.listeners.*;
+import bammerbom.ultimatecore.bukkit.resources.cache.ChatMetaCache;
+import bammerbom.ultimatecore.bukkit.resources.cache.CommandCache;
+import bammerbom.ultimatecore.bukkit.resources.cache.PermissionCache;
+import bammerbom.ultimatecore.bukkit.resources.databases.BookDatabase;
+import bammerbom.ultimatecore.bukkit.resources.databases.HomeDatabase;
+import bammerbom.ultimatecore.bukkit.resources.databases.SignDatabase;
 import bammerbom.ultimatecore.bukkit.resources.databases.ItemDatabase;
+import bammerbom.ultimatecore.bukkit.resources.databases.NameDatabase;
+import bammerbom.ultimatecore.bukkit.resources.databases.WarpDatabase;
+import bammerbom.ultimatecore.bukkit.resources.profiler.TickProfiler;
+import bammerbom.ultimatecore.bukkit.resources.storage.Storage;
 import bammerbom.ultimatecore.bukkit.resources.utils.*;
 import org.apache.commons.lang.exception.ExceptionUtils;
 import org.bukkit.Bukkit;
@@ -36,13 +47,28 @@ import org.bukkit.ChatColor;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandSender;
 import org.bukkit.event.Listener;
+import org.bukkit.plugin.PluginDescriptionFile;
 import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.plugin.java.JavaPluginLoader;
 import java.io.File;
 
 public class UltimateCore extends JavaPlugin implements Listener {
     public static File file;
     private static UltimateCore instance = null;
 
+    public UltimateCore() {
+        super();
+    }
+
+    /**
+     * Only used by the benchmark module, which runs the plugin without a server or a PluginClassLoader.
+     */
+    protected UltimateCore(JavaPluginLoader loader, PluginDescriptionFile description, File dataFolder, File file) {
+        super(loader, description, dataFolder, file);
+        instance = this;
+        UltimateCore.file = file;
+    }
+
     public static UltimateCore getInstance() {
         return instance;
     }
@@ -66,49 +92,139 @@ public class UltimateCore extends JavaPlugin implements Listener {
 
     @Override
     public void onEnable() {
-        try {
-            //UTIL STARTUP
-            file = getFile();
-            UltimateFileLoader.Enable();
-            ServerIDUtil.start();
-            r.enableMES();
-            UltimateFileLoader.addConfig();
-            r.setColors();
-            UuidUtil.loadPlayers();
-            UltimateCommands.load();
-            UltimateSigns.start();
-            PerformanceUtil.getTps();
-            ItemDatabase.enable();
-            if (Bukkit.getPluginManager().isPluginEnabled("Vault")) {
-                UEconomy.start();
-            }
-            r.start();
-            UServer.start();
-            CmdHeal.start();
-            CmdRules.start();
-            ItemUtil.start();
-            //UTIL STARTUP END
-            //LISTENER STARTUP
-            GlobalPlayerListener.start();
-            Bukkit.getPluginManager().registerEvents(new GlobalWorldListener(), this);
-            AfkListener.start();
-            AutomessageListener.start();
-            AutosaveListener.start();
-            ExplosionListener.start();
-            JoinLeaveListener.start();
-            MotdListener.start();
-            PluginStealListener.start();
-            SignListener.start();
-            TabListener.start();
-            UnknownCommandListener.start();
-            WeatherListener.start();
-            Bukkit.getPluginManager().registerEvents(this, this);
-            //LISTENER STARTUP END
-            Bukkit.getScheduler().scheduleSyncRepeatingTask(this, new UltimateTick(), 40L, 40L);
-        } catch (Exception ex) {
-            ErrorLogger.log(ex, "Failed to enable ServerCommands");
-        }
-        UltimateWorldLoader.startWorldLoading();
+        file = getFile();
+        final UltimateCore plugin = this;
+        //Handed from the player steps to each other
+        final UuidUtil.PlayerScan[] players = new UuidUtil.PlayerScan[1];
+        //Steps marked async only read and parse files, all other steps run on the main thread
+        new UltimateStartup().main("files", new Runnable() {
+            @Override
+            public void run() {
+                UltimateFileLoader.Enable();
+                Storage.start();
+            }
+        }).async("serverid", new Runnable() {
+            @Override
+            public void run() {
+                ServerIDUtil.start();
+            }
+        }, "files").async("messages", new Runnable() {
+            @Override
+            public void run() {
+                r.enableMES();
+            }
+        }, "files").async("items", new Runnable() {
+            @Override
+            public void run() {
+                ItemDatabase.enable();
+            }
+        }, "files").async("motd", new Runnable() {
+            @Override
+            public void run() {
+                UServer.loadMotd();
+            }
+        }, "files").async("texts", new Runnable() {
+            @Override
+            public void run() {
+                CmdRules.start();
+                BookDatabase.enable();
+            }
+        }, "files").async("worldlist", new Runnable() {
+            @Override
+            public void run() {
+                UltimateWorldLoader.prepare();
+            }
+        }, "files").main("config", new Runnable() {
+            @Override
+            public void run() {
+                UltimateFileLoader.addConfig();
+                r.setColors();
+                r.start();
+            }
+        }, "files").main("playerlist", new Runnable() {
+            @Override
+            public void run() {
+                players[0] = UuidUtil.listPlayers();
+            }
+        }, "config").async("players", new Runnable() {
+            @Override
+            public void run() {
+                NameDatabase.enable();
+                UuidUtil.readPlayers(players[0]);
+            }
+        }, "playerlist").main("playernames", new Runnable() {
+            @Override
+            public void run() {
+                UuidUtil.finishPlayers(players[0]);
+            }
+        }, "players", "messages").main("profiler", new Runnable() {
+            @Override
+            public void run() {
+                TickProfiler.start();
+            }
+        }, "config").main("commands", new Runnable() {
+            @Override
+            public void run() {
+                UltimateCommands.load();
+                CmdHeal.start();
+            }
+        }, "config", "messages").main("signs", new Runnable() {
+            @Override
+            public void run() {
+                UltimateSigns.start();
+                SignDatabase.enable();
+            }
+        }, "config", "messages", "profiler").main("economy", new Runnable() {
+            @Override
+            public void run() {
+                if (Bukkit.getPluginManager().isPluginEnabled("Vault")) {
+                    UEconomy.start();
+                }
+            }
+        }, "config").main("permissions", new Runnable() {
+            @Override
+            public void run() {
+                PermissionCache.start();
+                ChatMetaCache.start();
+            }
+        }, "config", "profiler").main("server", new Runnable() {
+            @Override
+            public void run() {
+                UServer.start();
+            }
+        }, "config", "profiler").main("itemutil", new Runnable() {
+            @Override
+            public void run() {
+                ItemUtil.start();
+            }
+        }, "items").main("listeners", new Runnable() {
+            @Override
+            public void run() {
+                GlobalPlayerListener.start();
+                TickProfiler.registerEvents(new GlobalWorldListener());
+                AfkListener.start();
+                AutomessageListener.start();
+                AutosaveListener.start();
+                BossbarUtil.start();
+                HudUtil.start();
+                ExplosionListener.start();
+                JoinLeaveListener.start();
+                MotdListener.start();
+                CommandCache.start();
+                PluginStealListener.start();
+                SignListener.start();
+                TabListener.start();
+                UnknownCommandListener.start();
+                WeatherListener.start();
+                TickProfiler.registerEvents(plugin);
+                Bukkit.getScheduler().scheduleSyncRepeatingTask(plugin, TickProfiler.wrap("UltimateTick", new UltimateTick()), 40L, 40L);
+            }
+        }, "messages", "profiler", "permissions", "economy", "server", "motd", "signs").main("worlds", new Runnable() {
+            @Override
+            public void run() {
+                UltimateWorldLoader.startWorldLoading();
+            }
+        }, "worldlist", "listeners").run();
     }
 
     @Override
@@ -116,11 +232,22 @@ public class UltimateCore extends JavaPlugin implements Listener {
         try {
             r.removeUC();
             ItemDatabase.disable();
+            WarpDatabase.disable();
+            HomeDatabase.disable();
+            SignDatabase.disable();
+            BookDatabase.disable();
+            NameDatabase.disable();
+            AutosaveListener.stop();
             BossbarUtil.stop();
+            HudUtil.stop();
+            WorkUtil.stop();
+            CmdWorld.stopCopies();
+            Storage.stop();
             r.log(ChatColor.GREEN + "Disabled ServerCommands!");
         } catch (Exception ex) {
             ErrorLogger.log(ex, "Failed to disable ServerCommands");
         }
+        ErrorLogger.stop();
     }
 
     @Override
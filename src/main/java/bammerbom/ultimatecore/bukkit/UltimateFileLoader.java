@@ -25,13 +25,18 @@ package bammerbom.ultimatecore.bukkit;
 
 import bammerbom.ultimatecore.bukkit.configuration.Config;
 import bammerbom.ultimatecore.bukkit.configuration.ConfigSection;
+import bammerbom.ultimatecore.bukkit.resources.storage.Store;
+import bammerbom.ultimatecore.bukkit.resources.utils.FileUtil;
 
 import org.bukkit.Bukkit;
 import org.bukkit.OfflinePlayer;
 import org.bukkit.plugin.Plugin;
 
 import java.io.*;
+import java.util.Arrays;
+import java.util.List;
 import java.util.UUID;
+import java.util.zip.CRC32;
 
 public class UltimateFileLoader {
 
@@ -148,10 +153,17 @@ public class UltimateFileLoader {
 
     }
 
+    public static File getPlayerFolder() {
+        return new File(r.getUC().getDataFolder(), "Players");
+    }
+
     public static File getPlayerFile(final OfflinePlayer p) {
-        UUID id = p.getUniqueId();
-        final File file = new File(r.getUC().getDataFolder() + File.separator + "Players" + File.separator + id.toString() + ".json");
-        File directory = new File(r.getUC().getDataFolder() + File.separator + "Players");
+        return getPlayerFile(p.getUniqueId());
+    }
+
+    public static File getPlayerFile(UUID id) {
+        File directory = getPlayerFolder();
+        final File file = new File(directory, id.toString() + ".json");
         if (!file.exists()) {
             try {
                 if (!directory.exists()) {
@@ -159,7 +171,7 @@ public class UltimateFileLoader {
                 }
                 file.createNewFile();
             } catch (IOException e) {
-                ErrorLogger.log(e, "Failed to load playerfile: " + p.getName() + " - " + p.getUniqueId());
+                ErrorLogger.log(e, "Failed to load playerfile: " + id);
             }
         }
         return file;
@@ -167,31 +179,40 @@ public class UltimateFileLoader {
     }
 
     public static JsonConfig getPlayerConfig(OfflinePlayer p) {
-        File file = getPlayerFile(p);
-        return new JsonConfig(file);
+        return new JsonConfig(Store.PLAYERS, p.getUniqueId().toString());
     }
 
+    /**
+     * Adds the keys that are new in the config.yml in the plugin jar to the config.yml of the server.
+     * <p>
+     * The merge is skipped when neither the config.yml in the jar nor the one of the server changed since the last merge.
+     * For the server file the size and modification time are compared, so restoring an older file merges again.
+     */
     public static void addConfig() {
         //CONFIG
         {
-            File tempFile;
-            try {
-                tempFile = File.createTempFile("temp_config", ".yml");
-            } catch (IOException ex) {
-                ErrorLogger.log(ex, "Failed to create temp config.yml");
-                return;
-            }
-            try (FileOutputStream out = new FileOutputStream(tempFile)) {
-                tempFile.deleteOnExit();
-                copy(Bukkit.getPluginManager().getPlugin("UltimateCore").getResource("config.yml"), out);
-                out.close();
-            } catch (IOException ex) {
-                ErrorLogger.log(ex, "Failed to complete config.yml");
-            } catch (Exception e) {
+            byte[] defaults;
+            try (InputStream in = Bukkit.getPluginManager().getPlugin("UltimateCore").getResource("config.yml")) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                copy(in, out);
+                defaults = out.toByteArray();
+            } catch (Exception ex) {
                 r.log("WARNING: Failed to complete config.yml");
                 r.log("Restart your server to fix this problem.");
+                return;
+            }
+            CRC32 crc = new CRC32();
+            crc.update(defaults);
+            String defaultsFingerprint = Long.toHexString(crc.getValue());
+            File serverFile = new File(r.getUC().getDataFolder(), "config.yml");
+            File fingerprintFile = new File(datamap, "config.crc");
+            if (fingerprintFile.exists()) {
+                List<String> lines = FileUtil.getLines(fingerprintFile);
+                if (lines != null && lines.contains(fingerprint(defaultsFingerprint, serverFile))) {
+                    return;
+                }
             }
-            Config confL = new Config(tempFile);
+            Config confL = new Config(new ByteArrayInputStream(defaults));
             Config confS = r.getCnfg();
             Boolean changed = false;
             for (String s : confL.getKeys(true)) {
@@ -206,12 +227,19 @@ public class UltimateFileLoader {
                 }
                 confS.save();
             }
-            if (tempFile != null) {
-                tempFile.delete();
+            try {
+                //Taken after saving, so the merged file itself doesn't count as a change next time
+                FileUtil.writeFile(fingerprintFile, Arrays.asList(fingerprint(defaultsFingerprint, serverFile)));
+            } catch (IOException ex) {
+                ErrorLogger.log(ex, "Failed to save config.crc");
             }
         }
     }
 
+    private static String fingerprint(String defaults, File server) {
+        return defaults + " " + server.length() + " " + server.lastModified();
+    }
+
     public static int copy(InputStream input, OutputStream output) throws IOException {
         long count = copyLarge(input, output);
         if (count > 2147483647L) {
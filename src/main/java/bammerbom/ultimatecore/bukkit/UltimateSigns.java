@@ -24,22 +24,46 @@
 package bammerbom.ultimatecore.bukkit;
 
 import bammerbom.ultimatecore.bukkit.signs.*;
+import org.bukkit.ChatColor;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
 public class UltimateSigns {
     public static List<UltimateSign> signs = new ArrayList<>();
+    private static final Map<String, UltimateSign> headers = new HashMap<>();
 
     public static void start() {
-        signs.add(new SignBalance());
-        signs.add(new SignDisposal());
-        signs.add(new SignFree());
-        signs.add(new SignGamemode());
-        signs.add(new SignHeal());
-        signs.add(new SignRepair());
-        signs.add(new SignTime());
-        signs.add(new SignWarp());
-        signs.add(new SignWeather());
+        register(new SignBalance());
+        register(new SignDisposal());
+        register(new SignFree());
+        register(new SignGamemode());
+        register(new SignHeal());
+        register(new SignRepair());
+        register(new SignTime());
+        register(new SignWarp());
+        register(new SignWeather());
+    }
+
+    private static void register(UltimateSign sign) {
+        signs.add(sign);
+        headers.put("[" + sign.getName().toLowerCase(Locale.ENGLISH) + "]", sign);
+    }
+
+    /**
+     * Returns the sign type for the first line of a sign, or null when it is not an UltimateCore sign.
+     */
+    public static UltimateSign getSign(String header) {
+        if (header == null || header.isEmpty()) {
+            return null;
+        }
+        return headers.get(ChatColor.stripColor(header).toLowerCase(Locale.ENGLISH));
+    }
+
+    public static UltimateSign getSignByName(String name) {
+        return headers.get("[" + name.toLowerCase(Locale.ENGLISH) + "]");
     }
 }
\ No newline at end of file
@@ -0,0 +1,203 @@
+/*
+ * This file is part of UltimateCore, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Bammerbom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package bammerbom.ultimatecore.bukkit;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Runs the startup steps of UltimateCore as a dependency graph.
+ * <p>
+ * Steps added with {@link #async} only do file I/O and parsing and run on a worker pool, steps added with
+ * {@link #main} touch Bukkit and run on the calling thread, each as soon as its dependencies are done. A step whose
+ * dependency failed is skipped. Every step is timed, and a report is logged when all steps are done.
+ */
+public class UltimateStartup {
+
+    private final Map<String, Step> steps = new LinkedHashMap<>();
+
+    public UltimateStartup main(String name, Runnable task, String... dependencies) {
+        return add(name, task, false, dependencies);
+    }
+
+    public UltimateStartup async(String name, Runnable task, String... dependencies) {
+        return add(name, task, true, dependencies);
+    }
+
+    private UltimateStartup add(String name, Runnable task, boolean async, String... dependencies) {
+        for (String dependency : dependencies) {
+            if (!steps.containsKey(dependency)) {
+                throw new IllegalArgumentException("Startup step " + name + " depends on unknown step " + dependency);
+            }
+        }
+        steps.put(name, new Step(name, task, async, dependencies));
+        return this;
+    }
+
+    /**
+     * Runs all steps and blocks until they are done.
+     */
+    public void run() {
+        long start = System.nanoTime();
+        final BlockingQueue<Step> finished = new LinkedBlockingQueue<>();
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors())), new ThreadFactory() {
+            int count = 0;
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "UltimateCore startup " + ++count);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        List<Step> waiting = new ArrayList<>(steps.values());
+        int running = 0;
+        try {
+            while (!waiting.isEmpty() || running > 0) {
+                boolean progress = false;
+                Iterator<Step> it = waiting.iterator();
+                while (it.hasNext()) {
+                    final Step step = it.next();
+                    State state = state(step);
+                    if (state == State.WAITING) {
+                        continue;
+                    }
+                    it.remove();
+                    progress = true;
+                    if (state == State.SKIPPED) {
+                        step.state = State.SKIPPED;
+                        continue;
+                    }
+                    if (step.async) {
+                        running++;
+                        pool.execute(new Runnable() {
+                            @Override
+                            public void run() {
+                                step.execute();
+                                finished.add(step);
+                            }
+                        });
+                    } else {
+                        step.execute();
+                        //Start the steps this one unblocked before running more main thread steps
+                        break;
+                    }
+                }
+                if (!progress) {
+                    if (running == 0) {
+                        //Can only happen if dependencies are declared in a cycle
+                        throw new IllegalStateException("Startup steps can not be started: " + waiting);
+                    }
+                    if (finished.poll(30, TimeUnit.SECONDS) != null) {
+                        running--;
+                    }
+                }
+                while (finished.poll() != null) {
+                    running--;
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            pool.shutdown();
+        }
+        report(System.nanoTime() - start);
+    }
+
+    //Ready if all dependencies are done, skipped if one of them failed
+    private State state(Step step) {
+        for (String dependency : step.dependencies) {
+            State state = steps.get(dependency).state;
+            if (state == State.FAILED || state == State.SKIPPED) {
+                return State.SKIPPED;
+            }
+            if (state != State.DONE) {
+                return State.WAITING;
+            }
+        }
+        return State.DONE;
+    }
+
+    private void report(long total) {
+        long work = 0;
+        List<Step> sorted = new ArrayList<>(steps.values());
+        Collections.sort(sorted, new Comparator<Step>() {
+            @Override
+            public int compare(Step a, Step b) {
+                return Long.compare(b.time, a.time);
+            }
+        });
+        StringBuilder builder = new StringBuilder();
+        for (Step step : sorted) {
+            work += step.time;
+            if (builder.length() > 0) {
+                builder.append(", ");
+            }
+            builder.append(step.name).append(step.async ? "* " : " ");
+            if (step.state == State.DONE) {
+                builder.append(step.time / 1000000L).append("ms");
+            } else {
+                builder.append(step.state.name().toLowerCase());
+            }
+        }
+        r.log("Started in " + total / 1000000L + "ms (" + work / 1000000L + "ms of work, * = parallel): " + builder);
+    }
+
+    private enum State {
+        WAITING, DONE, FAILED, SKIPPED
+    }
+
+    private static class Step {
+        final String name;
+        final Runnable task;
+        final boolean async;
+        final String[] dependencies;
+        volatile State state = State.WAITING;
+        volatile long time = 0;
+
+        Step(String name, Runnable task, boolean async, String[] dependencies) {
+            this.name = name;
+            this.task = task;
+            this.async = async;
+            this.dependencies = dependencies;
+        }
+
+        void execute() {
+            long start = System.nanoTime();
+            try {
+                task.run();
+                state = State.DONE;
+            } catch (Throwable t) {
+                state = State.FAILED;
+                ErrorLogger.log(t, "Failed to start " + name);
+            }
+            time = System.nanoTime() - start;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+}
@@ -23,15 +23,26 @@
  */
 package bammerbom.ultimatecore.bukkit;
 
+import bammerbom.ultimatecore.bukkit.resources.storage.Store;
 import org.bukkit.Bukkit;
 import org.bukkit.World.Environment;
 import org.bukkit.WorldCreator;
 import org.bukkit.WorldType;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 public class UltimateWorldLoader {
 
-    public static void startWorldLoading() {
-        JsonConfig conf = new JsonConfig(UltimateFileLoader.Dworlds);
+    //Generator names are resolved on the main thread, as that looks up the generator plugin
+    static Map<WorldCreator, String> worlds = null;
+
+    /**
+     * Reads the registered worlds. Does not touch Bukkit, so it can run off the main thread.
+     */
+    public static void prepare() {
+        Map<WorldCreator, String> list = new LinkedHashMap<>();
+        JsonConfig conf = new JsonConfig(Store.WORLDS);
         for (String str : conf.listKeys(false)) {
             try {
                 WorldCreator w = new WorldCreator(str);
@@ -41,14 +52,30 @@ public class UltimateWorldLoader {
                 if (conf.contains(str + ".type")) {
                     w.type(WorldType.valueOf(conf.getString(str + ".type")));
                 }
-                if (conf.contains(str + ".gen")) {
-                    w.generator(conf.getString(str + ".gen"));
-                }
-                Bukkit.createWorld(w);
+                list.put(w, conf.contains(str + ".gen") ? conf.getString(str + ".gen") : null);
             } catch (Exception ex) {
                 r.log("Failed to load world " + str);
                 ErrorLogger.log(ex, "Failed to load world " + str);
             }
         }
+        worlds = list;
+    }
+
+    public static void startWorldLoading() {
+        if (worlds == null) {
+            prepare();
+        }
+        for (WorldCreator w : worlds.keySet()) {
+            try {
+                if (worlds.get(w) != null) {
+                    w.generator(worlds.get(w));
+                }
+                Bukkit.createWorld(w);
+            } catch (Exception ex) {
+                r.log("Failed to load world " + w.name());
+                ErrorLogger.log(ex, "Failed to load world " + w.name());
+            }
+        }
+        worlds = null;
     }
 }
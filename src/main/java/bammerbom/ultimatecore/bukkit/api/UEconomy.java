@@ -24,34 +24,162 @@
 package bammerbom.ultimatecore.bukkit.api;
 
 import bammerbom.ultimatecore.bukkit.JsonConfig;
-import bammerbom.ultimatecore.bukkit.UltimateFileLoader;
 import bammerbom.ultimatecore.bukkit.r;
+import bammerbom.ultimatecore.bukkit.resources.storage.Store;
 import net.milkbowl.vault.economy.Economy;
 import net.milkbowl.vault.economy.EconomyResponse;
 import org.bukkit.OfflinePlayer;
 
+import java.util.AbstractMap;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
-
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Vault economy backed by Data/economy.json.
+ * <p>
+ * Vault consumers call this from any thread. Balances are kept in account cells, every change to an account is done
+ * while holding one of {@link #STRIPES} locks picked by the account id, and transfers hold the locks of both accounts.
+ * The json document is only touched while synchronized on it, so a save always sees both sides of a transfer.
+ */
 public class UEconomy implements Economy {
 
+    private static final int STRIPES = 64;
+    private static final Object[] locks = new Object[STRIPES];
+    private static final ConcurrentHashMap<String, Account> accounts = new ConcurrentHashMap<>();
     static JsonConfig conf;
     static String format;
     static String currencyName;
     static String currencyNamePlural;
     static int round;
+    static volatile boolean deferred = false;
+    static volatile boolean dirty = false;
+
+    static {
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
 
     /**
      * Internal method, ignore please.
      */
     public static void start() {
-        conf = new JsonConfig(UltimateFileLoader.Deconomy);
+        conf = new JsonConfig(Store.ECONOMY);
+        accounts.clear();
+        for (Map.Entry<String, Object> entry : conf.getValues().entrySet()) {
+            if (entry.getValue() instanceof Number) {
+                accounts.put(entry.getKey(), new Account(((Number) entry.getValue()).doubleValue()));
+            }
+        }
         format = r.getCnfg().getString("Economy.format");
         currencyName = r.getCnfg().getString("Economy.currencyName");
         currencyNamePlural = r.getCnfg().getString("Economy.currencyNamePlural");
         round = r.getCnfg().getInt("Economy.roundBalance", 3);
     }
 
+    /**
+     * Internal method, ignore please.
+     * <p>
+     * When enabled, balance changes are only written by {@link #flush()}, which the autosave cycle calls.
+     */
+    public static void setDeferredSaving(boolean value) {
+        deferred = value;
+    }
+
+    /**
+     * Writes the balances on a background thread if they changed since the last flush.
+     */
+    public static void flush() {
+        if (conf == null || !dirty) {
+            return;
+        }
+        synchronized (conf) {
+            dirty = false;
+            conf.saveAsync();
+        }
+    }
+
+    /**
+     * Internal method, ignore please.
+     */
+    public static void stop() {
+        if (conf == null || !dirty) {
+            return;
+        }
+        synchronized (conf) {
+            dirty = false;
+            conf.save();
+        }
+    }
+
+    private static void save() {
+        if (deferred) {
+            dirty = true;
+        } else {
+            synchronized (conf) {
+                conf.save();
+            }
+        }
+    }
+
+    private static int stripe(String account) {
+        int h = account.hashCode();
+        return (h ^ (h >>> 16)) & (STRIPES - 1);
+    }
+
+    //Only called with the lock of the account held, so the newest balance of an account is always written last
+    private static void store(String account, double balance) {
+        synchronized (conf) {
+            conf.set(account, balance);
+        }
+    }
+
+    private static String resolve(String playerName) {
+        if (!r.isUUID(playerName)) {
+            OfflinePlayer player = r.searchOfflinePlayer(playerName);
+            if (player.getUniqueId() != null && (player.hasPlayedBefore() || player.isOnline())) {
+                return player.getUniqueId().toString();
+            }
+        }
+        return playerName;
+    }
+
+    private Account getAccount(String account) {
+        Account rtrn = accounts.get(account);
+        if (rtrn == null) {
+            createPlayerAccount(account);
+            rtrn = accounts.get(account);
+        }
+        return rtrn;
+    }
+
+    /**
+     * @return The accounts with the highest balances and their balance, highest first. Read from the account cells, so
+     * changes that are not saved yet are included.
+     */
+    public static LinkedHashMap<String, Double> getTop(int limit) {
+        List<Map.Entry<String, Double>> balances = new ArrayList<>(accounts.size());
+        for (Map.Entry<String, Account> entry : accounts.entrySet()) {
+            balances.add(new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), entry.getValue().balance));
+        }
+        Collections.sort(balances, new Comparator<Map.Entry<String, Double>>() {
+            @Override
+            public int compare(Map.Entry<String, Double> a, Map.Entry<String, Double> b) {
+                return Double.compare(b.getValue(), a.getValue());
+            }
+        });
+        LinkedHashMap<String, Double> rtrn = new LinkedHashMap<>();
+        for (Map.Entry<String, Double> entry : balances.subList(0, Math.min(limit, balances.size()))) {
+            rtrn.put(entry.getKey(), entry.getValue());
+        }
+        return rtrn;
+    }
+
     public JsonConfig getData() {
         return conf;
     }
@@ -167,27 +295,10 @@ public class UEconomy implements Economy {
      */
     @Override
     public boolean hasAccount(String playerName) {
-        Long time = System.currentTimeMillis();
-        r.debug("hasAccount - " + playerName + " - " + getData().contains(playerName));
-        if (!r.isUUID(playerName)) {
-            OfflinePlayer player = r.searchOfflinePlayer(playerName);
-            if (player.getUniqueId() != null && (player.hasPlayedBefore() || player.isOnline())) {
-                playerName = player.getUniqueId().toString();
-            }
-        }
-        boolean data = getData().contains(playerName);
-        r.debug("Took: " + (System.currentTimeMillis() - time));
-        return data;
+        r.debug("hasAccount - " + playerName);
+        return accounts.containsKey(resolve(playerName));
     }
 
-    /**
-     * Checks if this player has an account on the server yet This will always return true if the
-     * player has joined the server at least once as all major economy plugins auto-generate a
-     * player account when the player joins the server
-     *
-     * @param player to check
-     * @return if the player has an account
-     */
     @Override
     public boolean hasAccount(OfflinePlayer player) {
         return hasAccount(player.getUniqueId().toString());
@@ -220,33 +331,14 @@ public class UEconomy implements Economy {
      */
     @Override
     public double getBalance(String playerName) {
-        Long time = System.currentTimeMillis();
-        if (!r.isUUID(playerName)) {
-            OfflinePlayer player = r.searchOfflinePlayer(playerName);
-            if (player.getUniqueId() != null && (player.hasPlayedBefore() || player.isOnline())) {
-                playerName = player.getUniqueId().toString();
-            }
-        }
-        if (!hasAccount(playerName)) {
-            createPlayerAccount(playerName);
-        }
-        r.debug("getBalance - " + playerName + " - " + getData().getDouble(playerName));
-        double data = getData().getDouble(playerName);
-        r.debug("Took: " + (System.currentTimeMillis() - time));
-        return data;
+        String account = resolve(playerName);
+        double balance = getAccount(account).balance;
+        r.debug("getBalance - " + account + " - " + balance);
+        return balance;
     }
 
-    /**
-     * Gets balance of a player
-     *
-     * @param player of the player
-     * @return Amount currently held in players account
-     */
     @Override
     public double getBalance(OfflinePlayer player) {
-        if (!hasAccount(player)) {
-            createPlayerAccount(player);
-        }
         return getBalance(player.getUniqueId().toString());
     }
 
@@ -276,25 +368,9 @@ public class UEconomy implements Economy {
      */
     @Override
     public boolean has(String playerName, double amount) {
-        Long time = System.currentTimeMillis();
-        if (!r.isUUID(playerName)) {
-            OfflinePlayer player = r.searchOfflinePlayer(playerName);
-            if (player.getUniqueId() != null && (player.hasPlayedBefore() || player.isOnline())) {
-                playerName = player.getUniqueId().toString();
-            }
-        }
-        boolean a = getBalance(playerName) >= amount;
-        r.debug("Took: " + (System.currentTimeMillis() - time));
-        return a;
+        return getBalance(playerName) >= amount;
     }
 
-    /**
-     * Checks if the player account has the amount - DO NOT USE NEGATIVE AMOUNTS
-     *
-     * @param player to check
-     * @param amount to check for
-     * @return True if <b>player</b> has <b>amount</b>, False else wise
-     */
     @Override
     public boolean has(OfflinePlayer player, double amount) {
         return getBalance(player) >= amount;
@@ -336,40 +412,26 @@ public class UEconomy implements Economy {
      * @deprecated As of VaultAPI 1.4 use {@link #withdrawPlayer(OfflinePlayer, double)} instead.
      */
     public EconomyResponse withdrawPlayer(String playerName, double amount, boolean force) {
-        Long time = System.currentTimeMillis();
-
-        if (!r.isUUID(playerName)) {
-            OfflinePlayer player = r.searchOfflinePlayer(playerName);
-            if (player.getUniqueId() != null && (player.hasPlayedBefore() || player.isOnline())) {
-                playerName = player.getUniqueId().toString();
-            }
-        }
-        if (!hasAccount(playerName)) {
-            createPlayerAccount(playerName);
-        }
-        r.debug("withdrawPlayer - " + playerName + " - " + amount);
+        String id = resolve(playerName);
+        Account account = getAccount(id);
+        r.debug("withdrawPlayer - " + id + " - " + amount);
         if (amount < 0.0D) {
             return new EconomyResponse(0.0D, 0.0D, EconomyResponse.ResponseType.FAILURE, "Cannot withdraw negative " + "funds");
         }
-        if (!getData().contains(playerName)) {
-            return new EconomyResponse(0.0D, 0.0D, EconomyResponse.ResponseType.FAILURE, "This player has no account");
-        }
-        if (getBalance(playerName) - amount < (force ? getMinimumMoney() : 0)) {
-            return new EconomyResponse(0.0D, 0.0D, EconomyResponse.ResponseType.FAILURE, "This player has too less money");
+        double minimum = force ? getMinimumMoney() : 0;
+        double balance;
+        synchronized (locks[stripe(id)]) {
+            if (account.balance - amount < minimum) {
+                return new EconomyResponse(0.0D, 0.0D, EconomyResponse.ResponseType.FAILURE, "This player has too less money");
+            }
+            balance = account.balance - amount;
+            account.balance = balance;
+            store(id, balance);
         }
-        getData().set(playerName, getBalance(playerName) - amount);
-        getData().save();
-        r.debug("Took: " + (System.currentTimeMillis() - time));
-        return new EconomyResponse(amount, getBalance(playerName), EconomyResponse.ResponseType.SUCCESS, null);
+        save();
+        return new EconomyResponse(amount, balance, EconomyResponse.ResponseType.SUCCESS, null);
     }
 
-    /**
-     * Withdraw an amount from a player - DO NOT USE NEGATIVE AMOUNTS
-     *
-     * @param player to withdraw from
-     * @param amount Amount to withdraw
-     * @return Detailed response of transaction
-     */
     @Override
     public EconomyResponse withdrawPlayer(OfflinePlayer player, double amount) {
         return withdrawPlayer(player.getUniqueId().toString(), amount);
@@ -415,40 +477,26 @@ public class UEconomy implements Economy {
      */
     @Override
     public EconomyResponse depositPlayer(String playerName, double amount) {
-        Long time = System.currentTimeMillis();
-
-        if (!r.isUUID(playerName)) {
-            OfflinePlayer player = r.searchOfflinePlayer(playerName);
-            if (player.getUniqueId() != null && (player.hasPlayedBefore() || player.isOnline())) {
-                playerName = player.getUniqueId().toString();
-            }
-        }
-        if (!hasAccount(playerName)) {
-            createPlayerAccount(playerName);
-        }
-        r.debug("depositPlayer - " + playerName + " - " + amount);
+        String id = resolve(playerName);
+        Account account = getAccount(id);
+        r.debug("depositPlayer - " + id + " - " + amount);
         if (amount < 0.0D) {
             return new EconomyResponse(0.0D, 0.0D, EconomyResponse.ResponseType.FAILURE, "Cannot deposit negative " + "funds");
         }
-        if (!getData().contains(playerName)) {
-            return new EconomyResponse(0.0D, 0.0D, EconomyResponse.ResponseType.FAILURE, "This player has no account");
-        }
-        if (getMaximumMoney() != null && getBalance(playerName) + amount > getMaximumMoney()) {
-            return new EconomyResponse(0.0D, 0.0D, EconomyResponse.ResponseType.FAILURE, "This player has too much money");
+        Double maximum = getMaximumMoney();
+        double balance;
+        synchronized (locks[stripe(id)]) {
+            if (maximum != null && account.balance + amount > maximum) {
+                return new EconomyResponse(0.0D, 0.0D, EconomyResponse.ResponseType.FAILURE, "This player has too much money");
+            }
+            balance = account.balance + amount;
+            account.balance = balance;
+            store(id, balance);
         }
-        getData().set(playerName, getBalance(playerName) + amount);
-        getData().save();
-        r.debug("Took: " + (System.currentTimeMillis() - time));
-        return new EconomyResponse(amount, getBalance(playerName), EconomyResponse.ResponseType.SUCCESS, null);
+        save();
+        return new EconomyResponse(amount, balance, EconomyResponse.ResponseType.SUCCESS, null);
     }
 
-    /**
-     * Deposit an amount to a player - DO NOT USE NEGATIVE AMOUNTS
-     *
-     * @param player to deposit to
-     * @param amount Amount to deposit
-     * @return Detailed response of transaction
-     */
     @Override
     public EconomyResponse depositPlayer(OfflinePlayer player, double amount) {
         return depositPlayer(player.getUniqueId().toString(), amount);
@@ -477,6 +525,58 @@ public class UEconomy implements Economy {
         return depositPlayer(player.getUniqueId().toString(), amount);
     }
 
+    /**
+     * Moves money from one account to another. Both balances are checked and changed while holding the locks of both
+     * accounts and written in the same save, so money is never created or lost when the transfer fails halfway or runs
+     * at the same time as other changes.
+     *
+     * @param from   the player to take the money from
+     * @param to     the player to give the money to
+     * @param amount the amount to transfer
+     * @return The response, with the new balance of the payer
+     */
+    public EconomyResponse transfer(String from, String to, double amount) {
+        from = resolve(from);
+        to = resolve(to);
+        r.debug("transfer - " + from + " - " + to + " - " + amount);
+        if (amount < 0.0D) {
+            return new EconomyResponse(0.0D, 0.0D, EconomyResponse.ResponseType.FAILURE, "Cannot transfer negative " + "funds");
+        }
+        Account source = getAccount(from);
+        Account target = getAccount(to);
+        if (source == target) {
+            return new EconomyResponse(amount, source.balance, EconomyResponse.ResponseType.SUCCESS, null);
+        }
+        Double maximum = getMaximumMoney();
+        //Always lock the lower stripe first, so two opposite transfers can't deadlock
+        int a = stripe(from);
+        int b = stripe(to);
+        double balance;
+        synchronized (locks[Math.min(a, b)]) {
+            synchronized (locks[Math.max(a, b)]) {
+                if (source.balance - amount < 0) {
+                    return new EconomyResponse(0.0D, 0.0D, EconomyResponse.ResponseType.FAILURE, "This player has too less money");
+                }
+                if (maximum != null && target.balance + amount > maximum) {
+                    return new EconomyResponse(0.0D, 0.0D, EconomyResponse.ResponseType.FAILURE, "This player has too much money");
+                }
+                balance = source.balance - amount;
+                source.balance = balance;
+                target.balance = target.balance + amount;
+                synchronized (conf) {
+                    conf.set(from, balance);
+                    conf.set(to, target.balance);
+                }
+            }
+        }
+        save();
+        return new EconomyResponse(amount, balance, EconomyResponse.ResponseType.SUCCESS, null);
+    }
+
+    public EconomyResponse transfer(OfflinePlayer from, OfflinePlayer to, double amount) {
+        return transfer(from.getUniqueId().toString(), to.getUniqueId().toString(), amount);
+    }
+
     /**
      * @deprecated As of VaultAPI 1.4 use {{@link #createBank(String, OfflinePlayer)} instead.
      */
@@ -611,30 +711,20 @@ public class UEconomy implements Economy {
      */
     @Override
     public boolean createPlayerAccount(String playerName) {
-        Long time = System.currentTimeMillis();
-        r.debug("createPlayerAccount - " + playerName);
-
-        if (!r.isUUID(playerName)) {
-            OfflinePlayer player = r.searchOfflinePlayer(playerName);
-            if (player.getUniqueId() != null && (player.hasPlayedBefore() || player.isOnline())) {
-                playerName = player.getUniqueId().toString();
+        String id = resolve(playerName);
+        r.debug("createPlayerAccount - " + id);
+        synchronized (locks[stripe(id)]) {
+            if (accounts.containsKey(id)) {
+                return false;
             }
+            Account account = new Account(r.getCnfg().getDouble("Economy.startingBalance"));
+            accounts.put(id, account);
+            store(id, account.balance);
         }
-        if (getData().contains(playerName)) {
-            return false;
-        }
-        getData().set(playerName, r.getCnfg().getDouble("Economy.startingBalance"));
-        getData().save();
-        r.debug("Took: " + (System.currentTimeMillis() - time));
+        save();
         return true;
     }
 
-    /**
-     * Attempts to create a player account for the given player
-     *
-     * @param player OfflinePlayer
-     * @return if the account creation was successful
-     */
     @Override
     public boolean createPlayerAccount(OfflinePlayer player) {
         return createPlayerAccount(player.getUniqueId().toString());
@@ -663,4 +753,13 @@ public class UEconomy implements Economy {
         return createPlayerAccount(player.getUniqueId().toString());
     }
 
+    private static final class Account {
+
+        //Read without a lock, only written with the lock of the account held
+        volatile double balance;
+
+        Account(double balance) {
+            this.balance = balance;
+        }
+    }
 }
@@ -26,9 +26,11 @@ package bammerbom.ultimatecore.bukkit.api;
 import bammerbom.ultimatecore.bukkit.JsonConfig;
 import bammerbom.ultimatecore.bukkit.UltimateFileLoader;
 import bammerbom.ultimatecore.bukkit.r;
+import bammerbom.ultimatecore.bukkit.resources.databases.HomeDatabase;
+import bammerbom.ultimatecore.bukkit.resources.storage.Store;
+import bammerbom.ultimatecore.bukkit.resources.utils.HudUtil;
 import bammerbom.ultimatecore.bukkit.resources.utils.InventoryUtil;
 import bammerbom.ultimatecore.bukkit.resources.utils.LocationUtil;
-import bammerbom.ultimatecore.bukkit.resources.utils.TitleUtil;
 import org.bukkit.*;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
@@ -244,6 +246,7 @@ public class UPlayer {
             }
         }
         conf.save();
+        HomeDatabase.setHomes(uuid, nh);
     }
 
     public ArrayList<String> getHomeNames() {
@@ -389,7 +392,7 @@ public class UPlayer {
         }
         JsonConfig data = getPlayerConfig();
         data.set("nick", str);
-        data.save(UltimateFileLoader.getPlayerFile(getPlayer()));
+        data.save();
     }
 
     public boolean isInTeleportMenu() {
@@ -496,7 +499,7 @@ public class UPlayer {
 
     public void setAfk(boolean news) {
         if (news == false && getPlayer().isOnline()) {
-            TitleUtil.clearTitle(getOnlinePlayer());
+            HudUtil.clear(getOnlinePlayer(), HudUtil.Channel.TITLE);
         }
         afk = news;
         save();
@@ -520,18 +523,16 @@ public class UPlayer {
     }
 
     public Location getSpawn(Boolean firstjoin) {
-        JsonConfig conf = new JsonConfig(UltimateFileLoader.Dspawns);
+        JsonConfig conf = new JsonConfig(Store.SPAWNS);
         String loc;
         Player p = r.searchPlayer(uuid);
         Boolean world = conf.contains("worlds.world." + p.getWorld().getName() + ".global");
         String world_ = world ? conf.getString("worlds.world." + p.getWorld().getName() + ".global") : null;
-        Boolean group = (r.getVault() != null && r.getVault().getPermission() != null && r.getPrimaryGroup(p) != null) && conf.contains("global.group." + r.getPrimaryGroup(p));
-        String group_ = r.getVault() != null && r.getVault().getPermission() != null && r.getPrimaryGroup(p) != null ? (group ? conf.getString("global.group." + r.getPrimaryGroup(p)) :
-                null) : null;
-        Boolean gw = (r.getVault() != null && r.getVault().getPermission() != null && r.getPrimaryGroup(p) != null) && conf.contains("worlds.world." + p.getWorld().getName() + ".group." +
-                r.getPrimaryGroup(p));
-        String gw_ = r.getVault() != null && r.getVault().getPermission() != null && r.getPrimaryGroup(p) != null ? conf.getString("worlds.world." + p.getWorld().getName() + ".group." + r
-                .getPrimaryGroup(p)) : null;
+        String pgroup = r.getPrimaryGroup(p);
+        Boolean group = pgroup != null && conf.contains("global.group." + pgroup);
+        String group_ = group ? conf.getString("global.group." + pgroup) : null;
+        Boolean gw = pgroup != null && conf.contains("worlds.world." + p.getWorld().getName() + ".group." + pgroup);
+        String gw_ = pgroup != null ? conf.getString("worlds.world." + p.getWorld().getName() + ".group." + pgroup) : null;
         if (firstjoin && conf.contains("global.firstjoin")) {
             loc = conf.getString("global.firstjoin");
         } else if (gw) {
@@ -29,12 +29,15 @@ import bammerbom.ultimatecore.bukkit.UltimateFileLoader;
 import bammerbom.ultimatecore.bukkit.listeners.AutomessageListener;
 import bammerbom.ultimatecore.bukkit.listeners.TabListener;
 import bammerbom.ultimatecore.bukkit.r;
+import bammerbom.ultimatecore.bukkit.resources.databases.HomeDatabase;
+import bammerbom.ultimatecore.bukkit.resources.databases.HomeDatabase.Home;
+import bammerbom.ultimatecore.bukkit.resources.databases.WarpDatabase;
+import bammerbom.ultimatecore.bukkit.resources.storage.Store;
 import bammerbom.ultimatecore.bukkit.resources.utils.*;
 import org.bukkit.*;
 import org.bukkit.entity.Player;
 import org.bukkit.plugin.Plugin;
 import java.io.File;
-import java.lang.management.ManagementFactory;
 import java.text.DateFormat;
 import java.util.*;
 
@@ -43,10 +46,16 @@ public class UServer {
     //Receiver, Sender
     static Map<UUID, UUID> tp = new HashMap<UUID, UUID>();
     static Map<UUID, UUID> tph = new HashMap<UUID, UUID>();
-    //Warps
-    static HashMap<String, Location> warps = null;
 
     public static void start() {
+        WarpDatabase.enable();
+        HomeDatabase.enable();
+    }
+
+    /**
+     * Reads motd.txt. Does not touch Bukkit, so it can run off the main thread.
+     */
+    public static void loadMotd() {
         if (!StringUtil.nullOrEmpty(motd)) {
             motd = "";
         }
@@ -104,7 +113,7 @@ public class UServer {
         mt = mt.replace("{TIME}", DateFormat.getTimeInstance(2, Locale.getDefault()).format(new Date()));
         mt = mt.replace("{DATE}", DateFormat.getDateInstance(2, Locale.getDefault()).format(new Date()));
         mt = mt.replace("{TPS}", PerformanceUtil.getTps() + "");
-        mt = mt.replace("{UPTIME}", ChatColor.stripColor(DateUtil.formatDateDiff(ManagementFactory.getRuntimeMXBean().getStartTime())));
+        mt = mt.replace("{UPTIME}", DateUtil.getPlainUptime());
         StringBuilder pb = new StringBuilder();
         for (Plugin pl : Bukkit.getServer().getPluginManager().getPlugins()) {
             if (!StringUtil.nullOrEmpty(pb.toString())) {
@@ -152,7 +161,7 @@ public class UServer {
         mt = mt.replace("{TIME}", DateFormat.getTimeInstance(2, Locale.getDefault()).format(new Date()));
         mt = mt.replace("{DATE}", DateFormat.getDateInstance(2, Locale.getDefault()).format(new Date()).replace("-", " "));
         mt = mt.replace("{TPS}", PerformanceUtil.getTps() + "");
-        mt = mt.replace("{UPTIME}", ChatColor.stripColor(DateUtil.formatDateDiff(ManagementFactory.getRuntimeMXBean().getStartTime())));
+        mt = mt.replace("{UPTIME}", DateUtil.getPlainUptime());
         mt = TabListener.replaceVariables(mt, p);
         StringBuilder pb = new StringBuilder();
         for (Plugin pl : Bukkit.getServer().getPluginManager().getPlugins()) {
@@ -233,59 +242,71 @@ public class UServer {
     }
 
     public HashMap<String, Location> getWarps() {
-        if (warps != null) {
-            return warps;
-        }
-        warps = new HashMap<>();
-        JsonConfig conf = new JsonConfig(UltimateFileLoader.Dwarps);
-        if (!conf.contains("warps")) {
-            return warps;
-        }
-        for (String hname : conf.listKeys("warps", false)) {
-            warps.put(hname, LocationUtil.convertStringToLocation(conf.getString("warps." + hname)));
-        }
-        return warps;
+        return WarpDatabase.getWarps();
     }
 
     public void setWarps(HashMap<String, Location> nh) {
-        warps = nh;
-        JsonConfig conf = new JsonConfig(UltimateFileLoader.Dwarps);
-        conf.set("warps", null);
-        for (String s : nh.keySet()) {
-            try {
-                conf.set("warps." + s, LocationUtil.convertLocationToString(nh.get(s.toLowerCase())));
-            } catch (Exception ex) {
-                r.log(r.negative + "Warp " + s + " has been removed. (Invalid location)");
-            }
-        }
-        conf.save();
+        WarpDatabase.setWarps(nh);
     }
 
     public ArrayList<String> getWarpNames() {
         ArrayList<String> h = new ArrayList<>();
-        h.addAll(getWarps().keySet());
+        h.addAll(WarpDatabase.getWarpNames());
         return h;
     }
 
     public void addWarp(String s, Location l) {
-        HashMap<String, Location> h = getWarps();
-        h.put(s.toLowerCase(), l);
-        setWarps(h);
+        WarpDatabase.setWarp(s, l);
     }
 
     public void removeWarp(String s) {
-        HashMap<String, Location> h = getWarps();
-        h.remove(s.toLowerCase());
-        setWarps(h);
+        WarpDatabase.removeWarp(s);
     }
 
     public Location getWarp(String s) {
-        for (String w : getWarps().keySet()) {
-            if (w.equalsIgnoreCase(s)) {
-                return getWarps().get(w);
+        return WarpDatabase.getWarp(s);
+    }
+
+    public String getNearestWarp(Location loc) {
+        return WarpDatabase.getNearestWarp(loc);
+    }
+
+    public List<String> getWarpsNear(Location loc, double radius) {
+        return WarpDatabase.getWarpsNear(loc, radius);
+    }
+
+    //Homes
+    public List<Home> getHomes(String world) {
+        return HomeDatabase.getHomes(world);
+    }
+
+    public List<Home> getHomesNear(Location loc, double radius) {
+        return HomeDatabase.getHomesNear(loc, radius);
+    }
+
+    public Map<String, Integer> getHomeCounts() {
+        return HomeDatabase.countHomes();
+    }
+
+    /**
+     * Removes all homes in the given world, writing each affected player file once.
+     *
+     * @return The amount of homes removed
+     */
+    public int purgeHomes(String world) {
+        int count = 0;
+        Map<UUID, List<String>> homes = HomeDatabase.getHomesByOwner(world);
+        for (UUID u : homes.keySet()) {
+            UPlayer pl = UC.getPlayer(u);
+            HashMap<String, Location> h = pl.getHomes();
+            for (String name : homes.get(u)) {
+                if (h.remove(name) != null) {
+                    count++;
+                }
             }
+            pl.setHomes(h);
         }
-        return null;
+        return count;
     }
 
     public List<Player> getAfkPlayers() {
@@ -319,10 +340,10 @@ public class UServer {
     }
 
     public Location getGlobalSpawn() {
-        if (!new JsonConfig(UltimateFileLoader.Dspawns).contains("global")) {
+        if (!new JsonConfig(Store.SPAWNS).contains("global")) {
             return null;
         }
-        String s = new JsonConfig(UltimateFileLoader.Dspawns).getString("global");
+        String s = new JsonConfig(Store.SPAWNS).getString("global");
         Location loc = LocationUtil.convertStringToLocation(s);
         return loc;
     }
@@ -339,7 +360,7 @@ public class UServer {
             path = "worlds.world." + loc.getWorld().getName() + ".group." + group;
         }
         String s = LocationUtil.convertLocationToString(loc);
-        JsonConfig conf = new JsonConfig(UltimateFileLoader.Dspawns);
+        JsonConfig conf = new JsonConfig(Store.SPAWNS);
         conf.set(path, s);
         conf.save();
     }
@@ -355,7 +376,7 @@ public class UServer {
         } else if (!StringUtil.nullOrEmpty(group) && !StringUtil.nullOrEmpty(world)) {
             path = "worlds.world." + world.getName() + ".group." + group;
         }
-        JsonConfig conf = new JsonConfig(UltimateFileLoader.Dspawns);
+        JsonConfig conf = new JsonConfig(Store.SPAWNS);
         if (conf.contains(path)) {
             conf.set(path, null);
             conf.save();
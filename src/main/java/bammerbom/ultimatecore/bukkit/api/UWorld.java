@@ -24,6 +24,7 @@
 package bammerbom.ultimatecore.bukkit.api;
 
 import bammerbom.ultimatecore.bukkit.JsonConfig;
+import bammerbom.ultimatecore.bukkit.resources.storage.Store;
 import bammerbom.ultimatecore.bukkit.resources.utils.FireworkUtil;
 import org.bukkit.*;
 
@@ -65,7 +66,7 @@ public class UWorld {
 
     //Register
     public void register(String gen) {
-        JsonConfig conf = new JsonConfig(getDataFile());
+        JsonConfig conf = new JsonConfig(Store.WORLDS);
         conf.set(base.getName() + ".env", base.getEnvironment().name());
         conf.set(base.getName() + ".gen", gen);
         conf.set(base.getName() + ".type", base.getWorldType().toString());
@@ -73,21 +74,28 @@ public class UWorld {
         conf.save();
     }
 
+    /**
+     * @return The generator this world was registered with, or null
+     */
+    public String getGenerator() {
+        JsonConfig conf = new JsonConfig(Store.WORLDS);
+        return conf.contains(base.getName() + ".gen") ? conf.getString(base.getName() + ".gen") : null;
+    }
+
     public void unregister() {
-        JsonConfig conf = new JsonConfig(getDataFile());
+        JsonConfig conf = new JsonConfig(Store.WORLDS);
         conf.set(base.getName(), null);
         conf.save();
     }
 
     public void resetData() {
-        String gen = new JsonConfig(getDataFile()).getString(base.getName() + ".gen");
+        String gen = new JsonConfig(Store.WORLDS).getString(base.getName() + ".gen");
         unregister();
         register(gen.isEmpty() ? null : gen);
     }
 
     public boolean isFlagDenied(WorldFlag f) {
-        File file = getDataFile();
-        JsonConfig conf = new JsonConfig(file);
+        JsonConfig conf = new JsonConfig(Store.WORLDS);
         if (!conf.contains(getWorld().getName() + ".flags." + f.toString())) {
             return false;
         }
@@ -99,10 +107,9 @@ public class UWorld {
     }
 
     public void setFlagAllowed(WorldFlag f) {
-        File file = getDataFile();
-        JsonConfig conf = new JsonConfig(file);
+        JsonConfig conf = new JsonConfig(Store.WORLDS);
         conf.set(getWorld().getName() + ".flags." + f.toString(), true);
-        conf.save(file);
+        conf.save();
         if (f.equals(WorldFlag.ANIMAL)) {
             getWorld().setAnimalSpawnLimit(15);
         }
@@ -115,10 +122,9 @@ public class UWorld {
     }
 
     public void setFlagDenied(WorldFlag f) {
-        File file = getDataFile();
-        JsonConfig conf = new JsonConfig(file);
+        JsonConfig conf = new JsonConfig(Store.WORLDS);
         conf.set(getWorld().getName() + ".flags." + f.toString(), false);
-        conf.save(file);
+        conf.save();
         if (f.equals(WorldFlag.ANIMAL)) {
             getWorld().setAnimalSpawnLimit(0);
         }
@@ -131,8 +137,7 @@ public class UWorld {
     }
 
     public GameMode getDefaultGamemode() {
-        File file = getDataFile();
-        JsonConfig conf = new JsonConfig(file);
+        JsonConfig conf = new JsonConfig(Store.WORLDS);
         String gm = conf.getString(getWorld().getName() + ".flags.gamemode");
         try {
             return GameMode.valueOf(gm);
@@ -142,10 +147,9 @@ public class UWorld {
     }
 
     public void setDefaultGamemode(GameMode gm) {
-        File file = getDataFile();
-        JsonConfig conf = new JsonConfig(file);
+        JsonConfig conf = new JsonConfig(Store.WORLDS);
         conf.set(getWorld().getName() + ".flags.gamemode", gm.name());
-        conf.save(file);
+        conf.save();
     }
 
     //World
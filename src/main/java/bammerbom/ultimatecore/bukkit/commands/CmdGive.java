@@ -27,6 +27,7 @@ import bammerbom.ultimatecore.bukkit.UltimateCommand;
 import bammerbom.ultimatecore.bukkit.r;
 import bammerbom.ultimatecore.bukkit.resources.utils.InventoryUtil;
 import bammerbom.ultimatecore.bukkit.resources.utils.ItemUtil;
+import bammerbom.ultimatecore.bukkit.resources.utils.StringUtil;
 import org.bukkit.Material;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandSender;
@@ -71,10 +72,12 @@ public class CmdGive implements UltimateCommand {
             item = new ItemStack(ItemUtil.searchItem(args[1]));
         } catch (Exception e) {
             r.sendMes(cs, "giveItemNotFound", "%Item", args[1]);
+            sendSuggestions(cs, args[1]);
             return;
         }
         if (item == null || item.getType() == null || item.getType().equals(Material.AIR)) {
             r.sendMes(cs, "giveItemNotFound", "%Item", args[1]);
+            sendSuggestions(cs, args[1]);
             return;
         }
         if (InventoryUtil.isFullInventory(target.getInventory())) {
@@ -99,6 +102,13 @@ public class CmdGive implements UltimateCommand {
         r.sendMes(cs, "giveMessage", "%Item", ItemUtil.getName(item), "%Amount", amount, "%Player", target.getName());
     }
 
+    private void sendSuggestions(CommandSender cs, String item) {
+        List<String> suggestions = ItemUtil.getSuggestions(item);
+        if (!suggestions.isEmpty()) {
+            r.sendMes(cs, "itemDidYouMean", "%Items", StringUtil.join(", ", suggestions));
+        }
+    }
+
     @Override
     public List<String> onTabComplete(CommandSender cs, Command cmd, String alias, String[] args, String curs, Integer curn) {
         return null;
@@ -27,6 +27,7 @@ import bammerbom.ultimatecore.bukkit.UltimateCommand;
 import bammerbom.ultimatecore.bukkit.r;
 import bammerbom.ultimatecore.bukkit.resources.utils.InventoryUtil;
 import bammerbom.ultimatecore.bukkit.resources.utils.ItemUtil;
+import bammerbom.ultimatecore.bukkit.resources.utils.StringUtil;
 import org.bukkit.Material;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandSender;
@@ -70,10 +71,12 @@ public class CmdItem implements UltimateCommand {
             item = new ItemStack(ItemUtil.searchItem(args[0]));
         } catch (Exception e) {
             r.sendMes(cs, "itemItemNotFound", "%Item", args[0]);
+            sendSuggestions(cs, args[0]);
             return;
         }
         if (item == null || item.getType() == null || item.getType().equals(Material.AIR)) {
             r.sendMes(cs, "itemItemNotFound", "%Item", args[0]);
+            sendSuggestions(cs, args[0]);
             return;
         }
         if (InventoryUtil.isFullInventory(p.getInventory())) {
@@ -98,6 +101,13 @@ public class CmdItem implements UltimateCommand {
         r.sendMes(cs, "itemMessage", "%Item", ItemUtil.getName(item), "%Amount", amount, "%Player", r.getDisplayName(p));
     }
 
+    private void sendSuggestions(CommandSender cs, String item) {
+        List<String> suggestions = ItemUtil.getSuggestions(item);
+        if (!suggestions.isEmpty()) {
+            r.sendMes(cs, "itemDidYouMean", "%Items", StringUtil.join(", ", suggestions));
+        }
+    }
+
     @Override
     public List<String> onTabComplete(CommandSender cs, Command cmd, String alias, String[] args, String curs, Integer curn) {
         return null;
@@ -25,6 +25,7 @@ package bammerbom.ultimatecore.bukkit.commands;
 
 import bammerbom.ultimatecore.bukkit.UltimateCommand;
 import bammerbom.ultimatecore.bukkit.r;
+import bammerbom.ultimatecore.bukkit.resources.utils.WorkUtil;
 import org.bukkit.EntityEffect;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandSender;
@@ -32,6 +33,7 @@ import org.bukkit.entity.Entity;
 import org.bukkit.entity.EntityType;
 import org.bukkit.entity.LivingEntity;
 import org.bukkit.entity.Player;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -83,18 +85,32 @@ public class CmdKillall implements UltimateCommand {
             }
         }
         Player p = (Player) cs;
-        Integer amount = 0;
+        List<Entity> entities = new ArrayList<>();
         for (Entity en : r.getNearbyEntities(p, range)) {
             if (en instanceof LivingEntity && !(en instanceof Player)) {
                 if (et != null && !en.getType().equals(et)) {
                     continue;
                 }
+                entities.add(en);
+            }
+        }
+        final Integer radius = range;
+        WorkUtil.submit(new WorkUtil.Job<Entity>("killall", cs, entities, WorkUtil.DEFAULT_BUDGET) {
+            @Override
+            protected boolean process(Entity en) {
+                if (!en.isValid()) {
+                    return false;
+                }
                 en.remove();
-                amount++;
                 en.playEffect(EntityEffect.DEATH);
+                return true;
             }
-        }
-        r.sendMes(cs, "killAll", "%Amount", amount, "%Radius", range);
+
+            @Override
+            protected void complete(int done) {
+                r.sendMes(cs, "killAll", "%Amount", done, "%Radius", radius);
+            }
+        });
     }
 
     @Override
@@ -23,9 +23,7 @@
  */
 package bammerbom.ultimatecore.bukkit.commands;
 
-import bammerbom.ultimatecore.bukkit.JsonConfig;
 import bammerbom.ultimatecore.bukkit.UltimateCommand;
-import bammerbom.ultimatecore.bukkit.UltimateFileLoader;
 import bammerbom.ultimatecore.bukkit.api.UEconomy;
 import bammerbom.ultimatecore.bukkit.r;
 import net.milkbowl.vault.economy.EconomyResponse;
@@ -341,24 +339,18 @@ public class CmdMoney implements UltimateCommand {
             if (!r.perm(cs, "uc.money.top", true, true)) {
                 return;
             }
-            HashMap<String, Double> mapO = new HashMap<>();
-            JsonConfig c = new JsonConfig(UltimateFileLoader.Deconomy);
-            for (String s : c.listKeys(false)) {
-                mapO.put(s, c.getDouble(s));
-            }
-            LinkedHashMap<String, Double> map = (LinkedHashMap<String, Double>) sortHashMapByValuesD(mapO);
             Integer cur = 0;
-            while ((map.size() - 1) >= cur && cur < 10) {
+            for (Map.Entry<String, Double> entry : UEconomy.getTop(10).entrySet()) {
                 String player;
                 try {
-                    player = r.searchOfflinePlayer(UUID.fromString(map.keySet().toArray(new String[map.size()])[cur])).getName();
+                    player = r.searchOfflinePlayer(UUID.fromString(entry.getKey())).getName();
                 } catch (IllegalArgumentException | NullPointerException ex) {
-                    player = map.keySet().toArray(new String[map.size()])[cur];
+                    player = entry.getKey();
                 }
                 if (player == null) {
-                    player = map.keySet().toArray(new String[map.size()])[cur];
+                    player = entry.getKey();
                 }
-                r.sendMes(cs, "moneyTopEntry", "%Rank", cur + 1, "%Player", player, "%Balance", r.getVault().getEconomy().format(new ArrayList<>(map.values()).get(cur)));
+                r.sendMes(cs, "moneyTopEntry", "%Rank", cur + 1, "%Player", player, "%Balance", r.getVault().getEconomy().format(entry.getValue()));
                 cur++;
             }
 
@@ -382,29 +374,4 @@ public class CmdMoney implements UltimateCommand {
     public List<String> onTabComplete(CommandSender cs, Command cmd, String alias, String[] args, String curs, Integer curn) {
         return null;
     }
-
-    public LinkedHashMap<?, ?> sortHashMapByValuesD(HashMap<String, Double> passedMap) {
-        List<Object> mapKeys = new ArrayList<Object>(passedMap.keySet());
-        List<Object> mapValues = new ArrayList<Object>(passedMap.values());
-        Collections.sort(mapValues, Collections.reverseOrder());
-        Collections.sort(mapKeys, Collections.reverseOrder());
-        LinkedHashMap<Object, Object> sortedMap = new LinkedHashMap<Object, Object>();
-        Iterator<?> valueIt = mapValues.iterator();
-        while (valueIt.hasNext()) {
-            Object val = valueIt.next();
-            Iterator<?> keyIt = mapKeys.iterator();
-            while (keyIt.hasNext()) {
-                Object key = keyIt.next();
-                String comp1 = passedMap.get(key).toString();
-                String comp2 = val.toString();
-                if (comp1.equals(comp2)) {
-                    passedMap.remove(key);
-                    mapKeys.remove(key);
-                    sortedMap.put(key, val);
-                    break;
-                }
-            }
-        }
-        return sortedMap;
-    }
-}
\ No newline at end of file
+}
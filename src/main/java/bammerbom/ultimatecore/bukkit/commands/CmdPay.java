@@ -27,6 +27,7 @@ import bammerbom.ultimatecore.bukkit.UltimateCommand;
 import bammerbom.ultimatecore.bukkit.api.UC;
 import bammerbom.ultimatecore.bukkit.api.UEconomy;
 import bammerbom.ultimatecore.bukkit.r;
+import net.milkbowl.vault.economy.EconomyResponse;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
@@ -97,15 +98,20 @@ public class CmdPay implements UltimateCommand {
                 r.sendMes(cs, "moneyMaxBalance");
                 return;
             }
+            //The balances can still change between the checks above and the transfer
+            EconomyResponse er = ue.transfer(p, t, d);
+            if (!er.transactionSuccess()) {
+                r.sendMes(cs, "moneyFailed", "%Error", er.errorMessage);
+                return;
+            }
         } else {
             if (r.getVault().getEconomy().getBalance(p) - d < 0) {
                 r.sendMes(cs, "payTooLessMoney", "%Money", r.getVault().getEconomy().format(d));
                 return;
             }
+            r.getVault().getEconomy().withdrawPlayer(p, d);
+            r.getVault().getEconomy().depositPlayer(t, d);
         }
-
-        r.getVault().getEconomy().withdrawPlayer(p, d);
-        r.getVault().getEconomy().depositPlayer(t, d);
         r.sendMes(cs, "payMessage", "%Player", UC.getPlayer(t).getDisplayName(), "%Amount", r.getVault().getEconomy().format(d));
         r.sendMes(t, "payTarget", "%Player", UC.getPlayer(p).getDisplayName(), "%Amount", r.getVault().getEconomy().format(d));
     }
@@ -25,6 +25,7 @@ package bammerbom.ultimatecore.bukkit.commands;
 
 import bammerbom.ultimatecore.bukkit.UltimateCommand;
 import bammerbom.ultimatecore.bukkit.r;
+import bammerbom.ultimatecore.bukkit.resources.utils.WorkUtil;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.*;
@@ -83,7 +84,7 @@ public class CmdRemoveall implements UltimateCommand {
 
         }
         Player p = (Player) cs;
-        Integer amount = 0;
+        List<Entity> entities = new ArrayList<>();
         for (Entity en : r.getNearbyEntities(p, range)) {
             if ((en instanceof Painting) || (en instanceof ItemFrame) || (en instanceof Player)) {
                 continue;
@@ -91,10 +92,24 @@ public class CmdRemoveall implements UltimateCommand {
             if (et != null && !en.getType().equals(et)) {
                 continue;
             }
-            en.remove();
-            amount++;
+            entities.add(en);
         }
-        r.sendMes(cs, "removeallMessage", "%Amount", amount, "%Radius", range);
+        final Integer radius = range;
+        WorkUtil.submit(new WorkUtil.Job<Entity>("removeall", cs, entities, WorkUtil.DEFAULT_BUDGET) {
+            @Override
+            protected boolean process(Entity en) {
+                if (!en.isValid()) {
+                    return false;
+                }
+                en.remove();
+                return true;
+            }
+
+            @Override
+            protected void complete(int done) {
+                r.sendMes(cs, "removeallMessage", "%Amount", done, "%Radius", radius);
+            }
+        });
     }
 
     @SuppressWarnings("deprecation")
@@ -43,10 +43,11 @@ public class CmdRules implements UltimateCommand {
         if (!file.exists()) {
             r.getUC().saveResource("rules.txt", true);
         }
-        message = "";
+        StringBuilder builder = new StringBuilder();
         for (String r : FileUtil.getLines(file)) {
-            message = message + ChatColor.translateAlternateColorCodes('&', r) + ChatColor.RESET + "\n";
+            builder.append(ChatColor.translateAlternateColorCodes('&', r)).append(ChatColor.RESET).append("\n");
         }
+        message = builder.toString();
     }
 
     @Override
@@ -27,7 +27,7 @@ import bammerbom.ultimatecore.bukkit.UltimateCommand;
 import bammerbom.ultimatecore.bukkit.api.UC;
 import bammerbom.ultimatecore.bukkit.r;
 import bammerbom.ultimatecore.bukkit.resources.utils.LocationUtil;
-import org.bukkit.Bukkit;
+import bammerbom.ultimatecore.bukkit.resources.utils.WorkUtil;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
@@ -63,32 +63,42 @@ public class CmdTeleportall implements UltimateCommand {
             if (!r.isPlayer(cs)) {
                 return;
             }
-            Player p = (Player) cs;
-            for (Player pl : Bukkit.getOnlinePlayers()) {
-                if (!UC.getPlayer(pl).hasTeleportEnabled() && !r.perm(cs, "uc.tptoggle.override", false, false)) {
-                    r.sendMes(cs, "teleportDisabled", "%Player", pl.getName());
-                    continue;
-                }
-                LocationUtil.teleport(pl, p.getLocation(), TeleportCause.COMMAND, true, false);
-            }
-            LocationUtil.playEffect(null, p.getLocation());
-            r.sendMes(cs, "teleportallSelf");
+            teleportAll(cs, (Player) cs, true);
         } else {
             Player t = r.searchPlayer(args[0]);
             if (t == null) {
                 r.sendMes(cs, "playerNotFound", "%Player", args[0]);
                 return;
             }
-            for (Player pl : Bukkit.getOnlinePlayers()) {
+            teleportAll(cs, t, false);
+        }
+    }
+
+    private void teleportAll(final CommandSender cs, final Player target, final boolean self) {
+        WorkUtil.submit(new WorkUtil.Job<Player>("teleportall", cs, new ArrayList<>(r.getOnlinePlayersL()), WorkUtil.DEFAULT_BUDGET) {
+            @Override
+            protected boolean process(Player pl) {
+                if (!pl.isOnline()) {
+                    return false;
+                }
                 if (!UC.getPlayer(pl).hasTeleportEnabled() && !r.perm(cs, "uc.tptoggle.override", false, false)) {
                     r.sendMes(cs, "teleportDisabled", "%Player", pl.getName());
-                    continue;
+                    return false;
                 }
-                LocationUtil.teleport(pl, t.getLocation(), TeleportCause.COMMAND, true, false);
+                LocationUtil.teleport(pl, target.getLocation(), TeleportCause.COMMAND, true, false);
+                return true;
             }
-            LocationUtil.playEffect(null, t.getLocation());
-            r.sendMes(cs, "teleportallOthers", "%Player", t.getName());
-        }
+
+            @Override
+            protected void complete(int done) {
+                LocationUtil.playEffect(null, target.getLocation());
+                if (self) {
+                    r.sendMes(cs, "teleportallSelf");
+                } else {
+                    r.sendMes(cs, "teleportallOthers", "%Player", target.getName());
+                }
+            }
+        });
     }
 
     @Override
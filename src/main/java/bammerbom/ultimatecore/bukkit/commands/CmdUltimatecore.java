@@ -0,0 +1,373 @@
+/*
+ * This file is part of UltimateCore, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Bammerbom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package bammerbom.ultimatecore.bukkit.commands;
+
+import bammerbom.ultimatecore.bukkit.ErrorLogger;
+import bammerbom.ultimatecore.bukkit.UltimateCommand;
+import bammerbom.ultimatecore.bukkit.api.UC;
+import bammerbom.ultimatecore.bukkit.api.UEconomy;
+import bammerbom.ultimatecore.bukkit.r;
+import bammerbom.ultimatecore.bukkit.resources.cache.ChatMetaCache;
+import bammerbom.ultimatecore.bukkit.resources.cache.PermissionCache;
+import bammerbom.ultimatecore.bukkit.resources.databases.BookDatabase;
+import bammerbom.ultimatecore.bukkit.resources.databases.HomeDatabase;
+import bammerbom.ultimatecore.bukkit.resources.databases.HomeDatabase.Home;
+import bammerbom.ultimatecore.bukkit.resources.databases.NameDatabase;
+import bammerbom.ultimatecore.bukkit.resources.databases.SignDatabase;
+import bammerbom.ultimatecore.bukkit.resources.databases.WarpDatabase;
+import bammerbom.ultimatecore.bukkit.resources.profiler.TickHistogram;
+import bammerbom.ultimatecore.bukkit.resources.profiler.TickProfiler;
+import bammerbom.ultimatecore.bukkit.resources.storage.Storage;
+import bammerbom.ultimatecore.bukkit.resources.utils.BossbarUtil;
+import bammerbom.ultimatecore.bukkit.resources.utils.HudUtil;
+import bammerbom.ultimatecore.bukkit.resources.utils.WorkUtil;
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+public class CmdUltimatecore implements UltimateCommand {
+
+    private static boolean migrating = false;
+
+    @Override
+    public String getName() {
+        return "ultimatecore";
+    }
+
+    @Override
+    public String getPermission() {
+        return "uc.ultimatecore";
+    }
+
+    @Override
+    public List<String> getAliases() {
+        return Arrays.asList("uc");
+    }
+
+    @Override
+    public void run(final CommandSender cs, String label, String[] args) {
+        if (!r.perm(cs, "uc.ultimatecore", false, true)) {
+            return;
+        }
+        if (!r.checkArgs(args, 0)) {
+            r.sendMes(cs, "ultimatecoreMenu1");
+            r.sendMes(cs, "ultimatecoreMenu2");
+            r.sendMes(cs, "ultimatecoreMenu3");
+            r.sendMes(cs, "ultimatecoreMenu4");
+            r.sendMes(cs, "ultimatecoreMenuBooks");
+            r.sendMes(cs, "ultimatecoreMenuHomes");
+            r.sendMes(cs, "ultimatecoreMenuMigrate");
+            r.sendMes(cs, "ultimatecoreMenuPerf");
+            r.sendMes(cs, "ultimatecoreMenuSigns");
+            r.sendMes(cs, "ultimatecoreMenuStats");
+            r.sendMes(cs, "ultimatecoreMenuTasks");
+            return;
+        }
+        if (args[0].equalsIgnoreCase("books")) {
+            books(cs, args);
+        } else if (args[0].equalsIgnoreCase("homes")) {
+            homes(cs, args);
+        } else if (args[0].equalsIgnoreCase("migrate")) {
+            migrate(cs);
+        } else if (args[0].equalsIgnoreCase("perf")) {
+            perf(cs, args);
+        } else if (args[0].equalsIgnoreCase("signs")) {
+            signs(cs, args);
+        } else if (args[0].equalsIgnoreCase("stats")) {
+            stats(cs, args);
+        } else if (args[0].equalsIgnoreCase("tasks")) {
+            tasks(cs, args);
+        } else {
+            r.sendMes(cs, "ultimatecoreUsage");
+        }
+    }
+
+    private void books(CommandSender cs, String[] args) {
+        if (!r.perm(cs, "uc.ultimatecore.books", false, true)) {
+            return;
+        }
+        if (!r.checkArgs(args, 1)) {
+            r.sendMes(cs, "ultimatecoreBooksCount", "%Amount", BookDatabase.getBookCount());
+        } else if (args[1].equalsIgnoreCase("reload")) {
+            //Books that were written since the last save would be lost otherwise
+            BookDatabase.disable();
+            BookDatabase.enable();
+            CmdRules.start();
+            r.sendMes(cs, "ultimatecoreBooksReload", "%Amount", BookDatabase.getBookCount());
+        } else {
+            r.sendMes(cs, "ultimatecoreBooksUsage");
+        }
+    }
+
+    private void homes(CommandSender cs, String[] args) {
+        if (!r.perm(cs, "uc.ultimatecore.homes", false, true)) {
+            return;
+        }
+        if (!HomeDatabase.isLoaded()) {
+            r.sendMes(cs, "ultimatecoreHomesLoading");
+            return;
+        }
+        if (!r.checkArgs(args, 1)) {
+            Map<String, Integer> counts = UC.getServer().getHomeCounts();
+            if (counts.isEmpty()) {
+                r.sendMes(cs, "homeNoHomesFound");
+                return;
+            }
+            for (String world : counts.keySet()) {
+                r.sendMes(cs, "ultimatecoreHomesCount", "%World", world, "%Amount", counts.get(world));
+            }
+        } else if (args[1].equalsIgnoreCase("near")) {
+            if (!r.isPlayer(cs)) {
+                return;
+            }
+            Player p = (Player) cs;
+            Integer range = 100;
+            if (r.checkArgs(args, 2)) {
+                if (!r.isInt(args[2]) || Integer.parseInt(args[2]) < 0 || Integer.parseInt(args[2]) > 60000000) {
+                    r.sendMes(cs, "numberFormat", "%Number", args[2]);
+                    return;
+                }
+                range = Integer.parseInt(args[2]);
+            }
+            List<Home> homes = UC.getServer().getHomesNear(p.getLocation(), range);
+            if (homes.isEmpty()) {
+                r.sendMes(cs, "homeNoHomesFound");
+                return;
+            }
+            StringBuilder builder = new StringBuilder();
+            for (Home home : homes) {
+                if (builder.length() > 0) {
+                    builder.append(", ");
+                }
+                builder.append(r.searchOfflinePlayer(home.getOwner()).getName()).append(":").append(home.getName());
+            }
+            r.sendMes(cs, "ultimatecoreHomesNear", "%Range", range, "%Homes", builder.toString());
+        } else if (args[1].equalsIgnoreCase("purge") && r.checkArgs(args, 2)) {
+            Integer count = UC.getServer().purgeHomes(args[2]);
+            r.sendMes(cs, "ultimatecoreHomesPurged", "%World", args[2], "%Amount", count);
+        } else if (args[1].equalsIgnoreCase("rebuild")) {
+            HomeDatabase.rebuild();
+            r.sendMes(cs, "ultimatecoreHomesRebuild");
+        } else {
+            r.sendMes(cs, "ultimatecoreHomesUsage");
+        }
+    }
+
+    private void migrate(final CommandSender cs) {
+        if (!r.perm(cs, "uc.ultimatecore.migrate", false, true)) {
+            return;
+        }
+        if (!Storage.isJson()) {
+            r.sendMes(cs, "ultimatecoreMigrateActive");
+            return;
+        }
+        if (migrating) {
+            r.sendMes(cs, "ultimatecoreMigrateBusy");
+            return;
+        }
+        migrating = true;
+        //Balances and warps can be newer in memory than in the json files
+        UEconomy.stop();
+        WarpDatabase.compact();
+        r.sendMes(cs, "ultimatecoreMigrateStart");
+        final long start = System.currentTimeMillis();
+        Bukkit.getScheduler().runTaskAsynchronously(r.getUC(), new Runnable() {
+            @Override
+            public void run() {
+                int[] counts = null;
+                try {
+                    counts = Storage.migrate();
+                } catch (IOException ex) {
+                    ErrorLogger.log(ex, "Failed to copy the data files to " + Storage.getDatabaseFile().getName());
+                }
+                final int[] result = counts;
+                Bukkit.getScheduler().runTask(r.getUC(), new Runnable() {
+                    @Override
+                    public void run() {
+                        migrating = false;
+                        if (result == null) {
+                            r.sendMes(cs, "ultimatecoreMigrateFailed");
+                            return;
+                        }
+                        r.sendMes(cs, "ultimatecoreMigrateDone", "%Documents", result[0], "%Entries", result[1], "%Time", System.currentTimeMillis() - start);
+                    }
+                });
+            }
+        });
+    }
+
+    private void perf(CommandSender cs, String[] args) {
+        if (!r.perm(cs, "uc.ultimatecore.perf", false, true)) {
+            return;
+        }
+        if (!TickProfiler.isEnabled()) {
+            r.sendMes(cs, "ultimatecorePerfDisabled");
+            return;
+        }
+        if (r.checkArgs(args, 1) && args[1].equalsIgnoreCase("reset")) {
+            TickProfiler.reset();
+            r.sendMes(cs, "ultimatecorePerfReset");
+            return;
+        }
+        r.sendMes(cs, "ultimatecorePerfTps", "%Tps1", format(TickProfiler.getTps(1)), "%Tps5", format(TickProfiler.getTps(5)), "%Tps15", format(TickProfiler
+                .getTps(15)));
+        for (int minutes : new int[]{1, 15}) {
+            TickHistogram intervals = TickProfiler.getTickIntervals(minutes);
+            r.sendMes(cs, "ultimatecorePerfTickTime", "%Minutes", minutes, "%Mean", format(intervals.getMean() / 1000.0), "%P50", format(intervals.getPercentile
+                    (50) / 1000.0), "%P95", format(intervals.getPercentile(95) / 1000.0), "%P99", format(intervals.getPercentile(99) / 1000.0), "%Max", format
+                    (intervals.getMax() / 1000.0));
+        }
+        List<TickProfiler.Section> sections = TickProfiler.getSections();
+        if (sections.isEmpty()) {
+            return;
+        }
+        r.sendMes(cs, "ultimatecorePerfSections");
+        for (TickProfiler.Section section : sections.subList(0, Math.min(8, sections.size()))) {
+            r.sendMes(cs, "ultimatecorePerfSection", "%Name", section.getName(), "%Total", format(section.getTotal() / 1000000.0), "%Average", format(section
+                    .getAverage() / 1000000.0), "%Max", format(section.getMax() / 1000000.0), "%Count", section.getCount());
+        }
+    }
+
+    private void signs(CommandSender cs, String[] args) {
+        if (!r.perm(cs, "uc.ultimatecore.signs", false, true)) {
+            return;
+        }
+        if (!r.checkArgs(args, 1)) {
+            Map<String, Integer> counts = SignDatabase.countSigns();
+            if (counts.isEmpty()) {
+                r.sendMes(cs, "ultimatecoreSignsNone");
+                return;
+            }
+            for (String world : counts.keySet()) {
+                r.sendMes(cs, "ultimatecoreSignsCount", "%World", world, "%Amount", counts.get(world));
+            }
+        } else if (args[1].equalsIgnoreCase("rescan")) {
+            List<World> worlds = new ArrayList<>();
+            if (r.checkArgs(args, 2)) {
+                World world = Bukkit.getWorld(args[2]);
+                if (world == null) {
+                    r.sendMes(cs, "worldNotFound", "%World", args[2]);
+                    return;
+                }
+                worlds.add(world);
+            } else {
+                worlds.addAll(Bukkit.getWorlds());
+            }
+            for (World world : worlds) {
+                r.sendMes(cs, "ultimatecoreSignsRescan", "%World", world.getName(), "%Amount", SignDatabase.rescan(world));
+            }
+        } else {
+            r.sendMes(cs, "ultimatecoreSignsUsage");
+        }
+    }
+
+    private void stats(CommandSender cs, String[] args) {
+        if (!r.perm(cs, "uc.ultimatecore.stats", false, true)) {
+            return;
+        }
+        if (r.checkArgs(args, 1) && args[1].equalsIgnoreCase("reset")) {
+            PermissionCache.resetStats();
+            ChatMetaCache.resetStats();
+            r.sendMes(cs, "ultimatecoreStatsReset");
+            return;
+        }
+        if (PermissionCache.isEnabled()) {
+            long hits = PermissionCache.getHits();
+            long total = hits + PermissionCache.getMisses();
+            r.sendMes(cs, "ultimatecoreStatsPermissions", "%Hits", hits, "%Misses", PermissionCache.getMisses(), "%Rate", format(total == 0 ? 0 : hits * 100.0 /
+                    total), "%Players", PermissionCache.getPlayersCached(), "%Nodes", PermissionCache.getNodes());
+        } else {
+            r.sendMes(cs, "ultimatecoreStatsPermissionsDisabled");
+        }
+        long hits = ChatMetaCache.getHits();
+        long total = hits + ChatMetaCache.getMisses();
+        r.sendMes(cs, "ultimatecoreStatsChat", "%Hits", hits, "%Misses", ChatMetaCache.getMisses(), "%Rate", format(total == 0 ? 0 : hits * 100.0 / total),
+                "%Refreshes", ChatMetaCache.getRefreshes(), "%Players", ChatMetaCache.getPlayersCached());
+        r.sendMes(cs, "ultimatecoreStatsBossbars", "%Bars", BossbarUtil.getBarCount(), "%Animated", BossbarUtil.getAnimatedCount(), "%Players", BossbarUtil
+                .getPlayerCount(), "%Tasks", BossbarUtil.getTaskCount());
+        r.sendMes(cs, "ultimatecoreStatsHud", "%Channels", HudUtil.getChannelCount(), "%Players", HudUtil.getPlayerCount(), "%Tasks", HudUtil.getTaskCount());
+        r.sendMes(cs, "ultimatecoreStatsNames", "%Names", NameDatabase.getCount(), "%Resolving", NameDatabase.getResolvingCount());
+        r.sendMes(cs, "ultimatecoreStatsWork", "%Jobs", WorkUtil.getQueueDepth(), "%Usage", format(WorkUtil.getBudgetUsage()), "%Units", WorkUtil
+                .getUnitsProcessed());
+    }
+
+    private void tasks(CommandSender cs, String[] args) {
+        if (!r.perm(cs, "uc.ultimatecore.tasks", false, true)) {
+            return;
+        }
+        if (!r.checkArgs(args, 1)) {
+            List<WorkUtil.Job<?>> jobs = WorkUtil.getJobs();
+            if (jobs.isEmpty()) {
+                r.sendMes(cs, "ultimatecoreTasksNone");
+                return;
+            }
+            for (WorkUtil.Job<?> job : jobs) {
+                r.sendMes(cs, "ultimatecoreTasksLine", "%Task", job.getName(), "%Player", job.getSender().getName(), "%Done", job.getDone(), "%Total", job.getTotal());
+            }
+        } else if (args[1].equalsIgnoreCase("cancel")) {
+            //Cancelled jobs report to their own sender
+            if (WorkUtil.cancel(cs) == 0) {
+                r.sendMes(cs, "ultimatecoreTasksNone");
+            }
+        } else {
+            r.sendMes(cs, "ultimatecoreTasksUsage");
+        }
+    }
+
+    private String format(double value) {
+        return String.format(Locale.ENGLISH, "%.2f", value);
+    }
+
+    @Override
+    public List<String> onTabComplete(CommandSender cs, Command cmd, String alias, String[] args, String curs, Integer curn) {
+        if (curn == 0) {
+            return Arrays.asList("books", "homes", "migrate", "perf", "signs", "stats", "tasks");
+        }
+        if (curn == 1 && args[0].equalsIgnoreCase("books")) {
+            return Arrays.asList("reload");
+        }
+        if (curn == 1 && args[0].equalsIgnoreCase("homes")) {
+            return Arrays.asList("near", "purge", "rebuild");
+        }
+        if (curn == 1 && args[0].equalsIgnoreCase("signs")) {
+            return Arrays.asList("rescan");
+        }
+        if (curn == 1 && args[0].equalsIgnoreCase("tasks")) {
+            return Arrays.asList("cancel");
+        }
+        if (curn == 1 && (args[0].equalsIgnoreCase("perf") || args[0].equalsIgnoreCase("stats"))) {
+            return Arrays.asList("reset");
+        }
+        return new ArrayList<>();
+    }
+}
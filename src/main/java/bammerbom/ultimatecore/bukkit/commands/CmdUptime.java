@@ -29,7 +29,6 @@ import bammerbom.ultimatecore.bukkit.resources.utils.DateUtil;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandSender;
 
-import java.lang.management.ManagementFactory;
 import java.util.Arrays;
 import java.util.List;
 
@@ -55,7 +54,7 @@ public class CmdUptime implements UltimateCommand {
         if (!r.perm(cs, "uc.uptime", false, true)) {
             return;
         }
-        r.sendMes(cs, "uptimeMessage", "%Time", DateUtil.formatDateDiff(ManagementFactory.getRuntimeMXBean().getStartTime()));
+        r.sendMes(cs, "uptimeMessage", "%Time", DateUtil.getUptime());
     }
 
     @Override
@@ -27,6 +27,7 @@ import bammerbom.ultimatecore.bukkit.UltimateCommand;
 import bammerbom.ultimatecore.bukkit.api.UC;
 import bammerbom.ultimatecore.bukkit.r;
 import bammerbom.ultimatecore.bukkit.resources.utils.LocationUtil;
+import bammerbom.ultimatecore.bukkit.resources.utils.StringUtil;
 import org.bukkit.Location;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandSender;
@@ -74,6 +75,36 @@ public class CmdWarp implements UltimateCommand {
             }
             result = warplist.substring(0, warplist.length() - 2);
             r.sendMes(cs, "warpWarps", "%Warps", result);
+        } else if (args[0].equalsIgnoreCase("near") && (r.checkArgs(args, 1) || UC.getServer().getWarp(args[0]) == null)) {
+            if (!r.perm(cs, "uc.warp.near", true, true)) {
+                return;
+            }
+            if (!(r.isPlayer(cs))) {
+                return;
+            }
+            Player p = (Player) cs;
+            if (r.checkArgs(args, 1)) {
+                //Twice the largest world border covers every warp, anything else is a typo or abuse
+                double radius = r.isDouble(args[1]) ? Double.parseDouble(args[1]) : Double.NaN;
+                if (Double.isNaN(radius) || radius < 0 || radius > 60000000) {
+                    r.sendMes(cs, "numberFormat", "%Number", args[1]);
+                    return;
+                }
+                List<String> warps = UC.getServer().getWarpsNear(p.getLocation(), radius);
+                if (warps.isEmpty()) {
+                    r.sendMes(cs, "warpNearNone");
+                    return;
+                }
+                r.sendMes(cs, "warpNearList", "%Radius", args[1], "%Warps", StringUtil.join(", ", warps));
+            } else {
+                String warp = UC.getServer().getNearestWarp(p.getLocation());
+                if (warp == null) {
+                    r.sendMes(cs, "warpNearNone");
+                    return;
+                }
+                Integer distance = (int) UC.getServer().getWarp(warp).distance(p.getLocation());
+                r.sendMes(cs, "warpNear", "%Warp", warp, "%Distance", distance);
+            }
         } else {
             if (!(r.isPlayer(cs))) {
                 return;
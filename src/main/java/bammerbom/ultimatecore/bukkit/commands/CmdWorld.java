@@ -23,6 +23,7 @@
  */
 package bammerbom.ultimatecore.bukkit.commands;
 
+import bammerbom.ultimatecore.bukkit.ErrorLogger;
 import bammerbom.ultimatecore.bukkit.UltimateCommand;
 import bammerbom.ultimatecore.bukkit.api.UC;
 import bammerbom.ultimatecore.bukkit.api.UWorld;
@@ -30,6 +31,8 @@ import bammerbom.ultimatecore.bukkit.api.UWorld.WorldFlag;
 import bammerbom.ultimatecore.bukkit.r;
 import bammerbom.ultimatecore.bukkit.resources.utils.LocationUtil;
 import bammerbom.ultimatecore.bukkit.resources.utils.StringUtil;
+import bammerbom.ultimatecore.bukkit.resources.utils.WorkUtil;
+import bammerbom.ultimatecore.bukkit.resources.utils.WorldCopyUtil;
 import org.bukkit.*;
 import org.bukkit.World.Environment;
 import org.bukkit.command.Command;
@@ -39,13 +42,20 @@ import org.bukkit.entity.Entity;
 import org.bukkit.entity.Monster;
 import org.bukkit.entity.Player;
 import org.bukkit.event.player.PlayerTeleportEvent.TeleportCause;
+import org.bukkit.scheduler.BukkitRunnable;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
 public class CmdWorld implements UltimateCommand {
 
+    //Worlds that are being backed up or cloned with their autosave setting from before, and clone targets with null
+    private static final Map<String, Boolean> copying = new HashMap<>();
+
     public static void usage(CommandSender cs) {
         r.sendMes(cs, "worldUsage1");
         r.sendMes(cs, "worldUsage2");
@@ -56,6 +66,8 @@ public class CmdWorld implements UltimateCommand {
         r.sendMes(cs, "worldUsage7");
         r.sendMes(cs, "worldUsage8");
         r.sendMes(cs, "worldUsage9", "%Flags", StringUtil.firstUpperCase(StringUtil.joinList(WorldFlag.values()).toLowerCase()));
+        r.sendMes(cs, "worldUsage10");
+        r.sendMes(cs, "worldUsage11");
     }
 
     public static void create(CommandSender cs, String[] args) {
@@ -224,7 +236,7 @@ public class CmdWorld implements UltimateCommand {
         r.sendMes(cs, "worldList", "%Worlds", result);
     }
 
-    public static void remove(CommandSender cs, String[] args) {
+    public static void remove(final CommandSender cs, String[] args) {
         if (!r.perm(cs, "uc.world", false, false) && !r.perm(cs, "uc.world.remove", false, false)) {
             r.sendMes(cs, "noPermissions");
             return;
@@ -235,20 +247,34 @@ public class CmdWorld implements UltimateCommand {
         }
         //
         if (r.checkArgs(args, 1)) {
-            World world = Bukkit.getWorld(args[1]);
+            final World world = Bukkit.getWorld(args[1]);
             if (world == null) {
                 r.sendMes(cs, "worldNotFound", "%World", args[1]);
                 return;
             }
-            for (Player pl : r.getOnlinePlayers()) {
-                if (pl.getWorld().equals(world)) {
-                    World w2 = Bukkit.getWorlds().get(0);
+            final World w2 = Bukkit.getWorlds().get(0);
+            //Unloaded once everyone is teleported out
+            WorkUtil.submit(new WorkUtil.Job<Player>("world remove", cs, world.getPlayers(), WorkUtil.DEFAULT_BUDGET) {
+                @Override
+                protected boolean process(Player pl) {
+                    if (!pl.isOnline() || !pl.getWorld().equals(world)) {
+                        return false;
+                    }
                     LocationUtil.teleport(pl, w2.getSpawnLocation(), TeleportCause.PLUGIN, true, false);
+                    return true;
                 }
-            }
-            Bukkit.getServer().unloadWorld(world, true);
-            UC.getWorld(world).unregister();
-            r.sendMes(cs, "worldRemove", "%World", world.getName());
+
+                @Override
+                protected void complete(int done) {
+                    //Players that entered the world in the meantime
+                    for (Player pl : world.getPlayers()) {
+                        LocationUtil.teleport(pl, w2.getSpawnLocation(), TeleportCause.PLUGIN, true, false);
+                    }
+                    Bukkit.getServer().unloadWorld(world, true);
+                    UC.getWorld(world).unregister();
+                    r.sendMes(cs, "worldRemove", "%World", world.getName());
+                }
+            });
         } else {
             r.sendMes(cs, "worldUsage5");
         }
@@ -279,7 +305,28 @@ public class CmdWorld implements UltimateCommand {
         }
     }
 
-    public static void flag(CommandSender cs, String[] args) {
+    /**
+     * Removes the entities of a type that are no longer allowed in the world, and sends the message when done.
+     */
+    private static void removeEntities(final CommandSender cs, final World world, Class<? extends Entity> type, final String message) {
+        WorkUtil.submit(new WorkUtil.Job<Entity>("world flag", cs, world.getEntitiesByClass(type), WorkUtil.DEFAULT_BUDGET) {
+            @Override
+            protected boolean process(Entity en) {
+                if (!en.isValid()) {
+                    return false;
+                }
+                en.remove();
+                return true;
+            }
+
+            @Override
+            protected void complete(int done) {
+                r.sendMes(cs, message, "%World", world.getName(), "%Value", r.mes("worldFlagValueDeny"));
+            }
+        });
+    }
+
+    public static void flag(final CommandSender cs, String[] args) {
         if (!r.perm(cs, "uc.world", false, false) && !r.perm(cs, "uc.world.flag", false, false)) {
             r.sendMes(cs, "noPermissions");
             return;
@@ -298,13 +345,8 @@ public class CmdWorld implements UltimateCommand {
             String value = args[3];
             if (flag.equalsIgnoreCase("monster") || flag.equalsIgnoreCase("monsterspawn")) {
                 if (value.equalsIgnoreCase("deny")) {
-                    for (Entity en : world.getWorld().getEntities()) {
-                        if (en instanceof Monster) {
-                            en.remove();
-                        }
-                    }
                     world.setFlagDenied(WorldFlag.MONSTER);
-                    r.sendMes(cs, "worldFlagSetMonster", "%World", world.getWorld().getName(), "%Value", r.mes("worldFlagValueDeny"));
+                    removeEntities(cs, world.getWorld(), Monster.class, "worldFlagSetMonster");
                 } else if (value.equalsIgnoreCase("allow")) {
                     world.setFlagAllowed(WorldFlag.MONSTER);
                     r.sendMes(cs, "worldFlagSetMonster", "%World", world.getWorld().getName(), "%Value", r.mes("worldFlagValueAllow"));
@@ -314,13 +356,8 @@ public class CmdWorld implements UltimateCommand {
                 }
             } else if (flag.equalsIgnoreCase("animal") || flag.equalsIgnoreCase("animalspawn")) {
                 if (value.equalsIgnoreCase("deny")) {
-                    for (Entity en : world.getWorld().getEntities()) {
-                        if (en instanceof Animals) {
-                            en.remove();
-                        }
-                    }
                     world.setFlagDenied(WorldFlag.ANIMAL);
-                    r.sendMes(cs, "worldFlagSetAnimal", "%World", world.getWorld().getName(), "%Value", r.mes("worldFlagValueDeny"));
+                    removeEntities(cs, world.getWorld(), Animals.class, "worldFlagSetAnimal");
                 } else if (value.equalsIgnoreCase("allow")) {
                     world.setFlagAllowed(WorldFlag.ANIMAL);
                     r.sendMes(cs, "worldFlagSetAnimal", "%World", world.getWorld().getName(), "%Value", r.mes("worldFlagValueAllow"));
@@ -380,6 +417,162 @@ public class CmdWorld implements UltimateCommand {
         }
     }
 
+    public static void backup(final CommandSender cs, String[] args) {
+        if (!r.perm(cs, "uc.world", false, false) && !r.perm(cs, "uc.world.backup", false, false)) {
+            r.sendMes(cs, "noPermissions");
+            return;
+        }
+        if (!r.checkArgs(args, 1)) {
+            r.sendMes(cs, "worldUsage10");
+            return;
+        }
+        final World world = Bukkit.getWorld(args[1]);
+        if (world == null) {
+            r.sendMes(cs, "worldNotFound", "%World", args[1]);
+            return;
+        }
+        if (!startCopy(world, null)) {
+            r.sendMes(cs, "worldCopyRunning", "%World", world.getName());
+            return;
+        }
+        r.sendMes(cs, "worldBackupStart", "%World", world.getName());
+        File target = new File(r.getUC().getDataFolder(), "Backups" + File.separator + world.getName());
+        final WorldCopyUtil.Progress progress = WorldCopyUtil.backupWorld(world.getWorldFolder(), target);
+        track(cs, world.getName(), progress, new Runnable() {
+            @Override
+            public void run() {
+                endCopy(world.getName(), null);
+                if (progress.getError() == null) {
+                    r.sendMes(cs, "worldBackupDone", "%World", world.getName(), "%Copied", progress.getCopiedFiles(), "%Skipped", progress.getSkippedFiles(), "%Time",
+                            progress.getElapsed() / 1000, "%Speed", speed(progress));
+                }
+            }
+        });
+    }
+
+    public static void clonew(final CommandSender cs, String[] args) {
+        if (!r.perm(cs, "uc.world", false, false) && !r.perm(cs, "uc.world.clone", false, false)) {
+            r.sendMes(cs, "noPermissions");
+            return;
+        }
+        if (!r.checkArgs(args, 2)) {
+            r.sendMes(cs, "worldUsage11");
+            return;
+        }
+        final World world = Bukkit.getWorld(args[1]);
+        if (world == null) {
+            r.sendMes(cs, "worldNotFound", "%World", args[1]);
+            return;
+        }
+        final String name = args[2];
+        if (!name.replaceAll("[_a-zA-Z0-9]", "").isEmpty()) {
+            r.sendMes(cs, "worldNonAlpha");
+            return;
+        }
+        File target = new File(Bukkit.getWorldContainer(), name);
+        if (Bukkit.getWorld(name) != null || target.exists()) {
+            r.sendMes(cs, "worldAlreadyExist");
+            return;
+        }
+        if (!startCopy(world, name)) {
+            r.sendMes(cs, "worldCopyRunning", "%World", copying.containsKey(world.getName().toLowerCase(Locale.ENGLISH)) ? world.getName() : name);
+            return;
+        }
+        r.sendMes(cs, "worldCloneStart", "%World", world.getName(), "%Target", name);
+        final WorldCopyUtil.Progress progress = WorldCopyUtil.cloneWorld(world.getWorldFolder(), target);
+        track(cs, world.getName(), progress, new Runnable() {
+            @Override
+            public void run() {
+                endCopy(world.getName(), name);
+                if (progress.getError() != null) {
+                    return;
+                }
+                String gen = UC.getWorld(world).getGenerator();
+                WorldCreator settings = new WorldCreator(name).copy(world);
+                if (gen != null) {
+                    settings.generator(gen);
+                }
+                World clone = Bukkit.createWorld(settings);
+                UC.getWorld(clone).register(gen);
+                r.sendMes(cs, "worldCloneDone", "%World", world.getName(), "%Target", name, "%Time", progress.getElapsed() / 1000, "%Speed", speed(progress));
+            }
+        });
+    }
+
+    /**
+     * Flushes the world and keeps the server from writing regions while they are copied.
+     *
+     * @return false if the world, or the world it is cloned to, is already being copied
+     */
+    private static boolean startCopy(World world, String target) {
+        String name = world.getName().toLowerCase(Locale.ENGLISH);
+        if (copying.containsKey(name) || (target != null && copying.containsKey(target.toLowerCase(Locale.ENGLISH)))) {
+            return false;
+        }
+        //Only the first copy sees the real autosave setting, later ones would see it turned off
+        copying.put(name, world.isAutoSave());
+        if (target != null) {
+            copying.put(target.toLowerCase(Locale.ENGLISH), null);
+        }
+        world.save();
+        world.setAutoSave(false);
+        return true;
+    }
+
+    private static void endCopy(String world, String target) {
+        Boolean autosave = copying.remove(world.toLowerCase(Locale.ENGLISH));
+        if (target != null) {
+            copying.remove(target.toLowerCase(Locale.ENGLISH));
+        }
+        World w = Bukkit.getWorld(world);
+        if (w != null && autosave != null) {
+            w.setAutoSave(autosave);
+        }
+    }
+
+    /**
+     * Turns autosave back on for the worlds that are still being copied, called when the plugin is disabled.
+     */
+    public static void stopCopies() {
+        for (Map.Entry<String, Boolean> entry : new HashMap<>(copying).entrySet()) {
+            World w = Bukkit.getWorld(entry.getKey());
+            if (w != null && entry.getValue() != null) {
+                w.setAutoSave(entry.getValue());
+            }
+        }
+        copying.clear();
+    }
+
+    //Reports the progress every 5 seconds, and runs done on the main thread when the copy is finished
+    private static void track(final CommandSender cs, final String world, final WorldCopyUtil.Progress progress, final Runnable done) {
+        new BukkitRunnable() {
+            int ticks = 0;
+
+            @Override
+            public void run() {
+                if (progress.isDone()) {
+                    cancel();
+                    if (progress.getError() != null) {
+                        ErrorLogger.log(progress.getError(), "Failed to copy world " + world);
+                        r.sendMes(cs, "worldCopyFailed", "%World", world, "%Error", progress.getError().getMessage());
+                    }
+                    done.run();
+                    return;
+                }
+                ticks += 20;
+                if (ticks % 100 == 0) {
+                    r.sendMes(cs, "worldCopyProgress", "%World", world, "%Percent", progress.getPercentage(), "%Files", progress.getCopiedFiles() + progress
+                            .getSkippedFiles(), "%Total", progress.getTotalFiles());
+                }
+            }
+        }.runTaskTimer(r.getUC(), 20L, 20L);
+    }
+
+    private static String speed(WorldCopyUtil.Progress progress) {
+        double seconds = Math.max(1, progress.getElapsed()) / 1000.0;
+        return String.format(Locale.ENGLISH, "%.1f", progress.getCopiedBytes() / 1048576.0 / seconds);
+    }
+
     @Override
     public String getName() {
         return "world";
@@ -411,6 +604,10 @@ public class CmdWorld implements UltimateCommand {
             tp(cs, args);
         } else if (args[0].equalsIgnoreCase("flag")) {
             flag(cs, args);
+        } else if (args[0].equalsIgnoreCase("backup")) {
+            backup(cs, args);
+        } else if (args[0].equalsIgnoreCase("clone") || args[0].equalsIgnoreCase("copy")) {
+            clonew(cs, args);
         } else {
             usage(cs);
         }
@@ -419,11 +616,11 @@ public class CmdWorld implements UltimateCommand {
     @Override
     public List<String> onTabComplete(CommandSender cs, Command cmd, String alias, String[] args, String curs, Integer curn) {
         if (curn == 0) {
-            return Arrays.asList("create", "import", "list", "remove", "tp", "flag");
+            return Arrays.asList("create", "import", "list", "remove", "tp", "flag", "backup", "clone");
         }
         if (curn == 1) {
             if (args[0].equalsIgnoreCase("create") || args[0].equalsIgnoreCase("import") || args[0].equalsIgnoreCase("remove") || args[0].equalsIgnoreCase("tp") || args[0]
-                    .equalsIgnoreCase("flag")) {
+                    .equalsIgnoreCase("flag") || args[0].equalsIgnoreCase("backup") || args[0].equalsIgnoreCase("clone")) {
                 ArrayList<String> rtrn = new ArrayList<>();
                 for (World w : Bukkit.getWorlds()) {
                     rtrn.add(w.getName());
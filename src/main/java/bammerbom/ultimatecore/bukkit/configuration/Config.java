@@ -38,6 +38,8 @@ public class Config extends YamlConfiguration implements Cloneable {
     private final File file;
     private final HashMap<String, String> headers;
     private final Set<String> readkeys;
+    //Whether anything changed since this config was loaded or saved
+    private boolean dirty = false;
 
     public Config(File file2) {
         file = file2;
@@ -50,6 +52,20 @@ public class Config extends YamlConfiguration implements Cloneable {
         }
     }
 
+    /**
+     * Loads a config that is not backed by a file, like the defaults in the plugin jar. It can't be saved with {@link #save()}.
+     */
+    public Config(InputStream stream) {
+        file = null;
+        headers = new HashMap<>();
+        readkeys = new HashSet<>();
+        try {
+            loadFromStream(stream);
+        } catch (IOException e) {
+            ErrorLogger.log(e, "Failed to load yaml file.");
+        }
+    }
+
     public void loadFromStream(InputStream stream) throws IOException {
         try {
             InputStreamReader reader = new InputStreamReader(stream);
@@ -89,8 +105,9 @@ public class Config extends YamlConfiguration implements Cloneable {
             }
             try {
                 loadFromString(builder.toString());
+                dirty = false;
             } catch (InvalidConfigurationException e) {
-                if (file.getName().equalsIgnoreCase("config.yml")) {
+                if (file != null && file.getName().equalsIgnoreCase("config.yml")) {
                     String filename = "config_CORRUPT.yml";
                     Integer i = 1;
                     while (new File(r.getUC().getDataFolder(), filename).exists()) {
@@ -114,8 +131,18 @@ public class Config extends YamlConfiguration implements Cloneable {
         save(file);
     }
 
+    /**
+     * Saves this config to the file. Nothing is written when saving to the file of this config and nothing changed since it
+     * was loaded or saved.
+     * <p>
+     * The config is written to a temporary file next to it first, which then replaces the file. A crash while saving leaves the
+     * old file intact.
+     */
     @Override
     public void save(File fi) {
+        if (!dirty && fi.equals(file) && fi.exists()) {
+            return;
+        }
         try {
             for (String key : getKeys(true)) {
                 Object value = get(key);
@@ -127,99 +154,37 @@ public class Config extends YamlConfiguration implements Cloneable {
                 }
             }
 
-            BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(StreamUtil.createOutputStream(fi)));
+            File temp = new File(fi.getAbsoluteFile().getParentFile(), fi.getName() + ".tmp");
+            FileOutputStream out = StreamUtil.createOutputStream(temp);
+            BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(out));
             try {
                 writeHeader(true, writer, getHeader(), 0);
-
-                HashMap<Integer, String> anchorData = new HashMap<>();
-
-                int anchId = -1;
-                int anchDepth = 0;
-                int anchIndent = 0;
-
-                StringBuilder refData = new StringBuilder();
-                NodeBuilder node = new NodeBuilder(getIndent());
-                for (String line : saveToString().split("\n", -1)) {
-                    if (line.startsWith("#")) {
-                        continue;
-                    }
-                    line = StringUtil.colorToAmp(line);
-                    int indent = StringUtil.getSuccessiveCharCount(line, ' ');
-                    line = line.substring(indent);
-                    boolean wasAnchor = false;
-
-                    if (line.equals("'*':")) {
-                        line = "*:";
-                    }
-
-                    if (node.handle(line, indent)) {
-                        if ((anchId >= 0) && (node.getDepth() <= anchDepth)) {
-                            anchorData.put(anchId, refData.toString());
-                            refData.setLength(0);
-                            anchId = -1;
-                        }
-
-                        writeHeader(false, writer, getHeader(node.getPath()), indent);
-
-                        int refStart = line.indexOf("*id", node.getName().length());
-                        int refEnd = line.indexOf(' ', refStart);
-                        if (refEnd == -1) {
-                            refEnd = line.length();
-                        }
-                        if ((refStart > 0) && (refEnd > refStart)) {
-                            int refId = Integer.parseInt(line.substring(refStart + 3, refEnd), -1);
-                            if (refId >= 0) {
-                                String data = anchorData.get(refId);
-                                if (data != null) {
-                                    line = StringUtil.trimEnd(line.substring(0, refStart)) + " " + data;
-                                }
-                            }
-
-                        }
-
-                        int anchStart = line.indexOf("&id", node.getName().length());
-                        int anchEnd = line.indexOf(' ', anchStart);
-                        if (anchEnd == -1) {
-                            anchEnd = line.length();
-                        }
-                        if ((anchStart > 0) && (anchEnd > anchStart)) {
-                            anchId = Integer.parseInt(line.substring(anchStart + 3, anchEnd), -1);
-                            anchDepth = node.getDepth();
-                            anchIndent = indent;
-                            if (anchId >= 0) {
-                                anchEnd += StringUtil.getSuccessiveCharCount(line.substring(anchEnd), ' ');
-
-                                refData.append(line.substring(anchEnd));
-
-                                line = StringUtil.replace(line, anchStart, anchEnd, "");
-                            }
-                            wasAnchor = true;
-                        }
-                    }
-                    if ((!wasAnchor) && (anchId >= 0)) {
-                        refData.append('\n').append(StringUtil.getFilledString(" ", indent - anchIndent)).append(line);
-                    }
-
-                    if (StringUtil.containsChar('\n', line)) {
-                        for (String part : line.split("\n", -1)) {
-                            StreamUtil.writeIndent(writer, indent);
-                            writer.write(part);
-                            writer.newLine();
-                        }
-                    } else {
-                        StreamUtil.writeIndent(writer, indent);
-                        writer.write(line);
-                        writer.newLine();
-                    }
-                }
+                Emitter emitter = new Emitter(writer);
+                dump(emitter);
+                emitter.close();
+                writer.flush();
+                out.getFD().sync();
             } finally {
                 writer.close();
             }
+            StreamUtil.replaceFile(temp, fi);
+            if (fi.equals(file)) {
+                dirty = false;
+            }
         } catch (Exception ex) {
             ErrorLogger.log(ex, "Failed to save yalm file.");
         }
     }
 
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    @Override
+    protected void changed() {
+        dirty = true;
+    }
+
     private void writeHeader(boolean main, BufferedWriter writer, String header, int indent) throws IOException {
         if (header != null) {
             for (String headerLine : header.split("\n", -1)) {
@@ -236,6 +201,126 @@ public class Config extends YamlConfiguration implements Cloneable {
         }
     }
 
+    /**
+     * Receives the yaml while it is dumped, and writes it line by line with the headers and without anchors.
+     */
+    private class Emitter extends Writer {
+
+        private final BufferedWriter writer;
+        private final StringBuilder line = new StringBuilder();
+        private final HashMap<Integer, String> anchorData = new HashMap<>();
+        private final StringBuilder refData = new StringBuilder();
+        private final NodeBuilder node = new NodeBuilder(getIndent());
+        private int anchId = -1;
+        private int anchDepth = 0;
+        private int anchIndent = 0;
+
+        Emitter(BufferedWriter writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) throws IOException {
+            int start = off;
+            for (int i = off; i < off + len; i++) {
+                if (cbuf[i] == '\n') {
+                    line.append(cbuf, start, i - start);
+                    writeLine(line.toString());
+                    line.setLength(0);
+                    start = i + 1;
+                }
+            }
+            line.append(cbuf, start, off + len - start);
+        }
+
+        private void writeLine(String line) throws IOException {
+            if (line.startsWith("#")) {
+                return;
+            }
+            line = StringUtil.colorToAmp(line);
+            int indent = StringUtil.getSuccessiveCharCount(line, ' ');
+            line = line.substring(indent);
+            boolean wasAnchor = false;
+
+            if (line.equals("'*':")) {
+                line = "*:";
+            }
+
+            if (node.handle(line, indent)) {
+                if ((anchId >= 0) && (node.getDepth() <= anchDepth)) {
+                    anchorData.put(anchId, refData.toString());
+                    refData.setLength(0);
+                    anchId = -1;
+                }
+
+                writeHeader(false, writer, getHeader(node.getPath()), indent);
+
+                int refStart = line.indexOf("*id", node.getName().length());
+                int refEnd = line.indexOf(' ', refStart);
+                if (refEnd == -1) {
+                    refEnd = line.length();
+                }
+                if ((refStart > 0) && (refEnd > refStart)) {
+                    int refId = Integer.parseInt(line.substring(refStart + 3, refEnd), -1);
+                    if (refId >= 0) {
+                        String data = anchorData.get(refId);
+                        if (data != null) {
+                            line = StringUtil.trimEnd(line.substring(0, refStart)) + " " + data;
+                        }
+                    }
+
+                }
+
+                int anchStart = line.indexOf("&id", node.getName().length());
+                int anchEnd = line.indexOf(' ', anchStart);
+                if (anchEnd == -1) {
+                    anchEnd = line.length();
+                }
+                if ((anchStart > 0) && (anchEnd > anchStart)) {
+                    anchId = Integer.parseInt(line.substring(anchStart + 3, anchEnd), -1);
+                    anchDepth = node.getDepth();
+                    anchIndent = indent;
+                    if (anchId >= 0) {
+                        anchEnd += StringUtil.getSuccessiveCharCount(line.substring(anchEnd), ' ');
+
+                        refData.append(line.substring(anchEnd));
+
+                        line = StringUtil.replace(line, anchStart, anchEnd, "");
+                    }
+                    wasAnchor = true;
+                }
+            }
+            if ((!wasAnchor) && (anchId >= 0)) {
+                refData.append('\n').append(StringUtil.getFilledString(" ", indent - anchIndent)).append(line);
+            }
+
+            if (StringUtil.containsChar('\n', line)) {
+                for (String part : line.split("\n", -1)) {
+                    StreamUtil.writeIndent(writer, indent);
+                    writer.write(part);
+                    writer.newLine();
+                }
+            } else {
+                StreamUtil.writeIndent(writer, indent);
+                writer.write(line);
+                writer.newLine();
+            }
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        /**
+         * Writes the last line, the file ends with an empty line when the yaml ended with a line break.
+         */
+        @Override
+        public void close() throws IOException {
+            writeLine(line.toString());
+            line.setLength(0);
+        }
+    }
+
     //file
     public File getFile() {
         return file;
@@ -268,6 +268,7 @@ public class ConfigSection {
             } else {
                 map.put(key, value);
             }
+            root.changed();
         } else {
             section.set(key, value);
         }
@@ -335,6 +336,7 @@ public class ConfigSection {
         if (section == this) {
             ConfigSection result = new ConfigSection(this, key);
             map.put(key, result);
+            root.changed();
             return result;
         }
         return section.createSection(key);
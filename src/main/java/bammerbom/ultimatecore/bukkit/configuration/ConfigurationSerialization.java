@@ -33,12 +33,18 @@ import org.bukkit.potion.PotionEffect;
 import org.bukkit.util.BlockVector;
 import org.bukkit.util.Vector;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -48,7 +54,10 @@ import java.util.logging.Logger;
 public class ConfigurationSerialization {
 
     public static final String SERIALIZED_TYPE_KEY = "==";
-    private static final Map<String, Class<? extends ConfigurationSerializable>> aliases = new HashMap<>();
+    private static final ConcurrentMap<String, Class<? extends ConfigurationSerializable>> aliases = new ConcurrentHashMap<>();
+    //The deserialize method, valueOf method and constructor of a class that exist, in the order they are tried
+    private static final ConcurrentMap<Class<?>, Factory[]> factories = new ConcurrentHashMap<>();
+    private static final MethodType FACTORY_TYPE = MethodType.methodType(ConfigurationSerializable.class, Map.class);
 
     static {
         registerClass(Vector.class);
@@ -165,6 +174,7 @@ public class ConfigurationSerialization {
     public static void unregisterClass(Class<?> clazz) {
         while (aliases.values().remove(clazz)) {
         }
+        factories.remove(clazz);
     }
 
     /**
@@ -266,33 +276,81 @@ public class ConfigurationSerialization {
     public ConfigurationSerializable deserialize(Map<String, ?> args) {
         Validate.notNull(args, "Args must not be null");
 
-        ConfigurationSerializable result = null;
-        Method method;
+        for (Factory factory : getFactories()) {
+            ConfigurationSerializable result = factory.create(clazz, args);
 
-        if (result == null) {
-            method = getMethod("deserialize", true);
-
-            if (method != null) {
-                result = deserializeViaMethod(method, args);
+            if (result != null) {
+                return result;
             }
         }
 
+        return null;
+    }
+
+    /**
+     * Finds the ways to deserialize the class the first time it is deserialized, and caches them as method handles.
+     */
+    protected Factory[] getFactories() {
+        Factory[] result = factories.get(clazz);
+
         if (result == null) {
-            method = getMethod("valueOf", true);
+            List<Factory> found = new ArrayList<>(3);
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+            try {
+                for (String name : new String[]{"deserialize", "valueOf"}) {
+                    Method method = getMethod(name, true);
+
+                    if (method != null) {
+                        method.setAccessible(true);
+                        found.add(new Factory("method '" + method.toString() + "'", lookup.unreflect(method).asType(FACTORY_TYPE)));
+                    }
+                }
+
+                Constructor<?> constructor = getConstructor();
 
-            if (method != null) {
-                result = deserializeViaMethod(method, args);
+                if (constructor != null) {
+                    found.add(new Factory("constructor '" + constructor.toString() + "'", lookup.unreflectConstructor(constructor).asType(FACTORY_TYPE)));
+                }
+            } catch (IllegalAccessException | SecurityException ex) {
+                Logger.getLogger(ConfigurationSerialization.class.getName()).log(Level.SEVERE, "Could not access the deserialization methods of " + clazz, ex);
             }
-        }
 
-        if (result == null) {
-            Constructor<?> constructor = getConstructor();
+            result = found.toArray(new Factory[found.size()]);
+            Factory[] previous = factories.putIfAbsent(clazz, result);
 
-            if (constructor != null) {
-                result = deserializeViaCtor(constructor, args);
+            if (previous != null) {
+                result = previous;
             }
         }
 
         return result;
     }
+
+    protected static class Factory {
+
+        private final String name;
+        private final MethodHandle handle;
+
+        Factory(String name, MethodHandle handle) {
+            this.name = name;
+            this.handle = handle;
+        }
+
+        ConfigurationSerializable create(Class<?> clazz, Map<String, ?> args) {
+            try {
+                ConfigurationSerializable result = (ConfigurationSerializable) handle.invokeExact((Map) args);
+
+                if (result == null) {
+                    Logger.getLogger(ConfigurationSerialization.class.getName()).log(Level.SEVERE, "Could not call " + name + " of " + clazz + " for deserialization: " +
+                            "returned null");
+                }
+                return result;
+            } catch (Throwable ex) {
+                Logger.getLogger(ConfigurationSerialization.class.getName()).log(Level.SEVERE, "Could not call " + name + " of " + clazz + " for deserialization", ex);
+            }
+
+            return null;
+        }
+    }
 }
@@ -100,4 +100,10 @@ class MemoryConfiguration extends ConfigSection {
         }
         return options;
     }
+
+    /**
+     * Called when a value or section anywhere in this configuration is set or removed.
+     */
+    protected void changed() {
+    }
 }
@@ -148,6 +148,21 @@ class YamlConfiguration extends FileConfiguration {
         return header + dump;
     }
 
+    /**
+     * Writes the values of this configuration to the writer as yaml, without the header.
+     */
+    protected void dump(Writer writer) {
+        yamlOptions.setIndent(options().indent());
+        yamlOptions.setDefaultFlowStyle(DumperOptions.FlowStyle.BLOCK);
+        yamlOptions.setAllowUnicode(SYSTEM_UTF);
+        yamlRepresenter.setDefaultFlowStyle(DumperOptions.FlowStyle.BLOCK);
+
+        Map<String, Object> values = getValues(false);
+        if (!values.isEmpty()) {
+            yaml.dump(values, writer);
+        }
+    }
+
     @Override
     protected void loadFromString(String contents) throws InvalidConfigurationException {
         Validate.notNull(contents, "Contents cannot be null");
@@ -25,8 +25,9 @@ package bammerbom.ultimatecore.bukkit.listeners;
 
 import bammerbom.ultimatecore.bukkit.api.UC;
 import bammerbom.ultimatecore.bukkit.r;
+import bammerbom.ultimatecore.bukkit.resources.profiler.TickProfiler;
 import bammerbom.ultimatecore.bukkit.resources.utils.DateUtil;
-import bammerbom.ultimatecore.bukkit.resources.utils.TitleUtil;
+import bammerbom.ultimatecore.bukkit.resources.utils.HudUtil;
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.entity.Player;
@@ -43,8 +44,8 @@ public class AfkListener implements Listener {
 
     public static void start() {
         if (r.getCnfg().getBoolean("Afk.Enabled")) {
-            Bukkit.getPluginManager().registerEvents(new AfkListener(), r.getUC());
-            Bukkit.getScheduler().scheduleSyncRepeatingTask(r.getUC(), new Runnable() {
+            TickProfiler.registerEvents(new AfkListener());
+            Bukkit.getScheduler().scheduleSyncRepeatingTask(r.getUC(), TickProfiler.wrap("Afk", new Runnable() {
                 @Override
                 public void run() {
                     for (Player pl : r.getOnlinePlayers()) {
@@ -68,12 +69,18 @@ public class AfkListener implements Listener {
                         if (UC.getPlayer(pl).isAfk()) {
                             String sub = (kickenabled && !r.perm(pl, "uc.afk.exempt", false, false) && dif > 1) ? r.mes("afkWarning2", "%Time", ChatColor.stripColor(DateUtil
                                     .formatDateDiff(((kicktime - dif) * 1000) + System.currentTimeMillis()))) : null;
-                            TitleUtil.sendTitle(pl, 0, 120, 20, r.mes("afkWarning"), sub);
+                            //Only resent when the client is about to fade it out or the countdown changed
+                            HudUtil.set(pl, HudUtil.Channel.TITLE, r.mes("afkWarning"), -1);
+                            if (sub != null) {
+                                HudUtil.set(pl, HudUtil.Channel.SUBTITLE, sub, -1);
+                            } else {
+                                HudUtil.clear(pl, HudUtil.Channel.SUBTITLE);
+                            }
                         }
 
                     }
                 }
-            }, 100L, 100L);
+            }), 100L, 100L);
         }
     }
 
@@ -24,6 +24,7 @@
 package bammerbom.ultimatecore.bukkit.listeners;
 
 import bammerbom.ultimatecore.bukkit.r;
+import bammerbom.ultimatecore.bukkit.resources.profiler.TickProfiler;
 import bammerbom.ultimatecore.bukkit.resources.utils.ActionBarUtil;
 import bammerbom.ultimatecore.bukkit.resources.utils.BossbarUtil;
 import bammerbom.ultimatecore.bukkit.resources.utils.FileUtil;
@@ -58,7 +59,7 @@ public class AutomessageListener implements Listener {
         if (!r.getCnfg().getBoolean("Messages.Enabledchat") && !r.getCnfg().getBoolean("Messages" + ".Enabledbossbar") && !r.getCnfg().getBoolean("Messages.Enabledactionbar")) {
             return;
         }
-        Bukkit.getPluginManager().registerEvents(new AutomessageListener(), r.getUC());
+        TickProfiler.registerEvents(new AutomessageListener());
         ArrayList<String> messgs = messages;
         Integer length = messgs.size();
         if (length != 0) {
@@ -72,7 +73,7 @@ public class AutomessageListener implements Listener {
         final Boolean ur = r.getCnfg().getBoolean("Messages.Randomise");
         final BarColor color = BarColor.valueOf(r.getCnfg().getString("Messages.Color").toUpperCase());
         final BarStyle style = BarStyle.valueOf(r.getCnfg().getString("Messages.Style").toUpperCase());
-        Bukkit.getScheduler().scheduleSyncRepeatingTask(r.getUC(), new Runnable() {
+        Bukkit.getScheduler().scheduleSyncRepeatingTask(r.getUC(), TickProfiler.wrap("Automessage", new Runnable() {
             @Override
             public void run() {
                 String mess = ur ? messgs.get(random.nextInt(messgs.size())) : "";
@@ -87,14 +88,15 @@ public class AutomessageListener implements Listener {
                 }
                 mess = mess.replace("\\n", "\n");
                 currentmessage = ChatColor.translateAlternateColorCodes('&', mess);
-                for (Player p : r.getOnlinePlayers()) {
-                    if (r.getCnfg().getBoolean("Messages.Enabledbossbar")) {
-                        if (decrease) {
-                            BossbarUtil.setMessage(p, ChatColor.translateAlternateColorCodes('&', mess).replace("\n", " "), timestay, color, style);
-                        } else {
-                            BossbarUtil.setMessage(p, ChatColor.translateAlternateColorCodes('&', mess).replace("\n", " "), color, style);
-                        }
+                //One bar shared by all players
+                if (r.getCnfg().getBoolean("Messages.Enabledbossbar")) {
+                    if (decrease) {
+                        BossbarUtil.setMessage(ChatColor.translateAlternateColorCodes('&', mess).replace("\n", " "), timestay, color, style);
+                    } else {
+                        BossbarUtil.setMessage(ChatColor.translateAlternateColorCodes('&', mess).replace("\n", " "), 100F, color, style);
                     }
+                }
+                for (Player p : r.getOnlinePlayers()) {
                     if (r.getCnfg().getBoolean("Messages.Enabledactionbar")) {
                         ActionBarUtil.sendActionBar(p, ChatColor.translateAlternateColorCodes('&', mess).replace("\n", " "), timestay * 20);
                     }
@@ -104,6 +106,6 @@ public class AutomessageListener implements Listener {
 
                 }
             }
-        }, 0, time * 20);
+        }), 0, time * 20);
     }
 }
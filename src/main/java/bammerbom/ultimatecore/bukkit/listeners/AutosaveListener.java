@@ -23,35 +23,177 @@
  */
 package bammerbom.ultimatecore.bukkit.listeners;
 
+import bammerbom.ultimatecore.bukkit.api.UEconomy;
 import bammerbom.ultimatecore.bukkit.r;
+import bammerbom.ultimatecore.bukkit.resources.databases.HomeDatabase;
+import bammerbom.ultimatecore.bukkit.resources.databases.WarpDatabase;
+import bammerbom.ultimatecore.bukkit.resources.profiler.TickProfiler;
 import org.bukkit.Bukkit;
 import org.bukkit.World;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.block.BlockBreakEvent;
+import org.bukkit.event.block.BlockPlaceEvent;
+import org.bukkit.event.entity.EntityExplodeEvent;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.world.ChunkLoadEvent;
 
-public class AutosaveListener {
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Saves worlds one by one over several ticks, instead of all worlds in one tick.
+ * <p>
+ * Every tick worlds are saved until the tick budget is used up, at least one world is saved per tick. Worlds without
+ * players and without changes since the last cycle are skipped. The UltimateCore data is written on a background
+ * thread in the same cycle.
+ */
+public class AutosaveListener implements Listener {
+
+    //Worlds that changed since the last cycle
+    static final Set<String> changed = new HashSet<>();
+    static ArrayDeque<World> queue = null;
+    static Integer task = null;
+    static long budget;
+    static boolean saveIdle;
+    static boolean message;
+    //Statistics of the running cycle
+    static long cycleStart;
+    static int saved;
+    static int skipped;
+    static int ticks;
+    static long longest;
+    static String longestWorld;
 
     public static void start() {
         if (!r.getCnfg().getBoolean("Autosave.Enabled")) {
             return;
         }
-        Bukkit.getScheduler().scheduleSyncRepeatingTask(r.getUC(), new Runnable() {
+        budget = Math.max(1, r.getCnfg().getInt("Autosave.TickBudget")) * 1000000L;
+        saveIdle = r.getCnfg().getBoolean("Autosave.SaveIdleWorlds");
+        message = r.getCnfg().getBoolean("Autosave.Message");
+        UEconomy.setDeferredSaving(true);
+        TickProfiler.registerEvents(new AutosaveListener());
+        Bukkit.getScheduler().scheduleSyncRepeatingTask(r.getUC(), TickProfiler.wrap("Autosave", new Runnable() {
+            @Override
+            public void run() {
+                startCycle();
+            }
+        }), r.getCnfg().getInt("Autosave.Time") * 20, r.getCnfg().getInt("Autosave.Time") * 20);
+    }
 
+    static void startCycle() {
+        if (task != null) {
+            //The previous cycle has not finished yet
+            return;
+        }
+        if (message) {
+            Bukkit.broadcastMessage(r.mes("autosaveStart"));
+        }
+        cycleStart = System.nanoTime();
+        saved = 0;
+        skipped = 0;
+        ticks = 0;
+        longest = 0;
+        longestWorld = null;
+        queue = new ArrayDeque<>();
+        for (World w : Bukkit.getWorlds()) {
+            if (saveIdle || !w.getPlayers().isEmpty() || changed.contains(w.getName())) {
+                queue.add(w);
+            } else {
+                skipped++;
+            }
+        }
+        changed.clear();
+        //UltimateCore data, serialized here and written async
+        UEconomy.flush();
+        HomeDatabase.saveAsync();
+        WarpDatabase.compactAsync();
+        task = Bukkit.getScheduler().scheduleSyncRepeatingTask(r.getUC(), TickProfiler.wrap("Autosave worlds", new Runnable() {
             @Override
             public void run() {
-                if (r.getCnfg().getBoolean("Autosave.Message")) {
-                    Bukkit.broadcastMessage(r.mes("autosaveStart"));
-                }
-                for (World w : Bukkit.getWorlds()) {
-                    try {
-                        w.save();
-                    } catch (Exception ex) {
-                    }
-                }
-                if (r.getCnfg().getBoolean("Autosave.Message")) {
-                    Bukkit.broadcastMessage(r.mes("autosaveDone"));
-                }
+                tick();
+            }
+        }), 0L, 1L);
+    }
 
+    static void tick() {
+        ticks++;
+        long start = System.nanoTime();
+        while (!queue.isEmpty()) {
+            if (System.nanoTime() - start >= budget) {
+                return;
             }
+            World w = queue.poll();
+            //The world might have been unloaded since the cycle started
+            if (Bukkit.getWorld(w.getUID()) == null) {
+                continue;
+            }
+            long time = System.nanoTime();
+            try {
+                w.save();
+            } catch (Exception ex) {
+            }
+            time = System.nanoTime() - time;
+            saved++;
+            if (time > longest) {
+                longest = time;
+                longestWorld = w.getName();
+            }
+        }
+        Bukkit.getScheduler().cancelTask(task);
+        task = null;
+        queue = null;
+        if (message) {
+            Bukkit.broadcastMessage(r.mes("autosaveDone"));
+        }
+        r.log("Autosave saved " + saved + " world(s), skipped " + skipped + ", in " + (System.nanoTime() - cycleStart) / 1000000L + "ms over " + ticks + " tick(s)" +
+                (longestWorld != null ? ", slowest " + longestWorld + " " + longest / 1000000L + "ms" : "") + ".");
+    }
+
+    /**
+     * Internal method, ignore please.
+     */
+    public static void stop() {
+        UEconomy.stop();
+    }
+
+    static void markChanged(World w) {
+        changed.add(w.getName());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBreak(BlockBreakEvent e) {
+        markChanged(e.getBlock().getWorld());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPlace(BlockPlaceEvent e) {
+        markChanged(e.getBlock().getWorld());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onExplode(EntityExplodeEvent e) {
+        markChanged(e.getLocation().getWorld());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onChunkLoad(ChunkLoadEvent e) {
+        if (e.isNewChunk()) {
+            markChanged(e.getWorld());
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onWorldChange(PlayerChangedWorldEvent e) {
+        markChanged(e.getFrom());
+    }
 
-        }, r.getCnfg().getInt("Autosave.Time") * 20, r.getCnfg().getInt("Autosave.Time") * 20);
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onQuit(PlayerQuitEvent e) {
+        markChanged(e.getPlayer().getWorld());
     }
 }
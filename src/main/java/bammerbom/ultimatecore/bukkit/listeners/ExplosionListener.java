@@ -24,6 +24,7 @@
 package bammerbom.ultimatecore.bukkit.listeners;
 
 import bammerbom.ultimatecore.bukkit.r;
+import bammerbom.ultimatecore.bukkit.resources.profiler.TickProfiler;
 import org.bukkit.Bukkit;
 import org.bukkit.entity.EntityType;
 import org.bukkit.entity.Fireball;
@@ -43,7 +44,7 @@ public class ExplosionListener implements Listener {
     Boolean lightning = r.getCnfg().getBoolean("Explode.Lightning");
 
     public static void start() {
-        Bukkit.getPluginManager().registerEvents(new ExplosionListener(), r.getUC());
+        TickProfiler.registerEvents(new ExplosionListener());
     }
 
     @EventHandler(priority = EventPriority.LOWEST)
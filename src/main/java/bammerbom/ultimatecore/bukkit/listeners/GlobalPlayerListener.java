@@ -27,6 +27,8 @@ import bammerbom.ultimatecore.bukkit.api.UC;
 import bammerbom.ultimatecore.bukkit.ErrorLogger;
 import bammerbom.ultimatecore.bukkit.JsonConfig;
 import bammerbom.ultimatecore.bukkit.r;
+import bammerbom.ultimatecore.bukkit.resources.databases.NameDatabase;
+import bammerbom.ultimatecore.bukkit.resources.profiler.TickProfiler;
 import bammerbom.ultimatecore.bukkit.resources.utils.LocationUtil;
 import org.bukkit.*;
 import org.bukkit.entity.Player;
@@ -43,7 +45,7 @@ public class GlobalPlayerListener implements Listener {
 
     public static void start() {
         final GlobalPlayerListener gpl = new GlobalPlayerListener();
-        Bukkit.getPluginManager().registerEvents(gpl, r.getUC());
+        TickProfiler.registerEvents(gpl);
         EventPriority p;
         String s = r.getCnfg().getString("Command.Spawn.Priority");
         if (s.equalsIgnoreCase("lowest")) {
@@ -95,6 +97,7 @@ public class GlobalPlayerListener implements Listener {
                 e.getPlayer().hidePlayer(p);
             }
             //Name changes
+            NameDatabase.setName(e.getPlayer().getUniqueId(), e.getPlayer().getName());
             if (UC.getPlayer(e.getPlayer()).getPlayerConfig().contains("oldname")) {
                 JsonConfig conf = UC.getPlayer(e.getPlayer()).getPlayerConfig();
                 r.sendMes(e.getPlayer(), "nameChanged", "%Oldname", conf.getString("oldname"), "%Newname", e.getPlayer().getName());
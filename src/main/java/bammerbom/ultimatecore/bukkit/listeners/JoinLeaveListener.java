@@ -25,6 +25,7 @@ package bammerbom.ultimatecore.bukkit.listeners;
 
 import bammerbom.ultimatecore.bukkit.api.UC;
 import bammerbom.ultimatecore.bukkit.r;
+import bammerbom.ultimatecore.bukkit.resources.profiler.TickProfiler;
 import bammerbom.ultimatecore.bukkit.resources.utils.LocationUtil;
 import org.bukkit.Bukkit;
 import org.bukkit.event.EventHandler;
@@ -39,7 +40,7 @@ import org.bukkit.event.player.PlayerTeleportEvent.TeleportCause;
 public class JoinLeaveListener implements Listener {
 
     public static void start() {
-        Bukkit.getPluginManager().registerEvents(new JoinLeaveListener(), r.getUC());
+        TickProfiler.registerEvents(new JoinLeaveListener());
     }
 
     @EventHandler(priority = EventPriority.LOW)
@@ -25,6 +25,7 @@ package bammerbom.ultimatecore.bukkit.listeners;
 
 import bammerbom.ultimatecore.bukkit.api.UC;
 import bammerbom.ultimatecore.bukkit.r;
+import bammerbom.ultimatecore.bukkit.resources.profiler.TickProfiler;
 import org.bukkit.Bukkit;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
@@ -34,7 +35,7 @@ import org.bukkit.event.player.PlayerJoinEvent;
 public class MotdListener implements Listener {
 
     public static void start() {
-        Bukkit.getPluginManager().registerEvents(new MotdListener(), r.getUC());
+        TickProfiler.registerEvents(new MotdListener());
     }
 
     @EventHandler(priority = EventPriority.MONITOR)
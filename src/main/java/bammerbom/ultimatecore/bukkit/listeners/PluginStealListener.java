@@ -24,18 +24,19 @@
 package bammerbom.ultimatecore.bukkit.listeners;
 
 import bammerbom.ultimatecore.bukkit.r;
-import org.bukkit.Bukkit;
+import bammerbom.ultimatecore.bukkit.resources.cache.CommandCache;
+import bammerbom.ultimatecore.bukkit.resources.profiler.TickProfiler;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
 import org.bukkit.event.player.PlayerCommandPreprocessEvent;
 import org.bukkit.event.server.TabCompleteEvent;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.HashSet;
+import java.util.Set;
 
 public class PluginStealListener implements Listener {
 
-    public static List<String> commands = new ArrayList<>();
+    public static Set<String> commands = new HashSet<>();
 
     public static void start() {
         commands.add("plugins");
@@ -44,21 +45,21 @@ public class PluginStealListener implements Listener {
         commands.add("ver");
         commands.add("icanhasbukkit");
         commands.add("about");
-        Bukkit.getPluginManager().registerEvents(new PluginStealListener(), r.getUC());
+        TickProfiler.registerEvents(new PluginStealListener());
     }
 
     @EventHandler
     public void onCommandPreprocess(PlayerCommandPreprocessEvent e) {
-        String m = e.getMessage().startsWith("/") ? e.getMessage().replaceFirst("/", "") : e.getMessage();
-        if (m.contains(" ")) {
-            m = m.split(" ")[0];
+        String m = CommandCache.getLabel(e);
+        if (m.startsWith("bukkit:")) {
+            m = m.substring(7);
         }
-        if (commands.contains(m.toLowerCase().replace("bukkit:", ""))) {
+        if (commands.contains(m)) {
             if (!r.perm(e.getPlayer(), "uc.plugins", false, true)) {
                 e.setCancelled(true);
             }
         }
-        if (m.equalsIgnoreCase("?") || m.equalsIgnoreCase("bukkit:?") || m.equalsIgnoreCase("help") || m.equalsIgnoreCase("bukkit:help")) {
+        if (m.equals("?") || m.equals("help")) {
             if (!r.perm(e.getPlayer(), "uc.help", false, true)) {
                 e.setCancelled(true);
             }
@@ -67,24 +68,24 @@ public class PluginStealListener implements Listener {
 
     @EventHandler
     public void onCommandTab(TabCompleteEvent ev) {
-        String command = ev.getBuffer().contains(" ") ? ev.getBuffer().split(" ")[0] : ev.getBuffer();
-        if (command.equalsIgnoreCase("/")) {
+        String command = CommandCache.parseLabel(ev.getBuffer());
+        if (command.isEmpty() && ev.getBuffer().startsWith("/")) {
             if (!r.perm(ev.getSender(), "uc.plugins", false, true)) {
                 ev.setCancelled(true);
             }
         }
-        command = command.replaceFirst("/", "");
-        if (commands.contains(command.replace("bukkit:", ""))) {
+        if (command.startsWith("bukkit:")) {
+            command = command.substring(7);
+        }
+        if (commands.contains(command)) {
             if (!r.perm(ev.getSender(), "uc.plugins", false, true)) {
                 ev.setCancelled(true);
             }
         }
-        if (command.equalsIgnoreCase("?") || command.equalsIgnoreCase("bukkit:?") || command.equalsIgnoreCase("help") || command.equalsIgnoreCase("bukkit:help")) {
+        if (command.equals("?") || command.equals("help")) {
             if (!r.perm(ev.getSender(), "uc.help", false, true)) {
                 ev.setCancelled(true);
             }
         }
     }
-
-
 }
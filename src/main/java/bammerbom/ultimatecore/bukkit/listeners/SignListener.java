@@ -26,9 +26,11 @@ package bammerbom.ultimatecore.bukkit.listeners;
 import bammerbom.ultimatecore.bukkit.UltimateSign;
 import bammerbom.ultimatecore.bukkit.UltimateSigns;
 import bammerbom.ultimatecore.bukkit.r;
-import org.bukkit.Bukkit;
+import bammerbom.ultimatecore.bukkit.resources.databases.SignDatabase;
+import bammerbom.ultimatecore.bukkit.resources.profiler.TickProfiler;
 import org.bukkit.ChatColor;
-import org.bukkit.Material;
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockState;
 import org.bukkit.block.Sign;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
@@ -37,20 +39,20 @@ import org.bukkit.event.block.Action;
 import org.bukkit.event.block.BlockBreakEvent;
 import org.bukkit.event.block.SignChangeEvent;
 import org.bukkit.event.player.PlayerInteractEvent;
+import org.bukkit.event.world.ChunkLoadEvent;
 
 public class SignListener implements Listener {
 
     public static void start() {
-        Bukkit.getPluginManager().registerEvents(new SignListener(), r.getUC());
+        TickProfiler.registerEvents(new SignListener());
     }
 
     @EventHandler(priority = EventPriority.LOW)
     public void onSignChange(SignChangeEvent e) {
         //Signs
-        for (UltimateSign s : UltimateSigns.signs) {
-            if (ChatColor.stripColor(e.getLine(0)).equalsIgnoreCase("[" + s.getName() + "]")) {
-                s.onCreate(e);
-            }
+        UltimateSign sign = UltimateSigns.getSign(e.getLine(0));
+        if (sign != null) {
+            sign.onCreate(e);
         }
         //Color signs
         if (!r.perm(e.getPlayer(), "uc.sign.colored", false, false)) {
@@ -62,41 +64,67 @@ public class SignListener implements Listener {
         e.setLine(3, ChatColor.translateAlternateColorCodes('&', e.getLine(3)));
     }
 
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onSignCreated(SignChangeEvent e) {
+        UltimateSign sign = UltimateSigns.getSign(e.getLine(0));
+        if (sign != null) {
+            SignDatabase.add(e.getBlock(), sign);
+        } else {
+            SignDatabase.remove(e.getBlock());
+        }
+    }
+
     @EventHandler(priority = EventPriority.LOW)
     public void onSignInteract(PlayerInteractEvent e) {
         //Signs
-        if (!e.getAction().equals(Action.RIGHT_CLICK_BLOCK)) {
+        if (!e.getAction().equals(Action.RIGHT_CLICK_BLOCK) || e.getClickedBlock() == null) {
             return;
         }
-        if (e.getClickedBlock() == null || e.getClickedBlock().getType() == null || e.getClickedBlock().getType().equals(Material.AIR)) {
+        if (SignDatabase.get(e.getClickedBlock()) == null) {
             return;
         }
-        if (!(e.getClickedBlock().getState() instanceof Sign)) {
+        Sign sign = getSign(e.getClickedBlock());
+        if (sign == null) {
             return;
         }
-        Sign sign = (Sign) e.getClickedBlock().getState();
-        for (UltimateSign s : UltimateSigns.signs) {
-            if (ChatColor.stripColor(sign.getLine(0)).equalsIgnoreCase("[" + s.getName() + "]")) {
-                s.onClick(e.getPlayer(), sign);
-            }
-        }
+        UltimateSigns.getSign(sign.getLine(0)).onClick(e.getPlayer(), sign);
     }
 
     @EventHandler(priority = EventPriority.LOW)
     public void onSignDestroy(BlockBreakEvent e) {
         //Signs
-        if (e.getBlock() == null || e.getBlock().getType() == null || e.getBlock().getType().equals(Material.AIR)) {
+        if (SignDatabase.get(e.getBlock()) == null) {
             return;
         }
-        if (!(e.getBlock().getState() instanceof Sign)) {
+        Sign sign = getSign(e.getBlock());
+        if (sign == null) {
             return;
         }
-        Sign sign = (Sign) e.getBlock().getState();
-        for (UltimateSign s : UltimateSigns.signs) {
-            if (ChatColor.stripColor(sign.getLine(0)).equalsIgnoreCase("[" + s.getName() + "]")) {
-                s.onDestroy(e);
-            }
+        UltimateSigns.getSign(sign.getLine(0)).onDestroy(e);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onSignDestroyed(BlockBreakEvent e) {
+        SignDatabase.remove(e.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onChunkLoad(ChunkLoadEvent e) {
+        if (!e.isNewChunk()) {
+            SignDatabase.onChunkLoad(e.getChunk());
+        }
+    }
+
+    /**
+     * Reads the sign at an indexed location, entries of signs that were removed or rewritten in another way are dropped.
+     */
+    private Sign getSign(Block block) {
+        BlockState state = block.getState();
+        if (state instanceof Sign && UltimateSigns.getSign(((Sign) state).getLine(0)) != null) {
+            return (Sign) state;
         }
+        SignDatabase.remove(block);
+        return null;
     }
 
 }
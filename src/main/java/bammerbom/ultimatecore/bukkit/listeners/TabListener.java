@@ -25,6 +25,8 @@ package bammerbom.ultimatecore.bukkit.listeners;
 
 import bammerbom.ultimatecore.bukkit.api.UC;
 import bammerbom.ultimatecore.bukkit.r;
+import bammerbom.ultimatecore.bukkit.resources.cache.ChatMetaCache;
+import bammerbom.ultimatecore.bukkit.resources.profiler.TickProfiler;
 import bammerbom.ultimatecore.bukkit.resources.utils.DateUtil;
 import bammerbom.ultimatecore.bukkit.resources.utils.StringUtil;
 import bammerbom.ultimatecore.bukkit.resources.utils.TabUtil;
@@ -37,7 +39,6 @@ import org.bukkit.event.player.PlayerJoinEvent;
 import org.bukkit.scoreboard.Scoreboard;
 import org.bukkit.scoreboard.Team;
 
-import java.lang.management.ManagementFactory;
 import java.util.HashMap;
 
 public class TabListener implements Listener {
@@ -69,8 +70,8 @@ public class TabListener implements Listener {
         }
 
 
-        Bukkit.getPluginManager().registerEvents(new TabListener(), r.getUC());
-        Bukkit.getScheduler().scheduleSyncRepeatingTask(r.getUC(), new Runnable() {
+        TickProfiler.registerEvents(new TabListener());
+        Bukkit.getScheduler().scheduleSyncRepeatingTask(r.getUC(), TickProfiler.wrap("Tab", new Runnable() {
             @SuppressWarnings("deprecation")
 			@Override
             public void run() {
@@ -81,10 +82,7 @@ public class TabListener implements Listener {
                     }
 
                     //Player names
-                    String group = "";
-                    if (r.getVault() != null && r.getVault().getPermission() != null && r.getVault().getPermission().getPrimaryGroup(p) != null) {
-                        group = r.getVault().getPermission().getPrimaryGroup(p) != null ? r.getVault().getPermission().getPrimaryGroup(p) : "";
-                    }
+                    String group = ChatMetaCache.get(p).getGroup();
 
                     //
                     String base = (!group.isEmpty() && tabFormats.containsKey(group)) ? tabFormats.get(group) : defaultFormat;
@@ -133,7 +131,7 @@ public class TabListener implements Listener {
                     }
                 }
             }
-        }, 0L, 100L);
+        }), 0L, 100L);
     }
 
     public static String replaceVariables(String base, Player p) {
@@ -141,31 +139,16 @@ public class TabListener implements Listener {
         name = p.getName();
         int maxplayers = Bukkit.getServer().getMaxPlayers();
         int onlineplayers = r.getOnlinePlayers().length;
-        String group = "";
-        String prefix = "";
-        String suffix = "";
-        if (r.getVault() != null && r.getVault().getPermission() != null && r.getVault().getPermission().getPrimaryGroup(p) != null) {
-            group = r.getVault().getPermission().getPrimaryGroup(p) != null ? r.getVault().getPermission().getPrimaryGroup(p) : "";
-            if (r.getVault().getChat() != null && !group.isEmpty()) {
-                prefix = r.getVault().getChat().getGroupPrefix(p.getWorld(), r.getPrimaryGroup(p));
-                suffix = r.getVault().getChat().getGroupSuffix(p.getWorld(), r.getPrimaryGroup(p));
-                if ((r.getVault().getChat().getPlayerPrefix(p) != null) && !r.getVault().getChat().getPlayerPrefix(p).isEmpty()) {
-                    prefix = r.getVault().getChat().getPlayerPrefix(p);
-                }
-                if ((r.getVault().getChat().getPlayerSuffix(p) != null) && !r.getVault().getChat().getPlayerSuffix(p).isEmpty()) {
-                    suffix = r.getVault().getChat().getPlayerSuffix(p);
-                }
-            }
-        }
+        ChatMetaCache.Meta meta = ChatMetaCache.get(p);
         String displayname = UC.getPlayer(p).getDisplayName();
-        base = base.replace("+Group", group);
-        base = base.replace("+Prefix", prefix);
-        base = base.replace("+Suffix", suffix);
+        base = base.replace("+Group", meta.getGroup());
+        base = base.replace("+Prefix", meta.getPrefix());
+        base = base.replace("+Suffix", meta.getSuffix());
         base = base.replace("+Name", name);
         base = base.replace("+Displayname", displayname);
         base = base.replace("+Maxplayers", maxplayers + "");
         base = base.replace("+Onlineplayers", onlineplayers + "");
-        base = base.replace("+Uptime", ChatColor.stripColor(DateUtil.formatDateDiff(ManagementFactory.getRuntimeMXBean().getStartTime())));
+        base = base.replace("+Uptime", DateUtil.getPlainUptime());
         base = ChatColor.translateAlternateColorCodes('&', base);
         return base;
     }
@@ -180,10 +163,7 @@ public class TabListener implements Listener {
         }
 
         //Player names
-        String group = "";
-        if (r.getVault() != null && r.getVault().getPermission() != null && r.getVault().getPermission().getPrimaryGroup(p) != null) {
-            group = r.getVault().getPermission().getPrimaryGroup(p) != null ? r.getVault().getPermission().getPrimaryGroup(p) : "";
-        }
+        String group = ChatMetaCache.get(p).getGroup();
 
         //
         String base = (!group.isEmpty() && tabFormats.containsKey(group)) ? tabFormats.get(group) : defaultFormat;
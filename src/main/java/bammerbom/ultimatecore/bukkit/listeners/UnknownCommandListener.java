@@ -23,18 +23,13 @@
  */
 package bammerbom.ultimatecore.bukkit.listeners;
 
-import bammerbom.ultimatecore.bukkit.ErrorLogger;
 import bammerbom.ultimatecore.bukkit.r;
-
-import org.bukkit.Bukkit;
-import org.bukkit.command.SimpleCommandMap;
+import bammerbom.ultimatecore.bukkit.resources.cache.CommandCache;
+import bammerbom.ultimatecore.bukkit.resources.profiler.TickProfiler;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.player.PlayerCommandPreprocessEvent;
-import org.bukkit.plugin.SimplePluginManager;
-
-import java.lang.reflect.Field;
 
 public class UnknownCommandListener implements Listener {
 
@@ -42,31 +37,7 @@ public class UnknownCommandListener implements Listener {
         if (!r.getCnfg().getBoolean("Command.UnknownCommand")) {
             return;
         }
-        Bukkit.getServer().getPluginManager().registerEvents(new UnknownCommandListener(), r.getUC());
-    }
-
-    public boolean isCmdRegistered(String cmd) {
-        return getCommandMap().getCommand(cmd.replaceFirst("/", "")) != null;
-    }
-
-    private SimpleCommandMap getCommandMap() {
-        if ((Bukkit.getPluginManager() instanceof SimplePluginManager)) {
-            Field f;
-            try {
-                f = SimplePluginManager.class.getDeclaredField("commandMap");
-            } catch (NoSuchFieldException | SecurityException e) {
-                ErrorLogger.log(e, "Failed to load command map.");
-                return null;
-            }
-            f.setAccessible(true);
-            try {
-                return (SimpleCommandMap) f.get(Bukkit.getPluginManager());
-            } catch (IllegalArgumentException | IllegalAccessException e) {
-                ErrorLogger.log(e, "Command map is modded.");
-                return null;
-            }
-        }
-        return null;
+        TickProfiler.registerEvents(new UnknownCommandListener());
     }
 
     @EventHandler(priority = EventPriority.MONITOR)
@@ -74,18 +45,10 @@ public class UnknownCommandListener implements Listener {
         if (event.isCancelled()) {
             return;
         }
-        String cmd = event.getMessage();
-        if (cmd == null || cmd.equalsIgnoreCase("")) {
-            r.sendMes(event.getPlayer(), "unknownCommand");
-            event.setCancelled(true);
-            return;
-        }
-        cmd = cmd.split(" ")[0];
-
-        if (!isCmdRegistered(cmd)) {
+        String label = CommandCache.getLabel(event);
+        if (label.isEmpty() || !CommandCache.isRegistered(label)) {
             r.sendMes(event.getPlayer(), "unknownCommand");
             event.setCancelled(true);
         }
-
     }
 }
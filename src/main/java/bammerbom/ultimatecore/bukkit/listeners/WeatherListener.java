@@ -24,6 +24,7 @@
 package bammerbom.ultimatecore.bukkit.listeners;
 
 import bammerbom.ultimatecore.bukkit.r;
+import bammerbom.ultimatecore.bukkit.resources.profiler.TickProfiler;
 import org.bukkit.Bukkit;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
@@ -36,7 +37,7 @@ public class WeatherListener implements Listener {
     private static boolean enabled = true;
 
     public static void start() {
-        Bukkit.getPluginManager().registerEvents(new WeatherListener(), r.getUC());
+        TickProfiler.registerEvents(new WeatherListener());
     }
 
     public static void setEnabled(Boolean b) {
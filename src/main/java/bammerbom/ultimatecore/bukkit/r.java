@@ -26,6 +26,9 @@ package bammerbom.ultimatecore.bukkit;
 import bammerbom.ultimatecore.bukkit.api.UC;
 import bammerbom.ultimatecore.bukkit.api.UEconomy;
 import bammerbom.ultimatecore.bukkit.configuration.Config;
+import bammerbom.ultimatecore.bukkit.resources.cache.ChatMetaCache;
+import bammerbom.ultimatecore.bukkit.resources.cache.PermissionCache;
+import bammerbom.ultimatecore.bukkit.resources.databases.NameDatabase;
 import net.milkbowl.vault.chat.Chat;
 import net.milkbowl.vault.economy.Economy;
 import net.milkbowl.vault.permission.Permission;
@@ -165,19 +168,30 @@ public class r {
 
     private static boolean perm(Player p, String perm, Boolean def) {
         if (p.isOp()) {
-            r.debug("Checked " + p.getName() + " for " + perm + ", returned true. (1)");
+            if (debug) {
+                r.debug("Checked " + p.getName() + " for " + perm + ", returned true. (1)");
+            }
             return true;
         }
-        if (r.getVault() != null && r.getVault().getPermission() != null && !r.getVault().getPermission().getName().equals("SuperPerms")) {
-            r.debug("Checked " + p.getName() + " for " + perm + ", returned " + r.getVault().getPermission().has(p, perm) + ". (2)");
-            return r.getVault().getPermission().has(p, perm);
+        Permission permission = PermissionCache.getProvider();
+        if (permission != null) {
+            boolean has = PermissionCache.has(p, perm, permission);
+            if (debug) {
+                r.debug("Checked " + p.getName() + " for " + perm + ", returned " + has + ". (2)");
+            }
+            return has;
         } else {
             if (def == true) {
-                r.debug("Checked " + p.getName() + " for " + perm + ", returned true. (3)");
+                if (debug) {
+                    r.debug("Checked " + p.getName() + " for " + perm + ", returned true. (3)");
+                }
                 return true;
             }
-            r.debug("Checked " + p.getName() + " for " + perm + ", returned " + p.hasPermission(perm) + ". (4)");
-            return p.hasPermission(perm);
+            boolean has = p.hasPermission(perm);
+            if (debug) {
+                r.debug("Checked " + p.getName() + " for " + perm + ", returned " + has + ". (4)");
+            }
+            return has;
         }
     }
 
@@ -336,7 +350,12 @@ public class r {
 
     @SuppressWarnings("deprecation")
 	public static OfflinePlayer searchOfflinePlayer(String s) {
-        return Bukkit.getOfflinePlayer(s);
+        Player online = Bukkit.getPlayerExact(s);
+        if (online != null) {
+            return online;
+        }
+        //Bukkit.getOfflinePlayer(String) can ask Mojang for unknown names, the directory never does that on the main thread
+        return Bukkit.getOfflinePlayer(NameDatabase.resolve(s));
     }
 
     public static Player searchPlayer(UUID u) {
@@ -470,11 +489,8 @@ public class r {
     }
     
     public static String getPrimaryGroup(Player p) {
-        try {
-            return r.getVault().getPermission().getPrimaryGroup(p);
-        } catch (Exception ex) {
-            return null;
-        }
+        String group = ChatMetaCache.get(p).getGroup();
+        return group.isEmpty() ? null : group;
     }
 
     public static class ExtendedProperties {
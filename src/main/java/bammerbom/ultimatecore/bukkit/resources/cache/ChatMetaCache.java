@@ -0,0 +1,236 @@
+/*
+ * This file is part of UltimateCore, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Bammerbom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package bammerbom.ultimatecore.bukkit.resources.cache;
+
+import bammerbom.ultimatecore.bukkit.r;
+import bammerbom.ultimatecore.bukkit.resources.profiler.TickProfiler;
+import net.milkbowl.vault.chat.Chat;
+import net.milkbowl.vault.permission.Permission;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.server.ServiceRegisterEvent;
+import org.bukkit.event.server.ServiceUnregisterEvent;
+
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Group, prefix and suffix of every online player, resolved through Vault.
+ * <p>
+ * A player is resolved once when first needed, after that the values are refreshed on an async task. Entries are
+ * dropped when the player quits or changes world, and all entries are dropped when a permission or chat provider
+ * changes.
+ */
+public class ChatMetaCache implements Listener {
+
+    private static final ConcurrentHashMap<UUID, Meta> metas = new ConcurrentHashMap<>();
+    private static final AtomicLong hits = new AtomicLong();
+    private static final AtomicLong misses = new AtomicLong();
+    private static final AtomicLong refreshes = new AtomicLong();
+    private static boolean started = false;
+    private static volatile Chat chat = null;
+    private static volatile boolean resolved = false;
+
+    public static void start() {
+        started = true;
+        TickProfiler.registerEvents(new ChatMetaCache());
+        long interval = Math.max(1, r.getCnfg().getInt("Permissions.MetaRefresh")) * 20L;
+        Bukkit.getScheduler().scheduleSyncRepeatingTask(r.getUC(), TickProfiler.wrap("ChatMeta", new Runnable() {
+            @Override
+            public void run() {
+                if (metas.isEmpty()) {
+                    return;
+                }
+                final Player[] players = r.getOnlinePlayers();
+                Bukkit.getScheduler().runTaskAsynchronously(r.getUC(), new Runnable() {
+                    @Override
+                    public void run() {
+                        for (Player p : players) {
+                            //Only refresh players that are still cached, quit players were removed
+                            Meta old = metas.get(p.getUniqueId());
+                            if (p.isOnline() && old != null) {
+                                Meta meta = resolve(p);
+                                //Skipped if the entry was resolved again in the meantime, that result is newer
+                                if (metas.replace(p.getUniqueId(), old, meta)) {
+                                    refreshes.incrementAndGet();
+                                }
+                            }
+                        }
+                    }
+                });
+            }
+        }), interval, interval);
+    }
+
+    /**
+     * @return The cached group, prefix and suffix of the player, resolving them if they are not cached yet
+     */
+    public static Meta get(Player p) {
+        Meta meta = metas.get(p.getUniqueId());
+        if (meta != null) {
+            hits.incrementAndGet();
+            return meta;
+        }
+        misses.incrementAndGet();
+        meta = resolve(p);
+        if (started && p.isOnline()) {
+            metas.put(p.getUniqueId(), meta);
+        }
+        return meta;
+    }
+
+    public static void invalidate(UUID uuid) {
+        metas.remove(uuid);
+    }
+
+    public static void invalidateAll() {
+        metas.clear();
+    }
+
+    public static long getHits() {
+        return hits.get();
+    }
+
+    public static long getMisses() {
+        return misses.get();
+    }
+
+    public static long getRefreshes() {
+        return refreshes.get();
+    }
+
+    public static int getPlayersCached() {
+        return metas.size();
+    }
+
+    public static void resetStats() {
+        hits.set(0);
+        misses.set(0);
+        refreshes.set(0);
+    }
+
+    private static Chat getChat() {
+        if (resolved) {
+            return chat;
+        }
+        Chat c = r.getVault() != null ? r.getVault().getChat() : null;
+        if (started) {
+            chat = c;
+            resolved = true;
+        }
+        return c;
+    }
+
+    private static Meta resolve(Player p) {
+        Permission permission = PermissionCache.getProvider();
+        if (permission == null) {
+            return Meta.EMPTY;
+        }
+        String group;
+        try {
+            group = permission.getPrimaryGroup(p);
+        } catch (Exception ex) {
+            return Meta.EMPTY;
+        }
+        if (group == null || group.isEmpty()) {
+            return Meta.EMPTY;
+        }
+        Chat c = getChat();
+        if (c == null) {
+            return new Meta(group, "", "");
+        }
+        String prefix = c.getGroupPrefix(p.getWorld(), group);
+        String suffix = c.getGroupSuffix(p.getWorld(), group);
+        String playerPrefix = c.getPlayerPrefix(p);
+        String playerSuffix = c.getPlayerSuffix(p);
+        if (playerPrefix != null && !playerPrefix.isEmpty()) {
+            prefix = playerPrefix;
+        }
+        if (playerSuffix != null && !playerSuffix.isEmpty()) {
+            suffix = playerSuffix;
+        }
+        return new Meta(group, prefix, suffix);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onWorldChange(PlayerChangedWorldEvent e) {
+        invalidate(e.getPlayer().getUniqueId());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onQuit(PlayerQuitEvent e) {
+        invalidate(e.getPlayer().getUniqueId());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onServiceRegister(ServiceRegisterEvent e) {
+        onServiceChange(e.getProvider().getService());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onServiceUnregister(ServiceUnregisterEvent e) {
+        onServiceChange(e.getProvider().getService());
+    }
+
+    private void onServiceChange(Class<?> service) {
+        if (service == Chat.class || service == Permission.class) {
+            resolved = false;
+            invalidateAll();
+        }
+    }
+
+    public static class Meta {
+        static final Meta EMPTY = new Meta("", "", "");
+        private final String group;
+        private final String prefix;
+        private final String suffix;
+
+        Meta(String group, String prefix, String suffix) {
+            this.group = group;
+            this.prefix = prefix == null ? "" : prefix;
+            this.suffix = suffix == null ? "" : suffix;
+        }
+
+        /**
+         * @return The primary group, or an empty string if there is none
+         */
+        public String getGroup() {
+            return group;
+        }
+
+        public String getPrefix() {
+            return prefix;
+        }
+
+        public String getSuffix() {
+            return suffix;
+        }
+    }
+}
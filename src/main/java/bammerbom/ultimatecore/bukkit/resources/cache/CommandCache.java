@@ -0,0 +1,159 @@
+/*
+ * This file is part of UltimateCore, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Bammerbom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package bammerbom.ultimatecore.bukkit.resources.cache;
+
+import bammerbom.ultimatecore.bukkit.ErrorLogger;
+import bammerbom.ultimatecore.bukkit.resources.profiler.TickProfiler;
+import org.bukkit.Bukkit;
+import org.bukkit.command.Command;
+import org.bukkit.command.SimpleCommandMap;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerCommandPreprocessEvent;
+import org.bukkit.event.server.PluginDisableEvent;
+import org.bukkit.event.server.PluginEnableEvent;
+import org.bukkit.plugin.SimplePluginManager;
+
+import java.lang.reflect.Field;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Shared preprocessing of the commands players type.
+ * <p>
+ * The label of a command is parsed once per event and handed to every listener that asks for it. The command map is
+ * resolved once, the labels it knows are kept in a set that is rebuilt after a plugin is enabled or disabled.
+ */
+public class CommandCache implements Listener {
+
+    private static SimpleCommandMap commandMap = null;
+    private static Map<String, Command> knownCommands = null;
+    private static boolean resolved = false;
+    private static Set<String> labels = null;
+    private static PlayerCommandPreprocessEvent lastEvent = null;
+    private static String lastMessage = null;
+    private static String lastLabel = null;
+
+    public static void start() {
+        resolve();
+        TickProfiler.registerEvents(new CommandCache());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void resolve() {
+        resolved = true;
+        if (!(Bukkit.getPluginManager() instanceof SimplePluginManager)) {
+            return;
+        }
+        try {
+            Field f = SimplePluginManager.class.getDeclaredField("commandMap");
+            f.setAccessible(true);
+            commandMap = (SimpleCommandMap) f.get(Bukkit.getPluginManager());
+        } catch (NoSuchFieldException | SecurityException | IllegalArgumentException | IllegalAccessException | ClassCastException e) {
+            ErrorLogger.log(e, "Failed to load command map.");
+            return;
+        }
+        try {
+            Field f = SimpleCommandMap.class.getDeclaredField("knownCommands");
+            f.setAccessible(true);
+            knownCommands = (Map<String, Command>) f.get(commandMap);
+        } catch (NoSuchFieldException | SecurityException | IllegalArgumentException | IllegalAccessException e) {
+            //Only the direct lookups in the command map are used
+            knownCommands = null;
+        }
+    }
+
+    /**
+     * Returns the label of the command in the event, lowercase and without the leading slash or arguments. The label is
+     * parsed once for every event and message.
+     */
+    public static String getLabel(PlayerCommandPreprocessEvent e) {
+        String message = e.getMessage();
+        if (e == lastEvent && message == lastMessage) {
+            return lastLabel;
+        }
+        lastEvent = e;
+        lastMessage = message;
+        lastLabel = parseLabel(message);
+        return lastLabel;
+    }
+
+    public static String parseLabel(String message) {
+        if (message == null) {
+            return "";
+        }
+        int start = message.startsWith("/") ? 1 : 0;
+        int end = message.indexOf(' ', start);
+        return message.substring(start, end < 0 ? message.length() : end).toLowerCase(Locale.ENGLISH);
+    }
+
+    /**
+     * @return If a command is registered under the label, including aliases and fallback prefixes
+     */
+    public static boolean isRegistered(String label) {
+        if (!resolved) {
+            resolve();
+        }
+        if (commandMap == null) {
+            return true;
+        }
+        Set<String> known = labels;
+        if (known == null) {
+            known = rebuild();
+        }
+        if (known.contains(label)) {
+            return true;
+        }
+        //Commands registered after the last plugin change
+        if (commandMap.getCommand(label) != null) {
+            known.add(label);
+            return true;
+        }
+        return false;
+    }
+
+    private static Set<String> rebuild() {
+        Set<String> known = new HashSet<>();
+        if (knownCommands != null) {
+            for (String label : knownCommands.keySet()) {
+                known.add(label.toLowerCase(Locale.ENGLISH));
+            }
+        }
+        labels = known;
+        return known;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPluginEnable(PluginEnableEvent e) {
+        labels = null;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPluginDisable(PluginDisableEvent e) {
+        labels = null;
+    }
+}
@@ -0,0 +1,270 @@
+/*
+ * This file is part of UltimateCore, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Bammerbom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package bammerbom.ultimatecore.bukkit.resources.cache;
+
+import bammerbom.ultimatecore.bukkit.r;
+import bammerbom.ultimatecore.bukkit.resources.profiler.TickProfiler;
+import net.milkbowl.vault.permission.Permission;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.server.ServiceRegisterEvent;
+import org.bukkit.event.server.ServiceUnregisterEvent;
+
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches the results of permission checks done through Vault.
+ * <p>
+ * Permission nodes are interned to an int id, every player has a small open addressing table of id to result. A
+ * table is dropped when the player changes world or quits, and cleared after the configured cache time. All tables
+ * are dropped when a permission provider is registered or unregistered.
+ * <p>
+ * Some nodes are built from what players type, like the warp name in uc.warp.&lt;name&gt;. So the node ids are dropped
+ * together with all tables when more than {@link #MAX_NODES} nodes were interned, ids are never given out twice.
+ */
+public class PermissionCache implements Listener {
+
+    private static final int MAX_NODES = 4096;
+    private static final ConcurrentHashMap<String, Integer> nodes = new ConcurrentHashMap<>();
+    private static final AtomicInteger nextNode = new AtomicInteger(1);
+    private static final ConcurrentHashMap<UUID, PlayerTable> tables = new ConcurrentHashMap<>();
+    private static final AtomicLong hits = new AtomicLong();
+    private static final AtomicLong misses = new AtomicLong();
+    private static final AtomicLong invalidations = new AtomicLong();
+    private static boolean started = false;
+    private static boolean enabled = false;
+    private static long ttl = 30000L;
+    private static volatile Permission provider = null;
+    private static volatile boolean resolved = false;
+
+    public static void start() {
+        enabled = r.getCnfg().getBoolean("Permissions.Cache");
+        ttl = Math.max(1, r.getCnfg().getInt("Permissions.CacheTime")) * 1000L;
+        started = true;
+        TickProfiler.registerEvents(new PermissionCache());
+    }
+
+    /**
+     * @return The Vault permission provider, or null if there is none or it is SuperPerms
+     */
+    public static Permission getProvider() {
+        if (resolved) {
+            return provider;
+        }
+        Permission permission = r.getVault() != null ? r.getVault().getPermission() : null;
+        if (permission != null && permission.getName().equals("SuperPerms")) {
+            permission = null;
+        }
+        //Only keep the handle once service changes are being listened to
+        if (started) {
+            provider = permission;
+            resolved = true;
+        }
+        return permission;
+    }
+
+    public static boolean has(Player p, String perm, Permission permission) {
+        if (!enabled) {
+            return permission.has(p, perm);
+        }
+        int node = intern(perm);
+        PlayerTable table = tables.get(p.getUniqueId());
+        if (table == null) {
+            table = new PlayerTable();
+            PlayerTable old = tables.putIfAbsent(p.getUniqueId(), table);
+            if (old != null) {
+                table = old;
+            }
+        }
+        int cached = table.get(node, System.currentTimeMillis());
+        if (cached != PlayerTable.ABSENT) {
+            hits.incrementAndGet();
+            return cached == 1;
+        }
+        misses.incrementAndGet();
+        boolean result = permission.has(p, perm);
+        table.put(node, result);
+        return result;
+    }
+
+    public static void invalidate(UUID uuid) {
+        if (tables.remove(uuid) != null) {
+            invalidations.incrementAndGet();
+        }
+    }
+
+    public static void invalidateAll() {
+        tables.clear();
+        invalidations.incrementAndGet();
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static long getHits() {
+        return hits.get();
+    }
+
+    public static long getMisses() {
+        return misses.get();
+    }
+
+    public static long getInvalidations() {
+        return invalidations.get();
+    }
+
+    public static int getPlayersCached() {
+        return tables.size();
+    }
+
+    public static int getNodes() {
+        return nodes.size();
+    }
+
+    public static void resetStats() {
+        hits.set(0);
+        misses.set(0);
+        invalidations.set(0);
+    }
+
+    private static int intern(String perm) {
+        Integer node = nodes.get(perm);
+        if (node == null) {
+            if (nodes.size() >= MAX_NODES) {
+                //Ids already in the tables are never given out again, so a stale put can't be read back as another node
+                nodes.clear();
+                invalidateAll();
+            }
+            Integer created = nextNode.getAndIncrement();
+            node = nodes.putIfAbsent(perm, created);
+            if (node == null) {
+                node = created;
+            }
+        }
+        return node;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onWorldChange(PlayerChangedWorldEvent e) {
+        invalidate(e.getPlayer().getUniqueId());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onQuit(PlayerQuitEvent e) {
+        invalidate(e.getPlayer().getUniqueId());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onServiceRegister(ServiceRegisterEvent e) {
+        if (e.getProvider().getService() == Permission.class) {
+            resolved = false;
+            invalidateAll();
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onServiceUnregister(ServiceUnregisterEvent e) {
+        if (e.getProvider().getService() == Permission.class) {
+            resolved = false;
+            invalidateAll();
+        }
+    }
+
+    /**
+     * Open addressing table with linear probing. Keys are node ids, 0 marks an empty slot.
+     */
+    static class PlayerTable {
+        static final int ABSENT = -1;
+        private int[] keys = new int[16];
+        private boolean[] values = new boolean[16];
+        private int size = 0;
+        private long created = System.currentTimeMillis();
+
+        synchronized int get(int node, long now) {
+            if (now - created > ttl) {
+                clear(now);
+                return ABSENT;
+            }
+            int mask = keys.length - 1;
+            for (int i = mix(node) & mask; ; i = (i + 1) & mask) {
+                if (keys[i] == node) {
+                    return values[i] ? 1 : 0;
+                }
+                if (keys[i] == 0) {
+                    return ABSENT;
+                }
+            }
+        }
+
+        synchronized void put(int node, boolean value) {
+            //Keep the load factor at or below one half
+            if ((size + 1) * 2 > keys.length) {
+                grow();
+            }
+            int mask = keys.length - 1;
+            int i = mix(node) & mask;
+            while (keys[i] != 0 && keys[i] != node) {
+                i = (i + 1) & mask;
+            }
+            if (keys[i] == 0) {
+                size++;
+            }
+            keys[i] = node;
+            values[i] = value;
+        }
+
+        private void grow() {
+            int[] oldKeys = keys;
+            boolean[] oldValues = values;
+            keys = new int[oldKeys.length * 2];
+            values = new boolean[oldKeys.length * 2];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    put(oldKeys[i], oldValues[i]);
+                }
+            }
+        }
+
+        private void clear(long now) {
+            keys = new int[16];
+            values = new boolean[16];
+            size = 0;
+            created = now;
+        }
+
+        private static int mix(int node) {
+            int h = node * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * This file is part of UltimateCore, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Bammerbom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package bammerbom.ultimatecore.bukkit.resources.databases;
+
+import bammerbom.ultimatecore.bukkit.ErrorLogger;
+import bammerbom.ultimatecore.bukkit.UltimateFileLoader;
+import bammerbom.ultimatecore.bukkit.r;
+import bammerbom.ultimatecore.bukkit.resources.utils.FileUtil;
+import bammerbom.ultimatecore.bukkit.resources.utils.StreamUtil;
+import org.bukkit.Bukkit;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * In-memory index of books.txt.
+ * <p>
+ * The file is parsed once into a map of lowercase title to book, every book keeps its raw lines for saving and its
+ * chapters with the color codes already applied. Writing a book only replaces that entry, the file is then rewritten
+ * once on a background thread through a temporary file.
+ */
+public class BookDatabase {
+    private static final Map<String, Book> books = new LinkedHashMap<>();
+    private static final List<String> preamble = new ArrayList<>();
+    private static final Object fileLock = new Object();
+    private static boolean dirty = false;
+    private static boolean saving = false;
+    //Number of the last snapshot taken, and of the last one written, so an older snapshot never replaces a newer one
+    private static long sequence = 0;
+    private static long written = 0;
+
+    public static synchronized void enable() {
+        books.clear();
+        preamble.clear();
+        dirty = false;
+        List<String> lines = FileUtil.getLines(UltimateFileLoader.Dbooks);
+        if (lines == null) {
+            return;
+        }
+        String title = null;
+        List<String> content = new ArrayList<>();
+        for (String line : lines) {
+            if (line.startsWith("#")) {
+                if (title != null) {
+                    put(title, content);
+                }
+                title = line.substring(1).toLowerCase(Locale.ENGLISH);
+                content = new ArrayList<>();
+            } else if (title != null) {
+                content.add(line);
+            } else {
+                preamble.add(line);
+            }
+        }
+        if (title != null) {
+            put(title, content);
+        }
+    }
+
+    public static void disable() {
+        List<String> lines;
+        long number;
+        synchronized (BookDatabase.class) {
+            if (!dirty) {
+                return;
+            }
+            dirty = false;
+            lines = snapshot();
+            number = ++sequence;
+        }
+        write(lines, number);
+    }
+
+    private static void put(String title, List<String> lines) {
+        //A title that is in the file twice was written again later, the last copy is the newest one
+        books.remove(title);
+        books.put(title, new Book(lines));
+    }
+
+    public static synchronized boolean exists(String title) {
+        return books.containsKey(title.toLowerCase(Locale.ENGLISH));
+    }
+
+    /**
+     * @return The chapters of the book with color codes applied, or null if there is no book with this title
+     */
+    public static synchronized List<String> getChapters(String title) {
+        Book book = books.get(title.toLowerCase(Locale.ENGLISH));
+        return book == null ? null : Collections.unmodifiableList(Arrays.asList(book.chapters));
+    }
+
+    public static synchronized int getBookCount() {
+        return books.size();
+    }
+
+    public static void setBook(String title, List<String> chapters) {
+        List<String> lines = new ArrayList<>();
+        boolean first = true;
+        for (String chapter : chapters) {
+            if (!first) {
+                lines.add("[NEXTPAGE]");
+            }
+            first = false;
+            Collections.addAll(lines, chapter.split("\n"));
+        }
+        synchronized (BookDatabase.class) {
+            put(title.toLowerCase(Locale.ENGLISH), lines);
+            dirty = true;
+            if (saving) {
+                return;
+            }
+            saving = true;
+        }
+        Bukkit.getScheduler().runTaskAsynchronously(r.getUC(), new Runnable() {
+            @Override
+            public void run() {
+                List<String> lines;
+                long number;
+                //Changes made while this task waited are written in the same rewrite
+                synchronized (BookDatabase.class) {
+                    saving = false;
+                    if (!dirty) {
+                        return;
+                    }
+                    dirty = false;
+                    lines = snapshot();
+                    number = ++sequence;
+                }
+                write(lines, number);
+            }
+        });
+    }
+
+    private static List<String> snapshot() {
+        List<String> lines = new ArrayList<>(preamble);
+        for (Map.Entry<String, Book> entry : books.entrySet()) {
+            lines.add("#" + entry.getKey());
+            lines.addAll(entry.getValue().lines);
+        }
+        return lines;
+    }
+
+    private static void write(List<String> lines, long number) {
+        synchronized (fileLock) {
+            //A later snapshot was written first, it already contains everything in this one
+            if (number <= written) {
+                return;
+            }
+            File file = UltimateFileLoader.Dbooks;
+            File temp = new File(file.getParentFile(), file.getName() + ".tmp");
+            try {
+                FileUtil.writeFile(temp, lines);
+            } catch (IOException ex) {
+                ErrorLogger.log(ex, "Failed to write books file.");
+                return;
+            }
+            try {
+                StreamUtil.replaceFile(temp, file);
+            } catch (IOException ex) {
+                ErrorLogger.log(ex, "Failed to replace " + file.getName());
+                return;
+            }
+            written = number;
+        }
+    }
+
+    private static class Book {
+
+        final List<String> lines;
+        final String[] chapters;
+
+        Book(List<String> lines) {
+            this.lines = lines;
+            List<String> rtrn = new ArrayList<>();
+            StringBuilder chapter = new StringBuilder();
+            for (String line : lines) {
+                if (line.equalsIgnoreCase("[NEXTPAGE]")) {
+                    rtrn.add(chapter.toString());
+                    chapter.setLength(0);
+                    continue;
+                }
+                if (chapter.length() != 0) {
+                    chapter.append("\n");
+                }
+                chapter.append(line.replace('&', '§').replace("§§", "&"));
+            }
+            rtrn.add(chapter.toString());
+            this.chapters = rtrn.toArray(new String[rtrn.size()]);
+        }
+    }
+}
@@ -0,0 +1,409 @@
+/*
+ * This file is part of UltimateCore, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Bammerbom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package bammerbom.ultimatecore.bukkit.resources.databases;
+
+import bammerbom.ultimatecore.bukkit.ErrorLogger;
+import bammerbom.ultimatecore.bukkit.JsonConfig;
+import bammerbom.ultimatecore.bukkit.UltimateFileLoader;
+import bammerbom.ultimatecore.bukkit.r;
+import bammerbom.ultimatecore.bukkit.resources.storage.Storage;
+import bammerbom.ultimatecore.bukkit.resources.storage.Store;
+import bammerbom.ultimatecore.bukkit.resources.utils.StreamUtil;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Server-wide index of all player homes.
+ * <p>
+ * The player files stay the source of truth, this index only mirrors them so admin queries don't have to parse every
+ * player file. It is kept in Data/homes.dat, which is rebuilt from the player files when it is missing or unreadable.
+ * <p>
+ * homes.dat is only saved every minute, so after a crash it misses the latest changes. Data/homes.clean is created
+ * after the final save on shutdown and deleted on startup, without it the index is rebuilt.
+ */
+public class HomeDatabase {
+    private static final int MAGIC = 0x55434844;
+    private static final int VERSION = 1;
+    private static final int CELL_SIZE = 128;
+    private static final Map<UUID, Map<String, Home>> owners = new HashMap<>();
+    private static final Map<String, LocationGrid<Home>> grids = new HashMap<>();
+    private static final Map<UUID, Map<String, Location>> pending = new HashMap<>();
+    private static File file;
+    private static File marker;
+    private static boolean dirty = false;
+    //Snapshots are numbered, so an older snapshot that is written late doesn't overwrite a newer one
+    private static long sequence = 0;
+    private static long written = 0;
+    private static boolean loaded = false;
+    private static Integer saveTask = null;
+
+    public static void enable() {
+        file = new File(UltimateFileLoader.datamap, "homes.dat");
+        marker = new File(UltimateFileLoader.datamap, "homes.clean");
+        owners.clear();
+        grids.clear();
+        boolean clean = marker.exists();
+        if (clean && !marker.delete()) {
+            r.log("Failed to delete " + marker.getName());
+            clean = false;
+        }
+        if (!clean || !file.exists() || !read()) {
+            rebuild();
+        } else {
+            loaded = true;
+        }
+        saveTask = Bukkit.getScheduler().scheduleSyncRepeatingTask(r.getUC(), new Runnable() {
+            @Override
+            public void run() {
+                saveAsync();
+            }
+        }, 1200L, 1200L);
+    }
+
+    public static void disable() {
+        if (saveTask != null) {
+            Bukkit.getScheduler().cancelTask(saveTask);
+            saveTask = null;
+        }
+        if (loaded && write(snapshot(), ++sequence)) {
+            try {
+                if (!marker.createNewFile()) {
+                    r.log("Failed to create " + marker.getName());
+                }
+            } catch (IOException ex) {
+                ErrorLogger.log(ex, "Failed to create " + marker.getName());
+            }
+        }
+        owners.clear();
+        grids.clear();
+        pending.clear();
+        loaded = false;
+    }
+
+    public static boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Replaces the indexed homes of a single player, called whenever the homes of a player are saved.
+     */
+    public static void setHomes(UUID owner, Map<String, Location> homes) {
+        if (!loaded) {
+            //Applied after the rebuild, the player file may have been scanned before this change
+            pending.put(owner, new HashMap<>(homes));
+            return;
+        }
+        removeOwner(owner);
+        for (String name : homes.keySet()) {
+            Location loc = homes.get(name);
+            if (loc == null || loc.getWorld() == null) {
+                continue;
+            }
+            add(new Home(owner, name.toLowerCase(Locale.ENGLISH), loc.getWorld().getName(), loc.getX(), loc.getY(), loc.getZ(), loc.getYaw(), loc.getPitch()));
+        }
+        dirty = true;
+    }
+
+    public static List<Home> getHomes(String world) {
+        LocationGrid<Home> grid = grids.get(world);
+        return grid == null ? new ArrayList<Home>() : grid.all();
+    }
+
+    public static List<Home> getHomesNear(Location loc, double radius) {
+        LocationGrid<Home> grid = grids.get(loc.getWorld().getName());
+        return grid == null ? new ArrayList<Home>() : grid.within(loc.getX(), loc.getY(), loc.getZ(), radius);
+    }
+
+    public static Map<String, Integer> countHomes() {
+        Map<String, Integer> rtrn = new TreeMap<>();
+        for (String world : grids.keySet()) {
+            rtrn.put(world, grids.get(world).size());
+        }
+        return rtrn;
+    }
+
+    public static int getOwnerCount() {
+        return owners.size();
+    }
+
+    /**
+     * Returns all homes in the given world, grouped by owner.
+     */
+    public static Map<UUID, List<String>> getHomesByOwner(String world) {
+        Map<UUID, List<String>> rtrn = new HashMap<>();
+        for (Home home : getHomes(world)) {
+            List<String> names = rtrn.get(home.owner);
+            if (names == null) {
+                names = new ArrayList<>();
+                rtrn.put(home.owner, names);
+            }
+            names.add(home.name);
+        }
+        return rtrn;
+    }
+
+    /**
+     * Rebuilds the index from all player documents. The documents are parsed in parallel, the index is swapped in on the main
+     * thread afterwards.
+     */
+    public static void rebuild() {
+        loaded = false;
+        Bukkit.getScheduler().runTaskAsynchronously(r.getUC(), new Runnable() {
+            @Override
+            public void run() {
+                final List<Home> homes = scan();
+                Bukkit.getScheduler().runTask(r.getUC(), new Runnable() {
+                    @Override
+                    public void run() {
+                        owners.clear();
+                        grids.clear();
+                        for (Home home : homes) {
+                            add(home);
+                        }
+                        loaded = true;
+                        for (UUID owner : pending.keySet()) {
+                            setHomes(owner, pending.get(owner));
+                        }
+                        pending.clear();
+                        dirty = true;
+                        saveAsync();
+                        r.log("Indexed " + homes.size() + " homes of " + owners.size() + " players.");
+                    }
+                });
+            }
+        });
+    }
+
+    private static List<Home> scan() {
+        List<String> ids = Storage.getBackend().list(Store.PLAYERS);
+        final List<Home> homes = Collections.synchronizedList(new ArrayList<Home>());
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+        List<Future<?>> futures = new ArrayList<>();
+        for (final String id : ids) {
+            futures.add(executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    UUID owner = UUID.fromString(id);
+                    JsonConfig conf = new JsonConfig(Store.PLAYERS, id);
+                    if (!conf.contains("homes")) {
+                        return;
+                    }
+                    for (String name : conf.listKeys("homes", false)) {
+                        try {
+                            homes.add(Home.parse(owner, name, conf.getString("homes." + name)));
+                        } catch (Exception ex) {
+                            //Invalid homes are removed by UPlayer when the player loads them
+                        }
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException | ExecutionException ex) {
+                ErrorLogger.log(ex, "Failed to index player homes.");
+            }
+        }
+        executor.shutdown();
+        return homes;
+    }
+
+    private static void add(Home home) {
+        Map<String, Home> homes = owners.get(home.owner);
+        if (homes == null) {
+            homes = new HashMap<>();
+            owners.put(home.owner, homes);
+        }
+        Home old = homes.put(home.name, home);
+        if (old != null) {
+            removeFromGrid(old);
+        }
+        LocationGrid<Home> grid = grids.get(home.world);
+        if (grid == null) {
+            grid = new LocationGrid<>(CELL_SIZE);
+            grids.put(home.world, grid);
+        }
+        grid.add(home);
+    }
+
+    private static void removeOwner(UUID owner) {
+        Map<String, Home> homes = owners.remove(owner);
+        if (homes == null) {
+            return;
+        }
+        for (Home home : homes.values()) {
+            removeFromGrid(home);
+        }
+    }
+
+    private static void removeFromGrid(Home home) {
+        LocationGrid<Home> grid = grids.get(home.world);
+        grid.remove(home);
+        if (grid.isEmpty()) {
+            grids.remove(home.world);
+        }
+    }
+
+    private static List<Home> snapshot() {
+        List<Home> rtrn = new ArrayList<>();
+        for (Map<String, Home> homes : owners.values()) {
+            rtrn.addAll(homes.values());
+        }
+        return rtrn;
+    }
+
+    /**
+     * Writes the home index on a background thread if it changed.
+     */
+    public static void saveAsync() {
+        if (!loaded || !dirty) {
+            return;
+        }
+        dirty = false;
+        final List<Home> homes = snapshot();
+        final long number = ++sequence;
+        Bukkit.getScheduler().runTaskAsynchronously(r.getUC(), new Runnable() {
+            @Override
+            public void run() {
+                write(homes, number);
+            }
+        });
+    }
+
+    private static synchronized boolean write(List<Home> homes, long number) {
+        if (number <= written) {
+            return false;
+        }
+        File temp = new File(file.getParentFile(), file.getName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(StreamUtil.createOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(homes.size());
+            for (Home home : homes) {
+                StreamUtil.writeUUID(out, home.owner);
+                out.writeUTF(home.name);
+                out.writeUTF(home.world);
+                out.writeDouble(home.x);
+                out.writeDouble(home.y);
+                out.writeDouble(home.z);
+                out.writeFloat(home.yaw);
+                out.writeFloat(home.pitch);
+            }
+        } catch (IOException ex) {
+            ErrorLogger.log(ex, "Failed to save home index.");
+            return false;
+        }
+        try {
+            StreamUtil.replaceFile(temp, file);
+        } catch (IOException ex) {
+            ErrorLogger.log(ex, "Failed to replace " + file.getName());
+            return false;
+        }
+        written = number;
+        return true;
+    }
+
+    private static boolean read() {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return false;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                add(new Home(StreamUtil.readUUID(in), in.readUTF(), in.readUTF(), in.readDouble(), in.readDouble(), in.readDouble(), in.readFloat(), in.readFloat()));
+            }
+            return true;
+        } catch (IOException ex) {
+            r.log("Home index is corrupt, rebuilding it from the player files...");
+            owners.clear();
+            grids.clear();
+            return false;
+        }
+    }
+
+    public static class Home implements LocationGrid.Point {
+
+        final UUID owner;
+        final String name;
+        final String world;
+        final double x;
+        final double y;
+        final double z;
+        final float yaw;
+        final float pitch;
+
+        Home(UUID owner, String name, String world, double x, double y, double z, float yaw, float pitch) {
+            this.owner = owner;
+            this.name = name;
+            this.world = world;
+            this.x = x;
+            this.y = y;
+            this.z = z;
+            this.yaw = yaw;
+            this.pitch = pitch;
+        }
+
+        static Home parse(UUID owner, String name, String data) {
+            String[] split = data.contains(",") ? data.split(",") : data.split("\\|");
+            return new Home(owner, name.toLowerCase(Locale.ENGLISH), split[0], Double.parseDouble(split[1]), Double.parseDouble(split[2]), Double.parseDouble(split[3]), Float
+                    .parseFloat(split[5]), Float.parseFloat(split[4]));
+        }
+
+        public UUID getOwner() {
+            return owner;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getWorld() {
+            return world;
+        }
+
+        @Override
+        public double getX() {
+            return x;
+        }
+
+        @Override
+        public double getY() {
+            return y;
+        }
+
+        @Override
+        public double getZ() {
+            return z;
+        }
+
+        public Location getLocation() {
+            return new Location(Bukkit.getWorld(world), x, y, z, yaw, pitch);
+        }
+    }
+}
@@ -25,8 +25,10 @@ package bammerbom.ultimatecore.bukkit.resources.databases;
 
 import bammerbom.ultimatecore.bukkit.ErrorLogger;
 import bammerbom.ultimatecore.bukkit.UltimateCore;
+import bammerbom.ultimatecore.bukkit.UltimateFileLoader;
 import bammerbom.ultimatecore.bukkit.r;
 import bammerbom.ultimatecore.bukkit.resources.utils.ItemUtil;
+import bammerbom.ultimatecore.bukkit.resources.utils.StreamUtil;
 import org.bukkit.Bukkit;
 import org.bukkit.Material;
 import org.bukkit.inventory.ItemStack;
@@ -34,6 +36,11 @@ import org.bukkit.plugin.Plugin;
 
 import java.io.*;
 import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
 import java.security.DigestInputStream;
 import java.security.DigestOutputStream;
 import java.security.MessageDigest;
@@ -41,82 +48,100 @@ import java.security.NoSuchAlgorithmException;
 import java.util.*;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-
+import java.util.zip.CRC32;
+
+/**
+ * Item names and aliases from Data/items.csv.
+ * <p>
+ * The csv is parsed once into Data/items.dat, a binary index of the aliases with the alias lists already sorted. The index
+ * is keyed by the checksum of the csv in the plugin jar, so it is rebuilt when an update changes the csv, and later starts
+ * map it into memory instead of parsing the csv again. The tree for "did you mean" suggestions is only built when it is
+ * first needed.
+ */
 public class ItemDatabase {
-    private final transient static Map<String, String> items = new HashMap<>();
-    private final transient static Map<ItemData, List<String>> names = new HashMap<>();
-    private final transient static Map<String, Short> durabilities = new HashMap<>();
+    private static final Pattern DATA_PATTERN = Pattern.compile("((.*)[:+',;.](\\d+))");
+    private static final int CACHE_SIZE = 512;
+    private static final int MAGIC = 0x55434944;
+    private static final int VERSION = 1;
+    private static volatile Map<String, String> items = new HashMap<>();
+    private static volatile Map<ItemData, List<String>> names = new HashMap<>();
+    private static volatile Map<String, Short> durabilities = new HashMap<>();
+    private final transient static Map<String, ResolvedItem> cache = new LinkedHashMap<String, ResolvedItem>(CACHE_SIZE, 0.75F, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, ResolvedItem> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+    private static BKTree aliases = null;
     private static UltimateCore plugin;
 
     public static void disable() {
-        items.clear();
-        names.clear();
-        durabilities.clear();
+        items = new HashMap<>();
+        names = new HashMap<>();
+        durabilities = new HashMap<>();
+        clearCache();
+        synchronized (ItemDatabase.class) {
+            aliases = null;
+        }
         plugin = null;
     }
 
+    public static void clearCache() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
     public static void enable() {
         plugin = r.getUC();
-        InputStream resource = plugin.getResource("Data/items.csv");
-        BufferedReader re = new BufferedReader(new InputStreamReader(resource));
-        ArrayList<String> lines = new ArrayList<>();
-        String lineC;
-        try {
-            while ((lineC = re.readLine()) != null) {
-                lines.add(lineC);
-            }
-        } catch (IOException e) {
-            ErrorLogger.log(e, "Failed to load item database.");
-        }
-        try {
-            re.close();
+        byte[] csv;
+        try (InputStream in = plugin.getResource("Data/items.csv")) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(256 * 1024);
+            UltimateFileLoader.copy(in, out);
+            csv = out.toByteArray();
         } catch (IOException ex) {
-            ex.printStackTrace();
-        }
-        durabilities.clear();
-        items.clear();
-        names.clear();
-        for (String line : lines) {
-            line = line.trim().toLowerCase(Locale.ENGLISH);
-            if ((line.length() <= 0) || (line.charAt(0) != '#')) {
-                String[] parts = line.split(",");
-                if (parts.length >= 2) {
-                    String id = parts[1];
-                    short data = (parts.length > 2) && (!parts[2].equals("0")) ? Short.parseShort(parts[2]) : 0;
-                    String itemName = parts[0].toLowerCase(Locale.ENGLISH);
-
-                    durabilities.put(itemName, data);
-                    items.put(itemName, id);
-                    if (itemName.contains("_")) {
-                        items.put(itemName.replace("_", ""), id);
-                    }
+            ErrorLogger.log(ex, "Failed to load item database.");
+            return;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(csv);
+        File file = new File(UltimateFileLoader.datamap, "items.dat");
+        ItemIndex index = null;
+        if (file.exists()) {
+            index = ItemIndex.read(file, MAGIC, VERSION, crc.getValue());
+        }
+        if (index == null) {
+            index = ItemIndex.parse(csv);
+            index.write(file, MAGIC, VERSION, crc.getValue());
+        }
+        durabilities = index.durabilities;
+        names = index.names;
+        items = index.items;
+        synchronized (ItemDatabase.class) {
+            aliases = null;
+        }
+        clearCache();
+    }
 
-                    ItemData itemData = new ItemData(id, data);
-                    if (names.containsKey(itemData)) {
-                        List<String> nameList = names.get(itemData);
-                        nameList.add(itemName);
-                        if (itemName.contains("_")) {
-                            nameList.add(itemName.replace("_", ""));
-                        }
-                        Collections.sort(nameList, new LengthCompare());
-                    } else {
-                        List<String> nameList = new ArrayList<>();
-                        nameList.add(itemName);
-                        names.put(itemData, nameList);
-                    }
-                } else {
-                    r.log("Invalid item in items.csv: " + line);
-                }
+    private static synchronized BKTree getAliases() {
+        if (aliases == null) {
+            BKTree tree = new BKTree();
+            for (String alias : items.keySet()) {
+                tree.add(alias);
             }
+            aliases = tree;
         }
+        return aliases;
     }
 
     @SuppressWarnings("deprecation")
-	private static ItemStack get(String id) {
+    private static ResolvedItem get(String id) {
+        Map<String, String> items = ItemDatabase.items;
+        Map<String, Short> durabilities = ItemDatabase.durabilities;
         String itemid;
         String itemname;
         short metaData = 0;
-        Matcher parts = Pattern.compile("((.*)[:+',;.](\\d+))").matcher(id);
+        Matcher parts = DATA_PATTERN.matcher(id);
         if (parts.matches()) {
             itemname = parts.group(2);
             metaData = Short.parseShort(parts.group(3));
@@ -137,35 +162,368 @@ public class ItemDatabase {
                 Material bMaterial = Bukkit.getUnsafe().getMaterialFromInternalName(itemname.toLowerCase(Locale.ENGLISH));
                 itemid = ItemUtil.getID(bMaterial);
             } catch (Throwable throwable) {
-                return null;
+                return ResolvedItem.MISS;
             }
         }
-        if (itemid.equals("minecraft:air")) {
-            return null;
+        if (itemid == null || itemid.equals("minecraft:air")) {
+            return ResolvedItem.MISS;
         }
         Material mat = ItemUtil.getMaterialFromId(itemid);
         if (mat == null) {
-            return null;
+            return ResolvedItem.MISS;
         }
-        ItemStack retval = new ItemStack(mat);
-        retval.setAmount(mat.getMaxStackSize());
-        retval.setDurability(metaData);
-        return retval;
+        return new ResolvedItem(mat, metaData, true);
     }
 
-    public static ItemStack getItem(String str) {
+    private static ResolvedItem resolve(String str) {
         if (str.contains(":") && !r.isInt(str.split(":")[1])) {
             str = str.split(":")[1];
         }
 
         if (Material.matchMaterial(str) != null) {
-            Material mat = Material.matchMaterial(str);
-            ItemStack stack = new ItemStack(mat);
-            return stack;
+            return new ResolvedItem(Material.matchMaterial(str), (short) 0, false);
         }
         return get(str);
     }
 
+    public static ItemStack getItem(String str) {
+        String key = str.toLowerCase(Locale.ENGLISH);
+        ResolvedItem item;
+        synchronized (cache) {
+            item = cache.get(key);
+        }
+        if (item == null) {
+            item = resolve(str);
+            synchronized (cache) {
+                cache.put(key, item);
+            }
+        }
+        return item.toItemStack();
+    }
+
+    /**
+     * Returns the known item aliases closest to the given name, for "did you mean" messages.
+     */
+    public static List<String> getSuggestions(String str) {
+        String name = str.toLowerCase(Locale.ENGLISH);
+        Matcher parts = DATA_PATTERN.matcher(name);
+        if (parts.matches()) {
+            name = parts.group(2);
+        }
+        return getAliases().search(name, name.length() <= 4 ? 1 : 2, 3);
+    }
+
+}
+
+class ResolvedItem {
+
+    static final ResolvedItem MISS = new ResolvedItem(null, (short) 0, false);
+    private final Material material;
+    private final short durability;
+    private final boolean fullStack;
+
+    ResolvedItem(Material material, short durability, boolean fullStack) {
+        this.material = material;
+        this.durability = durability;
+        this.fullStack = fullStack;
+    }
+
+    ItemStack toItemStack() {
+        if (material == null) {
+            return null;
+        }
+        ItemStack stack = new ItemStack(material);
+        if (fullStack) {
+            stack.setAmount(material.getMaxStackSize());
+            stack.setDurability(durability);
+        }
+        return stack;
+    }
+}
+
+/**
+ * The three lookup maps of the item database, parsed from items.csv or read back from items.dat.
+ * <p>
+ * Layout of items.dat, after the magic, version and csv checksum: the distinct item ids, then every alias with the index of
+ * its id and its data value (or -1 without one), then the names of every id and data value pair, sorted shortest first.
+ * Strings are an unsigned short length followed by utf-8 bytes.
+ */
+class ItemIndex {
+
+    final Map<String, String> items;
+    final Map<ItemData, List<String>> names;
+    final Map<String, Short> durabilities;
+
+    private ItemIndex(int aliases, int groups) {
+        items = new HashMap<>((aliases * 4 / 3) + 1);
+        names = new HashMap<>((groups * 4 / 3) + 1);
+        durabilities = new HashMap<>((aliases * 4 / 3) + 1);
+    }
+
+    static ItemIndex parse(byte[] csv) {
+        ItemIndex index = new ItemIndex(16384, 2048);
+        //One instance per id instead of one per line
+        Map<String, String> ids = new HashMap<>();
+        try (BufferedReader re = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(csv), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = re.readLine()) != null) {
+                line = line.trim().toLowerCase(Locale.ENGLISH);
+                if ((line.length() > 0) && (line.charAt(0) == '#')) {
+                    continue;
+                }
+                String[] parts = line.split(",");
+                if (parts.length < 2) {
+                    r.log("Invalid item in items.csv: " + line);
+                    continue;
+                }
+                String id = ids.get(parts[1]);
+                if (id == null) {
+                    id = parts[1];
+                    ids.put(id, id);
+                }
+                short data = (parts.length > 2) && (!parts[2].equals("0")) ? Short.parseShort(parts[2]) : 0;
+                String itemName = parts[0];
+
+                index.durabilities.put(itemName, data);
+                index.items.put(itemName, id);
+                if (itemName.contains("_")) {
+                    index.items.put(itemName.replace("_", ""), id);
+                }
+
+                ItemData itemData = new ItemData(id, data);
+                List<String> nameList = index.names.get(itemData);
+                if (nameList != null) {
+                    nameList.add(itemName);
+                    if (itemName.contains("_")) {
+                        nameList.add(itemName.replace("_", ""));
+                    }
+                } else {
+                    nameList = new ArrayList<>(2);
+                    nameList.add(itemName);
+                    index.names.put(itemData, nameList);
+                }
+            }
+        } catch (IOException ex) {
+            ErrorLogger.log(ex, "Failed to load item database.");
+        }
+        //Sorted once here instead of on every added name, the sort is stable so the result is the same
+        LengthCompare compare = new LengthCompare();
+        for (List<String> nameList : index.names.values()) {
+            Collections.sort(nameList, compare);
+        }
+        return index;
+    }
+
+    /**
+     * @return The index in the file, or null if the file is for another csv or unreadable
+     */
+    static ItemIndex read(File file, int magic, int version, long checksum) {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            //Check the header before mapping, a mapped file can't be replaced on some platforms
+            ByteBuffer header = ByteBuffer.allocate(16);
+            while (header.hasRemaining()) {
+                if (channel.read(header) < 0) {
+                    return null;
+                }
+            }
+            header.flip();
+            if (header.getInt() != magic || header.getInt() != version || header.getLong() != checksum) {
+                return null;
+            }
+            ByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 16, channel.size() - 16);
+            String[] ids = new String[buf.getInt()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = readString(buf);
+            }
+            int aliases = buf.getInt();
+            ItemIndex index = new ItemIndex(aliases, aliases / 4);
+            for (int i = 0; i < aliases; i++) {
+                String alias = readString(buf);
+                index.items.put(alias, ids[buf.getInt()]);
+                int data = buf.getInt();
+                if (data >= 0) {
+                    index.durabilities.put(alias, (short) data);
+                }
+            }
+            int groups = buf.getInt();
+            for (int i = 0; i < groups; i++) {
+                ItemData itemData = new ItemData(ids[buf.getInt()], buf.getShort());
+                String[] nameList = new String[buf.getShort() & 0xFFFF];
+                for (int j = 0; j < nameList.length; j++) {
+                    nameList[j] = readString(buf);
+                }
+                index.names.put(itemData, new ArrayList<>(Arrays.asList(nameList)));
+            }
+            return index;
+        } catch (IOException | BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException ex) {
+            r.log("Item index is corrupt, rebuilding it from items.csv...");
+            return null;
+        }
+    }
+
+    void write(File file, int magic, int version, long checksum) {
+        Map<String, Integer> ids = new LinkedHashMap<>();
+        for (String id : items.values()) {
+            if (!ids.containsKey(id)) {
+                ids.put(id, ids.size());
+            }
+        }
+        //An alias can be taken over by a later line, so not every id of the names is in the aliases
+        for (ItemData itemData : names.keySet()) {
+            if (!ids.containsKey(itemData.getItemId())) {
+                ids.put(itemData.getItemId(), ids.size());
+            }
+        }
+        File temp = new File(file.getParentFile(), file.getName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(StreamUtil.createOutputStream(temp)))) {
+            out.writeInt(magic);
+            out.writeInt(version);
+            out.writeLong(checksum);
+            out.writeInt(ids.size());
+            for (String id : ids.keySet()) {
+                writeString(out, id);
+            }
+            out.writeInt(items.size());
+            for (Map.Entry<String, String> entry : items.entrySet()) {
+                writeString(out, entry.getKey());
+                out.writeInt(ids.get(entry.getValue()));
+                Short data = durabilities.get(entry.getKey());
+                out.writeInt(data == null ? -1 : data & 0xFFFF);
+            }
+            out.writeInt(names.size());
+            for (Map.Entry<ItemData, List<String>> entry : names.entrySet()) {
+                out.writeInt(ids.get(entry.getKey().getItemId()));
+                out.writeShort(entry.getKey().getItemData());
+                out.writeShort(entry.getValue().size());
+                for (String name : entry.getValue()) {
+                    writeString(out, name);
+                }
+            }
+        } catch (IOException ex) {
+            ErrorLogger.log(ex, "Failed to save the item index.");
+            return;
+        }
+        try {
+            StreamUtil.replaceFile(temp, file);
+        } catch (IOException ex) {
+            ErrorLogger.log(ex, "Failed to replace " + file.getName());
+        }
+    }
+
+    private static String readString(ByteBuffer buf) {
+        byte[] bytes = new byte[buf.getShort() & 0xFFFF];
+        buf.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeString(DataOutputStream out, String str) throws IOException {
+        byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+}
+
+/**
+ * Burkhard-Keller tree over the item aliases, so typos can be matched without comparing against every alias.
+ */
+class BKTree {
+
+    private Node root = null;
+
+    private static int distance(String a, String b, int[] prev, int[] cur) {
+        for (int j = 0; j <= b.length(); j++) {
+            prev[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            cur[0] = i;
+            char ca = a.charAt(i - 1);
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = ca == b.charAt(j - 1) ? 0 : 1;
+                cur[j] = Math.min(Math.min(cur[j - 1] + 1, prev[j] + 1), prev[j - 1] + cost);
+            }
+            int[] swap = prev;
+            prev = cur;
+            cur = swap;
+        }
+        return prev[b.length()];
+    }
+
+    private static int distance(String a, String b) {
+        return distance(a, b, new int[b.length() + 1], new int[b.length() + 1]);
+    }
+
+    void add(String word) {
+        if (root == null) {
+            root = new Node(word);
+            return;
+        }
+        Node node = root;
+        while (true) {
+            int dist = distance(word, node.word);
+            if (dist == 0) {
+                return;
+            }
+            Node child = node.children.get(dist);
+            if (child == null) {
+                node.children.put(dist, new Node(word));
+                return;
+            }
+            node = child;
+        }
+    }
+
+    List<String> search(String word, int maxDistance, int limit) {
+        final TreeMap<Integer, List<String>> found = new TreeMap<>();
+        if (root == null) {
+            return new ArrayList<>();
+        }
+        int[] prev = new int[64];
+        int[] cur = new int[64];
+        Deque<Node> todo = new ArrayDeque<>();
+        todo.push(root);
+        while (!todo.isEmpty()) {
+            Node node = todo.pop();
+            if (node.word.length() + 1 > prev.length) {
+                prev = new int[node.word.length() + 1];
+                cur = new int[node.word.length() + 1];
+            }
+            int dist = distance(word, node.word, prev, cur);
+            if (dist <= maxDistance) {
+                List<String> list = found.get(dist);
+                if (list == null) {
+                    list = new ArrayList<>();
+                    found.put(dist, list);
+                }
+                list.add(node.word);
+            }
+            for (Map.Entry<Integer, Node> child : node.children.entrySet()) {
+                if (Math.abs(child.getKey() - dist) <= maxDistance) {
+                    todo.push(child.getValue());
+                }
+            }
+        }
+        List<String> rtrn = new ArrayList<>();
+        for (List<String> list : found.values()) {
+            Collections.sort(list);
+            for (String s : list) {
+                if (rtrn.size() >= limit) {
+                    return rtrn;
+                }
+                rtrn.add(s);
+            }
+        }
+        return rtrn;
+    }
+
+    private static class Node {
+
+        final String word;
+        final Map<Integer, Node> children = new HashMap<>(4);
+
+        Node(String word) {
+            this.word = word;
+        }
+    }
 }
 
 class ManagedFile {
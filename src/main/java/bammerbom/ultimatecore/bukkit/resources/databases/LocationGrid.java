@@ -0,0 +1,215 @@
+/*
+ * This file is part of UltimateCore, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Bammerbom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package bammerbom.ultimatecore.bukkit.resources.databases;
+
+import java.util.*;
+
+/**
+ * Spatial index of points in a single world, bucketed into square cells on the x/z plane.
+ */
+class LocationGrid<T extends LocationGrid.Point> {
+
+    private final int cellSize;
+    private final Map<Long, List<T>> cells = new HashMap<>();
+    private int size = 0;
+
+    LocationGrid(int cellSize) {
+        this.cellSize = cellSize;
+    }
+
+    private static long key(int cx, int cz) {
+        return ((long) cx << 32) | (cz & 0xFFFFFFFFL);
+    }
+
+    private static double distanceSquared(Point point, double x, double y, double z) {
+        double dx = point.getX() - x;
+        double dy = point.getY() - y;
+        double dz = point.getZ() - z;
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    private int cell(double coord) {
+        return (int) Math.floor(coord / cellSize);
+    }
+
+    void add(T point) {
+        long key = key(cell(point.getX()), cell(point.getZ()));
+        List<T> list = cells.get(key);
+        if (list == null) {
+            list = new ArrayList<>(2);
+            cells.put(key, list);
+        }
+        list.add(point);
+        size++;
+    }
+
+    boolean remove(T point) {
+        long key = key(cell(point.getX()), cell(point.getZ()));
+        List<T> list = cells.get(key);
+        if (list == null || !list.remove(point)) {
+            return false;
+        }
+        size--;
+        if (list.isEmpty()) {
+            cells.remove(key);
+        }
+        return true;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    List<T> all() {
+        List<T> rtrn = new ArrayList<>(size);
+        for (List<T> list : cells.values()) {
+            rtrn.addAll(list);
+        }
+        return rtrn;
+    }
+
+    /**
+     * Returns the point closest to the given coordinates, searching the cells ring by ring around it.
+     */
+    T nearest(double x, double y, double z) {
+        int cx = cell(x);
+        int cz = cell(z);
+        Nearest<T> nearest = new Nearest<>(x, y, z);
+        for (int ring = 0; ; ring++) {
+            long side = 2L * ring + 1;
+            if (side * side > cells.size()) {
+                //The ring encloses more cells than there are, checking every cell is cheaper
+                nearest = new Nearest<>(x, y, z);
+                for (List<T> list : cells.values()) {
+                    nearest.check(list);
+                }
+                return nearest.best;
+            }
+            if (ring == 0) {
+                nearest.check(cells.get(key(cx, cz)));
+            } else {
+                for (int d = -ring; d <= ring; d++) {
+                    nearest.check(cells.get(key(cx + d, cz - ring)));
+                    nearest.check(cells.get(key(cx + d, cz + ring)));
+                }
+                for (int d = -ring + 1; d < ring; d++) {
+                    nearest.check(cells.get(key(cx - ring, cz + d)));
+                    nearest.check(cells.get(key(cx + ring, cz + d)));
+                }
+            }
+            //Every point in a further ring is at least ring * cellSize blocks away
+            double reach = (double) ring * cellSize;
+            if (nearest.best != null && nearest.bestDist <= reach * reach) {
+                return nearest.best;
+            }
+        }
+    }
+
+    /**
+     * Returns all points within the given radius of the coordinates, sorted by distance.
+     */
+    List<T> within(final double x, final double y, final double z, double radius) {
+        final double radiusSq = radius * radius;
+        List<T> found = new ArrayList<>();
+        int minX = cell(x - radius);
+        int maxX = cell(x + radius);
+        int minZ = cell(z - radius);
+        int maxZ = cell(z + radius);
+        long spanX = (long) maxX - minX + 1;
+        long spanZ = (long) maxZ - minZ + 1;
+        //Each side is checked first, two saturated sides would overflow the product
+        if (spanX > cells.size() || spanZ > cells.size() || spanX * spanZ > cells.size()) {
+            for (List<T> list : cells.values()) {
+                for (T point : list) {
+                    if (distanceSquared(point, x, y, z) <= radiusSq) {
+                        found.add(point);
+                    }
+                }
+            }
+        } else {
+            //Counted in long so a range ending at Integer.MAX_VALUE still ends
+            for (long cx = minX; cx <= maxX; cx++) {
+                for (long cz = minZ; cz <= maxZ; cz++) {
+                    List<T> list = cells.get(key((int) cx, (int) cz));
+                    if (list == null) {
+                        continue;
+                    }
+                    for (T point : list) {
+                        if (distanceSquared(point, x, y, z) <= radiusSq) {
+                            found.add(point);
+                        }
+                    }
+                }
+            }
+        }
+        Collections.sort(found, new Comparator<T>() {
+            @Override
+            public int compare(T p1, T p2) {
+                return Double.compare(distanceSquared(p1, x, y, z), distanceSquared(p2, x, y, z));
+            }
+        });
+        return found;
+    }
+
+    interface Point {
+
+        double getX();
+
+        double getY();
+
+        double getZ();
+    }
+
+    private static class Nearest<T extends Point> {
+
+        private final double x;
+        private final double y;
+        private final double z;
+        private T best = null;
+        private double bestDist = Double.MAX_VALUE;
+
+        Nearest(double x, double y, double z) {
+            this.x = x;
+            this.y = y;
+            this.z = z;
+        }
+
+        void check(List<T> list) {
+            if (list == null) {
+                return;
+            }
+            for (T point : list) {
+                double dist = distanceSquared(point, x, y, z);
+                if (dist < bestDist) {
+                    bestDist = dist;
+                    best = point;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,383 @@
+/*
+ * This file is part of UltimateCore, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Bammerbom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package bammerbom.ultimatecore.bukkit.resources.databases;
+
+import bammerbom.ultimatecore.bukkit.ErrorLogger;
+import bammerbom.ultimatecore.bukkit.JsonConfig;
+import bammerbom.ultimatecore.bukkit.UltimateFileLoader;
+import bammerbom.ultimatecore.bukkit.r;
+import bammerbom.ultimatecore.bukkit.resources.storage.Storage;
+import bammerbom.ultimatecore.bukkit.resources.storage.Store;
+import bammerbom.ultimatecore.bukkit.resources.utils.StreamUtil;
+import bammerbom.ultimatecore.bukkit.resources.utils.UuidUtil;
+import org.bukkit.Bukkit;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Directory of the names and uuids of all players that have been on the server.
+ * <p>
+ * Names are looked up case-insensitively in memory. The directory is kept in Data/names.dat, an append-only file of
+ * uuid/name records where a later record replaces an earlier one for the same uuid. It is rebuilt from the name in the
+ * player files when it is missing or unreadable, and compacted when it holds many replaced records.
+ * <p>
+ * Names that are not in the directory are resolved by the {@link Resolver}, which asks Mojang by default. This never happens
+ * on the main thread, a lookup on the main thread only queues the name and answers with the offline mode uuid.
+ */
+public class NameDatabase {
+    private static final int MAGIC = 0x5543504E;
+    private static final int VERSION = 1;
+    private static final ConcurrentMap<String, UUID> uuids = new ConcurrentHashMap<>();
+    private static final Map<UUID, String> names = new ConcurrentHashMap<>();
+    private static final Set<String> resolving = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    //Records that still have to be appended to the file
+    private static final List<UUID> appends = new ArrayList<>();
+    private static Resolver resolver = new MojangResolver();
+    private static File file;
+    private static int records = 0;
+    private static boolean truncated = false;
+    private static volatile boolean loaded = false;
+    private static Integer saveTask = null;
+
+    public static void enable() {
+        file = new File(UltimateFileLoader.datamap, "names.dat");
+        uuids.clear();
+        names.clear();
+        if (!file.exists() || !read()) {
+            rebuild();
+        } else {
+            loaded = true;
+            //Most records are replaced or the last one was cut off, rewrite the file
+            if (truncated || records > (names.size() * 2) + 64) {
+                saveAsync(true);
+            }
+        }
+        saveTask = Bukkit.getScheduler().scheduleSyncRepeatingTask(r.getUC(), new Runnable() {
+            @Override
+            public void run() {
+                saveAsync(false);
+            }
+        }, 1200L, 1200L);
+    }
+
+    public static void disable() {
+        if (saveTask != null) {
+            Bukkit.getScheduler().cancelTask(saveTask);
+            saveTask = null;
+        }
+        if (loaded) {
+            append();
+        }
+        uuids.clear();
+        names.clear();
+        resolving.clear();
+        loaded = false;
+    }
+
+    public static boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Replaces the resolver for names that are not in the directory, for example with a local stub.
+     */
+    public static void setResolver(Resolver resolver) {
+        NameDatabase.resolver = resolver;
+    }
+
+    /**
+     * Records the current name of a player, called when a player joins or changed name.
+     */
+    public static void setName(UUID uuid, String name) {
+        if (uuid == null || name == null) {
+            return;
+        }
+        String old = names.put(uuid, name);
+        if (name.equals(old)) {
+            return;
+        }
+        if (old != null) {
+            uuids.remove(old.toLowerCase(Locale.ENGLISH), uuid);
+        }
+        uuids.put(name.toLowerCase(Locale.ENGLISH), uuid);
+        synchronized (appends) {
+            appends.add(uuid);
+        }
+    }
+
+    /**
+     * @return The uuid of the player with this name, or null if the name is not in the directory
+     */
+    public static UUID getUUID(String name) {
+        return uuids.get(name.toLowerCase(Locale.ENGLISH));
+    }
+
+    /**
+     * @return The last known name of the player, or null if the player is not in the directory
+     */
+    public static String getName(UUID uuid) {
+        return names.get(uuid);
+    }
+
+    /**
+     * Finds the uuid of a name that is not in the directory.
+     * <p>
+     * Off the main thread the resolver is asked directly. On the main thread the name is resolved in the background, and
+     * the offline mode uuid is returned for now. Servers in offline mode only use offline mode uuids, so there the
+     * resolver is never asked.
+     */
+    public static UUID resolve(final String name) {
+        UUID uuid = getUUID(name);
+        if (uuid != null) {
+            return uuid;
+        }
+        if (!Bukkit.getOnlineMode()) {
+            return getOfflineUUID(name);
+        }
+        if (!Bukkit.isPrimaryThread()) {
+            uuid = lookup(name);
+        } else if (resolving.add(name.toLowerCase(Locale.ENGLISH))) {
+            Bukkit.getScheduler().runTaskAsynchronously(r.getUC(), new Runnable() {
+                @Override
+                public void run() {
+                    lookup(name);
+                    resolving.remove(name.toLowerCase(Locale.ENGLISH));
+                }
+            });
+        }
+        return uuid == null ? getOfflineUUID(name) : uuid;
+    }
+
+    private static UUID lookup(String name) {
+        try {
+            Map.Entry<String, UUID> profile = resolver.resolve(name);
+            if (profile != null) {
+                setName(profile.getValue(), profile.getKey());
+                return profile.getValue();
+            }
+        } catch (Exception ex) {
+            r.debug("Failed to resolve the uuid of " + name + ": " + ex.getMessage());
+        }
+        return null;
+    }
+
+    public static UUID getOfflineUUID(String name) {
+        return UUID.nameUUIDFromBytes(("OfflinePlayer:" + name).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static int getCount() {
+        return names.size();
+    }
+
+    public static int getResolvingCount() {
+        return resolving.size();
+    }
+
+    /**
+     * Rebuilds the directory from the names in the player files. The files are read in the background, names that were
+     * set in the meantime are kept.
+     */
+    public static void rebuild() {
+        loaded = false;
+        Bukkit.getScheduler().runTaskAsynchronously(r.getUC(), new Runnable() {
+            @Override
+            public void run() {
+                final Map<UUID, String> scanned = scan();
+                Bukkit.getScheduler().runTask(r.getUC(), new Runnable() {
+                    @Override
+                    public void run() {
+                        for (Map.Entry<UUID, String> entry : scanned.entrySet()) {
+                            if (!names.containsKey(entry.getKey())) {
+                                setName(entry.getKey(), entry.getValue());
+                            }
+                        }
+                        loaded = true;
+                        saveAsync(true);
+                        r.log("Indexed the names of " + names.size() + " players.");
+                    }
+                });
+            }
+        });
+    }
+
+    private static Map<UUID, String> scan() {
+        Map<UUID, String> rtrn = new HashMap<>();
+        for (String id : Storage.getBackend().list(Store.PLAYERS)) {
+            try {
+                JsonConfig conf = new JsonConfig(Store.PLAYERS, id);
+                if (conf.contains("name")) {
+                    rtrn.put(UUID.fromString(id), conf.getString("name"));
+                }
+            } catch (Exception ex) {
+                ErrorLogger.log(ex, "Failed to read the name of player " + id);
+            }
+        }
+        return rtrn;
+    }
+
+    /**
+     * Writes the new records on a background thread, or the whole directory when compacting.
+     */
+    public static void saveAsync(final boolean compact) {
+        if (!loaded) {
+            return;
+        }
+        synchronized (appends) {
+            if (!compact && appends.isEmpty()) {
+                return;
+            }
+        }
+        Bukkit.getScheduler().runTaskAsynchronously(r.getUC(), new Runnable() {
+            @Override
+            public void run() {
+                if (compact) {
+                    write();
+                } else {
+                    append();
+                }
+            }
+        });
+    }
+
+    private static synchronized void append() {
+        List<UUID> pending;
+        synchronized (appends) {
+            if (appends.isEmpty()) {
+                return;
+            }
+            pending = new ArrayList<>(appends);
+            appends.clear();
+        }
+        boolean header = !file.exists() || file.length() == 0;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(StreamUtil.createOutputStream(file, true)))) {
+            if (header) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+            }
+            for (UUID uuid : pending) {
+                String name = names.get(uuid);
+                if (name != null) {
+                    StreamUtil.writeUUID(out, uuid);
+                    out.writeUTF(name);
+                    records++;
+                }
+            }
+        } catch (IOException ex) {
+            ErrorLogger.log(ex, "Failed to save the player directory.");
+        }
+    }
+
+    private static synchronized void write() {
+        synchronized (appends) {
+            //Everything that is queued is in the snapshot below
+            appends.clear();
+        }
+        Map<UUID, String> snapshot = new HashMap<>(names);
+        File temp = new File(file.getParentFile(), file.getName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(StreamUtil.createOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            for (Map.Entry<UUID, String> entry : snapshot.entrySet()) {
+                StreamUtil.writeUUID(out, entry.getKey());
+                out.writeUTF(entry.getValue());
+            }
+        } catch (IOException ex) {
+            ErrorLogger.log(ex, "Failed to save the player directory.");
+            return;
+        }
+        try {
+            StreamUtil.replaceFile(temp, file);
+            records = snapshot.size();
+        } catch (IOException ex) {
+            ErrorLogger.log(ex, "Failed to replace " + file.getName());
+        }
+    }
+
+    private static synchronized boolean read() {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return false;
+            }
+            records = 0;
+            truncated = false;
+            while (true) {
+                in.mark(1);
+                if (in.read() == -1) {
+                    break;
+                }
+                in.reset();
+                UUID uuid;
+                String name;
+                try {
+                    uuid = StreamUtil.readUUID(in);
+                    name = in.readUTF();
+                } catch (EOFException ex) {
+                    //A record that was cut off by a crash, new records can't be appended after it
+                    truncated = true;
+                    break;
+                }
+                String old = names.put(uuid, name);
+                if (old != null) {
+                    uuids.remove(old.toLowerCase(Locale.ENGLISH), uuid);
+                }
+                uuids.put(name.toLowerCase(Locale.ENGLISH), uuid);
+                records++;
+            }
+            return true;
+        } catch (IOException ex) {
+            r.log("Player directory is corrupt, rebuilding it from the player files...");
+            uuids.clear();
+            names.clear();
+            return false;
+        }
+    }
+
+    /**
+     * Finds the uuid and the correctly capitalized name for a name that is not in the directory.
+     */
+    public interface Resolver {
+
+        /**
+         * @return The name and uuid of the player, or null if there is no player with this name
+         */
+        Map.Entry<String, UUID> resolve(String name) throws Exception;
+    }
+
+    public static class MojangResolver implements Resolver {
+
+        @Override
+        public Map.Entry<String, UUID> resolve(String name) throws Exception {
+            for (Map.Entry<String, UUID> entry : new UuidUtil.NameToUuid(Arrays.asList(name)).call().entrySet()) {
+                if (entry.getKey().equalsIgnoreCase(name)) {
+                    return entry;
+                }
+            }
+            return null;
+        }
+    }
+}
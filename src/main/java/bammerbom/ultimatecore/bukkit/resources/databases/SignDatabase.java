@@ -0,0 +1,391 @@
+/*
+ * This file is part of UltimateCore, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Bammerbom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package bammerbom.ultimatecore.bukkit.resources.databases;
+
+import bammerbom.ultimatecore.bukkit.ErrorLogger;
+import bammerbom.ultimatecore.bukkit.UltimateFileLoader;
+import bammerbom.ultimatecore.bukkit.UltimateSign;
+import bammerbom.ultimatecore.bukkit.UltimateSigns;
+import bammerbom.ultimatecore.bukkit.r;
+import bammerbom.ultimatecore.bukkit.resources.profiler.TickProfiler;
+import bammerbom.ultimatecore.bukkit.resources.utils.StreamUtil;
+import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockState;
+import org.bukkit.block.Sign;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Index of the locations of all UltimateCore signs.
+ * <p>
+ * Interact and break events only read the block state of a block when its location is in this index, so clicking or
+ * breaking any other block costs a single hash lookup. The index is kept in Data/signs.dat. Signs that were placed before
+ * the index existed are picked up by /uc signs rescan, which scans the loaded chunks over several ticks and every other
+ * chunk of the world when it loads.
+ */
+public class SignDatabase {
+    private static final int MAGIC = 0x55435347;
+    private static final int VERSION = 1;
+    private static final long RESCAN_BUDGET = 2000000L;
+    private static final Map<String, SignTable> worlds = new HashMap<>();
+    private static final Map<String, Set<Long>> rescanning = new HashMap<>();
+    private static final Deque<Chunk> queue = new ArrayDeque<>();
+    private static File file;
+    private static boolean dirty = false;
+    private static Integer saveTask = null;
+    private static Integer rescanTask = null;
+
+    public static void enable() {
+        file = new File(UltimateFileLoader.datamap, "signs.dat");
+        worlds.clear();
+        if (!file.exists()) {
+            //First start with the index, find the signs that already exist
+            rescanAll();
+        } else if (!read()) {
+            r.log("Sign index is corrupt, rescanning the worlds...");
+            worlds.clear();
+            rescanAll();
+        }
+        saveTask = Bukkit.getScheduler().scheduleSyncRepeatingTask(r.getUC(), new Runnable() {
+            @Override
+            public void run() {
+                saveAsync();
+            }
+        }, 1200L, 1200L);
+    }
+
+    public static void disable() {
+        if (saveTask != null) {
+            Bukkit.getScheduler().cancelTask(saveTask);
+            saveTask = null;
+        }
+        if (rescanTask != null) {
+            Bukkit.getScheduler().cancelTask(rescanTask);
+            rescanTask = null;
+        }
+        if (dirty) {
+            write(snapshot());
+        }
+        worlds.clear();
+        rescanning.clear();
+        queue.clear();
+        dirty = false;
+    }
+
+    /**
+     * Packs block coordinates into a single key, 26 bits for x and z and 12 bits for y.
+     */
+    public static long pack(int x, int y, int z) {
+        return ((long) (x & 0x3FFFFFF) << 38) | ((long) (z & 0x3FFFFFF) << 12) | (y & 0xFFF);
+    }
+
+    /**
+     * Returns the sign type registered at a block without reading its block state.
+     */
+    public static UltimateSign get(Block block) {
+        SignTable table = worlds.get(block.getWorld().getName());
+        return table == null ? null : table.get(pack(block.getX(), block.getY(), block.getZ()));
+    }
+
+    public static void add(Block block, UltimateSign sign) {
+        String world = block.getWorld().getName();
+        SignTable table = worlds.get(world);
+        if (table == null) {
+            table = new SignTable();
+            worlds.put(world, table);
+        }
+        if (table.put(pack(block.getX(), block.getY(), block.getZ()), sign) != sign) {
+            dirty = true;
+        }
+    }
+
+    public static void remove(Block block) {
+        String world = block.getWorld().getName();
+        SignTable table = worlds.get(world);
+        if (table == null || !table.remove(pack(block.getX(), block.getY(), block.getZ()))) {
+            return;
+        }
+        if (table.size() == 0) {
+            worlds.remove(world);
+        }
+        dirty = true;
+    }
+
+    public static Map<String, Integer> countSigns() {
+        Map<String, Integer> rtrn = new TreeMap<>();
+        for (String world : worlds.keySet()) {
+            rtrn.put(world, worlds.get(world).size());
+        }
+        return rtrn;
+    }
+
+    public static boolean isRescanning(World world) {
+        return rescanning.containsKey(world.getName());
+    }
+
+    /**
+     * Rescans a world for UltimateCore signs. The loaded chunks are queued right away, the other chunks are scanned the
+     * first time they load while the server is running.
+     *
+     * @return The amount of chunks that were queued
+     */
+    public static int rescan(World world) {
+        Set<Long> scanned = new HashSet<>();
+        rescanning.put(world.getName(), scanned);
+        int count = 0;
+        for (Chunk chunk : world.getLoadedChunks()) {
+            queue.add(chunk);
+            count++;
+        }
+        if (rescanTask == null && !queue.isEmpty()) {
+            rescanTask = Bukkit.getScheduler().scheduleSyncRepeatingTask(r.getUC(), TickProfiler.wrap("SignRescan", new Runnable() {
+                @Override
+                public void run() {
+                    long start = System.nanoTime();
+                    while (!queue.isEmpty() && System.nanoTime() - start < RESCAN_BUDGET) {
+                        Chunk chunk = queue.poll();
+                        if (chunk.isLoaded()) {
+                            scan(chunk);
+                        }
+                    }
+                    if (queue.isEmpty()) {
+                        Bukkit.getScheduler().cancelTask(rescanTask);
+                        rescanTask = null;
+                    }
+                }
+            }), 1L, 1L);
+        }
+        return count;
+    }
+
+    private static void rescanAll() {
+        for (World world : Bukkit.getWorlds()) {
+            rescan(world);
+        }
+    }
+
+    /**
+     * Called for every chunk that loads, only does work in worlds that are being rescanned.
+     */
+    public static void onChunkLoad(Chunk chunk) {
+        if (rescanning.containsKey(chunk.getWorld().getName())) {
+            scan(chunk);
+        }
+    }
+
+    private static void scan(Chunk chunk) {
+        Set<Long> scanned = rescanning.get(chunk.getWorld().getName());
+        if (scanned == null || !scanned.add(((long) chunk.getX() << 32) | (chunk.getZ() & 0xFFFFFFFFL))) {
+            return;
+        }
+        for (BlockState state : chunk.getTileEntities()) {
+            if (!(state instanceof Sign)) {
+                continue;
+            }
+            UltimateSign sign = UltimateSigns.getSign(((Sign) state).getLine(0));
+            if (sign != null) {
+                add(state.getBlock(), sign);
+            }
+        }
+    }
+
+    private static Map<String, SignTable> snapshot() {
+        Map<String, SignTable> rtrn = new HashMap<>();
+        for (String world : worlds.keySet()) {
+            rtrn.put(world, worlds.get(world).copy());
+        }
+        return rtrn;
+    }
+
+    /**
+     * Writes the sign index on a background thread if it changed.
+     */
+    public static void saveAsync() {
+        if (!dirty) {
+            return;
+        }
+        dirty = false;
+        final Map<String, SignTable> signs = snapshot();
+        Bukkit.getScheduler().runTaskAsynchronously(r.getUC(), new Runnable() {
+            @Override
+            public void run() {
+                write(signs);
+            }
+        });
+    }
+
+    private static synchronized void write(Map<String, SignTable> signs) {
+        File temp = new File(file.getParentFile(), file.getName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(StreamUtil.createOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(signs.size());
+            for (String world : signs.keySet()) {
+                SignTable table = signs.get(world);
+                out.writeUTF(world);
+                out.writeInt(table.size());
+                for (int i = 0; i < table.keys.length; i++) {
+                    if (table.values[i] != null) {
+                        out.writeLong(table.keys[i]);
+                        out.writeUTF(table.values[i].getName());
+                    }
+                }
+            }
+        } catch (IOException ex) {
+            ErrorLogger.log(ex, "Failed to save sign index.");
+            return;
+        }
+        try {
+            StreamUtil.replaceFile(temp, file);
+        } catch (IOException ex) {
+            ErrorLogger.log(ex, "Failed to replace " + file.getName());
+        }
+    }
+
+    private static boolean read() {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return false;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String world = in.readUTF();
+                SignTable table = new SignTable();
+                int signs = in.readInt();
+                for (int j = 0; j < signs; j++) {
+                    long key = in.readLong();
+                    UltimateSign sign = UltimateSigns.getSignByName(in.readUTF());
+                    if (sign != null) {
+                        table.put(key, sign);
+                    }
+                }
+                if (table.size() > 0) {
+                    worlds.put(world, table);
+                }
+            }
+            return true;
+        } catch (IOException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Open addressing table with linear probing from packed block locations to sign types. A null value marks an empty
+     * slot, so every location including 0,0,0 is a valid key.
+     */
+    static class SignTable {
+        private long[] keys = new long[16];
+        private UltimateSign[] values = new UltimateSign[16];
+        private int size = 0;
+
+        UltimateSign get(long key) {
+            int mask = keys.length - 1;
+            for (int i = mix(key) & mask; ; i = (i + 1) & mask) {
+                if (values[i] == null) {
+                    return null;
+                }
+                if (keys[i] == key) {
+                    return values[i];
+                }
+            }
+        }
+
+        UltimateSign put(long key, UltimateSign sign) {
+            //Keep the load factor at or below one half
+            if ((size + 1) * 2 > keys.length) {
+                grow();
+            }
+            int mask = keys.length - 1;
+            int i = mix(key) & mask;
+            while (values[i] != null && keys[i] != key) {
+                i = (i + 1) & mask;
+            }
+            UltimateSign old = values[i];
+            if (old == null) {
+                size++;
+            }
+            keys[i] = key;
+            values[i] = sign;
+            return old;
+        }
+
+        boolean remove(long key) {
+            int mask = keys.length - 1;
+            int i = mix(key) & mask;
+            while (values[i] != null && keys[i] != key) {
+                i = (i + 1) & mask;
+            }
+            if (values[i] == null) {
+                return false;
+            }
+            values[i] = null;
+            size--;
+            //Shift the following entries of the probe sequence back so lookups don't stop at the hole
+            for (int j = (i + 1) & mask; values[j] != null; j = (j + 1) & mask) {
+                int home = mix(keys[j]) & mask;
+                if (((j - home) & mask) >= ((j - i) & mask)) {
+                    keys[i] = keys[j];
+                    values[i] = values[j];
+                    values[j] = null;
+                    i = j;
+                }
+            }
+            return true;
+        }
+
+        int size() {
+            return size;
+        }
+
+        SignTable copy() {
+            SignTable rtrn = new SignTable();
+            rtrn.keys = keys.clone();
+            rtrn.values = values.clone();
+            rtrn.size = size;
+            return rtrn;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            UltimateSign[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new UltimateSign[oldKeys.length * 2];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldValues[i] != null) {
+                    put(oldKeys[i], oldValues[i]);
+                }
+            }
+        }
+
+        private static int mix(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
@@ -0,0 +1,408 @@
+/*
+ * This file is part of UltimateCore, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Bammerbom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package bammerbom.ultimatecore.bukkit.resources.databases;
+
+import bammerbom.ultimatecore.bukkit.ErrorLogger;
+import bammerbom.ultimatecore.bukkit.JsonConfig;
+import bammerbom.ultimatecore.bukkit.UltimateFileLoader;
+import bammerbom.ultimatecore.bukkit.r;
+import bammerbom.ultimatecore.bukkit.resources.storage.Storage;
+import bammerbom.ultimatecore.bukkit.resources.storage.Store;
+import bammerbom.ultimatecore.bukkit.resources.utils.FileUtil;
+import bammerbom.ultimatecore.bukkit.resources.utils.LocationUtil;
+import bammerbom.ultimatecore.bukkit.resources.utils.StreamUtil;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.json.simple.JSONObject;
+import org.json.simple.JSONValue;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Warp storage backed by Data/warps.json plus an append-only change journal (Data/warps.journal).
+ * <p>
+ * Single changes only append one line to the journal, the json snapshot is rewritten when the journal grows past
+ * {@link #COMPACT_THRESHOLD} entries or when the plugin is disabled. Warps are indexed by lowercase name and by a
+ * per-world grid of {@link #CELL_SIZE} blocks, which is used to answer nearest-warp and radius queries.
+ * <p>
+ * When the sqlite storage is used, single changes are written to it directly and there is no journal.
+ */
+public class WarpDatabase {
+    private static final int COMPACT_THRESHOLD = 256;
+    private static final int CELL_SIZE = 64;
+    private static final Map<String, Warp> warps = new HashMap<>();
+    private static final Map<String, LocationGrid<Warp>> grids = new HashMap<>();
+    private static File journal;
+    private static Writer journalWriter;
+    private static int journalSize = 0;
+    private static boolean loaded = false;
+    private static long sequence = 0;
+    private static long written = 0;
+
+    public static void enable() {
+        if (loaded) {
+            return;
+        }
+        warps.clear();
+        grids.clear();
+        journal = new File(UltimateFileLoader.Dwarps.getParentFile(), "warps.journal");
+        JsonConfig conf = new JsonConfig(Store.WARPS);
+        if (conf.contains("warps")) {
+            for (String name : conf.listKeys("warps", false)) {
+                String loc = conf.getString("warps." + name);
+                try {
+                    put(name, loc);
+                } catch (Exception ex) {
+                    r.log(r.negative + "Warp " + name + " has been removed. (Invalid location)");
+                }
+            }
+        }
+        loaded = true;
+        //A storage backend writes every change itself, the journal is only used with the json files
+        if (!Storage.isJson()) {
+            return;
+        }
+        File rotated = new File(journal.getParentFile(), "warps.journal.old");
+        journalSize = replayJournal(rotated) + replayJournal(journal);
+        if (rotated.exists()) {
+            compact();
+        }
+        if (journalSize >= COMPACT_THRESHOLD) {
+            compact();
+        }
+    }
+
+    public static void disable() {
+        if (!loaded) {
+            return;
+        }
+        compact();
+        closeJournal();
+        warps.clear();
+        grids.clear();
+        loaded = false;
+    }
+
+    public static Location getWarp(String name) {
+        enable();
+        Warp warp = warps.get(name.toLowerCase(Locale.ENGLISH));
+        return warp == null ? null : warp.getLocation();
+    }
+
+    public static boolean hasWarp(String name) {
+        enable();
+        return warps.containsKey(name.toLowerCase(Locale.ENGLISH));
+    }
+
+    public static List<String> getWarpNames() {
+        enable();
+        return new ArrayList<>(warps.keySet());
+    }
+
+    public static HashMap<String, Location> getWarps() {
+        enable();
+        HashMap<String, Location> rtrn = new HashMap<>();
+        for (Warp warp : warps.values()) {
+            rtrn.put(warp.name, warp.getLocation());
+        }
+        return rtrn;
+    }
+
+    public static void setWarp(String name, Location loc) {
+        enable();
+        String data = LocationUtil.convertLocationToString(loc);
+        put(name, data);
+        if (!Storage.isJson()) {
+            Storage.getBackend().write(Store.WARPS, "", Collections.<String, Object>singletonMap("warps." + name.toLowerCase(Locale.ENGLISH), data));
+            return;
+        }
+        append("+\t" + name.toLowerCase(Locale.ENGLISH) + "\t" + data);
+    }
+
+    public static void removeWarp(String name) {
+        enable();
+        if (remove(name) == null) {
+            return;
+        }
+        if (!Storage.isJson()) {
+            Storage.getBackend().write(Store.WARPS, "", Collections.<String, Object>singletonMap("warps." + name.toLowerCase(Locale.ENGLISH), null));
+            return;
+        }
+        append("-\t" + name.toLowerCase(Locale.ENGLISH));
+    }
+
+    /**
+     * Replaces all warps at once and rewrites the snapshot.
+     */
+    public static void setWarps(Map<String, Location> nw) {
+        enable();
+        Map<String, Object> changes = new HashMap<>();
+        for (String name : warps.keySet()) {
+            changes.put("warps." + name, null);
+        }
+        warps.clear();
+        grids.clear();
+        for (String name : nw.keySet()) {
+            try {
+                put(name, LocationUtil.convertLocationToString(nw.get(name)));
+            } catch (Exception ex) {
+                r.log(r.negative + "Warp " + name + " has been removed. (Invalid location)");
+            }
+        }
+        if (!Storage.isJson()) {
+            for (Warp warp : warps.values()) {
+                changes.put("warps." + warp.name, warp.data);
+            }
+            Storage.getBackend().write(Store.WARPS, "", changes);
+            return;
+        }
+        compact();
+    }
+
+    /**
+     * Returns the name of the warp closest to the given location, or null when the world has no warps.
+     */
+    public static String getNearestWarp(Location loc) {
+        enable();
+        LocationGrid<Warp> grid = grids.get(loc.getWorld().getName());
+        if (grid == null) {
+            return null;
+        }
+        Warp warp = grid.nearest(loc.getX(), loc.getY(), loc.getZ());
+        return warp == null ? null : warp.name;
+    }
+
+    /**
+     * Returns the names of all warps within the given radius, sorted by distance.
+     */
+    public static List<String> getWarpsNear(Location loc, double radius) {
+        enable();
+        LocationGrid<Warp> grid = grids.get(loc.getWorld().getName());
+        if (grid == null) {
+            return new ArrayList<>();
+        }
+        List<String> rtrn = new ArrayList<>();
+        for (Warp warp : grid.within(loc.getX(), loc.getY(), loc.getZ(), radius)) {
+            rtrn.add(warp.name);
+        }
+        return rtrn;
+    }
+
+    /**
+     * Writes the current warps to warps.json and truncates the journal.
+     */
+    public static void compact() {
+        if (!Storage.isJson()) {
+            return;
+        }
+        String json = toJson();
+        closeJournal();
+        if (!write(++sequence, json)) {
+            return;
+        }
+        new File(journal.getParentFile(), "warps.journal.old").delete();
+        if (journal.exists() && !journal.delete()) {
+            ErrorLogger.log(new IOException("Failed to truncate " + journal.getName()), "Failed to save warps.");
+            return;
+        }
+        journalSize = 0;
+    }
+
+    /**
+     * Rotates the journal and writes warps.json on a background thread. Does nothing if the journal is empty.
+     */
+    public static void compactAsync() {
+        if (!loaded || journalSize == 0) {
+            return;
+        }
+        final String json = toJson();
+        closeJournal();
+        //The rotated journal is replayed on startup if the server stops before warps.json is written
+        final File rotated = new File(journal.getParentFile(), "warps.journal.old");
+        if (rotated.exists() || !journal.renameTo(rotated)) {
+            compact();
+            return;
+        }
+        journalSize = 0;
+        final long seq = ++sequence;
+        Bukkit.getScheduler().runTaskAsynchronously(r.getUC(), new Runnable() {
+            @Override
+            public void run() {
+                if (write(seq, json)) {
+                    rotated.delete();
+                }
+            }
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static String toJson() {
+        JSONObject map = new JSONObject();
+        for (Warp warp : warps.values()) {
+            map.put("warps." + warp.name, warp.data);
+        }
+        return JSONValue.toJSONString(map);
+    }
+
+    //Older snapshots that finish late never overwrite newer ones
+    private static synchronized boolean write(long seq, String json) {
+        if (seq < written) {
+            return true;
+        }
+        written = seq;
+        try {
+            File temp = new File(UltimateFileLoader.Dwarps.getParentFile(), "warps.json.tmp");
+            FileUtil.writeFile(temp, Arrays.asList(json));
+            StreamUtil.replaceFile(temp, UltimateFileLoader.Dwarps);
+            return true;
+        } catch (IOException ex) {
+            ErrorLogger.log(ex, "Failed to save warps.");
+            return false;
+        }
+    }
+
+    private static Warp put(String name, String data) {
+        String key = name.toLowerCase(Locale.ENGLISH);
+        remove(key);
+        Warp warp = new Warp(key, data);
+        warps.put(key, warp);
+        LocationGrid<Warp> grid = grids.get(warp.world);
+        if (grid == null) {
+            grid = new LocationGrid<>(CELL_SIZE);
+            grids.put(warp.world, grid);
+        }
+        grid.add(warp);
+        return warp;
+    }
+
+    private static Warp remove(String name) {
+        Warp warp = warps.remove(name.toLowerCase(Locale.ENGLISH));
+        if (warp != null) {
+            LocationGrid<Warp> grid = grids.get(warp.world);
+            grid.remove(warp);
+            if (grid.isEmpty()) {
+                grids.remove(warp.world);
+            }
+        }
+        return warp;
+    }
+
+    private static int replayJournal(File file) {
+        if (!file.exists()) {
+            return 0;
+        }
+        int count = 0;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split("\t");
+                try {
+                    if (parts[0].equals("+") && parts.length == 3) {
+                        put(parts[1], parts[2]);
+                    } else if (parts[0].equals("-") && parts.length == 2) {
+                        remove(parts[1]);
+                    } else {
+                        continue;
+                    }
+                } catch (Exception ex) {
+                    r.log(r.negative + "Warp " + parts[1] + " has been removed. (Invalid location)");
+                }
+                count++;
+            }
+        } catch (IOException ex) {
+            ErrorLogger.log(ex, "Failed to read warp journal.");
+        }
+        return count;
+    }
+
+    private static void append(String line) {
+        try {
+            if (journalWriter == null) {
+                journalWriter = new BufferedWriter(new OutputStreamWriter(StreamUtil.createOutputStream(journal, true), StandardCharsets.UTF_8));
+            }
+            journalWriter.write(line);
+            journalWriter.write('\n');
+            journalWriter.flush();
+            journalSize++;
+        } catch (IOException ex) {
+            ErrorLogger.log(ex, "Failed to write warp journal.");
+        }
+        if (journalSize >= COMPACT_THRESHOLD) {
+            compact();
+        }
+    }
+
+    private static void closeJournal() {
+        if (journalWriter == null) {
+            return;
+        }
+        try {
+            journalWriter.close();
+        } catch (IOException ex) {
+            ErrorLogger.log(ex, "Failed to close warp journal.");
+        }
+        journalWriter = null;
+    }
+
+    static class Warp implements LocationGrid.Point {
+
+        final String name;
+        final String data;
+        final String world;
+        final double x;
+        final double y;
+        final double z;
+
+        Warp(String name, String data) {
+            String[] split = data.contains(",") ? data.split(",") : data.split("\\|");
+            this.name = name;
+            this.data = data;
+            this.world = split[0];
+            this.x = Double.parseDouble(split[1]);
+            this.y = Double.parseDouble(split[2]);
+            this.z = Double.parseDouble(split[3]);
+        }
+
+        Location getLocation() {
+            return LocationUtil.convertStringToLocation(data);
+        }
+
+        @Override
+        public double getX() {
+            return x;
+        }
+
+        @Override
+        public double getY() {
+            return y;
+        }
+
+        @Override
+        public double getZ() {
+            return z;
+        }
+    }
+}
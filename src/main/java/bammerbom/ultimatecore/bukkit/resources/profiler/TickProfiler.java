@@ -0,0 +1,336 @@
+/*
+ * This file is part of UltimateCore, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Bammerbom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package bammerbom.ultimatecore.bukkit.resources.profiler;
+
+import bammerbom.ultimatecore.bukkit.ErrorLogger;
+import bammerbom.ultimatecore.bukkit.r;
+import org.bukkit.Bukkit;
+import org.bukkit.event.Event;
+import org.bukkit.event.EventException;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.Listener;
+import org.bukkit.plugin.EventExecutor;
+
+import java.io.*;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Samples the length of every server tick with {@link System#nanoTime()} and times the listeners and repeating tasks
+ * of UltimateCore.
+ * <p>
+ * When the profiler is disabled in the config nothing is wrapped, and TPS is polled once per second like before.
+ */
+public class TickProfiler {
+
+    //15 minutes of ticks
+    private static final int HISTORY = 15 * 60 * 20;
+    private static final ConcurrentHashMap<String, Section> sections = new ConcurrentHashMap<>();
+    private static boolean enabled = false;
+    private static long[] stamps;
+    private static int[] intervals;
+    private static int head = 0;
+    private static int filled = 0;
+    private static long last = 0;
+    //Legacy one second poll, used when disabled
+    private static float legacyTps = 20F;
+    private static long lastPoll = System.currentTimeMillis() - 3000L;
+
+    public static void start() {
+        enabled = r.getCnfg().getBoolean("Profiler.Enabled");
+        if (!enabled) {
+            Bukkit.getScheduler().scheduleSyncRepeatingTask(r.getUC(), new Runnable() {
+                @Override
+                public void run() {
+                    long now = System.currentTimeMillis();
+                    legacyTps = ((now - lastPoll) * 1.0F) / 1000.0F * 20.0F;
+                    lastPoll = now;
+                }
+            }, 20L, 20L);
+            return;
+        }
+        stamps = new long[HISTORY];
+        intervals = new int[HISTORY];
+        last = System.nanoTime();
+        Bukkit.getScheduler().scheduleSyncRepeatingTask(r.getUC(), new Runnable() {
+            @Override
+            public void run() {
+                long now = System.nanoTime();
+                stamps[head] = now;
+                intervals[head] = (int) Math.min(Integer.MAX_VALUE, (now - last) / 1000L);
+                head = (head + 1) % HISTORY;
+                if (filled < HISTORY) {
+                    filled++;
+                }
+                last = now;
+            }
+        }, 1L, 1L);
+        long interval = Math.max(10, r.getCnfg().getInt("Profiler.FileInterval")) * 20L;
+        Bukkit.getScheduler().scheduleSyncRepeatingTask(r.getUC(), new Runnable() {
+            @Override
+            public void run() {
+                writeFile();
+            }
+        }, interval, interval);
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @param minutes The size of the window, 1 to 15 minutes
+     * @return The average ticks per second over the last minutes, or over the time the profiler has run if shorter
+     */
+    public static double getTps(int minutes) {
+        if (!enabled) {
+            return legacyTps;
+        }
+        int count = countTicks(minutes);
+        if (count < 2) {
+            return 20.0;
+        }
+        long newest = stamps[slot(0)];
+        long oldest = stamps[slot(count - 1)];
+        return (count - 1) * 1000000000.0 / (newest - oldest);
+    }
+
+    /**
+     * @param minutes The size of the window, 1 to 15 minutes
+     * @return A histogram of the time between two ticks in microseconds
+     */
+    public static TickHistogram getTickIntervals(int minutes) {
+        TickHistogram histogram = new TickHistogram();
+        if (!enabled) {
+            return histogram;
+        }
+        int count = countTicks(minutes);
+        for (int i = 0; i < count; i++) {
+            histogram.record(intervals[slot(i)]);
+        }
+        return histogram;
+    }
+
+    /**
+     * @return All sections, sorted by total time spent, highest first
+     */
+    public static List<Section> getSections() {
+        List<Section> list = new ArrayList<>(sections.values());
+        Collections.sort(list, new Comparator<Section>() {
+            @Override
+            public int compare(Section a, Section b) {
+                return Long.compare(b.getTotal(), a.getTotal());
+            }
+        });
+        return list;
+    }
+
+    public static void reset() {
+        sections.clear();
+        filled = 0;
+    }
+
+    //Index of the tick which was recorded back ticks ago
+    private static int slot(int back) {
+        return (head - 1 - back + HISTORY) % HISTORY;
+    }
+
+    private static int countTicks(int minutes) {
+        long since = System.nanoTime() - minutes * 60000000000L;
+        int count = 0;
+        while (count < filled && stamps[slot(count)] - since >= 0) {
+            count++;
+        }
+        return count;
+    }
+
+    private static Section getSection(String name) {
+        Section section = sections.get(name);
+        if (section == null) {
+            section = new Section(name);
+            Section old = sections.putIfAbsent(name, section);
+            if (old != null) {
+                section = old;
+            }
+        }
+        return section;
+    }
+
+    /**
+     * Returns a runnable that times the given task, or the task itself when the profiler is disabled.
+     */
+    public static Runnable wrap(String name, final Runnable task) {
+        if (!enabled) {
+            return task;
+        }
+        final Section section = getSection("Task " + name);
+        return new Runnable() {
+            @Override
+            public void run() {
+                long start = System.nanoTime();
+                try {
+                    task.run();
+                } finally {
+                    section.record(System.nanoTime() - start);
+                }
+            }
+        };
+    }
+
+    /**
+     * Registers all event handlers of the listener for UltimateCore, timing each handler when the profiler is enabled.
+     */
+    public static void registerEvents(Listener listener) {
+        if (!enabled) {
+            Bukkit.getPluginManager().registerEvents(listener, r.getUC());
+            return;
+        }
+        String prefix = listener.getClass().getName().substring(listener.getClass().getName().lastIndexOf('.') + 1);
+        for (final Method method : listener.getClass().getDeclaredMethods()) {
+            EventHandler handler = method.getAnnotation(EventHandler.class);
+            if (handler == null || method.isBridge() || method.isSynthetic() || method.getParameterTypes().length != 1) {
+                continue;
+            }
+            if (!Event.class.isAssignableFrom(method.getParameterTypes()[0])) {
+                continue;
+            }
+            final Class<? extends Event> eventClass = method.getParameterTypes()[0].asSubclass(Event.class);
+            final Section section = getSection(prefix + "#" + eventClass.getSimpleName());
+            method.setAccessible(true);
+            Bukkit.getPluginManager().registerEvent(eventClass, listener, handler.priority(), new EventExecutor() {
+                @Override
+                public void execute(Listener listener, Event event) throws EventException {
+                    if (!eventClass.isAssignableFrom(event.getClass())) {
+                        return;
+                    }
+                    long start = System.nanoTime();
+                    try {
+                        method.invoke(listener, event);
+                    } catch (InvocationTargetException ex) {
+                        throw new EventException(ex.getCause());
+                    } catch (Throwable t) {
+                        throw new EventException(t);
+                    } finally {
+                        section.record(System.nanoTime() - start);
+                    }
+                }
+            }, r.getUC(), handler.ignoreCancelled());
+        }
+    }
+
+    /**
+     * @return A plain text report of the tick intervals and all sections
+     */
+    public static List<String> getReport() {
+        List<String> lines = new ArrayList<>();
+        lines.add("UltimateCore performance report, " + new Date());
+        lines.add("");
+        lines.add(String.format(Locale.ENGLISH, "TPS 1m/5m/15m: %.2f / %.2f / %.2f", getTps(1), getTps(5), getTps(15)));
+        for (int minutes : new int[]{1, 5, 15}) {
+            TickHistogram intervals = getTickIntervals(minutes);
+            lines.add(String.format(Locale.ENGLISH, "Tick interval %2dm (ms): mean %.2f, p50 %.2f, p95 %.2f, p99 %.2f, max %.2f, ticks %d", minutes,
+                    intervals.getMean() / 1000.0, intervals.getPercentile(50) / 1000.0, intervals.getPercentile(95) / 1000.0, intervals.getPercentile(99) /
+                    1000.0, intervals.getMax() / 1000.0, intervals.getCount()));
+        }
+        lines.add("");
+        lines.add("Listeners and tasks (total ms, calls, avg ms, max ms):");
+        for (Section section : getSections()) {
+            lines.add(String.format(Locale.ENGLISH, "  %s: %.2f, %d, %.3f, %.3f", section.getName(), section.getTotal() / 1000000.0, section.getCount(), section
+                    .getAverage() / 1000000.0, section.getMax() / 1000000.0));
+        }
+        return lines;
+    }
+
+    //Builds the report on the main thread, writes it async
+    private static void writeFile() {
+        final List<String> lines = getReport();
+        final File file = new File(r.getUC().getDataFolder(), "performance.txt");
+        Bukkit.getScheduler().runTaskAsynchronously(r.getUC(), new Runnable() {
+            @Override
+            public void run() {
+                File temp = new File(file.getParentFile(), file.getName() + ".tmp");
+                try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(temp), "UTF-8"))) {
+                    for (String line : lines) {
+                        writer.write(line);
+                        writer.newLine();
+                    }
+                } catch (IOException ex) {
+                    ErrorLogger.log(ex, "Failed to write performance.txt");
+                    return;
+                }
+                if (!temp.renameTo(file)) {
+                    file.delete();
+                    temp.renameTo(file);
+                }
+            }
+        });
+    }
+
+    /**
+     * Timing of a single listener method or task. Listeners can be called async, so all counters are atomic.
+     */
+    public static class Section {
+        private final String name;
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong total = new AtomicLong();
+        private final AtomicLong max = new AtomicLong();
+
+        Section(String name) {
+            this.name = name;
+        }
+
+        void record(long nanos) {
+            count.incrementAndGet();
+            total.addAndGet(nanos);
+            long current = max.get();
+            while (nanos > current && !max.compareAndSet(current, nanos)) {
+                current = max.get();
+            }
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getCount() {
+            return count.get();
+        }
+
+        public long getTotal() {
+            return total.get();
+        }
+
+        public long getMax() {
+            return max.get();
+        }
+
+        public double getAverage() {
+            long c = count.get();
+            return c == 0 ? 0 : (double) total.get() / c;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * This file is part of UltimateCore, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Bammerbom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package bammerbom.ultimatecore.bukkit.resources.storage;
+
+import bammerbom.ultimatecore.bukkit.JsonConfig;
+import bammerbom.ultimatecore.bukkit.UltimateFileLoader;
+import bammerbom.ultimatecore.bukkit.r;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.util.*;
+
+/**
+ * The default backend: one json file per document, Data/*.json and Players/&lt;uuid&gt;.json.
+ * <p>
+ * A write rewrites the whole file, so reads and writes of the same file are serialized. The file of a player whose
+ * entries are all removed is deleted.
+ */
+public class JsonBackend implements StorageBackend {
+
+    private final Object[] locks = new Object[32];
+
+    public JsonBackend() {
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "json";
+    }
+
+    @Override
+    public void open() {
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public Map<String, Object> read(Store store, String id) {
+        File file = store.getFile(id);
+        synchronized (lock(file)) {
+            return new JsonConfig(file).getValues();
+        }
+    }
+
+    @Override
+    public void write(Store store, String id, Map<String, Object> changes) {
+        File file = store.getFile(id);
+        synchronized (lock(file)) {
+            JsonConfig conf = new JsonConfig(file);
+            for (Map.Entry<String, Object> entry : changes.entrySet()) {
+                conf.set(entry.getKey(), entry.getValue());
+            }
+            if (store == Store.PLAYERS && conf.getValues().isEmpty()) {
+                if (!file.delete()) {
+                    r.log("Failed to delete " + file.getName());
+                }
+                return;
+            }
+            conf.save();
+        }
+    }
+
+    @Override
+    public List<String> list(Store store) {
+        if (store != Store.PLAYERS) {
+            return read(store, "").isEmpty() ? Collections.<String>emptyList() : Collections.singletonList("");
+        }
+        File[] files = UltimateFileLoader.getPlayerFolder().listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.endsWith(".json");
+            }
+        });
+        List<String> ids = new ArrayList<>();
+        if (files == null) {
+            return ids;
+        }
+        for (File file : files) {
+            //Created by a read of a player that has no data
+            if (file.length() == 0) {
+                continue;
+            }
+            String id = file.getName().substring(0, file.getName().length() - 5);
+            try {
+                UUID.fromString(id);
+                ids.add(id);
+            } catch (IllegalArgumentException ex) {
+                //Not a player file
+            }
+        }
+        return ids;
+    }
+
+    private Object lock(File file) {
+        return locks[(file.hashCode() & Integer.MAX_VALUE) % locks.length];
+    }
+}
@@ -0,0 +1,439 @@
+/*
+ * This file is part of UltimateCore, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Bammerbom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package bammerbom.ultimatecore.bukkit.resources.storage;
+
+import bammerbom.ultimatecore.bukkit.ErrorLogger;
+import org.json.simple.JSONValue;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.*;
+import java.util.*;
+
+/**
+ * Embedded sqlite database in Data/storage.db, using the driver that ships with the server.
+ * <p>
+ * Every entry of a document is a row, so saving a document only writes the entries that changed. Writes are queued
+ * and written by a single thread: changes to the same document are merged while they wait, and everything that is
+ * queued is written in one transaction with batched statements. Reads see queued changes that are not written yet.
+ * <p>
+ * Reads borrow a connection from a small pool, so reads run in parallel with each other and with the writer. At most
+ * {@link #IDLE_READERS} idle connections are kept, connections beyond that are closed when their read is done.
+ */
+public class SqlBackend implements StorageBackend {
+
+    private static final int IDLE_READERS = 4;
+    private final File file;
+    private final Object lock = new Object();
+    //Documents waiting to be written, and the documents the writer is writing right now
+    private Map<Key, Map<String, Object>> pending = new LinkedHashMap<>();
+    private Map<Key, Map<String, Object>> flushing = new HashMap<>();
+    private final Deque<Reader> readers = new ArrayDeque<>();
+    private Connection writer;
+    private PreparedStatement upsert;
+    private PreparedStatement delete;
+    private PreparedStatement upsertName;
+    private Thread thread;
+    private volatile boolean running = false;
+
+    public SqlBackend(File file) {
+        this.file = file;
+    }
+
+    @Override
+    public String getName() {
+        return "sqlite";
+    }
+
+    @Override
+    public void open() throws IOException {
+        try {
+            Class.forName("org.sqlite.JDBC");
+            writer = DriverManager.getConnection("jdbc:sqlite:" + file.getAbsolutePath());
+            try (Statement st = writer.createStatement()) {
+                //WAL lets the reader connections read while the writer is writing
+                st.execute("PRAGMA journal_mode=WAL");
+                st.execute("PRAGMA synchronous=NORMAL");
+                st.execute("CREATE TABLE IF NOT EXISTS uc_entries (store VARCHAR(16) NOT NULL, id VARCHAR(36) NOT NULL, entry VARCHAR(255) NOT NULL, value TEXT NOT " +
+                        "NULL, PRIMARY KEY (store, id, entry))");
+                st.execute("CREATE TABLE IF NOT EXISTS uc_players (uuid CHAR(36) NOT NULL PRIMARY KEY, name VARCHAR(16) NOT NULL)");
+                st.execute("CREATE INDEX IF NOT EXISTS uc_players_name ON uc_players (name COLLATE NOCASE)");
+            }
+            writer.setAutoCommit(false);
+            upsert = writer.prepareStatement("INSERT OR REPLACE INTO uc_entries (store, id, entry, value) VALUES (?, ?, ?, ?)");
+            delete = writer.prepareStatement("DELETE FROM uc_entries WHERE store = ? AND id = ? AND entry = ?");
+            upsertName = writer.prepareStatement("INSERT OR REPLACE INTO uc_players (uuid, name) VALUES (?, ?)");
+        } catch (ClassNotFoundException | SQLException ex) {
+            closeConnections();
+            throw new IOException("Failed to open " + file.getName(), ex);
+        }
+        running = true;
+        thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                writeLoop();
+            }
+        }, "UltimateCore Storage");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void close() {
+        if (thread == null) {
+            return;
+        }
+        synchronized (lock) {
+            running = false;
+            lock.notifyAll();
+        }
+        try {
+            thread.join(30000);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (lock) {
+            if (!pending.isEmpty() || !flushing.isEmpty()) {
+                ErrorLogger.log(new IOException((pending.size() + flushing.size()) + " documents were not written"), "Failed to save data to " + file.getName());
+            }
+        }
+        thread = null;
+        closeConnections();
+    }
+
+    @Override
+    public Map<String, Object> read(Store store, String id) {
+        Key key = new Key(store, id);
+        Map<String, Object> data = new HashMap<>();
+        //Copied before the query, so changes the writer commits and drops while the rows are read are still applied
+        Map<String, Object> flushed;
+        Map<String, Object> queued;
+        synchronized (lock) {
+            flushed = copy(flushing.get(key));
+            queued = copy(pending.get(key));
+        }
+        Reader reader = null;
+        try {
+            reader = borrow();
+            reader.select.setString(1, key.store);
+            reader.select.setString(2, id);
+            try (ResultSet rs = reader.select.executeQuery()) {
+                while (rs.next()) {
+                    data.put(rs.getString(1), JSONValue.parse(rs.getString(2)));
+                }
+            }
+            release(reader);
+        } catch (SQLException ex) {
+            ErrorLogger.log(ex, "Failed to read " + key + " from " + file.getName());
+            if (reader != null) {
+                reader.close();
+            }
+        }
+        apply(data, flushed);
+        apply(data, queued);
+        return data;
+    }
+
+    @Override
+    public void write(Store store, String id, Map<String, Object> changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        Key key = new Key(store, id);
+        synchronized (lock) {
+            Map<String, Object> queued = pending.get(key);
+            if (queued == null) {
+                pending.put(key, new HashMap<>(changes));
+            } else {
+                queued.putAll(changes);
+            }
+            lock.notifyAll();
+        }
+    }
+
+    @Override
+    public List<String> list(Store store) {
+        Set<String> ids = new LinkedHashSet<>();
+        String name = store.name().toLowerCase(Locale.ENGLISH);
+        //The queued changes of each document, newer changes win
+        Map<String, Map<String, Object>> queued = new LinkedHashMap<>();
+        synchronized (lock) {
+            collect(queued, flushing, name);
+            collect(queued, pending, name);
+        }
+        Reader reader = null;
+        try {
+            reader = borrow();
+            reader.selectIds.setString(1, name);
+            try (ResultSet rs = reader.selectIds.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getString(1));
+                }
+            }
+            release(reader);
+        } catch (SQLException ex) {
+            ErrorLogger.log(ex, "Failed to list " + name + " from " + file.getName());
+            if (reader != null) {
+                reader.close();
+            }
+        }
+        //Documents whose entries are all removed are not listed
+        for (Map.Entry<String, Map<String, Object>> document : queued.entrySet()) {
+            if (hasValues(document.getValue())) {
+                ids.add(document.getKey());
+            } else if (ids.contains(document.getKey()) && read(store, document.getKey()).isEmpty()) {
+                ids.remove(document.getKey());
+            }
+        }
+        return new ArrayList<>(ids);
+    }
+
+    private static void collect(Map<String, Map<String, Object>> queued, Map<Key, Map<String, Object>> documents, String store) {
+        for (Map.Entry<Key, Map<String, Object>> document : documents.entrySet()) {
+            if (!document.getKey().store.equals(store)) {
+                continue;
+            }
+            Map<String, Object> changes = queued.get(document.getKey().id);
+            if (changes == null) {
+                queued.put(document.getKey().id, new HashMap<>(document.getValue()));
+            } else {
+                changes.putAll(document.getValue());
+            }
+        }
+    }
+
+    private static boolean hasValues(Map<String, Object> changes) {
+        for (Object value : changes.values()) {
+            if (value != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Reader borrow() throws SQLException {
+        synchronized (readers) {
+            Reader reader = readers.poll();
+            if (reader != null) {
+                return reader;
+            }
+        }
+        Connection connection = DriverManager.getConnection("jdbc:sqlite:" + file.getAbsolutePath());
+        try {
+            return new Reader(connection);
+        } catch (SQLException ex) {
+            connection.close();
+            throw ex;
+        }
+    }
+
+    private void release(Reader reader) {
+        synchronized (readers) {
+            //Once the backend is closing, readers that are handed back are closed instead of kept
+            if (running && readers.size() < IDLE_READERS) {
+                readers.push(reader);
+                return;
+            }
+        }
+        reader.close();
+    }
+
+    private void writeLoop() {
+        while (true) {
+            synchronized (lock) {
+                while (pending.isEmpty() && running) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException ex) {
+                        return;
+                    }
+                }
+                if (pending.isEmpty()) {
+                    return;
+                }
+                flushing = pending;
+                pending = new LinkedHashMap<>();
+            }
+            boolean written = flush(flushing);
+            synchronized (lock) {
+                if (!written) {
+                    //Keep the failed changes, newer changes to the same entries win
+                    for (Map.Entry<Key, Map<String, Object>> entry : pending.entrySet()) {
+                        Map<String, Object> failed = flushing.get(entry.getKey());
+                        if (failed == null) {
+                            flushing.put(entry.getKey(), entry.getValue());
+                        } else {
+                            failed.putAll(entry.getValue());
+                        }
+                    }
+                    pending = flushing;
+                }
+                flushing = new HashMap<>();
+                if (!written) {
+                    if (!running) {
+                        return;
+                    }
+                    try {
+                        lock.wait(5000);
+                    } catch (InterruptedException ex) {
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    private boolean flush(Map<Key, Map<String, Object>> documents) {
+        try {
+            for (Map.Entry<Key, Map<String, Object>> document : documents.entrySet()) {
+                Key key = document.getKey();
+                for (Map.Entry<String, Object> entry : document.getValue().entrySet()) {
+                    if (entry.getValue() == null) {
+                        delete.setString(1, key.store);
+                        delete.setString(2, key.id);
+                        delete.setString(3, entry.getKey());
+                        delete.addBatch();
+                        continue;
+                    }
+                    upsert.setString(1, key.store);
+                    upsert.setString(2, key.id);
+                    upsert.setString(3, entry.getKey());
+                    upsert.setString(4, JSONValue.toJSONString(entry.getValue()));
+                    upsert.addBatch();
+                    //Player names are indexed so players can be looked up by name
+                    if (key.store.equals("players") && entry.getKey().equals("name")) {
+                        upsertName.setString(1, key.id);
+                        upsertName.setString(2, entry.getValue().toString());
+                        upsertName.addBatch();
+                    }
+                }
+            }
+            delete.executeBatch();
+            upsert.executeBatch();
+            upsertName.executeBatch();
+            writer.commit();
+            return true;
+        } catch (SQLException ex) {
+            ErrorLogger.log(ex, "Failed to save data to " + file.getName());
+            try {
+                delete.clearBatch();
+                upsert.clearBatch();
+                upsertName.clearBatch();
+                writer.rollback();
+            } catch (SQLException ex2) {
+                ErrorLogger.log(ex2, "Failed to roll back " + file.getName());
+            }
+            return false;
+        }
+    }
+
+    private static Map<String, Object> copy(Map<String, Object> changes) {
+        return changes == null ? null : new HashMap<>(changes);
+    }
+
+    private void apply(Map<String, Object> data, Map<String, Object> changes) {
+        if (changes == null) {
+            return;
+        }
+        for (Map.Entry<String, Object> entry : changes.entrySet()) {
+            if (entry.getValue() == null) {
+                data.remove(entry.getKey());
+            } else {
+                data.put(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    private void closeConnections() {
+        synchronized (readers) {
+            for (Reader reader : readers) {
+                reader.close();
+            }
+            readers.clear();
+        }
+        for (AutoCloseable closeable : new AutoCloseable[]{upsert, delete, upsertName, writer}) {
+            if (closeable == null) {
+                continue;
+            }
+            try {
+                closeable.close();
+            } catch (Exception ex) {
+                //Already closed
+            }
+        }
+    }
+
+    private static class Reader {
+
+        private final Connection connection;
+        private final PreparedStatement select;
+        private final PreparedStatement selectIds;
+
+        Reader(Connection connection) throws SQLException {
+            this.connection = connection;
+            this.select = connection.prepareStatement("SELECT entry, value FROM uc_entries WHERE store = ? AND id = ?");
+            this.selectIds = connection.prepareStatement("SELECT DISTINCT id FROM uc_entries WHERE store = ?");
+        }
+
+        void close() {
+            for (AutoCloseable closeable : new AutoCloseable[]{select, selectIds, connection}) {
+                try {
+                    closeable.close();
+                } catch (Exception ex) {
+                    //Already closed
+                }
+            }
+        }
+    }
+
+    private static class Key {
+
+        private final String store;
+        private final String id;
+
+        Key(Store store, String id) {
+            this.store = store.name().toLowerCase(Locale.ENGLISH);
+            this.id = id;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return store.equals(other.store) && id.equals(other.id);
+        }
+
+        @Override
+        public int hashCode() {
+            return store.hashCode() * 31 + id.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return id.isEmpty() ? store : store + "/" + id;
+        }
+    }
+}
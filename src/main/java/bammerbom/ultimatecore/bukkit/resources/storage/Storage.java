@@ -0,0 +1,125 @@
+/*
+ * This file is part of UltimateCore, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Bammerbom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package bammerbom.ultimatecore.bukkit.resources.storage;
+
+import bammerbom.ultimatecore.bukkit.ErrorLogger;
+import bammerbom.ultimatecore.bukkit.UltimateFileLoader;
+import bammerbom.ultimatecore.bukkit.r;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Holds the {@link StorageBackend} selected with Storage.Type in the config.
+ */
+public class Storage {
+
+    private static StorageBackend backend = new JsonBackend();
+
+    public static void start() {
+        String type = r.getCnfg().getString("Storage.Type", "json").toLowerCase(Locale.ENGLISH);
+        if (type.equals("sqlite")) {
+            SqlBackend sql = new SqlBackend(getDatabaseFile());
+            try {
+                sql.open();
+                backend = sql;
+            } catch (IOException ex) {
+                ErrorLogger.log(ex, "Failed to open the sqlite database, using the json files instead.");
+                backend = new JsonBackend();
+            }
+        } else {
+            if (!type.equals("json")) {
+                r.log("Unknown storage type " + type + ", using json.");
+            }
+            backend = new JsonBackend();
+        }
+        r.debug("Storage: " + backend.getName());
+    }
+
+    public static void stop() {
+        backend.close();
+        backend = new JsonBackend();
+    }
+
+    public static StorageBackend getBackend() {
+        return backend;
+    }
+
+    public static boolean isJson() {
+        return backend instanceof JsonBackend;
+    }
+
+    public static File getDatabaseFile() {
+        return new File(UltimateFileLoader.datamap, "storage.db");
+    }
+
+    /**
+     * Copies every document of every store from one backend to another.
+     *
+     * @return The number of documents and the number of entries copied
+     */
+    public static int[] copy(StorageBackend from, StorageBackend to) {
+        int documents = 0;
+        int entries = 0;
+        for (Store store : Store.values()) {
+            for (String id : from.list(store)) {
+                Map<String, Object> data = from.read(store, id);
+                if (data.isEmpty()) {
+                    continue;
+                }
+                to.write(store, id, data);
+                documents++;
+                entries += data.size();
+            }
+        }
+        return new int[]{documents, entries};
+    }
+
+    /**
+     * Replaces the sqlite database with a copy of the json files. Only allowed while the json files are in use.
+     *
+     * @return The number of documents and the number of entries copied
+     */
+    public static int[] migrate() throws IOException {
+        if (!isJson()) {
+            throw new IllegalStateException("The sqlite database is in use");
+        }
+        File file = getDatabaseFile();
+        for (String suffix : new String[]{"", "-wal", "-shm"}) {
+            File f = new File(file.getPath() + suffix);
+            if (f.exists() && !f.delete()) {
+                throw new IOException("Failed to delete " + f.getName());
+            }
+        }
+        SqlBackend sql = new SqlBackend(file);
+        sql.open();
+        try {
+            return copy(backend, sql);
+        } finally {
+            sql.close();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * This file is part of UltimateCore, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Bammerbom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package bammerbom.ultimatecore.bukkit.resources.storage;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Where the documents of the {@link Store}s are kept. Selected with Storage.Type in the config.
+ * <p>
+ * Implementations must be safe to use from multiple threads. Values are the types json-simple produces: strings,
+ * longs, doubles, booleans and JSONArrays.
+ */
+public interface StorageBackend {
+
+    String getName();
+
+    void open() throws IOException;
+
+    /**
+     * Writes all queued changes and releases the backend.
+     */
+    void close();
+
+    /**
+     * @return All entries of the document, an empty map if it doesn't exist. Changes to the map are not written back.
+     */
+    Map<String, Object> read(Store store, String id);
+
+    /**
+     * Writes the given entries of a document, entries with a null value are removed. Other entries are not touched.
+     */
+    void write(Store store, String id, Map<String, Object> changes);
+
+    /**
+     * @return The ids of all documents in the store
+     */
+    List<String> list(Store store);
+}
@@ -0,0 +1,61 @@
+/*
+ * This file is part of UltimateCore, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Bammerbom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package bammerbom.ultimatecore.bukkit.resources.storage;
+
+import bammerbom.ultimatecore.bukkit.UltimateFileLoader;
+
+import java.io.File;
+import java.util.UUID;
+
+/**
+ * The data stores that can be kept in a {@link StorageBackend}.
+ * <p>
+ * A store holds documents, flat maps of dotted keys like {@link bammerbom.ultimatecore.bukkit.JsonConfig}. Only the
+ * player store has more than one document, its documents are identified by the uuid of the player.
+ */
+public enum Store {
+    PLAYERS,
+    ECONOMY,
+    WARPS,
+    SPAWNS,
+    WORLDS;
+
+    /**
+     * @return The json file of the document, created if it doesn't exist yet
+     */
+    public File getFile(String id) {
+        switch (this) {
+            case PLAYERS:
+                return UltimateFileLoader.getPlayerFile(UUID.fromString(id));
+            case ECONOMY:
+                return UltimateFileLoader.Deconomy;
+            case WARPS:
+                return UltimateFileLoader.Dwarps;
+            case SPAWNS:
+                return UltimateFileLoader.Dspawns;
+            default:
+                return UltimateFileLoader.Dworlds;
+        }
+    }
+}
@@ -23,10 +23,8 @@
  */
 package bammerbom.ultimatecore.bukkit.resources.utils;
 
-import bammerbom.ultimatecore.bukkit.r;
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
-import org.bukkit.scheduler.BukkitRunnable;
 
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
@@ -60,22 +58,14 @@ public class ActionBarUtil {
         }
     }
 
+    /**
+     * Shows an action bar message for a number of ticks, see {@link HudUtil}.
+     */
     public static void sendActionBar(final Player player, final String message, int duration) {
-        sendActionBar(player, message);
-        if (duration >= 0) {
-            new BukkitRunnable() {
-                public void run() {
-                    sendActionBar(player, "");
-                }
-            }.runTaskLater(r.getUC(), duration + 1);
-        }
-        while (duration > 40) {
-            duration -= 40;
-            new BukkitRunnable() {
-                public void run() {
-                    sendActionBar(player, message);
-                }
-            }.runTaskLater(r.getUC(), duration);
+        if (duration < 0) {
+            sendActionBar(player, message);
+            return;
         }
+        HudUtil.set(player, HudUtil.Channel.ACTIONBAR, message, duration);
     }
-}
\ No newline at end of file
+}
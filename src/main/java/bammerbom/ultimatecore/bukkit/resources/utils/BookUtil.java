@@ -23,102 +23,21 @@
  */
 package bammerbom.ultimatecore.bukkit.resources.utils;
 
-import bammerbom.ultimatecore.bukkit.ErrorLogger;
-import bammerbom.ultimatecore.bukkit.UltimateFileLoader;
+import bammerbom.ultimatecore.bukkit.resources.databases.BookDatabase;
 
-import java.io.File;
-import java.io.IOException;
-import java.util.ArrayList;
 import java.util.List;
 
 public class BookUtil {
 
     public static boolean bookExists(String title) {
-        title = title.toLowerCase();
-        File booksfile = UltimateFileLoader.Dbooks;
-        List<String> alllines = FileUtil.getLines(booksfile);
-        return alllines.contains("#" + title);
+        return BookDatabase.exists(title);
     }
 
     public static List<String> readBook(String title) {
-        title = title.toLowerCase();
-        File booksfile = UltimateFileLoader.Dbooks;
-        List<String> alllines = FileUtil.getLines(booksfile);
-        if (!alllines.contains("#" + title)) {
-            return null;
-        }
-        List<String> booklines = new ArrayList<>();
-        boolean inBook = false;
-        for (String s : alllines) {
-            if (inBook && s.startsWith("#")) {
-                break;
-            }
-            if (s.equalsIgnoreCase("#" + title)) {
-                inBook = true;
-                continue;
-            }
-            if (inBook) {
-                booklines.add(s.replace('&', '§').replace("§§", "&"));
-            }
-        }
-        List<String> bookchapters = new ArrayList<>();
-        StringBuilder chapter = new StringBuilder();
-        for (String s : booklines) {
-            if (s.equalsIgnoreCase("[NEXTPAGE]")) {
-                bookchapters.add(chapter.toString());
-                chapter = new StringBuilder();
-            } else {
-                if (chapter.length() != 0) {
-                    chapter.append("\n");
-                }
-                chapter.append(s);
-            }
-        }
-        bookchapters.add(chapter.toString());
-        return bookchapters;
+        return BookDatabase.getChapters(title);
     }
 
     public static void writeBook(String title, List<String> bookchapters) {
-        title = title.toLowerCase();
-        File booksfile = UltimateFileLoader.Dbooks;
-        List<String> alllines = FileUtil.getLines(booksfile);
-        if (bookExists(title)) {
-            List<String> booklines = new ArrayList<>();
-            boolean inBook = false;
-            for (String s : alllines) {
-                if (inBook && s.startsWith("#")) {
-                    break;
-                }
-                if (s.equalsIgnoreCase("#" + title)) {
-                    inBook = true;
-                    continue;
-                }
-                if (inBook) {
-                    booklines.add(s);
-                }
-            }
-            alllines.removeAll(booklines);
-        }
-        alllines.add("#" + title);
-        boolean first = true;
-        for (String chapter : bookchapters) {
-            if (!first) {
-                alllines.add("[NEXTPAGE]");
-            }
-            first = false;
-
-            if (chapter.contains("\n")) {
-                for (String line : chapter.split("\n")) {
-                    alllines.add(line);
-                }
-            } else {
-                alllines.add(chapter);
-            }
-        }
-        try {
-            FileUtil.writeFile(booksfile, alllines);
-        } catch (IOException e) {
-            ErrorLogger.log(e, "Failed to write books file.");
-        }
+        BookDatabase.setBook(title, bookchapters);
     }
-}
\ No newline at end of file
+}
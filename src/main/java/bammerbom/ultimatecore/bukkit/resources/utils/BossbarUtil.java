@@ -24,142 +24,120 @@
 package bammerbom.ultimatecore.bukkit.resources.utils;
 
 import bammerbom.ultimatecore.bukkit.r;
+import bammerbom.ultimatecore.bukkit.resources.profiler.TickProfiler;
 import org.apache.commons.lang.Validate;
 import org.bukkit.Bukkit;
 import org.bukkit.boss.BarColor;
 import org.bukkit.boss.BarStyle;
 import org.bukkit.boss.BossBar;
 import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
-import org.bukkit.scheduler.BukkitRunnable;
+import org.bukkit.event.player.PlayerQuitEvent;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.UUID;
+import java.util.*;
 
+/**
+ * Boss bar messages.
+ * <p>
+ * A message sent to several players is one shared bar with an audience. Bars that count down are all advanced by a
+ * single repeating task, which only runs while there is such a bar. A bar is removed as soon as it has counted down or
+ * its last player got another bar or left. Only use this from the main thread.
+ */
 public class BossbarUtil implements Listener {
-    static HashMap<UUID, BossBar> current = new HashMap<UUID, BossBar>();
-    static HashMap<BossBar, Integer> taskids = new HashMap<BossBar, Integer>();
-    static HashMap<BossBar, Boolean> taskcancel = new HashMap<BossBar, Boolean>();
+    private static final Map<UUID, Bar> current = new HashMap<>();
+    private static final List<Bar> animated = new ArrayList<>();
+    private static Integer ticker = null;
+
+    public static void start() {
+        TickProfiler.registerEvents(new BossbarUtil());
+    }
 
     public static void stop() {
-        for (UUID u : current.keySet()) {
-            BossBar bar = current.get(u);
-            bar.removeAll();
+        if (ticker != null) {
+            Bukkit.getScheduler().cancelTask(ticker);
+            ticker = null;
+        }
+        for (Bar bar : new HashSet<>(current.values())) {
+            bar.bar.removeAll();
         }
         current.clear();
+        animated.clear();
     }
 
     public static BossBar setMessage(Player player, String message, BarColor color, BarStyle style) {
-        if (hasBar(player)) {
-            removeBar(player);
-        }
-        BossBar bar = Bukkit.getServer().createBossBar(message, color, style);
-        bar.addPlayer(player);
-        current.put(player.getUniqueId(), bar);
-        return bar;
+        return show(Collections.singletonList(player), message, 1.0, color, style, 0).bar;
     }
 
     public static BossBar setMessage(String message, float percent, BarColor color, BarStyle style) {
-        BossBar bar = Bukkit.getServer().createBossBar(message, color, style);
-        bar.setProgress(percent / 100);
-        for (Player player : r.getOnlinePlayers()) {
-            if (hasBar(player)) {
-                removeBar(player);
-            }
-            bar.addPlayer(player);
-            current.put(player.getUniqueId(), bar);
-        }
-        return bar;
+        return show(r.getOnlinePlayersL(), message, percent / 100, color, style, 0).bar;
     }
 
     public static BossBar setMessage(Player player, String message, float percent, BarColor color, BarStyle style) {
-        if (hasBar(player)) {
-            removeBar(player);
-        }
-        BossBar bar = Bukkit.getServer().createBossBar(message, color, style);
-        bar.setProgress(percent / 100);
-        bar.addPlayer(player);
-        current.put(player.getUniqueId(), bar);
-        return bar;
+        return show(Collections.singletonList(player), message, percent / 100, color, style, 0).bar;
     }
 
-    @SuppressWarnings("deprecation")
-	public static void setMessage(String message, int seconds, BarColor color, BarStyle style) {
+    public static void setMessage(String message, int seconds, BarColor color, BarStyle style) {
         Validate.isTrue(seconds > 0, "Seconds must be above 1 but was: ", seconds);
-        final BossBar bar = Bukkit.getServer().createBossBar(message, color, style);
-        final double dragonHealthMinus = 1.0 / seconds;
-
-        taskids.put(bar, Bukkit.getScheduler().runTaskTimer(r.getUC(), new BukkitRunnable() {
-            @Override
-            public void run() {
-                if (bar.getProgress() - dragonHealthMinus <= 0.01) {
-                    for (Player p : bar.getPlayers()) {
-                        current.remove(p);
-                        bar.removePlayer(p);
-                    }
-                    taskcancel.put(bar, true);
-                } else {
-                    bar.setProgress(bar.getProgress() - dragonHealthMinus);
-                }
-            }
-        }, 20L, 20L).getTaskId());
-        ArrayList<Integer> removed = new ArrayList<>();
-        for (BossBar barc : taskcancel.keySet()) {
-            Integer id = taskids.get(barc);
-            Bukkit.getScheduler().cancelTask(id);
-            removed.add(id);
-        }
-        for (Integer i : removed) {
-            taskids.remove(i);
-            taskcancel.remove(i);
-        }
+        show(r.getOnlinePlayersL(), message, 1.0, color, style, seconds);
+    }
 
-        for (Player player : Bukkit.getOnlinePlayers()) {
-            if (hasBar(player)) {
-                removeBar(player);
-            }
-            bar.addPlayer(player);
-            current.put(player.getUniqueId(), bar);
-        }
+    public static void setMessage(final Player player, String message, int seconds, BarColor color, BarStyle style) {
+        Validate.isTrue(seconds > 0, "Seconds must be above 1 but was: ", seconds);
+        show(Collections.singletonList(player), message, 1.0, color, style, seconds);
     }
 
-    @SuppressWarnings("deprecation")
-	public static void setMessage(final Player player, String message, int seconds, BarColor color, BarStyle style) {
-        if (hasBar(player)) {
+    private static Bar show(Collection<? extends Player> players, String message, double progress, BarColor color, BarStyle style, int seconds) {
+        Bar bar = new Bar(Bukkit.getServer().createBossBar(message, color, style), seconds);
+        bar.bar.setProgress(progress);
+        for (Player player : players) {
             removeBar(player);
+            bar.bar.addPlayer(player);
+            bar.audience.add(player.getUniqueId());
+            current.put(player.getUniqueId(), bar);
         }
-        Validate.isTrue(seconds > 0, "Seconds must be above 1 but was: ", seconds);
-        final BossBar bar = Bukkit.getServer().createBossBar(message, color, style);
-        final double dragonHealthMinus = 1.0 / seconds;
-
-        taskids.put(bar, Bukkit.getScheduler().runTaskTimer(r.getUC(), new BukkitRunnable() {
-            @Override
-            public void run() {
-                if (bar.getProgress() - dragonHealthMinus <= 0.01) {
-                    for (Player p : bar.getPlayers()) {
-                        current.remove(p);
-                        bar.removePlayer(p);
+        if (seconds > 0 && !bar.audience.isEmpty()) {
+            animated.add(bar);
+            if (ticker == null) {
+                ticker = Bukkit.getScheduler().scheduleSyncRepeatingTask(r.getUC(), TickProfiler.wrap("Bossbar", new Runnable() {
+                    @Override
+                    public void run() {
+                        tick();
                     }
-                    taskcancel.put(bar, true);
-                } else {
-                    bar.setProgress(bar.getProgress() - dragonHealthMinus);
-                }
+                }), 20L, 20L);
+            }
+        }
+        return bar;
+    }
+
+    /**
+     * Advances every bar that counts down by one second.
+     */
+    private static void tick() {
+        Iterator<Bar> it = animated.iterator();
+        while (it.hasNext()) {
+            Bar bar = it.next();
+            bar.remaining--;
+            if (bar.remaining <= 0) {
+                it.remove();
+                dispose(bar);
+            } else {
+                bar.bar.setProgress((double) bar.remaining / bar.seconds);
             }
-        }, 20L, 20L).getTaskId());
-        ArrayList<Integer> removed = new ArrayList<>();
-        for (BossBar barc : taskcancel.keySet()) {
-            Integer id = taskids.get(barc);
-            Bukkit.getScheduler().cancelTask(id);
-            removed.add(id);
         }
-        for (Integer i : removed) {
-            taskids.remove(i);
-            taskcancel.remove(i);
+        if (animated.isEmpty() && ticker != null) {
+            Bukkit.getScheduler().cancelTask(ticker);
+            ticker = null;
         }
+    }
 
-        bar.addPlayer(player);
-        current.put(player.getUniqueId(), bar);
+    private static void dispose(Bar bar) {
+        bar.bar.removeAll();
+        for (UUID uuid : bar.audience) {
+            current.remove(uuid);
+        }
+        bar.audience.clear();
     }
 
     public static boolean hasBar(Player player) {
@@ -167,18 +145,54 @@ public class BossbarUtil implements Listener {
     }
 
     public static void removeBar(Player player) {
-        if (!hasBar(player)) {
+        Bar bar = current.remove(player.getUniqueId());
+        if (bar == null) {
             return;
         }
-        BossBar bar = current.get(player.getUniqueId());
-        bar.removePlayer(player);
-        current.remove(player.getUniqueId());
+        bar.bar.removePlayer(player);
+        bar.audience.remove(player.getUniqueId());
+        if (bar.audience.isEmpty()) {
+            animated.remove(bar);
+        }
     }
 
     public static BossBar getBar(Player player) {
-        if (!hasBar(player)) {
-            return null;
+        Bar bar = current.get(player.getUniqueId());
+        return bar == null ? null : bar.bar;
+    }
+
+    public static int getBarCount() {
+        return new HashSet<>(current.values()).size();
+    }
+
+    public static int getAnimatedCount() {
+        return animated.size();
+    }
+
+    public static int getPlayerCount() {
+        return current.size();
+    }
+
+    public static int getTaskCount() {
+        return ticker == null ? 0 : 1;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onQuit(PlayerQuitEvent e) {
+        removeBar(e.getPlayer());
+    }
+
+    private static class Bar {
+
+        final BossBar bar;
+        final Set<UUID> audience = new HashSet<>();
+        final int seconds;
+        int remaining;
+
+        Bar(BossBar bar, int seconds) {
+            this.bar = bar;
+            this.seconds = seconds;
+            this.remaining = seconds;
         }
-        return current.get(player.getUniqueId());
     }
-}
\ No newline at end of file
+}
@@ -24,76 +24,113 @@
 package bammerbom.ultimatecore.bukkit.resources.utils;
 
 import bammerbom.ultimatecore.bukkit.r;
+import org.bukkit.ChatColor;
 
+import java.lang.management.ManagementFactory;
 import java.util.Calendar;
-import java.util.GregorianCalendar;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
+/**
+ * Formats and parses durations with plain arithmetic on milliseconds.
+ * <p>
+ * A month is 30 days and a year is 365 days, both when formatting and when parsing.
+ */
 public class DateUtil {
 
-    public static long parseDateDiff(String time) {
-        if (time.equalsIgnoreCase("-1")) {
-            return -1;
+    public static final long SECOND = 1000L;
+    public static final long MINUTE = 60 * SECOND;
+    public static final long HOUR = 60 * MINUTE;
+    public static final long DAY = 24 * HOUR;
+    public static final long WEEK = 7 * DAY;
+    public static final long MONTH = 30 * DAY;
+    public static final long YEAR = 365 * DAY;
+    private static final long[] UNITS = {YEAR, MONTH, DAY, HOUR, MINUTE, SECOND};
+    private static final long START = ManagementFactory.getRuntimeMXBean().getStartTime();
+    private static final ThreadLocal<StringBuilder> builders = new ThreadLocal<StringBuilder>() {
+        @Override
+        protected StringBuilder initialValue() {
+            return new StringBuilder(64);
         }
-        try {
-            Long mil = -1L;
-            Matcher matcher = Pattern.compile("\\d+\\D+").matcher(time);
-            while (matcher.find()) {
-                String s = matcher.group();
-                Long numb = Long.parseLong(s.split("(?<=\\D)(?=\\d)|(?<=\\d)(?=\\D)")[0]);
-                String type = s.split("(?<=\\D)(?=\\d)|(?<=\\d)(?=\\D)")[1];
-                switch (type) {
-                    case "s":
-                    case "S":
-                        mil = mil + (numb * 1000);
-                        break;
-                    case "m":
-                        mil = mil + (numb * 1000 * 60);
-                        break;
-                    case "h":
-                    case "H":
-                        mil = mil + (numb * 1000 * 60 * 60);
-                        break;
-                    case "d":
-                    case "D":
-                        mil = mil + (numb * 1000 * 60 * 60 * 24);
-                        break;
-                    case "w":
-                    case "W":
-                        mil = mil + (numb * 1000 * 60 * 60 * 24 * 7);
-                        break;
-                    case "M":
-                        mil = mil + (numb * 1000 * 60 * 60 * 24 * 30);
-                        break;
-                    case "y":
-                    case "Y":
-                        mil = mil + (numb * 1000 * 60 * 60 * 24 * 365);
-                        break;
-                    default:
-                        break;
+    };
+    //Plural and singular name of every unit, followed by the word for now
+    private static volatile String[] names = null;
+    private static volatile Uptime uptime = null;
+
+    /**
+     * Parses a time argument like 1d12h or 30m in one pass.
+     * <p>
+     * A number without a unit is a number of hours, but only when it is the whole argument.
+     *
+     * @return The time in milliseconds, or -1 when the argument contains no valid time
+     */
+    public static long parseDateDiff(String time) {
+        int length = time.length();
+        long mil = 0;
+        boolean found = false;
+        int i = 0;
+        while (i < length) {
+            char c = time.charAt(i);
+            if (c < '0' || c > '9') {
+                i++;
+                continue;
+            }
+            int start = i;
+            long numb = 0;
+            while (i < length && (c = time.charAt(i)) >= '0' && c <= '9') {
+                if (numb > Integer.MAX_VALUE) {
+                    return -1L;
                 }
+                numb = numb * 10 + (c - '0');
+                i++;
             }
-            if (r.isInt(time)) {
-                mil = mil + (Long.parseLong(time) * 1000 * 60 * 60);
+            if (i == length) {
+                if (start == 0 && numb <= Integer.MAX_VALUE) {
+                    return numb * HOUR;
+                }
+                break;
+            }
+            int typeStart = i;
+            while (i < length && ((c = time.charAt(i)) < '0' || c > '9')) {
+                i++;
+            }
+            //Longer units like "min" are ignored, as they were before
+            if (i - typeStart == 1) {
+                long unit = getUnit(time.charAt(typeStart));
+                if (unit > 0) {
+                    if (numb > (Long.MAX_VALUE - mil) / unit) {
+                        return -1L;
+                    }
+                    mil += numb * unit;
+                    found = true;
+                }
             }
-            return mil;
-        } catch (Exception ex) {
-            return -1L;
         }
+        return found ? mil : -1L;
     }
 
-    static int dateDiff(int type, Calendar fromDate, Calendar toDate, boolean future) {
-        int diff = 0;
-        long savedDate = fromDate.getTimeInMillis();
-        while (((future) && (!fromDate.after(toDate))) || ((!future) && (!fromDate.before(toDate)))) {
-            savedDate = fromDate.getTimeInMillis();
-            fromDate.add(type, future ? 1 : -1);
-            diff++;
+    private static long getUnit(char type) {
+        switch (type) {
+            case 's':
+            case 'S':
+                return SECOND;
+            case 'm':
+                return MINUTE;
+            case 'h':
+            case 'H':
+                return HOUR;
+            case 'd':
+            case 'D':
+                return DAY;
+            case 'w':
+            case 'W':
+                return WEEK;
+            case 'M':
+                return MONTH;
+            case 'y':
+            case 'Y':
+                return YEAR;
+            default:
+                return -1L;
         }
-        diff--;
-        fromDate.setTimeInMillis(savedDate);
-        return diff;
     }
 
     public static String formatDateDiff(long date) {
@@ -101,10 +138,7 @@ public class DateUtil {
     }
 
     public static String formatDateDiff(long date, int maxacc) {
-        Calendar c = new GregorianCalendar();
-        c.setTimeInMillis(date);
-        Calendar now = new GregorianCalendar();
-        return formatDateDiff(now, c, maxacc);
+        return formatDuration(date - System.currentTimeMillis(), maxacc);
     }
 
     public static String formatDateDiff(Calendar fromDate, Calendar toDate) {
@@ -112,45 +146,93 @@ public class DateUtil {
     }
 
     public static String formatDateDiff(Calendar fromDate, Calendar toDate, int maxacc) {
-        boolean future = false;
-        if (toDate.equals(fromDate)) {
-            return r.mes("now");
-        }
-        if (toDate.after(fromDate)) {
-            future = true;
-        }
-        StringBuilder sb = new StringBuilder();
-        int[] types = {1, 2, 5, 11, 12, 13};
+        return formatDuration(toDate.getTimeInMillis() - fromDate.getTimeInMillis(), maxacc);
+    }
 
-        String[] names = {r.mes("years"), r.mes("year"), r.mes("months"), r.mes("month"), r.mes("days"), r.mes("day"), r.mes("hours"), r.mes("hour"), r.mes("minutes"), r.mes("minute"), r
-                .mes("seconds"), r.mes("second")};
+    public static String format(long date) {
+        return format(date, 3);
+    }
+
+    public static String format(long date, int maxacc) {
+        return formatDuration(date, maxacc);
+    }
 
+    /**
+     * Formats a duration as its largest units, for example "1 day 2 hours 5 minutes".
+     *
+     * @param duration The duration in milliseconds, the sign is ignored
+     * @param maxacc   The maximum amount of units to show
+     */
+    public static String formatDuration(long duration, int maxacc) {
+        String[] names = getNames();
+        if (duration < 0) {
+            duration = -duration;
+        }
+        if (duration < SECOND) {
+            return names[UNITS.length * 2];
+        }
+        StringBuilder sb = builders.get();
+        sb.setLength(0);
         int accuracy = 0;
-        for (int i = 0; i < types.length; i++) {
-            if (accuracy >= maxacc) {
-                break;
-            }
-            int diff = dateDiff(types[i], fromDate, toDate, future);
+        for (int i = 0; i < UNITS.length && accuracy < maxacc; i++) {
+            long diff = duration / UNITS[i];
             if (diff > 0) {
+                duration -= diff * UNITS[i];
                 accuracy++;
-                sb.append(" ").append(diff).append(" ").append(names[((i * 2) + (diff == 1 ? 1 : 0))]);
+                if (sb.length() > 0) {
+                    sb.append(' ');
+                }
+                sb.append(diff).append(' ').append(names[(i * 2) + (diff == 1 ? 1 : 0)]);
             }
         }
-        if (sb.length() == 0) {
-            return "now";
-        }
-        return sb.toString().trim();
+        return sb.toString();
     }
 
-    public static String format(long date) {
-        return format(date, 3);
+    /**
+     * The time since the server started, formatted at most once per second.
+     */
+    public static String getUptime() {
+        return getUptimeEntry().text;
     }
 
-    public static String format(long date, int maxacc) {
-        Calendar c = new GregorianCalendar();
-        c.setTimeInMillis(date + System.currentTimeMillis());
-        Calendar now = new GregorianCalendar();
-        return formatDateDiff(now, c, maxacc);
+    /**
+     * {@link #getUptime()} without color codes.
+     */
+    public static String getPlainUptime() {
+        return getUptimeEntry().plain;
     }
 
+    private static Uptime getUptimeEntry() {
+        long now = System.currentTimeMillis();
+        Uptime up = uptime;
+        if (up == null || up.second != now / SECOND) {
+            String text = formatDuration(now - START, 3);
+            up = new Uptime(now / SECOND, text, ChatColor.stripColor(text));
+            uptime = up;
+        }
+        return up;
+    }
+
+    private static String[] getNames() {
+        String[] nms = names;
+        if (nms == null) {
+            nms = new String[]{r.mes("years"), r.mes("year"), r.mes("months"), r.mes("month"), r.mes("days"), r.mes("day"), r.mes("hours"), r.mes("hour"), r.mes("minutes"), r
+                    .mes("minute"), r.mes("seconds"), r.mes("second"), r.mes("now")};
+            names = nms;
+        }
+        return nms;
+    }
+
+    private static class Uptime {
+
+        final long second;
+        final String text;
+        final String plain;
+
+        Uptime(long second, String text, String plain) {
+            this.second = second;
+            this.text = text;
+            this.plain = plain;
+        }
+    }
 }
@@ -0,0 +1,226 @@
+/*
+ * This file is part of UltimateCore, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Bammerbom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package bammerbom.ultimatecore.bukkit.resources.utils;
+
+import bammerbom.ultimatecore.bukkit.r;
+import bammerbom.ultimatecore.bukkit.resources.profiler.TickProfiler;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerQuitEvent;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Action bar and title messages that stay on screen for a while.
+ * <p>
+ * Every player has a slot per {@link Channel} with the current message and when it expires. One repeating task resends
+ * a message only when the client is about to fade it out, and clears it when it expires. Setting the message that is
+ * already shown only moves the expiry. Only use this from the main thread.
+ */
+public class HudUtil implements Listener {
+
+    private static final int PERIOD = 5;
+    //Titles are sent with this stay time and refreshed before it runs out
+    private static final int TITLE_STAY = 120;
+    private static final int TITLE_FADE_OUT = 20;
+    private static final Map<UUID, Slot[]> players = new HashMap<>();
+    private static long now = 0;
+    private static Integer task = null;
+
+    public enum Channel {
+        ACTIONBAR(40),
+        TITLE(TITLE_STAY - 20),
+        //The subtitle is shown as long as the title is, it never has to be refreshed on its own
+        SUBTITLE(-1);
+
+        private final int refresh;
+
+        Channel(int refresh) {
+            this.refresh = refresh;
+        }
+    }
+
+    public static void start() {
+        TickProfiler.registerEvents(new HudUtil());
+        task = Bukkit.getScheduler().scheduleSyncRepeatingTask(r.getUC(), TickProfiler.wrap("Hud", new Runnable() {
+            @Override
+            public void run() {
+                tick();
+            }
+        }), PERIOD, PERIOD);
+    }
+
+    public static void stop() {
+        if (task != null) {
+            Bukkit.getScheduler().cancelTask(task);
+            task = null;
+        }
+        players.clear();
+    }
+
+    /**
+     * Shows a message in a channel of a player.
+     *
+     * @param duration The time in ticks to show the message, or -1 to show it until it is cleared
+     */
+    public static void set(Player player, Channel channel, String message, int duration) {
+        Slot[] slots = players.get(player.getUniqueId());
+        if (slots == null) {
+            slots = new Slot[Channel.values().length];
+            players.put(player.getUniqueId(), slots);
+        }
+        long expiry = duration < 0 ? -1 : now + duration;
+        Slot slot = slots[channel.ordinal()];
+        if (slot != null && slot.message.equals(message)) {
+            slot.expiry = expiry;
+            return;
+        }
+        slots[channel.ordinal()] = new Slot(message, expiry, now);
+        send(player, channel, message);
+    }
+
+    public static void clear(Player player, Channel channel) {
+        Slot[] slots = players.get(player.getUniqueId());
+        if (slots == null || slots[channel.ordinal()] == null) {
+            return;
+        }
+        clear(player, slots, channel);
+        if (isEmpty(slots)) {
+            players.remove(player.getUniqueId());
+        }
+    }
+
+    private static void clear(Player player, Slot[] slots, Channel channel) {
+        slots[channel.ordinal()] = null;
+        switch (channel) {
+            case ACTIONBAR:
+                ActionBarUtil.sendActionBar(player, "");
+                break;
+            case TITLE:
+                //Clearing the title hides the subtitle as well
+                slots[Channel.SUBTITLE.ordinal()] = null;
+                TitleUtil.clearTitle(player);
+                break;
+            case SUBTITLE:
+                TitleUtil.sendTitle(player, 0, TITLE_STAY, TITLE_FADE_OUT, null, "");
+                break;
+        }
+    }
+
+    private static void send(Player player, Channel channel, String message) {
+        switch (channel) {
+            case ACTIONBAR:
+                ActionBarUtil.sendActionBar(player, message);
+                break;
+            case TITLE:
+                TitleUtil.sendTitle(player, 0, TITLE_STAY, TITLE_FADE_OUT, message, null);
+                break;
+            case SUBTITLE:
+                TitleUtil.sendTitle(player, 0, TITLE_STAY, TITLE_FADE_OUT, null, message);
+                break;
+        }
+    }
+
+    private static void tick() {
+        now += PERIOD;
+        Iterator<Map.Entry<UUID, Slot[]>> it = players.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<UUID, Slot[]> entry = it.next();
+            Player player = Bukkit.getPlayer(entry.getKey());
+            if (player == null) {
+                it.remove();
+                continue;
+            }
+            Slot[] slots = entry.getValue();
+            for (Channel channel : Channel.values()) {
+                Slot slot = slots[channel.ordinal()];
+                if (slot == null) {
+                    continue;
+                }
+                if (slot.expiry >= 0 && now >= slot.expiry) {
+                    clear(player, slots, channel);
+                } else if (channel.refresh > 0 && now - slot.sent >= channel.refresh) {
+                    slot.sent = now;
+                    send(player, channel, slot.message);
+                }
+            }
+            if (isEmpty(slots)) {
+                it.remove();
+            }
+        }
+    }
+
+    private static boolean isEmpty(Slot[] slots) {
+        for (Slot slot : slots) {
+            if (slot != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public static int getPlayerCount() {
+        return players.size();
+    }
+
+    public static int getChannelCount() {
+        int count = 0;
+        for (Slot[] slots : players.values()) {
+            for (Slot slot : slots) {
+                if (slot != null) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    public static int getTaskCount() {
+        return task == null ? 0 : 1;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onQuit(PlayerQuitEvent e) {
+        players.remove(e.getPlayer().getUniqueId());
+    }
+
+    private static class Slot {
+
+        final String message;
+        long expiry;
+        long sent;
+
+        Slot(String message, long expiry, long sent) {
+            this.message = message;
+            this.expiry = expiry;
+            this.sent = sent;
+        }
+    }
+}
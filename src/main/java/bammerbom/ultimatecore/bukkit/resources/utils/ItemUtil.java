@@ -49,6 +49,7 @@ import java.util.Map.Entry;
 public class ItemUtil {
 
     static HashMap<Material, String> ids = new HashMap<>();
+    static HashMap<String, Material> materials = new HashMap<>();
 
     @SuppressWarnings({ "unchecked" })
 	public static void start() {
@@ -80,6 +81,10 @@ public class ItemUtil {
         } catch (Exception ex) {
             ErrorLogger.log(ex, "Failed to read item uuids.");
         }
+        for (Entry<Material, String> en : ids.entrySet()) {
+            materials.put(en.getValue().toLowerCase(Locale.ENGLISH), en.getKey());
+        }
+        ItemDatabase.clearCache();
     }
 
     public static ItemStack addGlow(ItemStack item) {
@@ -157,12 +162,11 @@ public class ItemUtil {
     }
 
     public static Material getMaterialFromId(String id) {
-        for (Entry<Material, String> en : ids.entrySet()) {
-            if (en.getValue().equalsIgnoreCase(id)) {
-                return en.getKey();
-            }
-        }
-        return null;
+        return materials.get(id.toLowerCase(Locale.ENGLISH));
+    }
+
+    public static List<String> getSuggestions(String str) {
+        return ItemDatabase.getSuggestions(str);
     }
 
     public static List<HashMap<String, Object>> serialize(List<ItemStack> is) {
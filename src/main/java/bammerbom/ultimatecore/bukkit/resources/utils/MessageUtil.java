@@ -23,6 +23,7 @@
  */
 package bammerbom.ultimatecore.bukkit.resources.utils;
 
+import com.google.common.base.Optional;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.BiMap;
 import com.google.common.collect.ImmutableBiMap;
@@ -46,8 +47,13 @@ import org.bukkit.inventory.ItemStack;
 
 import java.io.IOException;
 import java.io.StringWriter;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.*;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.logging.Level;
 
 import static bammerbom.ultimatecore.bukkit.resources.utils.TextualComponent.rawText;
@@ -83,11 +89,13 @@ interface JsonRepresentedObject {
  */
 public class MessageUtil implements JsonRepresentedObject, Cloneable, Iterable<MessagePart>, ConfigurationSerializable {
 
-    private static Constructor<?> nmsPacketPlayOutChatConstructor;
+    private static volatile Constructor<?> nmsPacketPlayOutChatConstructor;
     // The ChatSerializer's instance of Gson
-    private static Object nmsChatSerializerGsonInstance;
-    private static Method fromJsonMethod;
+    private static volatile Object nmsChatSerializerGsonInstance;
+    private static volatile Method fromJsonMethod;
     private static JsonParser _stringParser = new JsonParser();
+    // Compiled (player, packet) send handles, per player implementation class
+    private static final ConcurrentHashMap<Class<?>, MethodHandle> packetSenders = new ConcurrentHashMap<>();
 
     static {
         ConfigurationSerialization.registerClass(MessageUtil.class);
@@ -96,6 +104,7 @@ public class MessageUtil implements JsonRepresentedObject, Cloneable, Iterable<M
     private List<MessagePart> messageParts;
     private String jsonString;
     private boolean dirty;
+    private volatile ChatPacket packet;
 
     /**
      * Creates a JSON message with text.
@@ -232,6 +241,7 @@ public class MessageUtil implements JsonRepresentedObject, Cloneable, Iterable<M
         }
         instance.dirty = false;
         instance.jsonString = null;
+        instance.packet = null;
         return instance;
     }
 
@@ -864,11 +874,25 @@ public class MessageUtil implements JsonRepresentedObject, Cloneable, Iterable<M
             sender.sendMessage(toOldMessageFormat());
             return;
         }
-        Player player = (Player) sender;
+        Object packet = getChatPacket(jsonString);
+        if (packet != null) {
+            sendPacket((Player) sender, packet);
+        }
+    }
+
+    /**
+     * Returns the chat packet for the json of this message. The packet is created once and shared by every recipient until
+     * the message changes.
+     */
+    private Object getChatPacket(String json) {
+        ChatPacket cached = packet;
+        if (cached != null && cached.json.equals(json)) {
+            return cached.packet;
+        }
         try {
-            Object handle = Reflection.getHandle(player);
-            Object connection = Reflection.getField(handle.getClass(), "playerConnection").get(handle);
-            Reflection.getMethod(connection.getClass(), "sendPacket", Reflection.getNMSClass("Packet")).invoke(connection, createChatPacket(jsonString));
+            Object created = createChatPacket(json);
+            packet = new ChatPacket(json, created);
+            return created;
         } catch (IllegalArgumentException e) {
             Bukkit.getLogger().log(Level.WARNING, "Argument could not be passed.", e);
         } catch (IllegalAccessException e) {
@@ -880,18 +904,23 @@ public class MessageUtil implements JsonRepresentedObject, Cloneable, Iterable<M
         } catch (NoSuchMethodException e) {
             Bukkit.getLogger().log(Level.WARNING, "Could not find method.", e);
         }
+        return null;
     }
 
-    private Object createChatPacket(String json) throws IllegalArgumentException, IllegalAccessException, InstantiationException, InvocationTargetException, NoSuchMethodException {
+    private static Object createChatPacket(String json) throws IllegalArgumentException, IllegalAccessException, InstantiationException, InvocationTargetException,
+            NoSuchMethodException {
         if (nmsChatSerializerGsonInstance == null) {
-            // Find the field and its value, completely bypassing obfuscation
-            for (Field declaredField : Reflection.getNMSClass("ChatSerializer").getDeclaredFields()) {
-                if (Modifier.isFinal(declaredField.getModifiers()) && Modifier.isStatic(declaredField.getModifiers()) && declaredField.getType().getName().endsWith("Gson")) {
-                    // We've found our field
-                    declaredField.setAccessible(true);
-                    nmsChatSerializerGsonInstance = declaredField.get(null);
-                    fromJsonMethod = nmsChatSerializerGsonInstance.getClass().getMethod("fromJson", String.class, Class.class);
-                    break;
+            synchronized (MessageUtil.class) {
+                // Find the field and its value, completely bypassing obfuscation
+                for (Field declaredField : Reflection.getNMSClass("ChatSerializer").getDeclaredFields()) {
+                    if (Modifier.isFinal(declaredField.getModifiers()) && Modifier.isStatic(declaredField.getModifiers()) && declaredField.getType().getName().endsWith("Gson")) {
+                        // We've found our field
+                        declaredField.setAccessible(true);
+                        Object gson = declaredField.get(null);
+                        fromJsonMethod = gson.getClass().getMethod("fromJson", String.class, Class.class);
+                        nmsChatSerializerGsonInstance = gson;
+                        break;
+                    }
                 }
             }
         }
@@ -904,6 +933,44 @@ public class MessageUtil implements JsonRepresentedObject, Cloneable, Iterable<M
         return nmsPacketPlayOutChatConstructor.newInstance(serializedChatComponent);
     }
 
+    private static void sendPacket(Player player, Object packet) {
+        try {
+            MethodHandle sender = packetSenders.get(player.getClass());
+            if (sender == null) {
+                sender = createPacketSender(player.getClass());
+                packetSenders.putIfAbsent(player.getClass(), sender);
+            }
+            sender.invokeExact(player, packet);
+        } catch (Throwable e) {
+            Bukkit.getLogger().log(Level.WARNING, "Could not send chat packet.", e);
+        }
+    }
+
+    /**
+     * Compiles player.getHandle().playerConnection.sendPacket(packet) into a single method handle.
+     */
+    private static MethodHandle createPacketSender(Class<?> playerClass) throws NoSuchMethodException, NoSuchFieldException, IllegalAccessException {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        Method getHandle = playerClass.getMethod("getHandle");
+        getHandle.setAccessible(true);
+        Field connection = getHandle.getReturnType().getField("playerConnection");
+        connection.setAccessible(true);
+        Method sendPacket = null;
+        for (Method m : connection.getType().getMethods()) {
+            if (m.getName().equals("sendPacket") && m.getParameterTypes().length == 1) {
+                sendPacket = m;
+                break;
+            }
+        }
+        if (sendPacket == null) {
+            throw new NoSuchMethodException(connection.getType().getName() + ".sendPacket");
+        }
+        sendPacket.setAccessible(true);
+        MethodHandle toConnection = MethodHandles.filterReturnValue(lookup.unreflect(getHandle), lookup.unreflectGetter(connection));
+        MethodHandle send = MethodHandles.filterArguments(lookup.unreflect(sendPacket), 0, toConnection);
+        return send.asType(MethodType.methodType(void.class, Player.class, Object.class));
+    }
+
     /**
      * Sends this message to a command sender. If the sender is a player, they will receive the
      * fully-fledged formatted display of this message. Otherwise, they will receive a version of
@@ -924,11 +991,27 @@ public class MessageUtil implements JsonRepresentedObject, Cloneable, Iterable<M
      */
     public void send(final Iterable<? extends CommandSender> senders) {
         String string = toJSONString();
+        Object packet = null;
+        String old = null;
         for (final CommandSender sender : senders) {
-            send(sender, string);
+            if (!(sender instanceof Player)) {
+                if (old == null) {
+                    old = toOldMessageFormat();
+                }
+                sender.sendMessage(old);
+                continue;
+            }
+            if (packet == null) {
+                packet = getChatPacket(string);
+                if (packet == null) {
+                    return;
+                }
+            }
+            sendPacket((Player) sender, packet);
         }
     }
 
+
     /**
      * Convert this message to a human-readable string with limited formatting. This method is used
      * to send this message to clients without JSON formatting support.
@@ -997,6 +1080,16 @@ public class MessageUtil implements JsonRepresentedObject, Cloneable, Iterable<M
         return messageParts.iterator();
     }
 
+    private static final class ChatPacket {
+
+        final String json;
+        final Object packet;
+
+        ChatPacket(String json, Object packet) {
+            this.json = json;
+            this.packet = packet;
+        }
+    }
 }
 
 /**
@@ -1591,18 +1684,19 @@ final class Reflection {
     /**
      * Stores loaded classes from the {@code net.minecraft.server} package.
      */
-    private static final Map<String, Class<?>> _loadedNMSClasses = new HashMap<>();
+    private static final ConcurrentMap<String, Optional<Class<?>>> _loadedNMSClasses = new ConcurrentHashMap<>();
     /**
      * Stores loaded classes from the {@code org.bukkit.craftbukkit} package (and subpackages).
      */
-    private static final Map<String, Class<?>> _loadedOBCClasses = new HashMap<>();
-    private static final Map<Class<?>, Map<String, Field>> _loadedFields = new HashMap<>();
+    private static final ConcurrentMap<String, Optional<Class<?>>> _loadedOBCClasses = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<Class<?>, ConcurrentMap<String, Optional<Field>>> _loadedFields = new ConcurrentHashMap<>();
     /**
      * Contains loaded methods in a cache. The map maps [types to maps of [method names to maps of
-     * [parameter types to method instances]]].
+     * [parameter types to method instances]]]. Lookups that failed are cached as absent.
      */
-    private static final Map<Class<?>, Map<String, Map<ArrayWrapper<Class<?>>, Method>>> _loadedMethods = new HashMap<>();
-    private static String _versionString;
+    private static final ConcurrentMap<Class<?>, ConcurrentMap<String, ConcurrentMap<ArrayWrapper<Class<?>>, Optional<Method>>>> _loadedMethods = new
+            ConcurrentHashMap<>();
+    private static volatile String _versionString;
 
     private Reflection() {
 
@@ -1631,15 +1725,16 @@ final class Reflection {
      * Gets a {@link Class} object representing a type contained within the
      * {@code net.minecraft.server} versioned package. The class instances returned by this method
      * are cached, such that no lookup will be done twice (unless multiple threads are accessing
-     * this method simultaneously).
+     * this method simultaneously). This method can be called from any thread.
      *
      * @param className The name of the class, excluding the package, within NMS.
      * @return The class instance representing the specified NMS class, or {@code null} if it could
      * not be loaded.
      */
-    public synchronized static Class<?> getNMSClass(String className) {
-        if (_loadedNMSClasses.containsKey(className)) {
-            return _loadedNMSClasses.get(className);
+    public static Class<?> getNMSClass(String className) {
+        Optional<Class<?>> loaded = _loadedNMSClasses.get(className);
+        if (loaded != null) {
+            return loaded.orNull();
         }
 
         String fullName = "net.minecraft.server." + getVersion() + className;
@@ -1648,10 +1743,9 @@ final class Reflection {
             clazz = Class.forName(fullName);
         } catch (Exception e) {
             ErrorLogger.log(e, "Failed to find NMS class. " + className);
-            _loadedNMSClasses.put(className, null);
-            return null;
+            clazz = null;
         }
-        _loadedNMSClasses.put(className, clazz);
+        _loadedNMSClasses.putIfAbsent(className, Optional.<Class<?>>fromNullable(clazz));
         return clazz;
     }
 
@@ -1659,16 +1753,17 @@ final class Reflection {
      * Gets a {@link Class} object representing a type contained within the
      * {@code org.bukkit.craftbukkit} versioned package. The class instances returned by this
      * method are cached, such that no lookup will be done twice (unless multiple threads are
-     * accessing this method simultaneously).
+     * accessing this method simultaneously). This method can be called from any thread.
      *
      * @param className The name of the class, excluding the package, within OBC. This name may
      *                  contain a subpackage name, such as {@code inventory.CraftItemStack}.
      * @return The class instance representing the specified OBC class, or {@code null} if it could
      * not be loaded.
      */
-    public synchronized static Class<?> getOBCClass(String className) {
-        if (_loadedOBCClasses.containsKey(className)) {
-            return _loadedOBCClasses.get(className);
+    public static Class<?> getOBCClass(String className) {
+        Optional<Class<?>> loaded = _loadedOBCClasses.get(className);
+        if (loaded != null) {
+            return loaded.orNull();
         }
 
         String fullName = "org.bukkit.craftbukkit." + getVersion() + className;
@@ -1677,10 +1772,9 @@ final class Reflection {
             clazz = Class.forName(fullName);
         } catch (Exception e) {
             ErrorLogger.log(e, "Failed to get OBC class. " + className);
-            _loadedOBCClasses.put(className, null);
-            return null;
+            clazz = null;
         }
-        _loadedOBCClasses.put(className, clazz);
+        _loadedOBCClasses.putIfAbsent(className, Optional.<Class<?>>fromNullable(clazz));
         return clazz;
     }
 
@@ -1695,7 +1789,7 @@ final class Reflection {
      * @return The NMS handle of the specified object, or {@code null} if it could not be retrieved
      * using {@code getHandle()}.
      */
-    public synchronized static Object getHandle(Object obj) {
+    public static Object getHandle(Object obj) {
         try {
             return getMethod(obj.getClass(), "getHandle").invoke(obj);
         } catch (Exception e) {
@@ -1709,8 +1803,8 @@ final class Reflection {
      * Java access modifiers are ignored during this retrieval. No guarantee is made as to whether
      * the field returned will be an instance or static field.
      * <p>
-     * A global caching mechanism within this class is used to store fields. Combined with
-     * synchronization, this guarantees that no field will be reflectively looked up twice.
+     * A global caching mechanism within this class is used to store fields. The caches are
+     * concurrent, so a field may be looked up twice when threads race, but never afterwards.
      * </p>
      * <p>
      * If a field is deemed suitable for return, {@link Field#setAccessible(boolean) setAccessible}
@@ -1724,30 +1818,29 @@ final class Reflection {
      * @return A field object with the specified name declared by the specified class.
      * @see Class#getDeclaredField(String)
      */
-    public synchronized static Field getField(Class<?> clazz, String name) {
-        Map<String, Field> loaded;
-        if (!_loadedFields.containsKey(clazz)) {
-            loaded = new HashMap<>();
-            _loadedFields.put(clazz, loaded);
-        } else {
+    public static Field getField(Class<?> clazz, String name) {
+        ConcurrentMap<String, Optional<Field>> loaded = _loadedFields.get(clazz);
+        if (loaded == null) {
+            _loadedFields.putIfAbsent(clazz, new ConcurrentHashMap<String, Optional<Field>>());
             loaded = _loadedFields.get(clazz);
         }
-        if (loaded.containsKey(name)) {
+        Optional<Field> cached = loaded.get(name);
+        if (cached != null) {
             // If the field is loaded (or cached as not existing), return the relevant value, which might be null
-            return loaded.get(name);
+            return cached.orNull();
         }
+        Field field;
         try {
-            Field field = clazz.getDeclaredField(name);
+            field = clazz.getDeclaredField(name);
             field.setAccessible(true);
-            loaded.put(name, field);
-            return field;
         } catch (Exception e) {
             // Error loading
             ErrorLogger.log(e, "getField() failed.");
             // Cache field as not existing
-            loaded.put(name, null);
-            return null;
+            field = null;
         }
+        loaded.putIfAbsent(name, Optional.fromNullable(field));
+        return field;
     }
 
     /**
@@ -1755,8 +1848,8 @@ final class Reflection {
      * and argument types. Java access modifiers are ignored during this retrieval. No guarantee is
      * made as to whether the field returned will be an instance or static field.
      * <p>
-     * A global caching mechanism within this class is used to store method. Combined with
-     * synchronization, this guarantees that no method will be reflectively looked up twice.
+     * A global caching mechanism within this class is used to store method. The caches are
+     * concurrent, so a method may be looked up twice when threads race, but never afterwards.
      * </p>
      * <p>
      * If a method is deemed suitable for return,
@@ -1774,31 +1867,35 @@ final class Reflection {
      * @param args  The formal argument types of the method.
      * @return A method object with the specified name declared by the specified class.
      */
-    public synchronized static Method getMethod(Class<?> clazz, String name, Class<?>... args) {
-        if (!_loadedMethods.containsKey(clazz)) {
-            _loadedMethods.put(clazz, new HashMap<String, Map<ArrayWrapper<Class<?>>, Method>>());
+    public static Method getMethod(Class<?> clazz, String name, Class<?>... args) {
+        ConcurrentMap<String, ConcurrentMap<ArrayWrapper<Class<?>>, Optional<Method>>> loadedMethodNames = _loadedMethods.get(clazz);
+        if (loadedMethodNames == null) {
+            _loadedMethods.putIfAbsent(clazz, new ConcurrentHashMap<String, ConcurrentMap<ArrayWrapper<Class<?>>, Optional<Method>>>());
+            loadedMethodNames = _loadedMethods.get(clazz);
         }
 
-        Map<String, Map<ArrayWrapper<Class<?>>, Method>> loadedMethodNames = _loadedMethods.get(clazz);
-        if (!loadedMethodNames.containsKey(name)) {
-            loadedMethodNames.put(name, new HashMap<ArrayWrapper<Class<?>>, Method>());
+        ConcurrentMap<ArrayWrapper<Class<?>>, Optional<Method>> loadedSignatures = loadedMethodNames.get(name);
+        if (loadedSignatures == null) {
+            loadedMethodNames.putIfAbsent(name, new ConcurrentHashMap<ArrayWrapper<Class<?>>, Optional<Method>>());
+            loadedSignatures = loadedMethodNames.get(name);
         }
 
-        Map<ArrayWrapper<Class<?>>, Method> loadedSignatures = loadedMethodNames.get(name);
         ArrayWrapper<Class<?>> wrappedArg = new ArrayWrapper<>(args);
-        if (loadedSignatures.containsKey(wrappedArg)) {
-            return loadedSignatures.get(wrappedArg);
+        Optional<Method> cached = loadedSignatures.get(wrappedArg);
+        if (cached != null) {
+            return cached.orNull();
         }
 
+        Method method = null;
         for (Method m : clazz.getMethods()) {
             if (m.getName().equals(name) && Arrays.equals(args, m.getParameterTypes())) {
                 m.setAccessible(true);
-                loadedSignatures.put(wrappedArg, m);
-                return m;
+                method = m;
+                break;
             }
         }
-        loadedSignatures.put(wrappedArg, null);
-        return null;
+        loadedSignatures.putIfAbsent(wrappedArg, Optional.fromNullable(method));
+        return method;
     }
 
 }
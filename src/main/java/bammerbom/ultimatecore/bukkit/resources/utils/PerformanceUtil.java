@@ -23,32 +23,19 @@
  */
 package bammerbom.ultimatecore.bukkit.resources.utils;
 
-import bammerbom.ultimatecore.bukkit.r;
-import org.bukkit.Bukkit;
+import bammerbom.ultimatecore.bukkit.resources.profiler.TickProfiler;
 
 public class PerformanceUtil {
 
-    private static float tps = 20F;
-    private static long lastPoll = System.currentTimeMillis() - 3000L;
-
-    static {
-        Bukkit.getServer().getScheduler().scheduleSyncRepeatingTask(r.getUC(), new Runnable() {
-            @Override
-            public void run() {
-                long now = System.currentTimeMillis();
-                Float timeSpent = ((now - lastPoll) * 1.0F) / 1000.0F;
-                float tpsn = (timeSpent * 20.0F);
-                if (tpsn > 20.0F) {
-                    tpsn = 20.0F;
-                }
-                tps = (Math.round(tpsn * 10.0F) / 10.0F);
-                lastPoll = now;
-            }
-        }, 20, 20);
-    }
-
+    /**
+     * @return The TPS of the last minute, rounded to one decimal and never higher than 20
+     */
     public static float getTps() {
-        return tps;
+        float tps = (float) TickProfiler.getTps(1);
+        if (tps > 20.0F) {
+            tps = 20.0F;
+        }
+        return Math.round(tps * 10.0F) / 10.0F;
     }
 
     public static float maxRam() {
@@ -25,6 +25,9 @@ package bammerbom.ultimatecore.bukkit.resources.utils;
 
 import java.io.*;
 import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
 
 import bammerbom.ultimatecore.bukkit.ErrorLogger;
@@ -100,8 +103,9 @@ public class StreamUtil {
 
     public static FileOutputStream createOutputStream(File file, boolean append) throws IOException, SecurityException {
         File directory = file.getAbsoluteFile().getParentFile();
-        if ((!directory.exists()) && (!directory.mkdirs())) {
-            throw new IOException("Failed to create the parent directory of the file");
+        if (!directory.isDirectory()) {
+            //Unlike mkdirs, this doesn't fail when another thread creates the directory at the same time
+            Files.createDirectories(directory.toPath());
         }
         if ((!file.exists()) && (!file.createNewFile())) {
             throw new IOException("Failed to create the new file to write to");
@@ -109,6 +113,17 @@ public class StreamUtil {
         return new FileOutputStream(file, append);
     }
 
+    /**
+     * Replaces the target with the source file, atomically when the file system supports it.
+     */
+    public static void replaceFile(File source, File target) throws IOException {
+        try {
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
     public static boolean tryCopyFile(File sourceLocation, File targetLocation) {
         try {
             copyFile(sourceLocation, targetLocation);
@@ -129,35 +144,29 @@ public class StreamUtil {
                 copyFile(new File(sourceLocation, subFileName), new File(targetLocation, subFileName));
             }
         } else {
-            FileInputStream input = null;
-            FileOutputStream output = null;
-            FileChannel inputChannel = null;
-            FileChannel outputChannel = null;
-            try {
-                input = new FileInputStream(sourceLocation);
-                inputChannel = input.getChannel();
-                output = createOutputStream(targetLocation);
-                outputChannel = output.getChannel();
-
-                long transfered = 0L;
-                long bytes = inputChannel.size();
-                while (transfered < bytes) {
-                    transfered += outputChannel.transferFrom(inputChannel, 0L, inputChannel.size());
-                    outputChannel.position(transfered);
-                }
-            } finally {
-                if (inputChannel != null) {
-                    inputChannel.close();
-                } else if (input != null) {
-                    input.close();
-                }
+            transferFile(sourceLocation, targetLocation);
+        }
+    }
 
-                if (outputChannel != null) {
-                    outputChannel.close();
-                } else if (output != null) {
-                    output.close();
+    /**
+     * Copies a single file with {@link FileChannel#transferTo}, which lets the OS copy without going through the heap.
+     *
+     * @return The amount of bytes copied
+     */
+    public static long transferFile(File sourceLocation, File targetLocation) throws IOException {
+        try (FileInputStream input = new FileInputStream(sourceLocation); FileOutputStream output = createOutputStream(targetLocation)) {
+            FileChannel inputChannel = input.getChannel();
+            FileChannel outputChannel = output.getChannel();
+            long size = inputChannel.size();
+            long transfered = 0L;
+            while (transfered < size) {
+                long count = inputChannel.transferTo(transfered, size - transfered, outputChannel);
+                if (count <= 0) {
+                    break;
                 }
+                transfered += count;
             }
+            return transfered;
         }
     }
 
@@ -26,10 +26,13 @@ package bammerbom.ultimatecore.bukkit.resources.utils;
 import bammerbom.ultimatecore.bukkit.ErrorLogger;
 import bammerbom.ultimatecore.bukkit.JsonConfig;
 import bammerbom.ultimatecore.bukkit.r;
+import bammerbom.ultimatecore.bukkit.resources.databases.NameDatabase;
+import bammerbom.ultimatecore.bukkit.resources.storage.Store;
 
 import com.google.common.collect.ImmutableList;
+import org.bukkit.Bukkit;
 import org.bukkit.OfflinePlayer;
-import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
 import org.json.simple.JSONValue;
@@ -78,43 +81,56 @@ public class UuidUtil {
         }
     }
 
-    //
+    /**
+     * Updates the names in the player files, in one go on the current thread.
+     */
     public static void loadPlayers() {
-        File directory = new File(r.getUC().getDataFolder() + File.separator + "Players");
-        if (!directory.exists()) {
-            directory.mkdirs();
-        }
-        ArrayList<UUID> request = null;
+        PlayerScan scan = listPlayers();
+        readPlayers(scan);
+        finishPlayers(scan);
+    }
+
+    /**
+     * Collects the uuid, name and online state of every known player. Touches Bukkit, so runs on the main thread.
+     */
+    public static PlayerScan listPlayers() {
+        PlayerScan scan = new PlayerScan();
         for (OfflinePlayer p : r.getOfflinePlayers()) {
             if (p.getUniqueId() == null) {
                 continue;
             }
-            final File file = new File(r.getUC().getDataFolder() + File.separator + "Players" + File.separator + p.getUniqueId() + ".json");
-            if (!file.exists()) {
-                try {
-                    file.createNewFile();
-                } catch (IOException e) {
-                    ErrorLogger.log(e, "Failed to create new file for " + p.getUniqueId());
-                }
+            scan.players.put(p.getUniqueId(), p.getName());
+            if (p.isOnline()) {
+                scan.online.add(p.getUniqueId());
             }
-            JsonConfig conf = new JsonConfig(file);
-            if (p.getName() == null) {
+        }
+        return scan;
+    }
+
+    /**
+     * Reads the player files of the scanned players and stores their current names. Only touches files, so can run off
+     * the main thread.
+     */
+    public static void readPlayers(PlayerScan scan) {
+        for (Map.Entry<UUID, String> entry : scan.players.entrySet()) {
+            UUID uuid = entry.getKey();
+            String name = entry.getValue();
+            JsonConfig conf = new JsonConfig(Store.PLAYERS, uuid.toString());
+            if (name == null) {
                 if (!conf.contains("name")) {
-                    if (request == null) {
-                        request = new ArrayList<>();
-                    }
-                    request.add(p.getUniqueId());
+                    scan.request.add(uuid);
                 }
             } else {
+                NameDatabase.setName(uuid, name);
                 if (!conf.contains("name")) {
-                    conf.set("name", p.getName());
+                    conf.set("name", name);
                     conf.save();
                 } else {
-                    if (!conf.getString("name").equals(p.getName())) {
+                    if (!conf.getString("name").equals(name)) {
                         String oldname = conf.getString("name");
-                        conf.set("name", p.getName());
-                        if (p.isOnline()) {
-                            r.sendMes((CommandSender) p, "nameChanged", "%Oldname", oldname, "%Newname", p.getName());
+                        conf.set("name", name);
+                        if (scan.online.contains(uuid)) {
+                            scan.renamed.put(uuid, oldname);
                         } else {
                             conf.set("oldname", oldname);
                         }
@@ -123,25 +139,57 @@ public class UuidUtil {
                 }
             }
         }
-        if (request != null) {
-            final ArrayList<UUID> req = request;
-            try {
-                r.log("Starting playerfile update...");
-                HashMap<UUID, String> s = new UuidToName(req).call();
-                for (UUID u : s.keySet()) {
-                    String n = s.get(u);
-                    File f = new File(r.getUC().getDataFolder() + File.separator + "Players" + File.separator + u + "" +
-                            ".json");
-                    JsonConfig conf = new JsonConfig(f);
-                    conf.set("name", n);
-                    conf.save();
-                }
-                r.log("Playerfile update complete.");
-            } catch (Exception e) {
-                ErrorLogger.log(e, "Failed to convert uuids to names.");
+    }
+
+    /**
+     * Tells online players about their name change and looks up the names of the players that have none in the background.
+     * Runs on the main thread.
+     */
+    public static void finishPlayers(PlayerScan scan) {
+        for (Map.Entry<UUID, String> entry : scan.renamed.entrySet()) {
+            Player p = r.searchPlayer(entry.getKey());
+            if (p != null) {
+                r.sendMes(p, "nameChanged", "%Oldname", entry.getValue(), "%Newname", p.getName());
             }
         }
+        if (scan.request.isEmpty()) {
+            return;
+        }
+        final List<UUID> req = new ArrayList<>(scan.request);
+        Bukkit.getScheduler().runTaskAsynchronously(r.getUC(), new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    r.log("Starting playerfile update...");
+                    HashMap<UUID, String> s = new UuidToName(req).call();
+                    for (UUID u : s.keySet()) {
+                        String n = s.get(u);
+                        NameDatabase.setName(u, n);
+                        JsonConfig conf = new JsonConfig(Store.PLAYERS, u.toString());
+                        conf.set("name", n);
+                        conf.save();
+                    }
+                    r.log("Playerfile update complete.");
+                } catch (Exception e) {
+                    ErrorLogger.log(e, "Failed to convert uuids to names.");
+                }
+            }
+        });
+    }
 
+    /**
+     * The players found by {@link #listPlayers()}, and what {@link #readPlayers(PlayerScan)} found out about them.
+     */
+    public static class PlayerScan {
+
+        private final Map<UUID, String> players = new LinkedHashMap<>();
+        private final Set<UUID> online = new HashSet<>();
+        private final Map<UUID, String> renamed = new HashMap<>();
+        private final List<UUID> request = new ArrayList<>();
+
+        public int size() {
+            return players.size();
+        }
     }
 
     public static class UuidToName implements Callable<Map<UUID, String>> {
@@ -240,7 +288,7 @@ public class UuidUtil {
         @Override
         public Map<String, UUID> call() throws Exception {
             Map<String, UUID> uuidMap = new HashMap<>();
-            int requests = new Double(Math.ceil(names.size() / 100)).intValue();
+            int requests = (int) Math.ceil(names.size() / 100.0);
             for (int i = 0; i < requests; i++) {
                 HttpURLConnection connection = createConnection();
                 String body = JSONArray.toJSONString(names.subList(i * 100, Math.min((i + 1) * 100, names.size())));
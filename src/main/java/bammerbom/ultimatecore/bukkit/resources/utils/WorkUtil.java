@@ -0,0 +1,251 @@
+/*
+ * This file is part of UltimateCore, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Bammerbom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package bammerbom.ultimatecore.bukkit.resources.utils;
+
+import bammerbom.ultimatecore.bukkit.ErrorLogger;
+import bammerbom.ultimatecore.bukkit.r;
+import bammerbom.ultimatecore.bukkit.resources.profiler.TickProfiler;
+import org.bukkit.Bukkit;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Runs bulk operations in small parts over several ticks.
+ * <p>
+ * A {@link Job} processes units from an iterator until its budget for the tick is used, and continues on the next tick. The
+ * sender that started it is told about the progress every few seconds, and the job reports the result itself when it is
+ * complete. Everything runs on the main thread.
+ */
+public class WorkUtil {
+
+    //Budget in milliseconds per tick for commands that change entities or players
+    public static final int DEFAULT_BUDGET = 5;
+    private static final int PROGRESS_INTERVAL = 100;
+    private static final List<Job<?>> jobs = new ArrayList<>();
+    private static Integer task = null;
+    private static long tick = 0;
+    private static long lastUsed = 0;
+    private static long lastBudget = 0;
+    private static long processed = 0;
+
+    /**
+     * Starts the job, the first units are processed right away.
+     */
+    public static <T> Job<T> submit(Job<T> job) {
+        job.started = tick;
+        if (step(job)) {
+            return job;
+        }
+        jobs.add(job);
+        if (task == null) {
+            task = Bukkit.getScheduler().scheduleSyncRepeatingTask(r.getUC(), TickProfiler.wrap("Work", new Runnable() {
+                @Override
+                public void run() {
+                    tick();
+                }
+            }), 1L, 1L);
+        }
+        return job;
+    }
+
+    /**
+     * Cancels all jobs started by the sender.
+     *
+     * @return The amount of jobs that were cancelled
+     */
+    public static int cancel(CommandSender cs) {
+        int amount = 0;
+        for (Job<?> job : new ArrayList<>(jobs)) {
+            if (job.sender.equals(cs)) {
+                job.cancel();
+                amount++;
+            }
+        }
+        return amount;
+    }
+
+    public static List<Job<?>> getJobs() {
+        return new ArrayList<>(jobs);
+    }
+
+    public static int getQueueDepth() {
+        return jobs.size();
+    }
+
+    /**
+     * @return The percentage of the budget of all jobs that was used in the last tick with jobs
+     */
+    public static double getBudgetUsage() {
+        return lastBudget == 0 ? 0 : lastUsed * 100.0 / lastBudget;
+    }
+
+    public static long getUnitsProcessed() {
+        return processed;
+    }
+
+    public static int getTaskCount() {
+        return task == null ? 0 : 1;
+    }
+
+    public static void stop() {
+        if (task != null) {
+            Bukkit.getScheduler().cancelTask(task);
+            task = null;
+        }
+        jobs.clear();
+    }
+
+    private static void tick() {
+        tick++;
+        long used = 0;
+        long budget = 0;
+        for (Job<?> job : new ArrayList<>(jobs)) {
+            long start = System.nanoTime();
+            boolean done = step(job);
+            used += System.nanoTime() - start;
+            budget += job.budget;
+            if (done) {
+                jobs.remove(job);
+            } else if ((tick - job.started) % PROGRESS_INTERVAL == 0) {
+                job.progress();
+            }
+        }
+        lastUsed = used;
+        lastBudget = budget;
+        if (jobs.isEmpty()) {
+            Bukkit.getScheduler().cancelTask(task);
+            task = null;
+        }
+    }
+
+    /**
+     * Runs the job for its budget, and completes it when it has no units left.
+     *
+     * @return Whether the job is complete or cancelled
+     */
+    private static boolean step(Job<?> job) {
+        try {
+            boolean done = job.run(System.nanoTime() + job.budget);
+            if (done && !job.cancelled) {
+                job.complete(job.done);
+            }
+            return done;
+        } catch (Exception ex) {
+            ErrorLogger.log(ex, "Failed to run " + job.getName());
+            return true;
+        }
+    }
+
+    public abstract static class Job<T> {
+
+        private final String name;
+        private final CommandSender sender;
+        private final Iterator<? extends T> units;
+        private final int total;
+        private final long budget;
+        private int done = 0;
+        private boolean cancelled = false;
+        private long started = 0;
+
+        /**
+         * @param name   The name of the command, shown in the progress messages
+         * @param budget The time in milliseconds this job may use every tick
+         */
+        public Job(String name, CommandSender sender, Collection<? extends T> units, int budget) {
+            this.name = name;
+            this.sender = sender;
+            this.units = units.iterator();
+            this.total = units.size();
+            this.budget = budget * 1000000L;
+        }
+
+        /**
+         * Processes a single unit.
+         *
+         * @return Whether the unit was counted as done, for example false for an entity that was already removed
+         */
+        protected abstract boolean process(T unit);
+
+        /**
+         * Called on the main thread after the last unit is processed, not when the job was cancelled.
+         *
+         * @param done The amount of units that were processed and counted as done
+         */
+        protected abstract void complete(int done);
+
+        private boolean run(long deadline) {
+            while (!cancelled && units.hasNext()) {
+                if (process(units.next())) {
+                    done++;
+                }
+                processed++;
+                if (System.nanoTime() >= deadline) {
+                    break;
+                }
+            }
+            return cancelled || !units.hasNext();
+        }
+
+        private void progress() {
+            if (sender instanceof Player && !((Player) sender).isOnline()) {
+                return;
+            }
+            r.sendMes(sender, "workProgress", "%Task", name, "%Done", done, "%Total", total);
+        }
+
+        public void cancel() {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            jobs.remove(this);
+            r.sendMes(sender, "workCancelled", "%Task", name, "%Done", done, "%Total", total);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public CommandSender getSender() {
+            return sender;
+        }
+
+        public int getDone() {
+            return done;
+        }
+
+        public int getTotal() {
+            return total;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+}
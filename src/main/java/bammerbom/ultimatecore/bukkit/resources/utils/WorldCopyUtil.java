@@ -0,0 +1,305 @@
+/*
+ * This file is part of UltimateCore, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) Bammerbom
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package bammerbom.ultimatecore.bukkit.resources.utils;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * Copies world folders in parallel.
+ * <p>
+ * A backup keeps a manifest with the size, modification time and checksum of every file it copied. The next backup
+ * into the same folder skips files that did not change and removes files that no longer exist in the world.
+ */
+public class WorldCopyUtil {
+
+    private static final String MANIFEST = "backup.manifest";
+    //Files that belong to the running server and should never be copied
+    private static final Set<String> IGNORED = new HashSet<>(Arrays.asList("session.lock", MANIFEST));
+
+    /**
+     * Copies the world folder to a new world folder. The uid.dat is left out, so the server gives the copy its own id.
+     */
+    public static Progress cloneWorld(File source, File target) {
+        Set<String> ignored = new HashSet<>(IGNORED);
+        ignored.add("uid.dat");
+        return start(source, target, ignored, false);
+    }
+
+    /**
+     * Copies the world folder into the backup folder, skipping files that did not change since the last backup.
+     */
+    public static Progress backupWorld(File source, File target) {
+        return start(source, target, IGNORED, true);
+    }
+
+    private static Progress start(final File source, final File target, final Set<String> ignored, final boolean incremental) {
+        final Progress progress = new Progress();
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    copy(source, target, ignored, incremental, progress);
+                } catch (Exception ex) {
+                    progress.error = ex;
+                } finally {
+                    progress.done = true;
+                }
+            }
+        }, "UltimateCore world copy");
+        thread.setDaemon(true);
+        thread.start();
+        return progress;
+    }
+
+    private static void copy(File source, File target, Set<String> ignored, boolean incremental, final Progress progress) throws Exception {
+        final Map<String, File> files = new TreeMap<>();
+        list(source, "", ignored, files);
+        for (File file : files.values()) {
+            progress.totalBytes += file.length();
+        }
+        progress.totalFiles = files.size();
+        if (!target.exists() && !target.mkdirs()) {
+            throw new IOException("Failed to create " + target.getPath());
+        }
+        //Created here, the copy threads would race each other on creating the same folder
+        Set<File> directories = new HashSet<>();
+        for (String path : files.keySet()) {
+            directories.add(new File(target, path).getParentFile());
+        }
+        for (File directory : directories) {
+            Files.createDirectories(directory.toPath());
+        }
+        File manifestFile = new File(target, MANIFEST);
+        final Map<String, Entry> old = incremental ? readManifest(manifestFile) : new HashMap<String, Entry>();
+        final ConcurrentHashMap<String, Entry> manifest = new ConcurrentHashMap<>();
+
+        int threads = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (final Map.Entry<String, File> file : files.entrySet()) {
+            final File dest = new File(target, file.getKey());
+            futures.add(executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws IOException {
+                    File src = file.getValue();
+                    long size = src.length();
+                    long modified = src.lastModified();
+                    Entry entry = old.get(file.getKey());
+                    if (entry != null && dest.exists() && entry.size == size) {
+                        if (entry.modified == modified) {
+                            manifest.put(file.getKey(), entry);
+                            progress.skip(size);
+                            return null;
+                        }
+                        //Touched but maybe not changed, compare checksums before copying
+                        long hash = checksum(src);
+                        long previous = entry.hash != -1 ? entry.hash : checksum(dest);
+                        if (hash == previous) {
+                            manifest.put(file.getKey(), new Entry(size, modified, hash));
+                            progress.skip(size);
+                            return null;
+                        }
+                        StreamUtil.transferFile(src, dest);
+                        manifest.put(file.getKey(), new Entry(size, modified, hash));
+                        progress.copy(size);
+                        return null;
+                    }
+                    StreamUtil.transferFile(src, dest);
+                    manifest.put(file.getKey(), new Entry(size, modified, -1));
+                    progress.copy(size);
+                    return null;
+                }
+            }));
+        }
+        executor.shutdown();
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException ex) {
+            executor.shutdownNow();
+            throw ex.getCause() instanceof Exception ? (Exception) ex.getCause() : ex;
+        }
+        if (incremental) {
+            //Remove files that no longer exist in the world
+            for (String path : old.keySet()) {
+                if (!files.containsKey(path)) {
+                    new File(target, path).delete();
+                }
+            }
+            writeManifest(manifestFile, manifest);
+        }
+    }
+
+    private static void list(File directory, String prefix, Set<String> ignored, Map<String, File> files) {
+        File[] children = directory.listFiles();
+        if (children == null) {
+            return;
+        }
+        for (File child : children) {
+            if (ignored.contains(child.getName())) {
+                continue;
+            }
+            String path = prefix + child.getName();
+            if (child.isDirectory()) {
+                list(child, path + "/", ignored, files);
+            } else {
+                files.put(path, child);
+            }
+        }
+    }
+
+    private static long checksum(File file) throws IOException {
+        CRC32 crc = new CRC32();
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+        try (FileInputStream input = new FileInputStream(file)) {
+            FileChannel channel = input.getChannel();
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                crc.update(buffer.array(), 0, buffer.limit());
+                buffer.clear();
+            }
+        }
+        return crc.getValue();
+    }
+
+    private static Map<String, Entry> readManifest(File file) {
+        Map<String, Entry> entries = new HashMap<>();
+        if (!file.exists()) {
+            return entries;
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split("\t");
+                if (parts.length != 4) {
+                    continue;
+                }
+                entries.put(parts[0], new Entry(Long.parseLong(parts[1]), Long.parseLong(parts[2]), Long.parseLong(parts[3])));
+            }
+        } catch (IOException | NumberFormatException ex) {
+            //A broken manifest only means everything is copied again
+            entries.clear();
+        }
+        return entries;
+    }
+
+    private static void writeManifest(File file, Map<String, Entry> entries) throws IOException {
+        File temp = new File(file.getParentFile(), file.getName() + ".tmp");
+        try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(temp), StandardCharsets.UTF_8))) {
+            for (Map.Entry<String, Entry> entry : new TreeMap<>(entries).entrySet()) {
+                writer.write(entry.getKey() + "\t" + entry.getValue().size + "\t" + entry.getValue().modified + "\t" + entry.getValue().hash);
+                writer.newLine();
+            }
+        }
+        StreamUtil.replaceFile(temp, file);
+    }
+
+    private static class Entry {
+        final long size;
+        final long modified;
+        //-1 if not known
+        final long hash;
+
+        Entry(long size, long modified, long hash) {
+            this.size = size;
+            this.modified = modified;
+            this.hash = hash;
+        }
+    }
+
+    /**
+     * Progress of a running copy, safe to read from the main thread.
+     */
+    public static class Progress {
+        private final AtomicLong copiedBytes = new AtomicLong();
+        private final AtomicLong skippedBytes = new AtomicLong();
+        private final AtomicInteger copiedFiles = new AtomicInteger();
+        private final AtomicInteger skippedFiles = new AtomicInteger();
+        private final long started = System.currentTimeMillis();
+        private volatile long totalBytes = 0;
+        private volatile int totalFiles = 0;
+        private volatile boolean done = false;
+        private volatile Exception error = null;
+
+        void copy(long bytes) {
+            copiedBytes.addAndGet(bytes);
+            copiedFiles.incrementAndGet();
+        }
+
+        void skip(long bytes) {
+            skippedBytes.addAndGet(bytes);
+            skippedFiles.incrementAndGet();
+        }
+
+        public boolean isDone() {
+            return done;
+        }
+
+        public Exception getError() {
+            return error;
+        }
+
+        public long getCopiedBytes() {
+            return copiedBytes.get();
+        }
+
+        public long getTotalBytes() {
+            return totalBytes;
+        }
+
+        public int getCopiedFiles() {
+            return copiedFiles.get();
+        }
+
+        public int getSkippedFiles() {
+            return skippedFiles.get();
+        }
+
+        public int getTotalFiles() {
+            return totalFiles;
+        }
+
+        /**
+         * @return Percentage of the bytes that is copied or skipped
+         */
+        public int getPercentage() {
+            long total = totalBytes;
+            return total == 0 ? (done ? 100 : 0) : (int) ((copiedBytes.get() + skippedBytes.get()) * 100 / total);
+        }
+
+        public long getElapsed() {
+            return System.currentTimeMillis() - started;
+        }
+    }
+}